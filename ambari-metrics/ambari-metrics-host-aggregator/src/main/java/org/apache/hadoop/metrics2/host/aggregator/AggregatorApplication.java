@@ -49,6 +49,7 @@ public class AggregatorApplication
     private final int webApplicationPort;
     private final int rawPublishingInterval;
     private final int aggregationInterval;
+    private final int maxBufferedMetricValues;
     private Configuration configuration;
     private Thread aggregatePublisherThread;
     private Thread rawPublisherThread;
@@ -65,7 +66,9 @@ public class AggregatorApplication
         this.aggregationInterval = configuration.getInt("timeline.metrics.host.aggregator.minute.interval", 300);
         this.rawPublishingInterval = configuration.getInt("timeline.metrics.sink.report.interval", 60);
         this.webApplicationPort = configuration.getInt("timeline.metrics.host.inmemory.aggregation.port", 61888);
-        this.timelineMetricsHolder = TimelineMetricsHolder.getInstance(rawPublishingInterval, aggregationInterval);
+        this.maxBufferedMetricValues = configuration.getInt("timeline.metrics.host.inmemory.aggregation.max.buffered.values",
+                TimelineMetricsHolder.DEFAULT_MAX_BUFFERED_METRIC_VALUES);
+        this.timelineMetricsHolder = TimelineMetricsHolder.getInstance(rawPublishingInterval, aggregationInterval, maxBufferedMetricValues);
         try {
             this.httpServer = createHttpServer();
         } catch (IOException e) {
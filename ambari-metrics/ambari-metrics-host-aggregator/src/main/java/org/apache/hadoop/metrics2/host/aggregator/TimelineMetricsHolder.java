@@ -17,40 +17,50 @@
  */
 package org.apache.hadoop.metrics2.host.aggregator;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Singleton class with 2 guava caches for raw and aggregated metrics storing
+ * Singleton class with 2 double buffers for raw and aggregated metrics storing.
+ * Writers append to the current buffer without locking, while the publishers swap in
+ * an empty buffer and drain the previous one. Each buffer holds a bounded number of
+ * metric values, metrics posted to a full buffer are dropped and counted.
  */
 public class TimelineMetricsHolder {
+    private static final Log LOG = LogFactory.getLog(TimelineMetricsHolder.class);
     private static final int DEFAULT_RAW_CACHE_EXPIRE_TIME = 60;
     private static final int DEFAULT_AGGREGATION_CACHE_EXPIRE_TIME = 300;
-    private Cache<String, TimelineMetrics> aggregationMetricsCache;
-    private Cache<String, TimelineMetrics> rawMetricsCache;
+    public static final int DEFAULT_MAX_BUFFERED_METRIC_VALUES = 500000;
+    private final MetricsBuffer aggregationMetricsBuffer;
+    private final MetricsBuffer rawMetricsBuffer;
     private static TimelineMetricsHolder instance = null;
     //to ensure no metric values are expired
     private static int EXPIRE_DELAY = 30;
-    ReadWriteLock aggregationCacheLock = new ReentrantReadWriteLock();
-    ReadWriteLock rawCacheLock = new ReentrantReadWriteLock();
 
-    private TimelineMetricsHolder(int rawCacheExpireTime, int aggregationCacheExpireTime) {
-        this.rawMetricsCache = CacheBuilder.newBuilder().expireAfterWrite(rawCacheExpireTime + EXPIRE_DELAY, TimeUnit.SECONDS).build();
-        this.aggregationMetricsCache = CacheBuilder.newBuilder().expireAfterWrite(aggregationCacheExpireTime + EXPIRE_DELAY, TimeUnit.SECONDS).build();
+    TimelineMetricsHolder(int rawCacheExpireTime, int aggregationCacheExpireTime, int maxBufferedMetricValues) {
+        this.rawMetricsBuffer = new MetricsBuffer("raw", rawCacheExpireTime + EXPIRE_DELAY, maxBufferedMetricValues);
+        this.aggregationMetricsBuffer = new MetricsBuffer("aggregation", aggregationCacheExpireTime + EXPIRE_DELAY, maxBufferedMetricValues);
     }
 
     public static TimelineMetricsHolder getInstance(int rawCacheExpireTime, int aggregationCacheExpireTime) {
+        return getInstance(rawCacheExpireTime, aggregationCacheExpireTime, DEFAULT_MAX_BUFFERED_METRIC_VALUES);
+    }
+
+    public static TimelineMetricsHolder getInstance(int rawCacheExpireTime, int aggregationCacheExpireTime, int maxBufferedMetricValues) {
         if (instance == null) {
-            instance = new TimelineMetricsHolder(rawCacheExpireTime, aggregationCacheExpireTime);
+            instance = new TimelineMetricsHolder(rawCacheExpireTime, aggregationCacheExpireTime, maxBufferedMetricValues);
         }
         return instance;
     }
@@ -64,45 +74,154 @@ public class TimelineMetricsHolder {
     }
 
     public void putMetricsForAggregationPublishing(TimelineMetrics timelineMetrics) {
-        aggregationCacheLock.writeLock().lock();
-        aggregationMetricsCache.put(calculateCacheKey(timelineMetrics), timelineMetrics);
-        aggregationCacheLock.writeLock().unlock();
+        aggregationMetricsBuffer.put(timelineMetrics);
     }
 
-    private String calculateCacheKey(TimelineMetrics timelineMetrics) {
+    private static String calculateCacheKey(TimelineMetrics timelineMetrics, long timestamp) {
         List<TimelineMetric>  metrics =  timelineMetrics.getMetrics();
         if (metrics.size() > 0) {
-            return  metrics.get(0).getAppId() + System.currentTimeMillis();
+            return  metrics.get(0).getAppId() + timestamp;
         }
-        return String.valueOf(System.currentTimeMillis());
+        return String.valueOf(timestamp);
     }
 
     public Map<String, TimelineMetrics> extractMetricsForAggregationPublishing() {
-        return extractMetricsFromCacheWithLock(aggregationMetricsCache, aggregationCacheLock);
+        return aggregationMetricsBuffer.extract();
     }
 
     public void putMetricsForRawPublishing(TimelineMetrics metrics) {
-        rawCacheLock.writeLock().lock();
-        rawMetricsCache.put(calculateCacheKey(metrics), metrics);
-        rawCacheLock.writeLock().unlock();
+        rawMetricsBuffer.put(metrics);
     }
 
     public Map<String, TimelineMetrics> extractMetricsForRawPublishing() {
-        return extractMetricsFromCacheWithLock(rawMetricsCache, rawCacheLock);
+        return rawMetricsBuffer.extract();
+    }
+
+    /**
+     * @return number of metrics dropped so far because the aggregation buffer was full
+     */
+    public long getDroppedAggregationMetricsCount() {
+        return aggregationMetricsBuffer.droppedCount.get();
+    }
+
+    /**
+     * @return number of metrics dropped so far because the raw buffer was full
+     */
+    public long getDroppedRawMetricsCount() {
+        return rawMetricsBuffer.droppedCount.get();
     }
 
     /**
-     * Returns values from cache and clears the cache
-     * @param cache
-     * @param lock
+     * Counts the metric values of the given metrics, a metric without values counts as one
+     * @param timelineMetrics
      * @return
      */
-    private Map<String, TimelineMetrics> extractMetricsFromCacheWithLock(Cache<String, TimelineMetrics> cache, ReadWriteLock lock) {
-        lock.writeLock().lock();
-        Map<String, TimelineMetrics> metricsMap = new TreeMap<>(cache.asMap());
-        cache.invalidateAll();
-        lock.writeLock().unlock();
-        return metricsMap;
+    static int getMetricValuesCount(TimelineMetrics timelineMetrics) {
+        int count = 0;
+        for (TimelineMetric metric : timelineMetrics.getMetrics()) {
+            count += Math.max(1, metric.getMetricValues().size());
+        }
+        return count;
+    }
+
+    /**
+     * Posted metrics with the time they were received.
+     */
+    private static final class BufferedMetrics {
+        private final TimelineMetrics metrics;
+        private final long timestamp;
+
+        private BufferedMetrics(TimelineMetrics metrics, long timestamp) {
+            this.metrics = metrics;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Single generation of a double buffer. Writers register themselves before appending
+     * so that a publisher which swapped the generation out can wait for the appends in flight.
+     */
+    private static final class Generation {
+        private final ConcurrentLinkedQueue<BufferedMetrics> metrics = new ConcurrentLinkedQueue<>();
+        private final AtomicLong metricValuesCount = new AtomicLong();
+        private final AtomicInteger writers = new AtomicInteger();
+        private final AtomicLong droppedCount = new AtomicLong();
     }
 
+    /**
+     * Double buffer for one of the publishers.
+     */
+    private static final class MetricsBuffer {
+        private final String name;
+        private final long expireTimeMillis;
+        private final int maxMetricValues;
+        private final AtomicReference<Generation> current = new AtomicReference<>(new Generation());
+        private final AtomicLong droppedCount = new AtomicLong();
+
+        private MetricsBuffer(String name, int expireTimeSeconds, int maxMetricValues) {
+            this.name = name;
+            this.expireTimeMillis = TimeUnit.SECONDS.toMillis(expireTimeSeconds);
+            this.maxMetricValues = maxMetricValues;
+        }
+
+        private void put(TimelineMetrics timelineMetrics) {
+            int metricValuesCount = getMetricValuesCount(timelineMetrics);
+            while (true) {
+                Generation generation = current.get();
+                generation.writers.incrementAndGet();
+                try {
+                    // the generation was swapped out before this writer registered, retry with the new one
+                    if (generation != current.get()) {
+                        continue;
+                    }
+                    if (generation.metricValuesCount.addAndGet(metricValuesCount) > maxMetricValues) {
+                        generation.metricValuesCount.addAndGet(-metricValuesCount);
+                        generation.droppedCount.incrementAndGet();
+                        droppedCount.incrementAndGet();
+                    } else {
+                        generation.metrics.offer(new BufferedMetrics(timelineMetrics, System.currentTimeMillis()));
+                    }
+                    return;
+                } finally {
+                    generation.writers.decrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Swaps in an empty buffer and returns the not expired values of the previous one
+         * @return
+         */
+        private Map<String, TimelineMetrics> extract() {
+            Generation generation = current.getAndSet(new Generation());
+            // appends in flight only take as long as a queue offer
+            while (generation.writers.get() > 0) {
+                Thread.yield();
+            }
+
+            long expireTime = System.currentTimeMillis() - expireTimeMillis;
+            Map<String, TimelineMetrics> metricsMap = new TreeMap<>();
+            // metrics of the same app received within the same millisecond get a sequence suffix
+            Map<String, Integer> keyCollisions = new HashMap<>();
+            for (BufferedMetrics bufferedMetrics : generation.metrics) {
+                if (bufferedMetrics.timestamp < expireTime) {
+                    continue;
+                }
+                String key = calculateCacheKey(bufferedMetrics.metrics, bufferedMetrics.timestamp);
+                Integer collisions = keyCollisions.get(key);
+                keyCollisions.put(key, collisions == null ? 0 : collisions + 1);
+                if (collisions != null) {
+                    key = key + "-" + (collisions + 1);
+                }
+                metricsMap.put(key, bufferedMetrics.metrics);
+            }
+
+            long dropped = generation.droppedCount.get();
+            if (dropped > 0) {
+                LOG.warn(String.format("Dropped %s timeline metrics for %s publishing, the buffer was full with %s metric values",
+                        dropped, name, maxMetricValues));
+            }
+            return metricsMap;
+        }
+    }
 }
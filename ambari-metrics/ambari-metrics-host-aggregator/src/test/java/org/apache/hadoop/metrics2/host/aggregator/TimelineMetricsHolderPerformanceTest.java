@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.host.aggregator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compares the put latency of {@link TimelineMetricsHolder} with the previous
+ * cache and lock based holder while a publisher extracts the metrics continuously.
+ */
+@Ignore
+public class TimelineMetricsHolderPerformanceTest {
+    private static final int WRITERS = 8;
+    private static final int PUTS_PER_WRITER = 200000;
+    private static final int ROUNDS = 3;
+
+    interface Holder {
+        void put(TimelineMetrics metrics);
+
+        Map<String, TimelineMetrics> extract();
+    }
+
+    /**
+     * The previous holder implementation.
+     */
+    static class LockingHolder implements Holder {
+        private final Cache<String, TimelineMetrics> cache = CacheBuilder.newBuilder().expireAfterWrite(90, TimeUnit.SECONDS).build();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override
+        public void put(TimelineMetrics metrics) {
+            lock.writeLock().lock();
+            cache.put(metrics.getMetrics().get(0).getAppId() + System.currentTimeMillis(), metrics);
+            lock.writeLock().unlock();
+        }
+
+        @Override
+        public Map<String, TimelineMetrics> extract() {
+            lock.writeLock().lock();
+            Map<String, TimelineMetrics> metricsMap = new TreeMap<>(cache.asMap());
+            cache.invalidateAll();
+            lock.writeLock().unlock();
+            return metricsMap;
+        }
+    }
+
+    static class DoubleBufferedHolder implements Holder {
+        private final TimelineMetricsHolder holder = new TimelineMetricsHolder(60, 60, Integer.MAX_VALUE);
+
+        @Override
+        public void put(TimelineMetrics metrics) {
+            holder.putMetricsForRawPublishing(metrics);
+        }
+
+        @Override
+        public Map<String, TimelineMetrics> extract() {
+            return holder.extractMetricsForRawPublishing();
+        }
+    }
+
+    @Test
+    public void testPutLatency() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            run("locking", new LockingHolder());
+            run("double buffered", new DoubleBufferedHolder());
+        }
+    }
+
+    private void run(String name, final Holder holder) throws Exception {
+        final TimelineMetrics metrics = TimelineMetricsHolderTest.getTimelineMetricsWithAppID("app", 10);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(WRITERS);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+
+        for (int i = 0; i < WRITERS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < PUTS_PER_WRITER; j++) {
+                            holder.put(metrics);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (writing.get()) {
+                    holder.extract();
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        publisher.start();
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startTime;
+        writing.set(false);
+        publisher.join();
+        holder.extract();
+
+        System.out.println(String.format("%s holder: %d puts by %d writers in %d ms, %.1f ns per put",
+                name, WRITERS * PUTS_PER_WRITER, WRITERS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                (double) elapsed / PUTS_PER_WRITER));
+    }
+}
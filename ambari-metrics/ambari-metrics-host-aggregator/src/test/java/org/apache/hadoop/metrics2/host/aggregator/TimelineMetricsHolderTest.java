@@ -25,6 +25,11 @@ import org.junit.Test;
 import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 
 public class TimelineMetricsHolderTest {
@@ -97,6 +102,69 @@ public class TimelineMetricsHolderTest {
         Assert.assertEquals(0, rawMap.size());
     }
 
+    @Test
+    public void testMaxBufferedMetricValues() throws Exception {
+        TimelineMetricsHolder holder = new TimelineMetricsHolder(4, 4, 3);
+        holder.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw", 2));
+        holder.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw", 2));
+        holder.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw", 1));
+
+        Assert.assertEquals(1, holder.getDroppedRawMetricsCount());
+        Assert.assertEquals(0, holder.getDroppedAggregationMetricsCount());
+        Assert.assertEquals(2, holder.extractMetricsForRawPublishing().size());
+
+        //the next buffer is empty again
+        holder.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw", 3));
+        Assert.assertEquals(1, holder.extractMetricsForRawPublishing().size());
+        Assert.assertEquals(1, holder.getDroppedRawMetricsCount());
+    }
+
+    @Test
+    public void testConcurrentPutAndExtract() throws Exception {
+        final int writers = 4;
+        final int putsPerWriter = 10000;
+        final TimelineMetricsHolder holder = new TimelineMetricsHolder(60, 60, Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            Future<?>[] futures = new Future<?>[writers];
+            for (int i = 0; i < writers; i++) {
+                futures[i] = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < putsPerWriter; j++) {
+                            holder.putMetricsForRawPublishing(getTimelineMetricsWithAppID("raw"));
+                        }
+                    }
+                });
+            }
+
+            int extracted = 0;
+            for (Future<?> future : futures) {
+                while (!future.isDone()) {
+                    extracted += holder.extractMetricsForRawPublishing().size();
+                }
+                future.get(30, TimeUnit.SECONDS);
+            }
+            extracted += holder.extractMetricsForRawPublishing().size();
+
+            //metrics of the same app posted within the same millisecond must not overwrite each other
+            Assert.assertEquals(writers * putsPerWriter, extracted);
+            Assert.assertEquals(0, holder.getDroppedRawMetricsCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static TimelineMetrics getTimelineMetricsWithAppID(String appId, int valuesCount) {
+        TimelineMetrics timelineMetrics = getTimelineMetricsWithAppID(appId);
+        TreeMap<Long, Double> metricValues = new TreeMap<>();
+        for (long i = 0; i < valuesCount; i++) {
+            metricValues.put(i, 1.0);
+        }
+        timelineMetrics.getMetrics().get(0).setMetricValues(metricValues);
+        return timelineMetrics;
+    }
+
     public static TimelineMetrics getTimelineMetricsWithAppID(String appId) {
         TimelineMetric timelineMetric = new TimelineMetric();
         timelineMetric.setAppId(appId);
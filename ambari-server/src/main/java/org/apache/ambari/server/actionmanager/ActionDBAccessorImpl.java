@@ -46,6 +46,7 @@ import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.events.HostsRemovedEvent;
 import org.apache.ambari.server.events.RequestFinishedEvent;
 import org.apache.ambari.server.events.RequestUpdateEvent;
+import org.apache.ambari.server.events.RequestsPurgedEvent;
 import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.StateUpdateEventPublisher;
@@ -853,6 +854,17 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
     hostRoleCommandCache.invalidateAll();
   }
 
+  /**
+   * Invalidate cached HostRoleCommands and request details of purged requests.
+   * @param event @RequestsPurgedEvent
+   */
+  @Subscribe
+  public void invalidateCommandCacheOnRequestsPurged(RequestsPurgedEvent event) {
+    LOG.debug("Invalidating HRC cache after receiving {}", event);
+    hostRoleCommandCache.invalidateAll(event.getTaskIds());
+    auditlogRequestCache.invalidateAll(event.getRequestIds());
+  }
+
   /**
    * Updates auditlog cache and returns the status of the latest task for the given component on the given host.
    * @param commandEntity new entity with the new status. It also holds the component and the hostname
@@ -17,7 +17,10 @@
  */
 package org.apache.ambari.server.agent;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.agent.stomp.dto.HostStatusReport;
 
@@ -27,6 +30,7 @@ public class AgentReport {
   private List<ComponentStatus> componentStatuses;
   private List<CommandReport> reports;
   private HostStatusReport hostStatusReport;
+  private final long receivedTime = System.nanoTime();
 
   public AgentReport(String hostName, List<ComponentStatus> componentStatuses, List<CommandReport> reports, HostStatusReport hostStatusReport) {
     this.hostName = hostName;
@@ -50,4 +54,45 @@ public class AgentReport {
   public HostStatusReport getHostStatusReport() {
     return hostStatusReport;
   }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the report was received
+   */
+  public long getReceivedTime() {
+    return receivedTime;
+  }
+
+  /**
+   * Merges the component statuses of a newer report into this one. A newer
+   * status replaces the status of the same component in this report.
+   *
+   * @param newerStatuses
+   *          the component statuses of the newer report.
+   */
+  void mergeComponentStatuses(List<ComponentStatus> newerStatuses) {
+    Map<String, ComponentStatus> statuses = new LinkedHashMap<>();
+    for (ComponentStatus status : componentStatuses) {
+      statuses.put(getComponentKey(status), status);
+    }
+    for (ComponentStatus status : newerStatuses) {
+      statuses.put(getComponentKey(status), status);
+    }
+
+    componentStatuses = new ArrayList<>(statuses.values());
+  }
+
+  /**
+   * Replaces the host status report of this report with the one of a newer
+   * report.
+   *
+   * @param newerHostStatusReport
+   *          the host status report of the newer report.
+   */
+  void replaceHostStatusReport(HostStatusReport newerHostStatusReport) {
+    hostStatusReport = newerHostStatusReport;
+  }
+
+  private static String getComponentKey(ComponentStatus status) {
+    return status.getClusterId() + "/" + status.getServiceName() + "/" + status.getComponentName();
+  }
 }
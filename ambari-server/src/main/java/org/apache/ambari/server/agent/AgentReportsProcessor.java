@@ -17,33 +17,79 @@
  */
 package org.apache.ambari.server.agent;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.persist.UnitOfWork;
 
+/**
+ * The {@link AgentReportsProcessor} processes the command, component status and
+ * host status reports sent by the agents.
+ * <p/>
+ * Reports are routed into shards by host name, and each shard is processed by
+ * a single thread, so that the reports of a host are always processed in the
+ * order they were received and a burst of reports from one host only delays
+ * the hosts of its shard. A component or host status report for a host which
+ * still has one waiting is merged into it rather than queued, so that status
+ * reports are never dropped while the number of them waiting is bounded by the
+ * number of hosts. A command report waits a bounded time for room in its
+ * shard's queue and is then queued anyway. The waiting reports are processed
+ * in batches which share a single unit of work.
+ */
 @Singleton
 public class AgentReportsProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(AgentReportsProcessor.class);
 
+  /**
+   * The maximum number of reports processed in a single unit of work.
+   */
+  static final int BATCH_SIZE = 100;
+
+  /**
+   * The longest time, in milliseconds, a command report waits for room in a
+   * full shard, so that the thread which received it is not held for long.
+   */
+  static final long COMMAND_REPORT_MAX_WAIT = 1000;
+
+  /**
+   * The names of the metrics of the shards; the per shard metrics are prefixed
+   * with {@link #METRIC_SHARD_PREFIX} and the index of the shard.
+   */
+  static final String METRIC_PREFIX = "agent.reports.";
+  static final String METRIC_SHARD_PREFIX = METRIC_PREFIX + "shard.";
+  static final String METRIC_QUEUE_SIZE = "queue.size";
+  static final String METRIC_LAG = "lag";
+  static final String METRIC_COALESCED = METRIC_PREFIX + "coalesced";
+  static final String METRIC_OVERFLOWED = METRIC_PREFIX + "overflowed";
+
   private ScheduledExecutorService executor;
 
-  private ConcurrentLinkedQueue<AgentReport> agentReportsQueue = new ConcurrentLinkedQueue<>();
+  private final Shard[] shards;
 
-  public void addAgentReport(AgentReport agentReport) {
-    agentReportsQueue.add(agentReport);
-  }
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final Counter coalescedReports = metricRegistry.counter(METRIC_COALESCED);
+  private final Counter overflowedReports = metricRegistry.counter(METRIC_OVERFLOWED);
 
   @Inject
   private HeartBeatHandler hh;
@@ -56,43 +102,214 @@ public class AgentReportsProcessor {
 
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("agent-report-processor-%d").build();
     int poolSize = configuration.getAgentsReportThreadPoolSize();
+    int queueSize = configuration.getAgentsReportQueueSize();
     executor = Executors.newScheduledThreadPool(poolSize, threadFactory);
+    shards = new Shard[poolSize];
     for (int i=0; i< poolSize; i++) {
-      executor.scheduleAtFixedRate(new AgentReportProcessingTask(),
+      shards[i] = new Shard(i, queueSize);
+      executor.scheduleAtFixedRate(shards[i],
           configuration.getAgentsReportProcessingStartTimeout(),
           configuration.getAgentsReportProcessingPeriod(), TimeUnit.SECONDS);
     }
   }
 
-  private class AgentReportProcessingTask implements Runnable {
+  /**
+   * Queues a report for processing on the shard of its host. Status reports are
+   * merged into the waiting status report of their host if there is one;
+   * command reports wait at most {@link #COMMAND_REPORT_MAX_WAIT} for room if
+   * the shard is full.
+   *
+   * @param agentReport
+   *          the report.
+   */
+  public void addAgentReport(AgentReport agentReport) {
+    getShard(agentReport.getHostName()).add(agentReport);
+  }
+
+  /**
+   * Gets the registry of the queue sizes and processing lag of the shards, and
+   * of the number of coalesced reports and of reports queued into a full shard.
+   *
+   * @return the metric registry
+   */
+  public MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
 
-    @Override
-    public void run() {
+  Shard getShard(String hostName) {
+    return shards[Math.floorMod(hostName.hashCode(), shards.length)];
+  }
+
+  /**
+   * The reports of the hosts routed to a single processing thread.
+   */
+  class Shard implements Runnable {
+
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * The reports waiting to be processed, in the order they were received.
+     */
+    private final ArrayDeque<AgentReport> reports = new ArrayDeque<>();
+
+    /**
+     * The component status report of each host which is waiting to be
+     * processed and which a newer component status report of the host can be
+     * merged into, since no command report of the host was received after it.
+     */
+    private final Map<String, AgentReport> componentStatusReports = new HashMap<>();
+
+    /**
+     * The host status report of each host which is waiting to be processed and
+     * which a newer host status report of the host can replace, since no
+     * command report of the host was received after it.
+     */
+    private final Map<String, AgentReport> hostStatusReports = new HashMap<>();
+
+    private final Timer lag;
+
+    private Shard(int index, int capacity) {
+      this.capacity = Math.max(1, capacity);
+
+      String prefix = METRIC_SHARD_PREFIX + index + ".";
+      lag = metricRegistry.timer(prefix + METRIC_LAG);
+      metricRegistry.register(prefix + METRIC_QUEUE_SIZE, (Gauge<Integer>) this::size);
+    }
+
+    void add(AgentReport agentReport) {
+      String hostName = agentReport.getHostName();
+      boolean commandReport = null != agentReport.getCommandReports();
+      boolean componentStatusReport = !commandReport && null != agentReport.getComponentStatuses();
+
+      lock.lock();
       try {
-        unitOfWork.begin();
-        while (true) {
-          AgentReport agentReport = agentReportsQueue.poll();
-          if (agentReport == null) {
-            break;
+        if (componentStatusReport) {
+          AgentReport waitingReport = componentStatusReports.get(hostName);
+          if (null != waitingReport) {
+            waitingReport.mergeComponentStatuses(agentReport.getComponentStatuses());
+            coalescedReports.inc();
+            return;
           }
-          String hostName = agentReport.getHostName();
-          try {
-
-            //TODO rewrite with polymorphism usage.
-            if (agentReport.getCommandReports() != null) {
-              hh.handleCommandReportStatus(agentReport.getCommandReports(), hostName);
-            } else if (agentReport.getComponentStatuses() != null) {
-              hh.handleComponentReportStatus(agentReport.getComponentStatuses(), hostName);
-            } else if (agentReport.getHostStatusReport() != null) {
-              hh.handleHostReportStatus(agentReport.getHostStatusReport(), hostName);
-            }
-          } catch (AmbariException e) {
-            LOG.error("Error processing agent reports", e);
+        } else if (!commandReport) {
+          AgentReport waitingReport = hostStatusReports.get(hostName);
+          if (null != waitingReport) {
+            waitingReport.replaceHostStatusReport(agentReport.getHostStatusReport());
+            coalescedReports.inc();
+            return;
           }
         }
+
+        if (commandReport && reports.size() >= capacity) {
+          awaitNotFull();
+        }
+
+        if (reports.size() >= capacity) {
+          overflowedReports.inc();
+        }
+
+        reports.add(agentReport);
+        if (componentStatusReport) {
+          componentStatusReports.put(hostName, agentReport);
+        } else if (!commandReport) {
+          hostStatusReports.put(hostName, agentReport);
+        } else {
+          componentStatusReports.remove(hostName);
+          hostStatusReports.remove(hostName);
+        }
       } finally {
-        unitOfWork.end();
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Removes the next batch of waiting reports.
+     *
+     * @return the reports, in the order they were received
+     */
+    List<AgentReport> poll() {
+      lock.lock();
+      try {
+        List<AgentReport> batch = new ArrayList<>(Math.min(BATCH_SIZE, reports.size()));
+        while (batch.size() < BATCH_SIZE && !reports.isEmpty()) {
+          AgentReport agentReport = reports.poll();
+          componentStatusReports.remove(agentReport.getHostName(), agentReport);
+          hostStatusReports.remove(agentReport.getHostName(), agentReport);
+          batch.add(agentReport);
+        }
+
+        notFull.signalAll();
+        return batch;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return reports.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      List<AgentReport> batch;
+      while (!(batch = poll()).isEmpty()) {
+        try {
+          unitOfWork.begin();
+          for (AgentReport agentReport : batch) {
+            lag.update(System.nanoTime() - agentReport.getReceivedTime(), TimeUnit.NANOSECONDS);
+            processReport(agentReport);
+          }
+        } finally {
+          unitOfWork.end();
+        }
+      }
+    }
+
+    /**
+     * Waits at most {@link #COMMAND_REPORT_MAX_WAIT} for room in the queue.
+     * Must be called with the lock held.
+     */
+    private void awaitNotFull() {
+      long remaining = TimeUnit.MILLISECONDS.toNanos(COMMAND_REPORT_MAX_WAIT);
+      try {
+        while (reports.size() >= capacity && remaining > 0) {
+          remaining = notFull.awaitNanos(remaining);
+        }
+      } catch (InterruptedException e) {
+        // the command report is queued anyway rather than lost, and the
+        // interrupt is left for the caller to handle
+        Thread.currentThread().interrupt();
+      }
+
+      if (reports.size() >= capacity) {
+        LOG.warn("Queueing a command report into a shard with {} reports waiting to be processed",
+            reports.size());
+      }
+    }
+  }
+
+  private void processReport(AgentReport agentReport) {
+    String hostName = agentReport.getHostName();
+    try {
+
+      //TODO rewrite with polymorphism usage.
+      if (agentReport.getCommandReports() != null) {
+        hh.handleCommandReportStatus(agentReport.getCommandReports(), hostName);
+      } else if (agentReport.getComponentStatuses() != null) {
+        hh.handleComponentReportStatus(agentReport.getComponentStatuses(), hostName);
+      } else if (agentReport.getHostStatusReport() != null) {
+        hh.handleHostReportStatus(agentReport.getHostStatusReport(), hostName);
       }
+    } catch (AmbariException | RuntimeException e) {
+      // a failure must not stop the processing of the shard's other reports
+      LOG.error("Error processing agent reports", e);
     }
   }
 }
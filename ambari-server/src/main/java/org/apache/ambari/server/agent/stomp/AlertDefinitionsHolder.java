@@ -18,6 +18,8 @@
 package org.apache.ambari.server.agent.stomp;
 
 import static org.apache.ambari.server.events.AlertDefinitionEventType.CREATE;
+import static org.apache.ambari.server.events.AlertDefinitionEventType.DELETE;
+import static org.apache.ambari.server.events.AlertDefinitionEventType.UPDATE;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -182,6 +184,65 @@ public class AlertDefinitionsHolder extends AgentHostDataHolder<AlertDefinitions
     safelyUpdateData(event);
   }
 
+  /**
+   * Brings the alert definitions of a cluster which are scheduled on a host in
+   * line with the specified definitions. Rather than sending the full list, the
+   * agent is only sent the definitions which were added or changed, as an
+   * {@link AlertDefinitionEventType#UPDATE}, and the definitions which were
+   * removed, as an {@link AlertDefinitionEventType#DELETE}.
+   * <p/>
+   * Nothing is sent to hosts which have not been sent any definitions yet,
+   * since they will receive the current definitions when they register.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param alertDefinitions
+   *          all of the definitions of the cluster which should be scheduled on
+   *          the host, by ID.
+   * @param hostName
+   *          the host name.
+   * @throws AmbariException
+   *           if the host does not exist.
+   */
+  public void provideAlertDefinitionDelta(Long clusterId, Map<Long, AlertDefinition> alertDefinitions,
+                                          String hostName) throws AmbariException {
+    Long hostId = clusters.get().getHost(hostName).getHostId();
+    AlertDefinitionsAgentUpdateEvent hostData = getData(hostId);
+    if (null == hostData) {
+      return;
+    }
+
+    AlertCluster existingCluster = hostData.getClusters().get(clusterId);
+    if (null == existingCluster) {
+      Map<Long, AlertCluster> create = Collections.singletonMap(clusterId, new AlertCluster(alertDefinitions, hostName));
+      safelyUpdateData(new AlertDefinitionsAgentUpdateEvent(CREATE, create, hostName, hostId));
+      return;
+    }
+
+    Map<Long, AlertDefinition> removed = new HashMap<>();
+    for (AlertDefinition existing : existingCluster.getAlertDefinitions()) {
+      removed.put(existing.getDefinitionId(), existing);
+    }
+
+    Map<Long, AlertDefinition> changed = new HashMap<>();
+    for (Map.Entry<Long, AlertDefinition> e : alertDefinitions.entrySet()) {
+      AlertDefinition existing = removed.remove(e.getKey());
+      if (null == existing || !existing.deeplyEquals(e.getValue())) {
+        changed.put(e.getKey(), e.getValue());
+      }
+    }
+
+    LOG.debug("Alert definitions of cluster {} on host {}: {} added or changed, {} removed", clusterId, hostName,
+        changed.size(), removed.size());
+
+    if (!removed.isEmpty()) {
+      provideAlertDefinitionAgentUpdateEvent(DELETE, clusterId, removed, hostName);
+    }
+    if (!changed.isEmpty()) {
+      provideAlertDefinitionAgentUpdateEvent(UPDATE, clusterId, changed, hostName);
+    }
+  }
+
   public void provideStaleAlertDefinitionUpdateEvent(AlertDefinitionEventType eventType, Long clusterId,
                                                      Integer staleIntervalMultiplier, String hostName) throws AmbariException {
     Long hostId = clusters.get().getHost(hostName).getHostId();
@@ -18,11 +18,11 @@
 package org.apache.ambari.server.agent.stomp;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.ClusterNotFoundException;
@@ -40,6 +40,7 @@ import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.ServiceComponentHostTopology;
 import org.apache.ambari.server.state.StackId;
 import org.apache.commons.collections.CollectionUtils;
 
@@ -79,10 +80,16 @@ public class TopologyHolder extends AgentClusterDataHolder<TopologyUpdateEvent>
       Collection<Host> clusterHosts = cl.getHosts();
       Set<TopologyComponent> topologyComponents = new HashSet<>();
       Set<TopologyHost> topologyHosts = new HashSet<>();
+      Map<String, Long> hostIdsByName = new HashMap<>();
       for (Host host : clusterHosts) {
         topologyHosts.add(new TopologyHost(host.getHostId(), host.getHostName(),
             host.getRackInfo(), host.getIPv4()));
+        hostIdsByName.put(host.getHostName(), host.getHostId());
       }
+
+      // resolve the hosts of every component from one consistent snapshot
+      // rather than scanning all of the cluster hosts once per component
+      ServiceComponentHostTopology serviceComponentHostTopology = cl.getServiceComponentHostTopology();
       for (Service service : cl.getServices().values()) {
         for (ServiceComponent component : service.getServiceComponents().values()) {
           Map<String, ServiceComponentHost> componentsMap = component.getServiceComponentHosts();
@@ -91,11 +98,14 @@ public class TopologyHolder extends AgentClusterDataHolder<TopologyUpdateEvent>
             //TODO will be a need to change to multi-instance usage
             ServiceComponentHost sch = componentsMap.entrySet().iterator().next().getValue();
 
-            Set<String> hostNames = cl.getHosts(sch.getServiceName(), sch.getServiceComponentName());
-            Set<Long> hostOrderIds = clusterHosts.stream()
-              .filter(h -> hostNames.contains(h.getHostName()))
-              .map(Host::getHostId)
-              .collect(Collectors.toSet());
+            Set<Long> hostOrderIds = new HashSet<>();
+            for (String hostName : serviceComponentHostTopology.getHostNames(sch.getServiceName(),
+                sch.getServiceComponentName())) {
+              Long hostId = hostIdsByName.get(hostName);
+              if (hostId != null) {
+                hostOrderIds.add(hostId);
+              }
+            }
             String serviceName = sch.getServiceName();
             String componentName = sch.getServiceComponentName();
             StackId stackId = cl.getDesiredStackVersion();
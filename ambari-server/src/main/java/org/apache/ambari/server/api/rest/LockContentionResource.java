@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.ambari.annotations.ApiIgnore;
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.logging.LockContentionRecorder;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.ambari.server.security.authorization.ResourceType;
+import org.apache.ambari.server.security.authorization.RoleAuthorization;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+
+/**
+ * Exposes the contention statistics collected for the server's internal locks.
+ *
+ * @see LockContentionRecorder
+ */
+@StaticallyInject
+@Path("/locks/")
+public class LockContentionResource {
+
+  @Inject
+  private static LockFactory lockFactory;
+
+  private static final Gson gson = new Gson();
+
+  /**
+   * Handles: GET /locks/contention
+   * Returns, for every sampled lock, the wait and hold time distributions (in microseconds),
+   * the number of long holds and the call sites which waited the longest.
+   *
+   * @param top the maximum number of waiting call sites to return per lock
+   * @return the contention statistics as JSON
+   */
+  @GET @ApiIgnore // until documented
+  @Path("contention")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getContention(@QueryParam("top") @DefaultValue("10") int top) {
+    if (!AuthorizationHelper.isAuthorized(ResourceType.AMBARI, null, RoleAuthorization.AMBARI_MANAGE_SETTINGS)) {
+      return Response.status(Response.Status.FORBIDDEN)
+        .entity("The authenticated user is not authorized to perform this operation.").build();
+    }
+
+    LockContentionRecorder recorder = lockFactory.getContentionRecorder();
+
+    Map<String, Object> locks = new LinkedHashMap<>();
+    for (LockContentionRecorder.LockStatistics statistics : recorder.getAllStatistics().values()) {
+      Map<String, Object> lock = new LinkedHashMap<>();
+      lock.put("wait_time", toMap(statistics.getWaitTimes()));
+      lock.put("hold_time", toMap(statistics.getHoldTimes()));
+      lock.put("long_holds", statistics.getLongHoldCount());
+      lock.put("top_waiters", statistics.getTopWaitingCallSites(top));
+      locks.put(statistics.getName(), lock);
+    }
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("enabled", recorder.isEnabled());
+    result.put("locks", locks);
+    return Response.ok(gson.toJson(result)).build();
+  }
+
+  private static Map<String, Object> toMap(Histogram histogram) {
+    Snapshot snapshot = histogram.getSnapshot();
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("count", histogram.getCount());
+    map.put("mean", snapshot.getMean());
+    map.put("median", snapshot.getMedian());
+    map.put("p95", snapshot.get95thPercentile());
+    map.put("p99", snapshot.get99thPercentile());
+    map.put("max", snapshot.getMax());
+    return map;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.api.rest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.ambari.annotations.ApiIgnore;
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.cleanup.HistoryPurgeService;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.ambari.server.security.authorization.ResourceType;
+import org.apache.ambari.server.security.authorization.RoleAuthorization;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+
+/**
+ * Exposes the progress of the online purge of historical requests and alerts.
+ *
+ * @see HistoryPurgeService
+ */
+@StaticallyInject
+@Path("/purge/")
+public class PurgeResource {
+
+  @Inject
+  private static HistoryPurgeService historyPurgeService;
+
+  private static final Gson gson = new Gson();
+
+  /**
+   * Handles: GET /purge/status
+   * Returns the state of the purge, the rows deleted and the deletion rate of
+   * the current and last runs, and the totals since the server started.
+   *
+   * @return the purge status as JSON
+   */
+  @GET @ApiIgnore // until documented
+  @Path("status")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getStatus() {
+    if (!AuthorizationHelper.isAuthorized(ResourceType.AMBARI, null, RoleAuthorization.AMBARI_MANAGE_SETTINGS)) {
+      return Response.status(Response.Status.FORBIDDEN)
+        .entity("The authenticated user is not authorized to perform this operation.").build();
+    }
+
+    return Response.ok(gson.toJson(historyPurgeService.getStatus())).build();
+  }
+}
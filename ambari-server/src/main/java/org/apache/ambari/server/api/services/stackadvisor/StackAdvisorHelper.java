@@ -20,6 +20,8 @@ package org.apache.ambari.server.api.services.stackadvisor;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
@@ -56,12 +58,24 @@ public class StackAdvisorHelper {
   private final AmbariServerConfigurationHandler ambariServerConfigurationHandler;
 
   /* Monotonically increasing requestid */
-  private int requestId = 0;
+  private final AtomicInteger requestId = new AtomicInteger(0);
   private StackAdvisorRunner saRunner;
 
+  /**
+   * Bounds the number of advisor invocations (and therefore forked advisor
+   * processes) running at the same time.
+   */
+  private final Semaphore concurrentRequests;
+
+  /**
+   * Results of previous advisor invocations, keyed by their input.
+   */
+  private final StackAdvisorResultCache resultCache;
+
   @Inject
   public StackAdvisorHelper(Configuration conf, StackAdvisorRunner saRunner,
-                            AmbariMetaInfo metaInfo, AmbariServerConfigurationHandler ambariServerConfigurationHandler) throws IOException {
+                            AmbariMetaInfo metaInfo, AmbariServerConfigurationHandler ambariServerConfigurationHandler,
+                            StackAdvisorResultCache resultCache) throws IOException {
     this.recommendationsDir = conf.getRecommendationsDir();
     this.recommendationsArtifactsLifetime = conf.getRecommendationsArtifactsLifetime();
     this.recommendationsArtifactsRolloverMax = conf.getRecommendationsArtifactsRolloverMax();
@@ -70,6 +84,8 @@ public class StackAdvisorHelper {
     this.saRunner = saRunner;
     this.metaInfo = metaInfo;
     this.ambariServerConfigurationHandler = ambariServerConfigurationHandler;
+    this.resultCache = resultCache;
+    this.concurrentRequests = new Semaphore(Math.max(1, conf.getStackAdvisorMaxConcurrentRequests()), true);
   }
 
   /**
@@ -80,10 +96,8 @@ public class StackAdvisorHelper {
    * @return {@link ValidationResponse} instance
    * @throws StackAdvisorException in case of stack advisor script errors
    */
-  public synchronized ValidationResponse validate(StackAdvisorRequest request)
+  public ValidationResponse validate(StackAdvisorRequest request)
       throws StackAdvisorException {
-      requestId = generateRequestId();
-
     // TODO, need frontend to pass the Service Name that was modified.
     // For now, hardcode.
     // Once fixed, change StackAdvisorHelperTest.java to use the actual service name.
@@ -91,10 +105,11 @@ public class StackAdvisorHelper {
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
     StackAdvisorCommand<ValidationResponse> command = createValidationCommand(serviceName, request);
 
-    return command.invoke(request, serviceAdvisorType);
+    return invoke(command, request, serviceAdvisorType);
   }
 
   StackAdvisorCommand<ValidationResponse> createValidationCommand(String serviceName, StackAdvisorRequest request) throws StackAdvisorException {
+    int requestId = generateRequestId();
     StackAdvisorRequestType requestType = request.getRequestType();
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
 
@@ -110,6 +125,7 @@ public class StackAdvisorHelper {
           requestType));
     }
 
+    command.setResultCache(resultCache);
     return command;
   }
 
@@ -121,10 +137,8 @@ public class StackAdvisorHelper {
    * @return {@link RecommendationResponse} instance
    * @throws StackAdvisorException in case of stack advisor script errors
    */
-  public synchronized RecommendationResponse recommend(StackAdvisorRequest request)
+  public RecommendationResponse recommend(StackAdvisorRequest request)
       throws StackAdvisorException {
-      requestId = generateRequestId();
-
     // TODO, need to pass the service Name that was modified.
     // For now, hardcode
     String serviceName = "ZOOKEEPER";
@@ -132,10 +146,11 @@ public class StackAdvisorHelper {
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
     StackAdvisorCommand<RecommendationResponse> command = createRecommendationCommand(serviceName, request);
 
-    return command.invoke(request, serviceAdvisorType);
+    return invoke(command, request, serviceAdvisorType);
   }
 
   StackAdvisorCommand<RecommendationResponse> createRecommendationCommand(String serviceName, StackAdvisorRequest request) throws StackAdvisorException {
+    int requestId = generateRequestId();
     StackAdvisorRequestType requestType = request.getRequestType();
     ServiceInfo.ServiceAdvisorType serviceAdvisorType = getServiceAdvisorType(request.getStackName(), request.getStackVersion(), serviceName);
 
@@ -157,9 +172,38 @@ public class StackAdvisorHelper {
           requestType));
     }
 
+    command.setResultCache(resultCache);
     return command;
   }
 
+  /**
+   * Invokes the command once a slot among the concurrently running advisor
+   * requests is available. Each command works in its own request directory,
+   * so commands are otherwise independent of each other.
+   *
+   * @param command the command to run
+   * @param request the advisor request
+   * @param serviceAdvisorType PYTHON or JAVA
+   * @return the command's response
+   * @throws StackAdvisorException in case of stack advisor script errors or if
+   *           interrupted while waiting
+   */
+  private <T extends StackAdvisorResponse> T invoke(StackAdvisorCommand<T> command, StackAdvisorRequest request,
+      ServiceInfo.ServiceAdvisorType serviceAdvisorType) throws StackAdvisorException {
+    try {
+      concurrentRequests.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StackAdvisorException("Interrupted while waiting to run the stack advisor", e);
+    }
+
+    try {
+      return command.invoke(request, serviceAdvisorType);
+    } finally {
+      concurrentRequests.release();
+    }
+  }
+
   /**
    * Get the Service Advisor type that the service defines for the specified stack and version. If an error, return null.
    * @param stackName Stack Name
@@ -184,9 +228,7 @@ public class StackAdvisorHelper {
    * @return {int requestId}
    */
   private int generateRequestId(){
-      requestId += 1;
-      return requestId % recommendationsArtifactsRolloverMax;
-
+    return requestId.updateAndGet(id -> (id + 1) % recommendationsArtifactsRolloverMax);
   }
 
 }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services.stackadvisor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommandType;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.state.ServiceInfo;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link StackAdvisorResultCache} keeps the raw output of recent stack
+ * advisor invocations so that identical recommendation and validation
+ * requests do not need to launch the advisor again. Entries are keyed by a
+ * SHA-256 hash of the normalized advisor input, that is the command type, the
+ * advisor type and the {@code hosts.json} and {@code services.json} documents
+ * which would have been written for the advisor. Host attributes which change
+ * on every heartbeat, but are never consulted by the advisor, are removed
+ * before hashing.
+ */
+@Singleton
+public class StackAdvisorResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StackAdvisorResultCache.class);
+
+  /**
+   * Volatile host properties which are not part of the cache key.
+   */
+  private static final Set<String> VOLATILE_HOST_PROPERTIES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList("last_heartbeat_time", "last_registration_time", "recovery_summary",
+          "recovery_report", "host_health_report")));
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Cached advisor results by input hash, or {@code null} if caching is
+   * disabled.
+   */
+  private final Cache<String, String> results;
+
+  @Inject
+  public StackAdvisorResultCache(Configuration configuration) {
+    int size = configuration.getStackAdvisorResultCacheSize();
+    if (size > 0) {
+      results = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(
+          configuration.getStackAdvisorResultCacheTtlMinutes(), TimeUnit.MINUTES).build();
+    } else {
+      results = null;
+    }
+  }
+
+  /**
+   * Gets whether results are cached at all.
+   *
+   * @return {@code true} if the cache is enabled
+   */
+  public boolean isEnabled() {
+    return results != null;
+  }
+
+  /**
+   * Computes the key for the specified advisor input.
+   *
+   * @param serviceAdvisorType
+   *          the advisor implementation (PYTHON or JAVA)
+   * @param commandType
+   *          the advisor command
+   * @param hostsJSON
+   *          the content of {@code hosts.json}
+   * @param servicesJSON
+   *          the content of {@code services.json}
+   * @return the key, or {@code null} if the input could not be normalized in
+   *         which case the result should not be cached
+   */
+  public String getKey(ServiceInfo.ServiceAdvisorType serviceAdvisorType, StackAdvisorCommandType commandType,
+      String hostsJSON, String servicesJSON) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    try {
+      StringBuilder input = new StringBuilder();
+      input.append(serviceAdvisorType).append('\n');
+      input.append(commandType).append('\n');
+      input.append(normalizeHosts(hostsJSON)).append('\n');
+      input.append(servicesJSON);
+      return DigestUtils.sha256Hex(input.toString());
+    } catch (Exception e) {
+      LOG.debug("Unable to compute the stack advisor cache key, the result will not be cached", e);
+      return null;
+    }
+  }
+
+  /**
+   * Gets the cached advisor output for the key.
+   *
+   * @param key
+   *          the key computed by
+   *          {@link #getKey(ServiceInfo.ServiceAdvisorType, StackAdvisorCommandType, String, String)}
+   * @return the cached result file content, or {@code null} if none
+   */
+  public String getResult(String key) {
+    if (!isEnabled() || null == key) {
+      return null;
+    }
+
+    return results.getIfPresent(key);
+  }
+
+  /**
+   * Caches the advisor output for the key.
+   *
+   * @param key
+   *          the input key
+   * @param result
+   *          the result file content produced by the advisor
+   */
+  public void putResult(String key, String result) {
+    if (!isEnabled() || null == key || null == result) {
+      return;
+    }
+
+    results.put(key, result);
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public void invalidateAll() {
+    if (isEnabled()) {
+      results.invalidateAll();
+    }
+  }
+
+  /**
+   * Removes heartbeat-dependent attributes from each host so that the hash
+   * only changes when something the advisor reads changes.
+   */
+  private String normalizeHosts(String hostsJSON) throws Exception {
+    JsonNode root = mapper.readTree(hostsJSON);
+    JsonNode items = root.get("items");
+    if (null != items) {
+      Iterator<JsonNode> iterator = items.getElements();
+      while (iterator.hasNext()) {
+        JsonNode host = iterator.next().get("Hosts");
+        if (host instanceof ObjectNode) {
+          for (String property : VOLATILE_HOST_PROPERTIES) {
+            ((ObjectNode) host).remove(property);
+          }
+        }
+      }
+    }
+
+    return mapper.writeValueAsString(root);
+  }
+}
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,6 +46,7 @@ import org.apache.ambari.server.api.services.RootServiceComponentConfiguration;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorException;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponse;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResultCache;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRunner;
 import org.apache.ambari.server.controller.RootComponent;
 import org.apache.ambari.server.controller.RootService;
@@ -112,6 +114,7 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
   private int requestId;
   private File requestDirectory;
   private StackAdvisorRunner saRunner;
+  private StackAdvisorResultCache resultCache;
 
   protected ObjectMapper mapper;
 
@@ -306,7 +309,18 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
     }
   }
 
-  public synchronized T invoke(StackAdvisorRequest request, ServiceInfo.ServiceAdvisorType serviceAdvisorType) throws StackAdvisorException {
+  /**
+   * Sets the cache used to look up the results of previous invocations with
+   * identical input. If not set, the advisor always runs.
+   *
+   * @param resultCache
+   *          the result cache, or {@code null} to disable caching
+   */
+  public void setResultCache(StackAdvisorResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  public T invoke(StackAdvisorRequest request, ServiceInfo.ServiceAdvisorType serviceAdvisorType) throws StackAdvisorException {
     validate(request);
     String hostsJSON = getHostsInformation(request);
     String servicesJSON = getServicesInformation(request);
@@ -314,13 +328,32 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
     StackAdvisorData adjusted = adjust(new StackAdvisorData(hostsJSON, servicesJSON), request);
 
     try {
-      createRequestDirectory();
+      String cacheKey = null;
+      String result = null;
+      if (null != resultCache) {
+        cacheKey = resultCache.getKey(serviceAdvisorType, getCommandType(), adjusted.hostsJSON,
+            adjusted.servicesJSON);
+        result = resultCache.getResult(cacheKey);
+      }
+
+      if (null != result) {
+        LOG.debug("Using cached stack advisor result for request {}, command={}", requestId, getCommandType());
+      } else {
+        createRequestDirectory();
+
+        FileUtils.writeStringToFile(new File(requestDirectory, "hosts.json"), adjusted.hostsJSON,
+            Charset.defaultCharset());
+        FileUtils.writeStringToFile(new File(requestDirectory, "services.json"), adjusted.servicesJSON,
+            Charset.defaultCharset());
 
-      FileUtils.writeStringToFile(new File(requestDirectory, "hosts.json"), adjusted.hostsJSON);
-      FileUtils.writeStringToFile(new File(requestDirectory, "services.json"), adjusted.servicesJSON);
+        saRunner.runScript(serviceAdvisorType, getCommandType(), requestDirectory);
+        result = FileUtils.readFileToString(new File(requestDirectory, getResultFileName()),
+            Charset.defaultCharset());
 
-      saRunner.runScript(serviceAdvisorType, getCommandType(), requestDirectory);
-      String result = FileUtils.readFileToString(new File(requestDirectory, getResultFileName()));
+        if (null != resultCache) {
+          resultCache.putResult(cacheKey, result);
+        }
+      }
 
       T response = this.mapper.readValue(result, this.type);
       return updateResponse(request, setRequestId(response));
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.cleanup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.server.AmbariService;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.dao.Cleanable;
+import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * The {@link HistoryPurgeService} periodically deletes completed requests
+ * (with their stages and tasks), alert history and alert notices which are
+ * older than {@link Configuration#getServerPurgeRetentionDays()} while the
+ * server is running.
+ * <p/>
+ * Records are deleted oldest first in chunks of
+ * {@link Configuration#getServerPurgeBatchSize()} top level records, each in
+ * its own transaction. Between chunks the service sleeps long enough to stay
+ * within {@link Configuration#getServerPurgeRowsPerSecond()}, and it backs off
+ * for ten times the duration of any chunk which took longer than
+ * {@link Configuration#getServerPurgeLatencyThreshold()} so that a busy
+ * database is not slowed down further. The purge is the same one performed by
+ * the offline {@link CleanupDriver}; it only differs in how much it deletes at
+ * once.
+ */
+@AmbariService
+public class HistoryPurgeService extends AbstractScheduledService {
+
+  /**
+   * Logger.
+   */
+  private final static Logger LOG = LoggerFactory.getLogger(HistoryPurgeService.class);
+
+  /**
+   * The maximum time to back off after a slow chunk.
+   */
+  private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * The state of the purge as reported by {@link #getStatus()}.
+   */
+  enum PurgeState {
+    DISABLED, IDLE, RUNNING, THROTTLED, BACKING_OFF
+  }
+
+  @Inject
+  private Configuration m_configuration;
+
+  @Inject
+  private Provider<Clusters> m_clusters;
+
+  @Inject
+  private AlertsDAO m_alertsDAO;
+
+  @Inject
+  private RequestDAO m_requestDAO;
+
+  private volatile PurgeState m_state = PurgeState.IDLE;
+  private volatile String m_currentTarget;
+  private volatile long m_currentRunStartTime;
+  private volatile long m_lastRunStartTime;
+  private volatile long m_lastRunEndTime;
+  private volatile long m_lastRunRowsDeleted;
+  private volatile String m_lastError;
+
+  private final AtomicLong m_currentRunRowsDeleted = new AtomicLong();
+  private final AtomicLong m_totalRowsDeleted = new AtomicLong();
+  private final AtomicLong m_chunks = new AtomicLong();
+  private final AtomicLong m_backoffs = new AtomicLong();
+  private final AtomicLong m_errors = new AtomicLong();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Scheduler scheduler() {
+    int intervalInMinutes = m_configuration.getServerPurgeInterval();
+    return Scheduler.newFixedDelaySchedule(intervalInMinutes, intervalInMinutes, TimeUnit.MINUTES);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Invokes {@link #stop()} if not enabled.
+   */
+  @Override
+  protected void startUp() throws Exception {
+    if (m_configuration.getServerPurgeRetentionDays() <= 0) {
+      m_state = PurgeState.DISABLED;
+      stopAsync();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Purges the records of every cluster which are older than the retention
+   * period.
+   */
+  @Override
+  protected void runOneIteration() throws Exception {
+    long toDateInMillis = System.currentTimeMillis()
+        - TimeUnit.DAYS.toMillis(m_configuration.getServerPurgeRetentionDays());
+
+    int batchSize = m_configuration.getServerPurgeBatchSize();
+    List<Cleanable> cleanables = Arrays.asList(m_alertsDAO, m_requestDAO);
+
+    m_currentRunStartTime = System.currentTimeMillis();
+    m_currentRunRowsDeleted.set(0);
+    m_state = PurgeState.RUNNING;
+
+    try {
+      for (Cluster cluster : m_clusters.get().getClusters().values()) {
+        for (Cleanable cleanable : cleanables) {
+          purge(cleanable, new TimeBasedCleanupPolicy(cluster.getClusterName(), toDateInMillis, batchSize));
+        }
+      }
+    } catch (InterruptedException interruptedException) {
+      LOG.info("The purge of historical data was interrupted");
+      Thread.currentThread().interrupt();
+    } catch (Exception exception) {
+      m_errors.incrementAndGet();
+      m_lastError = exception.toString();
+      LOG.error("Unable to purge historical data", exception);
+    } finally {
+      m_lastRunStartTime = m_currentRunStartTime;
+      m_lastRunEndTime = System.currentTimeMillis();
+      m_lastRunRowsDeleted = m_currentRunRowsDeleted.get();
+      m_currentRunStartTime = 0;
+      m_currentTarget = null;
+      m_state = PurgeState.IDLE;
+
+      LOG.info("Purged {} rows of historical data older than {} in {}ms", m_lastRunRowsDeleted,
+          new Date(toDateInMillis), m_lastRunEndTime - m_lastRunStartTime);
+    }
+  }
+
+  /**
+   * Repeatedly purges a chunk of records with the given policy until there is
+   * nothing left to purge or the service is stopped.
+   *
+   * @param cleanable
+   *          the DAO to purge
+   * @param policy
+   *          the policy limiting how many records are purged per chunk
+   * @throws InterruptedException
+   *           if interrupted while throttling or backing off
+   */
+  void purge(Cleanable cleanable, TimeBasedCleanupPolicy policy) throws InterruptedException {
+    long rowsPerSecond = m_configuration.getServerPurgeRowsPerSecond();
+    long latencyThresholdMillis = m_configuration.getServerPurgeLatencyThreshold();
+
+    // strip the suffix of the Guice enhanced DAO classes
+    String cleanableName = StringUtils.substringBefore(cleanable.getClass().getSimpleName(), "$$");
+    m_currentTarget = cleanableName + " (" + policy.getClusterName() + ")";
+
+    while (state() != State.STOPPING) {
+      long start = System.nanoTime();
+      long rows;
+      try {
+        rows = cleanable.cleanup(policy);
+      } catch (RuntimeException exception) {
+        m_errors.incrementAndGet();
+        m_lastError = exception.toString();
+        LOG.error("Unable to purge historical data from {}", m_currentTarget, exception);
+        return;
+      }
+
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      m_chunks.incrementAndGet();
+      m_currentRunRowsDeleted.addAndGet(rows);
+      m_totalRowsDeleted.addAndGet(rows);
+
+      if (rows <= 0) {
+        return;
+      }
+
+      LOG.debug("Purged {} rows from {} in {}ms", rows, m_currentTarget, elapsedMillis);
+
+      if (elapsedMillis > latencyThresholdMillis) {
+        long backoffMillis = Math.min(elapsedMillis * 10, MAX_BACKOFF_MILLIS);
+        LOG.info("Purging a chunk from {} took {}ms; backing off for {}ms", m_currentTarget,
+            elapsedMillis, backoffMillis);
+
+        m_backoffs.incrementAndGet();
+        pause(PurgeState.BACKING_OFF, backoffMillis);
+      } else if (rowsPerSecond > 0) {
+        pause(PurgeState.THROTTLED, rows * 1000 / rowsPerSecond - elapsedMillis);
+      }
+    }
+  }
+
+  /**
+   * Sleeps, reporting the given state while doing so.
+   */
+  private void pause(PurgeState state, long millis) throws InterruptedException {
+    if (millis <= 0) {
+      return;
+    }
+
+    m_state = state;
+    try {
+      sleep(millis);
+    } finally {
+      m_state = PurgeState.RUNNING;
+    }
+  }
+
+  /**
+   * Sleeps for the given time. Exposed for testing.
+   */
+  void sleep(long millis) throws InterruptedException {
+    Thread.sleep(millis);
+  }
+
+  /**
+   * Gets the progress and throughput of the purge.
+   *
+   * @return the status of the purge, keyed by property name
+   */
+  public Map<String, Object> getStatus() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("state", m_state);
+    status.put("retention_days", m_configuration.getServerPurgeRetentionDays());
+
+    long currentRunStartTime = m_currentRunStartTime;
+    if (currentRunStartTime > 0) {
+      long currentRunRowsDeleted = m_currentRunRowsDeleted.get();
+      Map<String, Object> currentRun = new LinkedHashMap<>();
+      currentRun.put("start_time", currentRunStartTime);
+      currentRun.put("target", m_currentTarget);
+      currentRun.put("rows_deleted", currentRunRowsDeleted);
+      currentRun.put("rows_per_second", getRowsPerSecond(currentRunRowsDeleted,
+          System.currentTimeMillis() - currentRunStartTime));
+      status.put("current_run", currentRun);
+    }
+
+    long lastRunStartTime = m_lastRunStartTime;
+    if (lastRunStartTime > 0) {
+      Map<String, Object> lastRun = new LinkedHashMap<>();
+      lastRun.put("start_time", lastRunStartTime);
+      lastRun.put("end_time", m_lastRunEndTime);
+      lastRun.put("rows_deleted", m_lastRunRowsDeleted);
+      lastRun.put("rows_per_second", getRowsPerSecond(m_lastRunRowsDeleted,
+          m_lastRunEndTime - lastRunStartTime));
+      status.put("last_run", lastRun);
+    }
+
+    status.put("total_rows_deleted", m_totalRowsDeleted.get());
+    status.put("chunks", m_chunks.get());
+    status.put("backoffs", m_backoffs.get());
+    status.put("errors", m_errors.get());
+    if (null != m_lastError) {
+      status.put("last_error", m_lastError);
+    }
+
+    return Collections.unmodifiableMap(status);
+  }
+
+  private static double getRowsPerSecond(long rows, long elapsedMillis) {
+    return elapsedMillis <= 0 ? 0 : rows * 1000.0 / elapsedMillis;
+  }
+}
@@ -24,6 +24,7 @@ public class TimeBasedCleanupPolicy {
 
   private String clusterName;
   private Long toDateInMillis;
+  private Integer maxRecords;
 
   /**
    * Constructs an instance based on the given arguments.
@@ -32,8 +33,24 @@ public class TimeBasedCleanupPolicy {
    * @param toDateInMillis timestamp before that entities are purged.
    */
   public TimeBasedCleanupPolicy(String clusterName, Long toDateInMillis) {
+    this(clusterName, toDateInMillis, null);
+  }
+
+  /**
+   * Constructs an instance which purges at most the given number of the oldest
+   * top level records (such as requests or alert history entries) along with
+   * the records depending on them. Used to purge in small chunks while the
+   * server is running.
+   *
+   * @param clusterName    the cluster name
+   * @param toDateInMillis timestamp before that entities are purged.
+   * @param maxRecords     the maximum number of top level records to purge, or
+   *                       {@code null} to purge all of them
+   */
+  public TimeBasedCleanupPolicy(String clusterName, Long toDateInMillis, Integer maxRecords) {
     this.clusterName = clusterName;
     this.toDateInMillis = toDateInMillis;
+    this.maxRecords = maxRecords;
   }
 
   /**
@@ -51,6 +68,14 @@ public class TimeBasedCleanupPolicy {
     return toDateInMillis;
   }
 
+  /**
+   * @return the maximum number of top level records to purge, or {@code null}
+   *         if all records before the date are purged
+   */
+  public Integer getMaxRecords() {
+    return maxRecords;
+  }
+
   /**
    *
    * @return The used purge policy
@@ -73,6 +73,9 @@ public enum AmbariServerConfigurationKey {
   REFERRAL_HANDLING(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.referrals", PLAINTEXT, "follow", "Determines whether to follow LDAP referrals to other URLs when the LDAP controller doesn't have the requested object."),
   PAGINATION_ENABLED(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.pagination_enabled", PLAINTEXT, "true", "Determines whether results from LDAP are paginated when requested."),
   COLLISION_BEHAVIOR(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advance.collision_behavior", PLAINTEXT, "convert", "Determines how to handle username collision while updating from LDAP."),
+  INCREMENTAL_SYNC_ENABLED(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.incremental_sync_enabled", PLAINTEXT, "false", "Determines whether synchronizing all LDAP groups only refreshes the members of the groups which changed since the previous synchronization."),
+  SYNC_CHANGE_MARKER_ATTRIBUTE(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.sync_change_marker_attr", PLAINTEXT, "modifyTimestamp", "The LDAP attribute whose value increases whenever a group changes, such as 'modifyTimestamp' or 'uSNChanged' for Active Directory. This is only used when incremental synchronization is enabled."),
+  SYNC_MEMBER_RESOLUTION_THREADS(AmbariServerConfigurationCategory.LDAP_CONFIGURATION, "ambari.ldap.advanced.sync_member_resolution_threads", PLAINTEXT, "4", "The number of concurrent LDAP searches used to look up the members of groups while synchronizing. A value of 1 looks up one member at a time."),
 
   /* ********************************************************
    * SSO Configuration Keys
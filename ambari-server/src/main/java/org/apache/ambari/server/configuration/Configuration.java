@@ -435,6 +435,29 @@ public class Configuration {
       "stackadvisor.script",
       AmbariPath.getPath("/var/lib/ambari-server/resources/scripts/stack_advisor.py"));
 
+  /**
+   * The maximum number of stack advisor requests (recommendations and
+   * validations) which may be executed at the same time.
+   */
+  @Markdown(description = "The maximum number of stack advisor recommendation and validation requests which are executed concurrently. Additional requests wait for a running request to finish.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_MAX_CONCURRENT_REQUESTS = new ConfigurationProperty<>(
+      "stackadvisor.max.concurrent.requests", 4);
+
+  /**
+   * The number of stack advisor results to keep in memory, keyed by a hash
+   * of the normalized advisor input. A value of {@code 0} disables caching.
+   */
+  @Markdown(description = "The number of stack advisor results kept in memory, keyed by a hash of the hosts, services, configurations and command type sent to the advisor. A value of `0` disables the cache.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_RESULT_CACHE_SIZE = new ConfigurationProperty<>(
+      "stackadvisor.result.cache.size", 100);
+
+  /**
+   * The number of minutes a cached stack advisor result is kept.
+   */
+  @Markdown(description = "The number of minutes for which a cached stack advisor result is valid.")
+  public static final ConfigurationProperty<Integer> STACK_ADVISOR_RESULT_CACHE_TTL_MINUTES = new ConfigurationProperty<>(
+      "stackadvisor.result.cache.ttl.minutes", 30);
+
   /**
    * The name of the shell script used to wrap all invocations of Python by Ambari.
    */
@@ -685,6 +708,14 @@ public class Configuration {
   public static final ConfigurationProperty<String> LDAP_SYNC_USERNAME_COLLISIONS_BEHAVIOR = new ConfigurationProperty<>(
       "ldap.sync.username.collision.behavior", "add");
 
+  /**
+   * The number of LDAP users created per transaction while applying an LDAP
+   * synchronization to the database.
+   */
+  @Markdown(description = "The number of users created in each database transaction while applying the results of an LDAP synchronization.")
+  public static final ConfigurationProperty<Integer> LDAP_SYNC_DATABASE_BATCH_SIZE = new ConfigurationProperty<>(
+      "ldap.sync.database.batch.size", 500);
+
   /**
    * The location on the Ambari Server where stack extensions exist.
    */
@@ -975,6 +1006,28 @@ public class Configuration {
   @Markdown(description = "Enable the profiling of internal locks.")
   public static final ConfigurationProperty<Boolean> SERVER_LOCKS_PROFILING = new ConfigurationProperty<>("server.locks.profiling", Boolean.FALSE);
 
+  /**
+   * The rate at which lock acquisitions are sampled for contention statistics.
+   * One in every {@code N} acquisitions of each lock created by the
+   * {@link org.apache.ambari.server.logging.LockFactory} is timed.
+   */
+  @Markdown(
+      relatedTo = "server.locks.contention.long-hold.threshold",
+      description = "Records wait and hold times for one in every `N` acquisitions of internal locks, exposing per-lock contention statistics through `/api/v1/locks/contention` and the server metrics sink. "
+          + "A value of `0` disables contention sampling. When lock profiling is enabled every acquisition is recorded.")
+  public static final ConfigurationProperty<Integer> SERVER_LOCKS_CONTENTION_SAMPLING_RATE = new ConfigurationProperty<>(
+      "server.locks.contention.sampling.rate", 0);
+
+  /**
+   * The time, in {@link TimeUnit#MILLISECONDS}, after which a sampled lock
+   * hold is counted as a long hold.
+   */
+  @Markdown(
+      relatedTo = "server.locks.contention.sampling.rate",
+      description = "The number of milliseconds a sampled internal lock must be held before it is counted as a long hold in the lock contention statistics.")
+  public static final ConfigurationProperty<Integer> SERVER_LOCKS_CONTENTION_LONG_HOLD_THRESHOLD = new ConfigurationProperty<>(
+      "server.locks.contention.long-hold.threshold", 500);
+
   /**
    * The size of the cache used to hold {@link HostRoleCommand} instances in-memory.
    */
@@ -982,6 +1035,56 @@ public class Configuration {
   public static final ConfigurationProperty<Long> SERVER_EC_CACHE_SIZE = new ConfigurationProperty<>(
       "server.ecCacheSize", 10000L);
 
+  /**
+   * The number of days of requests and alert history to retain while the
+   * server is running. Older records are purged in the background.
+   */
+  @Markdown(
+      relatedTo = "server.purge.interval",
+      description = "The number of days of completed requests, tasks, alert history and alert notices to keep. "
+          + "Older records are deleted in small chunks by a background service while the server is running, with progress reported through `/api/v1/purge/status`. "
+          + "A value of `0` disables the online purge; `ambari-server db-purge-history` can still be used while the server is stopped.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_RETENTION_DAYS = new ConfigurationProperty<>(
+      "server.purge.retention.days", 0);
+
+  /**
+   * The time, in {@link TimeUnit#MINUTES}, between runs of the online purge.
+   */
+  @Markdown(
+      relatedTo = "server.purge.retention.days",
+      description = "The number of minutes between runs of the online purge of historical requests and alerts.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_INTERVAL = new ConfigurationProperty<>(
+      "server.purge.interval", 60);
+
+  /**
+   * The number of requests or alert history entries deleted in a single
+   * transaction by the online purge.
+   */
+  @Markdown(
+      relatedTo = "server.purge.retention.days",
+      description = "The number of requests or alert history entries, along with the records depending on them, which the online purge deletes in a single transaction.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_BATCH_SIZE = new ConfigurationProperty<>(
+      "server.purge.batch.size", 100);
+
+  /**
+   * The maximum rate, in rows per second, at which the online purge deletes.
+   */
+  @Markdown(
+      relatedTo = "server.purge.retention.days",
+      description = "The maximum average number of database rows per second the online purge deletes. The purge sleeps between chunks to stay within this budget.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_ROWS_PER_SECOND = new ConfigurationProperty<>(
+      "server.purge.rows.per.second", 500);
+
+  /**
+   * The duration, in {@link TimeUnit#MILLISECONDS}, of a purge chunk after which
+   * the online purge backs off.
+   */
+  @Markdown(
+      relatedTo = "server.purge.retention.days",
+      description = "The number of milliseconds a single chunk of the online purge may take before the purge treats the database as busy and pauses for ten times as long before continuing.")
+  public static final ConfigurationProperty<Integer> SERVER_PURGE_LATENCY_THRESHOLD = new ConfigurationProperty<>(
+      "server.purge.latency.threshold", 2000);
+
   /**
    * Determines whether caching a requests's
    * {@link HostRoleCommandStatusSummaryDTO} is enabled.
@@ -1224,6 +1327,19 @@ public class Configuration {
    * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-= */
 
 
+  @Markdown(description = "The number of Kerberos identities processed in parallel when creating "
+      + "principals and keytab files. Identities are only processed in parallel for KDC types whose "
+      + "operation handler supports concurrent operations, such as the MIT KDC.")
+  public static final ConfigurationProperty<Integer> KERBEROS_OPERATION_CONCURRENCY = new ConfigurationProperty<>(
+      "kerberos.operation.concurrency", 4);
+
+  @Markdown(description = "The number of interactive `kadmin` processes kept open while performing "
+      + "Kerberos operations against an MIT KDC. Queries are pipelined through these processes instead "
+      + "of starting a new `kadmin` process for each query. A value of `0` starts a new `kadmin` "
+      + "process for every query.")
+  public static final ConfigurationProperty<Integer> KERBEROS_OPERATION_KADMIN_SESSIONS = new ConfigurationProperty<>(
+      "kerberos.operation.kadmin.sessions", 4);
+
   @Markdown(description = "The number of times failed Kerberos operations should be retried to execute.")
   public static final ConfigurationProperty<Integer> KERBEROS_OPERATION_RETRIES = new ConfigurationProperty<>(
       "kerberos.operation.retries", 3);
@@ -1597,6 +1713,15 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT = new ConfigurationProperty<>(
     "server.script.threads", 20);
 
+  /**
+   * The number of generated client configuration archives which are cached in
+   * the {@link #SERVER_TMP_DIR} and reused until the configurations they were
+   * generated from change.
+   */
+  @Markdown(description = "The number of generated client configuration archives which are kept in the server's temporary directory and reused for downloads until the configurations, stack or component they were generated for change. A value of `0` disables the cache.")
+  public static final ConfigurationProperty<Integer> CLIENT_CONFIGS_CACHE_SIZE = new ConfigurationProperty<>(
+    "server.client.configs.cache.size", 100);
+
   public static final String DEF_ARCHIVE_EXTENSION;
   public static final String DEF_ARCHIVE_CONTENT_TYPE;
 
@@ -1895,10 +2020,21 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AGENTS_REPORT_PROCESSING_START_TIMEOUT = new ConfigurationProperty<>(
       "agents.reports.processing.start.timeout", 5);
 
+  /**
+   * The maximum number of agents' reports waiting to be processed by each
+   * processing thread.
+   */
+  @Markdown(
+      relatedTo = "agents.reports.thread.pool.size",
+      description = "The maximum number of agents' reports waiting to be processed by each processing thread. "
+      + "Command reports wait a short time for room when it is reached. Status reports are never dropped; a host's newer status report is merged into its waiting one instead.")
+  public static final ConfigurationProperty<Integer> AGENTS_REPORT_QUEUE_SIZE = new ConfigurationProperty<>(
+      "agents.reports.queue.size", 1000);
+
   /**
    * Thread pool size for agents reports processing.
    */
-  @Markdown(description = "Thread pool size for agents reports processing.")
+  @Markdown(description = "Thread pool size for agents reports processing. The reports of each host are always processed in order by the same thread.")
   public static final ConfigurationProperty<Integer> AGENTS_REPORT_THREAD_POOL_SIZE = new ConfigurationProperty<>(
       "agents.reports.thread.pool.size", 10);
 
@@ -1961,6 +2097,18 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> VIEW_REQUEST_THREADPOOL_TIMEOUT = new ConfigurationProperty<>(
       "view.request.threadpool.timeout", 2000);
 
+  /**
+   * The number of REST API requests to a single view instance which can wait
+   * for the view instance's concurrency limit before being rejected.
+   */
+  @Markdown(
+      relatedTo = "view.request.threadpool.timeout",
+      description = "The number of REST API requests to a single view instance which can wait for it when the view instance is at its concurrency limit. "
+      + "Each view instance's limit adapts to the latency of its requests so that a slow view cannot use every view request thread. "
+      + "Further requests are rejected right away. The per-view limits are disabled unless this is set to a positive value.")
+  public static final ConfigurationProperty<Integer> VIEW_REQUEST_QUEUE_SIZE = new ConfigurationProperty<>(
+      "view.request.queue.size", 0);
+
   /**
    * The maximum number of threads that will be used to retrieve data from
    * {@link PropertyProvider}s such as remote JMX endpoints.
@@ -2147,6 +2295,32 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> ALERTS_EXECUTION_SCHEDULER_WORKER_QUEUE_SIZE = new ConfigurationProperty<>(
       "alerts.execution.scheduler.threadpool.worker.size", 2000);
 
+  /**
+   * The number of threads which will dispatch alert notifications.
+   */
+  @ConfigurationMarkdown(
+      group = ConfigurationGrouping.ALERTS,
+      scaleValues = {
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_10, value = "2"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_50, value = "4"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_100, value = "8"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "16") },
+      markdown = @Markdown(
+          description = "The number of threads used to dispatch alert notifications to alert targets, such as email servers and SNMP managers."))
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_THREADS_SIZE = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.threadpool.size", 8);
+
+  /**
+   * The number of alert notifications which can be dispatched to a single
+   * alert target at the same time.
+   */
+  @Markdown(
+      relatedTo = "alerts.notification.dispatch.threadpool.size",
+      description = "The maximum number of alert notifications dispatched to a single alert target at the same time. "
+          + "This keeps a slow or unreachable target from occupying every alert notification dispatch thread.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_TARGET_CONCURRENCY = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.target.concurrency", 2);
+
   /**
    * If {@code true} then alert information is cached and not immediately
    * persisted in the database.
@@ -2414,6 +2588,21 @@ public class Configuration {
       "server.metrics.retrieval-service.threadpool.worker.size",
       10 * METRIC_RETRIEVAL_SERVICE_THREADPOOL_MAX_SIZE.getDefaultValue());
 
+  /**
+   * The maximum number of requests which the {@link MetricsRetrievalService}
+   * will have queued or running against any single host. Requests for a host
+   * which is at its limit wait until one of the outstanding requests
+   * completes, so that unresponsive hosts cannot occupy the entire threadpool.
+   * The limit is never lower than
+   * {@link #METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS}. A value of
+   * {@code 0} removes the limit.
+   */
+  @Markdown(description = "The maximum number of JMX and REST metric requests which can be queued or running against a single host. "
+      + "Further requests for that host wait until an outstanding request completes, preventing slow or unresponsive hosts from occupying every retrieval thread. "
+      + "Values lower than `metrics.retrieval-service.jmx.scoped-query.max-beans` are raised to it. A value of `0` removes the limit.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY_MAX = new ConfigurationProperty<>(
+      "server.metrics.retrieval-service.host.concurrency.max", 8);
+
   /**
    * {@code true} to enable a TTL per request made by the
    * {@link MetricsRetrievalService}. Enabling this property will prevent
@@ -2441,6 +2630,16 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_REQUEST_TTL = new ConfigurationProperty<>(
       "metrics.retrieval-service.request.ttl", 5);
 
+  /**
+   * The maximum number of distinct MBeans for which the JMX property provider
+   * will issue scoped {@code /jmx?qry=} requests instead of retrieving the
+   * full {@code /jmx} output of a component. A value of {@code 0} disables
+   * scoped requests.
+   */
+  @Markdown(description = "The maximum number of distinct MBeans for which JMX metrics are retrieved with scoped `/jmx?qry=` requests instead of reading the full `/jmx` output of a component. Requests needing more MBeans, or MBean name patterns, read the full output. A value of `0` disables scoped requests.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS = new ConfigurationProperty<>(
+      "metrics.retrieval-service.jmx.scoped-query.max-beans", 8);
+
   /**
    * The number of tasks that can be queried from the database at once In the
    * case of more tasks, multiple queries are issued
@@ -2571,6 +2770,72 @@ public class Configuration {
   public static final ConfigurationProperty<String> DISPATCH_PROPERTY_SCRIPT_DIRECTORY = new ConfigurationProperty<>(
           "notification.dispatch.alert.script.directory",AmbariPath.getPath("/var/lib/ambari-server/resources/scripts"));
 
+  /**
+   * Determines whether alert notifications are delivered to long-lived alert
+   * script workers instead of invoking the script once per notification.
+   */
+  @Markdown(description = "Determines whether alert notifications are delivered to long-lived alert script workers over "
+      + "standard input, one JSON object per line, instead of invoking the script once per notification. "
+      + "A worker is started with the `AMBARI_ALERT_SCRIPT_WORKER` environment variable set to `true` and must "
+      + "answer each line with `OK` once the notification has been delivered.")
+  public static final ConfigurationProperty<Boolean> DISPATCH_PROPERTY_SCRIPT_WORKER_ENABLED = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.enabled", Boolean.FALSE);
+
+  /**
+   * The number of long-lived workers started for each alert script.
+   */
+  @Markdown(
+      relatedTo = "notification.dispatch.alert.script.worker.enabled",
+      description = "The number of long-lived workers started for each alert script.")
+  public static final ConfigurationProperty<Integer> DISPATCH_PROPERTY_SCRIPT_WORKER_COUNT = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.count", 1);
+
+  /**
+   * The maximum number of alert notifications written to an alert script
+   * worker at once.
+   */
+  @Markdown(
+      relatedTo = "notification.dispatch.alert.script.worker.enabled",
+      description = "The maximum number of alert notifications written to an alert script worker before waiting for their answers.")
+  public static final ConfigurationProperty<Integer> DISPATCH_PROPERTY_SCRIPT_WORKER_BATCH_SIZE = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.batch.size", 100);
+
+  /**
+   * The time, in milliseconds, an alert script worker has to answer a batch of
+   * notifications.
+   */
+  @Markdown(
+      relatedTo = "notification.dispatch.alert.script.worker.enabled",
+      description = "The time, in milliseconds, an alert script worker has to answer a batch of alert notifications. "
+          + "A worker which does not answer in time is stopped and the unanswered notifications are dispatched by "
+          + "invoking the script once per notification.")
+  public static final ConfigurationProperty<Long> DISPATCH_PROPERTY_SCRIPT_WORKER_TIMEOUT = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.timeout", 5000L);
+
+  /**
+   * The number of consecutive times a failed alert script worker is restarted
+   * before alert notifications fall back to invoking the script once per
+   * notification.
+   */
+  @Markdown(
+      relatedTo = "notification.dispatch.alert.script.worker.enabled",
+      description = "The number of consecutive times a failed alert script worker is restarted. After that, "
+          + "notifications for the script are dispatched by invoking the script once per notification until "
+          + "`notification.dispatch.alert.script.worker.recovery.interval` has passed.")
+  public static final ConfigurationProperty<Integer> DISPATCH_PROPERTY_SCRIPT_WORKER_RESTART_ATTEMPTS = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.restart.attempts", 3);
+
+  /**
+   * The time, in milliseconds, after which the workers of an alert script
+   * which failed too often are started again.
+   */
+  @Markdown(
+      relatedTo = "notification.dispatch.alert.script.worker.enabled",
+      description = "The time, in milliseconds, after which the workers of an alert script which failed more than "
+          + "`notification.dispatch.alert.script.worker.restart.attempts` times in a row are started again.")
+  public static final ConfigurationProperty<Long> DISPATCH_PROPERTY_SCRIPT_WORKER_RECOVERY_INTERVAL = new ConfigurationProperty<>(
+      "notification.dispatch.alert.script.worker.recovery.interval", 300000L);
+
   @Markdown(description = "Whether security password encryption is enabled or not. In case it is we store passwords in their own file(s); otherwise we store passwords in the Ambari credential store.")
   public static final ConfigurationProperty<Boolean> SECURITY_PASSWORD_ENCRYPTON_ENABLED = new ConfigurationProperty<>("security.passwords.encryption.enabled", false);
 
@@ -2809,6 +3074,7 @@ public class Configuration {
     configsMap.put(REQUEST_LOG_RETAINDAYS.getKey(), getProperty(REQUEST_LOG_RETAINDAYS));
     configsMap.put(EXTERNAL_SCRIPT_TIMEOUT.getKey(), getProperty(EXTERNAL_SCRIPT_TIMEOUT));
     configsMap.put(THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT.getKey(), getProperty(THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT));
+    configsMap.put(CLIENT_CONFIGS_CACHE_SIZE.getKey(), getProperty(CLIENT_CONFIGS_CACHE_SIZE));
     configsMap.put(SHARED_RESOURCES_DIR.getKey(), getProperty(SHARED_RESOURCES_DIR));
     configsMap.put(KDC_PORT.getKey(), getProperty(KDC_PORT));
     configsMap.put(AGENT_PACKAGE_PARALLEL_COMMANDS_LIMIT.getKey(), getProperty(AGENT_PACKAGE_PARALLEL_COMMANDS_LIMIT));
@@ -3335,6 +3601,27 @@ public class Configuration {
     return getProperty(STACK_ADVISOR_SCRIPT);
   }
 
+  /**
+   * @return the maximum number of concurrently executing stack advisor requests
+   */
+  public int getStackAdvisorMaxConcurrentRequests() {
+    return Integer.parseInt(getProperty(STACK_ADVISOR_MAX_CONCURRENT_REQUESTS));
+  }
+
+  /**
+   * @return the number of stack advisor results to cache, {@code 0} to disable
+   */
+  public int getStackAdvisorResultCacheSize() {
+    return Integer.parseInt(getProperty(STACK_ADVISOR_RESULT_CACHE_SIZE));
+  }
+
+  /**
+   * @return the number of minutes a cached stack advisor result is valid
+   */
+  public int getStackAdvisorResultCacheTtlMinutes() {
+    return Integer.parseInt(getProperty(STACK_ADVISOR_RESULT_CACHE_TTL_MINUTES));
+  }
+
   /**
    * @return a list of prefixes. Packages whose name starts with any of these
    * prefixes, should be skipped during upgrade.
@@ -4471,6 +4758,14 @@ public class Configuration {
     return Integer.parseInt(getProperty(THREAD_POOL_SIZE_FOR_EXTERNAL_SCRIPT));
   }
 
+  /**
+   * Get the number of generated client configuration archives to cache
+   * @return {Integer}
+   */
+  public Integer getClientConfigsCacheSize() {
+    return NumberUtils.toInt(getProperty(CLIENT_CONFIGS_CACHE_SIZE), CLIENT_CONFIGS_CACHE_SIZE.getDefaultValue());
+  }
+
   public boolean getParallelStageExecution() {
     return Boolean.parseBoolean(configsMap.get(PARALLEL_STAGE_EXECUTION.getKey()));
   }
@@ -4602,6 +4897,13 @@ public class Configuration {
     return Integer.parseInt(getProperty(AGENTS_REPORT_PROCESSING_START_TIMEOUT));
   }
 
+  /**
+   * @return the maximum number of agents' reports waiting for each processing thread.
+   */
+  public int getAgentsReportQueueSize() {
+    return Integer.parseInt(getProperty(AGENTS_REPORT_QUEUE_SIZE));
+  }
+
   /**
    * @return thread pool size for agents reports processing.
    */
@@ -4675,6 +4977,16 @@ public class Configuration {
     return Integer.parseInt(getProperty(VIEW_REQUEST_THREADPOOL_TIMEOUT));
   }
 
+  /**
+   * Gets the number of REST API requests to a single view instance which can
+   * wait for the view instance's concurrency limit.
+   *
+   * @return the queue size, or {@code 0} if the per-view limits are disabled.
+   */
+  public int getViewRequestQueueSize() {
+    return Integer.parseInt(getProperty(VIEW_REQUEST_QUEUE_SIZE));
+  }
+
   /**
    * Get property-providers' thread pool core size.
    *
@@ -4767,6 +5079,21 @@ public class Configuration {
     return Integer.parseInt(getProperty(ALERTS_EXECUTION_SCHEDULER_WORKER_QUEUE_SIZE));
   }
 
+  /**
+   * @return the number of threads dispatching alert notifications, default 8
+   */
+  public int getAlertNotificationDispatchPoolSize() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_THREADS_SIZE));
+  }
+
+  /**
+   * @return the number of alert notifications dispatched to a single target at
+   *         the same time, default 2
+   */
+  public int getAlertNotificationDispatchTargetConcurrency() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_TARGET_CONCURRENCY));
+  }
+
   /**
    * Get the node recovery type DEFAULT|AUTO_START|FULL
    * @return
@@ -4874,6 +5201,16 @@ public class Configuration {
         LdapUsernameCollisionHandlingBehavior.ADD);
   }
 
+  /**
+   * Gets the number of users created per transaction while applying the
+   * results of an LDAP synchronization.
+   *
+   * @return the batch size, at least 1
+   */
+  public int getLdapSyncDatabaseBatchSize() {
+    return Math.max(1, Integer.parseInt(getProperty(LDAP_SYNC_DATABASE_BATCH_SIZE)));
+  }
+
   /**
    * Gets the type of database by examining the {@link #getDatabaseUrl()} JDBC
    * URL.
@@ -5278,6 +5615,55 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(SERVER_LOCKS_PROFILING));
   }
 
+  /**
+   * @return one in how many lock acquisitions are sampled for contention statistics, or {@code 0} if sampling is disabled
+   */
+  public int getServerLocksContentionSamplingRate() {
+    return Integer.parseInt(getProperty(SERVER_LOCKS_CONTENTION_SAMPLING_RATE));
+  }
+
+  /**
+   * @return the number of milliseconds after which a sampled lock hold is counted as a long hold
+   */
+  public int getServerLocksContentionLongHoldThreshold() {
+    return Integer.parseInt(getProperty(SERVER_LOCKS_CONTENTION_LONG_HOLD_THRESHOLD));
+  }
+
+  /**
+   * @return the number of days of requests and alert history retained by the online purge, or {@code 0} if it is disabled
+   */
+  public int getServerPurgeRetentionDays() {
+    return Integer.parseInt(getProperty(SERVER_PURGE_RETENTION_DAYS));
+  }
+
+  /**
+   * @return the number of minutes between runs of the online purge
+   */
+  public int getServerPurgeInterval() {
+    return Integer.parseInt(getProperty(SERVER_PURGE_INTERVAL));
+  }
+
+  /**
+   * @return the number of top level records deleted per online purge transaction
+   */
+  public int getServerPurgeBatchSize() {
+    return Integer.parseInt(getProperty(SERVER_PURGE_BATCH_SIZE));
+  }
+
+  /**
+   * @return the maximum number of rows per second deleted by the online purge
+   */
+  public int getServerPurgeRowsPerSecond() {
+    return Integer.parseInt(getProperty(SERVER_PURGE_ROWS_PER_SECOND));
+  }
+
+  /**
+   * @return the chunk duration, in milliseconds, after which the online purge backs off
+   */
+  public int getServerPurgeLatencyThreshold() {
+    return Integer.parseInt(getProperty(SERVER_PURGE_LATENCY_THRESHOLD));
+  }
+
   /**
    * @return the capacity of async audit logger
    */
@@ -5373,6 +5759,17 @@ public class Configuration {
     return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_THREADPOOL_WORKER_QUEUE_SIZE));
   }
 
+  /**
+   * Gets the maximum number of requests the {@link MetricsRetrievalService}
+   * allows to be outstanding against a single host.
+   *
+   * @return the maximum number of outstanding requests per host, or {@code 0}
+   *         if there is no limit.
+   */
+  public int getMetricsServiceMaxRequestsPerHost() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY_MAX));
+  }
+
   /**
    * Gets the number of seconds that requests made to the same URL will be discarded in order to
    * throttle the retrieval from the same endpoint.
@@ -5394,6 +5791,17 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED));
   }
 
+  /**
+   * Gets the maximum number of MBeans for which scoped {@code /jmx?qry=}
+   * requests are made rather than reading the full JMX output.
+   *
+   * @return the maximum number of scoped MBean queries per component, or
+   *         {@code 0} if scoped queries are disabled.
+   */
+  public int getMetricsServiceJMXScopedQueryMaxBeans() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS));
+  }
+
   /**
    * Returns the number of tasks that can be queried from the database at once
    * In the case of more tasks, multiple queries are issued
@@ -5499,6 +5907,53 @@ public class Configuration {
     return getProperty(DISPATCH_PROPERTY_SCRIPT_DIRECTORY);
   }
 
+  /**
+   * @return {@code true} if alert notifications are delivered to long-lived
+   *         alert script workers, default {@code false}
+   */
+  public boolean isAlertScriptWorkerEnabled() {
+    return Boolean.parseBoolean(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_ENABLED));
+  }
+
+  /**
+   * @return the number of workers started for each alert script, default 1
+   */
+  public int getAlertScriptWorkerCount() {
+    return Integer.parseInt(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_COUNT));
+  }
+
+  /**
+   * @return the maximum number of notifications written to an alert script
+   *         worker at once, default 100
+   */
+  public int getAlertScriptWorkerBatchSize() {
+    return Integer.parseInt(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_BATCH_SIZE));
+  }
+
+  /**
+   * @return the time, in milliseconds, an alert script worker has to answer a
+   *         batch of notifications, default 5000
+   */
+  public long getAlertScriptWorkerTimeout() {
+    return Long.parseLong(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_TIMEOUT));
+  }
+
+  /**
+   * @return the number of consecutive times a failed alert script worker is
+   *         restarted, default 3
+   */
+  public int getAlertScriptWorkerRestartAttempts() {
+    return Integer.parseInt(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_RESTART_ATTEMPTS));
+  }
+
+  /**
+   * @return the time, in milliseconds, after which the workers of an alert
+   *         script which failed too often are started again, default 300000
+   */
+  public long getAlertScriptWorkerRecoveryInterval() {
+    return Long.parseLong(getProperty(DISPATCH_PROPERTY_SCRIPT_WORKER_RECOVERY_INTERVAL));
+  }
+
   /**
    * @return  whether security password encryption is enabled or not (defaults to {@code false})
    */
@@ -5976,6 +6431,22 @@ public class Configuration {
     return kerberosAuthProperties;
   }
 
+  /**
+   * @return the number of Kerberos identities to process in parallel when
+   *         creating principals and keytab files
+   */
+  public int getKerberosOperationConcurrency() {
+    return Math.max(1, Integer.parseInt(getProperty(KERBEROS_OPERATION_CONCURRENCY)));
+  }
+
+  /**
+   * @return the number of interactive kadmin processes to keep open, or
+   *         {@code 0} to start a kadmin process for each query
+   */
+  public int getKerberosOperationKadminSessions() {
+    return Math.max(0, Integer.parseInt(getProperty(KERBEROS_OPERATION_KADMIN_SESSIONS)));
+  }
+
   public int getKerberosOperationRetries() {
     return Integer.valueOf(getProperty(KERBEROS_OPERATION_RETRIES));
   }
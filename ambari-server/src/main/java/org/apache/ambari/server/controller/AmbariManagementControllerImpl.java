@@ -119,6 +119,7 @@ import org.apache.ambari.server.agent.stomp.dto.TopologyCluster;
 import org.apache.ambari.server.agent.stomp.dto.TopologyComponent;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.api.services.LoggingService;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResultCache;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.configuration.Configuration.DatabaseType;
 import org.apache.ambari.server.controller.internal.DeleteHostComponentStatusMetaData;
@@ -313,6 +314,8 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
   @Inject
   private AmbariMetaInfo ambariMetaInfo;
   @Inject
+  private StackAdvisorResultCache stackAdvisorResultCache;
+  @Inject
   private Users users;
   @Inject
   private HostsMap hostsMap;
@@ -4207,6 +4210,8 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
           "Ambari Meta Information can't be read from the stack root directory");
     }
 
+    // the reloaded stack and service advisors may recommend differently
+    stackAdvisorResultCache.invalidateAll();
     return null;
   }
 
@@ -5052,7 +5057,13 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
         }
       }
 
+      long startTime = System.currentTimeMillis();
       users.processLdapSync(batchInfo);
+      batchInfo.addPhaseDuration(AmbariLdapDataPopulator.DATABASE_PHASE, System.currentTimeMillis() - startTime);
+
+      ldapDataPopulator.storeGroupsChangeMarker(batchInfo);
+
+      LOG.info("Synchronized LDAP users and groups, time spent per phase (ms): {}", batchInfo.getPhaseDurations());
       return batchInfo;
     } finally {
       ldapSyncInProgress = false;
@@ -5463,6 +5474,7 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
 
     ExtensionHelper.validateDeleteLink(getClusters(), stackInfo, extensionInfo);
     ambariMetaInfo.getStackManager().unlinkStackAndExtension(stackInfo, extensionInfo);
+    stackAdvisorResultCache.invalidateAll();
 
     try {
       linkDAO.remove(linkEntity);
@@ -5506,6 +5518,7 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
     }
 
     helper.createExtensionLink(ambariMetaInfo.getStackManager(), stackInfo, extensionInfo);
+    stackAdvisorResultCache.invalidateAll();
   }
 
   /**
@@ -5562,6 +5575,7 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
     }
 
     helper.updateExtensionLink(ambariMetaInfo.getStackManager(), oldLinkEntity, stackInfo, oldExtensionInfo, newExtensionInfo);
+    stackAdvisorResultCache.invalidateAll();
   }
 
   @Override
@@ -296,6 +296,7 @@ public class BlueprintConfigurationProcessor {
 
   public Collection<String> getRequiredHostGroups() {
     Collection<String> requiredHostGroups = new HashSet<>();
+    ClusterTopology topology = new IndexedClusterTopology(clusterTopology);
 
     for (Map<String, Map<String, PropertyUpdater>> updaterMap : createCollectionOfUpdaters()) {
       for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
@@ -309,7 +310,7 @@ public class BlueprintConfigurationProcessor {
           Map<String, String> typeMap = clusterProps.get(type);
           if (typeMap != null && typeMap.containsKey(propertyName) && typeMap.get(propertyName) != null) {
             requiredHostGroups.addAll(updater.getRequiredHostGroups(
-                propertyName, typeMap.get(propertyName), clusterProps, clusterTopology));
+                propertyName, typeMap.get(propertyName), clusterProps, topology));
           }
 
           // host group configs
@@ -318,7 +319,7 @@ public class BlueprintConfigurationProcessor {
             Map<String, String> hgTypeMap = hgConfigProps.get(type);
             if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
               requiredHostGroups.addAll(updater.getRequiredHostGroups(
-                  propertyName, hgTypeMap.get(propertyName), hgConfigProps, clusterTopology));
+                  propertyName, hgTypeMap.get(propertyName), hgConfigProps, topology));
             }
           }
         }
@@ -349,6 +350,14 @@ public class BlueprintConfigurationProcessor {
     // removes a property other than the property it is registered for then we will
     // have an issue as it won't be removed from the clusterProps map as it is a copy.
     Map<String, Map<String, String>> clusterProps = clusterConfig.getFullProperties();
+
+    // resolve the hosts of components and the host group configurations once rather than for each property
+    ClusterTopology topology = new IndexedClusterTopology(clusterTopology);
+    // the resolved host group configurations are kept in sync with the host group updates below,
+    // and re-read whenever a cluster scoped update changes a value that a host group may inherit
+    Map<HostGroupInfo, Map<String, Map<String, String>>> hgConfigPropsByGroup = new HashMap<>();
+    boolean hgConfigPropsStale = true;
+
     for (Map<String, Map<String, PropertyUpdater>> updaterMap : createCollectionOfUpdaters()) {
       for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
         String type = entry.getKey();
@@ -361,7 +370,7 @@ public class BlueprintConfigurationProcessor {
           if (typeMap != null && typeMap.containsKey(propertyName) && typeMap.get(propertyName) != null) {
             final String originalValue = typeMap.get(propertyName);
             final String updatedValue =
-              updater.updateForClusterCreate(propertyName, originalValue, clusterProps, clusterTopology);
+              updater.updateForClusterCreate(propertyName, originalValue, clusterProps, topology);
 
             if(updatedValue == null ) {
               continue;
@@ -369,26 +378,36 @@ public class BlueprintConfigurationProcessor {
 
             if (!updatedValue.equals(originalValue)) {
               configTypesUpdated.add(type);
+              hgConfigPropsStale = true;
             }
 
             clusterConfig.setProperty(type, propertyName, updatedValue);
           }
 
+          if (hgConfigPropsStale) {
+            for (HostGroupInfo groupInfo : groupInfoMap.values()) {
+              hgConfigPropsByGroup.put(groupInfo, groupInfo.getConfiguration().getFullProperties(1));
+            }
+            hgConfigPropsStale = false;
+          }
+
           // host group configs
           for (HostGroupInfo groupInfo : groupInfoMap.values()) {
             Configuration hgConfig = groupInfo.getConfiguration();
-            Map<String, Map<String, String>> hgConfigProps = hgConfig.getFullProperties(1);
+            Map<String, Map<String, String>> hgConfigProps = hgConfigPropsByGroup.get(groupInfo);
             Map<String, String> hgTypeMap = hgConfigProps.get(type);
             if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
               final String originalValue = hgTypeMap.get(propertyName);
               final String updatedValue =
-                updater.updateForClusterCreate(propertyName, originalValue, hgConfigProps, clusterTopology);
+                updater.updateForClusterCreate(propertyName, originalValue, hgConfigProps, topology);
 
               if (!updatedValue.equals(originalValue)) {
                 configTypesUpdated.add(type);
               }
 
               hgConfig.setProperty(type, propertyName, updatedValue);
+              // keep the resolved host group properties in sync for the following updaters
+              hgTypeMap.put(propertyName, updatedValue);
             }
           }
         }
@@ -408,7 +427,7 @@ public class BlueprintConfigurationProcessor {
 
       // if the active/stanbdy namenodes are not specified, assign them automatically
       if (! isNameNodeHAInitialActiveNodeSet(clusterProps) && ! isNameNodeHAInitialStandbyNodeSet(clusterProps)) {
-        Collection<String> nnHosts = clusterTopology.getHostAssignmentsForComponent("NAMENODE");
+        Collection<String> nnHosts = topology.getHostAssignmentsForComponent("NAMENODE");
         if (nnHosts.size() != 2) {
           throw new ConfigurationTopologyException("NAMENODE HA requires exactly 2 hosts running NAMENODE but there are: " +
               nnHosts.size() + " Hosts: " + nnHosts);
@@ -508,13 +527,16 @@ public class BlueprintConfigurationProcessor {
       }
     }
 
+    // resolve the hosts of each host group once rather than for each property
+    IndexedClusterTopology topology = new IndexedClusterTopology(clusterTopology);
+
     for (Configuration configuration : allConfigs) {
-      doSingleHostExportUpdate(singleHostTopologyUpdaters, configuration);
-      doSingleHostExportUpdate(dbHostTopologyUpdaters, configuration);
+      doSingleHostExportUpdate(singleHostTopologyUpdaters, configuration, topology);
+      doSingleHostExportUpdate(dbHostTopologyUpdaters, configuration, topology);
 
-      doMultiHostExportUpdate(multiHostTopologyUpdaters, configuration);
+      doMultiHostExportUpdate(multiHostTopologyUpdaters, configuration, topology);
 
-      doNonTopologyUpdate(nonTopologyUpdaters, configuration);
+      doNonTopologyUpdate(nonTopologyUpdaters, configuration, topology);
 
       doRemovePropertyExport(removePropertyUpdaters, configuration);
 
@@ -697,7 +719,7 @@ public class BlueprintConfigurationProcessor {
    *
    * @return Collection of PropertyUpdater maps used to handle cluster config update
    */
-  private Collection<Map<String, Map<String, PropertyUpdater>>> createCollectionOfUpdaters() {
+  Collection<Map<String, Map<String, PropertyUpdater>>> createCollectionOfUpdaters() {
     Collection<Map<String, Map<String, PropertyUpdater>>> updaters = allUpdaters;
 
     if (clusterTopology.isNameNodeHAEnabled()) {
@@ -835,7 +857,7 @@ public class BlueprintConfigurationProcessor {
 
     // perform a single host update on these dynamically generated property names
     if (highAvailabilityUpdaters.get("hdfs-site").size() > 0) {
-      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(), new IndexedClusterTopology(clusterTopology));
     }
   }
 
@@ -851,7 +873,7 @@ public class BlueprintConfigurationProcessor {
 
     // perform a single host update on these dynamically generated property names
     if (highAvailabilityUpdaters.get("yarn-site").size() > 0) {
-      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doSingleHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(), new IndexedClusterTopology(clusterTopology));
     }
   }
 
@@ -865,7 +887,7 @@ public class BlueprintConfigurationProcessor {
     Map<String, Map<String, PropertyUpdater>> highAvailabilityUpdaters = createMapOfOozieServerHAUpdaters();
 
     if (highAvailabilityUpdaters.get("oozie-site").size() > 0) {
-      doMultiHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration());
+      doMultiHostExportUpdate(highAvailabilityUpdaters, clusterTopology.getConfiguration(), new IndexedClusterTopology(clusterTopology));
     }
   }
 
@@ -1109,8 +1131,10 @@ public class BlueprintConfigurationProcessor {
    *
    * @param updaters       registered updaters
    * @param configuration  configuration being processed
+   * @param topology       indexed cluster topology
    */
-  private void doSingleHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration) {
+  private void doSingleHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration,
+                                        IndexedClusterTopology topology) {
     Map<String, Map<String, String>> properties = configuration.getFullProperties();
     for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaters.entrySet()) {
       String type = entry.getKey();
@@ -1121,14 +1145,14 @@ public class BlueprintConfigurationProcessor {
         if (typeProperties != null && typeProperties.containsKey(propertyName)) {
           String propValue = typeProperties.get(propertyName);
 
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Collection<String> hosts = groupInfo.getHostNames();
+          for (Map.Entry<String, Collection<String>> hostGroupEntry : topology.getHostsByHostGroup().entrySet()) {
+            Collection<String> hosts = hostGroupEntry.getValue();
             for (String host : hosts) {
               //todo: need to use regular expression to avoid matching a host which is a superset.
               if (propValue.contains(host)) {
                 matchedHost = true;
                 configuration.setProperty(type, propertyName,
-                    propValue.replace(host, "%HOSTGROUP::" + groupInfo.getHostGroupName() + "%"));
+                    propValue.replace(host, "%HOSTGROUP::" + hostGroupEntry.getKey() + "%"));
                 break;
               }
             }
@@ -1209,22 +1233,17 @@ public class BlueprintConfigurationProcessor {
    *
    * @param updaters       registered updaters
    * @param configuration  configuration being processed
+   * @param topology       indexed cluster topology
    */
-  private void doMultiHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration) {
+  private void doMultiHostExportUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration,
+                                       IndexedClusterTopology topology) {
     Map<String, Map<String, String>> properties = configuration.getFullProperties();
     for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaters.entrySet()) {
       String type = entry.getKey();
       for (String propertyName : entry.getValue().keySet()) {
         Map<String, String> typeProperties = properties.get(type);
         if (typeProperties != null && typeProperties.containsKey(propertyName)) {
-          String propValue = typeProperties.get(propertyName);
-          for (HostGroupInfo groupInfo : clusterTopology.getHostGroupInfo().values()) {
-            Collection<String> hosts = groupInfo.getHostNames();
-            for (String host : hosts) {
-              propValue = propValue.replaceAll(host + "\\b", "%HOSTGROUP::" +
-                  groupInfo.getHostGroupName() + "%");
-            }
-          }
+          String propValue = topology.replaceHostNamesWithHostGroupTokens(typeProperties.get(propertyName));
           Collection<String> addedGroups = new HashSet<>();
           String[] toks = propValue.split(",");
           boolean inBrackets = propValue.startsWith("[");
@@ -1316,8 +1335,10 @@ public class BlueprintConfigurationProcessor {
    *
    * @param updaters       registered non topology updaters
    * @param configuration  configuration being processed
+   * @param topology       indexed cluster topology
    */
-  private void doNonTopologyUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration) {
+  private void doNonTopologyUpdate(Map<String, Map<String, PropertyUpdater>> updaters, Configuration configuration,
+                                   ClusterTopology topology) {
     Map<String, Map<String, String>> properties = configuration.getFullProperties();
     for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaters.entrySet()) {
       String type = entry.getKey();
@@ -1326,7 +1347,7 @@ public class BlueprintConfigurationProcessor {
         Map<String, String> typeProperties = properties.get(type);
 
         if (typeProperties != null && typeProperties.containsKey(propertyName)) {
-          String newValue = npu.updateForBlueprintExport(propertyName, typeProperties.get(propertyName), properties, clusterTopology);
+          String newValue = npu.updateForBlueprintExport(propertyName, typeProperties.get(propertyName), properties, topology);
           configuration.setProperty(type, propertyName, newValue);
         }
       }
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Caches the client configuration archives generated by the
+ * {@link ClientConfigResourceProvider} on the local disk.
+ * <p/>
+ * Archives are addressed by a digest of everything the generate_configs
+ * script is run with: the script, the package folder and the command JSON
+ * which holds the desired configurations, the stack and the component. An
+ * archive is therefore reused until any of them change. Concurrent requests
+ * for the same archive share a single generation, and the least recently used
+ * archives are removed once the cache is full.
+ * <p/>
+ * Archives are stored in a directory of the server's temporary directory,
+ * which is cleared when the cache is created since the stack scripts may have
+ * changed while the server was down.
+ */
+@Singleton
+final class ClientConfigCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClientConfigCache.class);
+
+  /**
+   * The directory of the server's temporary directory which holds the archives.
+   */
+  static final String CACHE_DIRECTORY = "client-configs-cache";
+
+  private final File m_directory;
+
+  /**
+   * The cached archives by key, in access order.
+   */
+  private final LinkedHashMap<String, File> m_archives;
+
+  /**
+   * The generations in progress by key.
+   */
+  private final Map<String, CompletableFuture<Void>> m_generations = new HashMap<>();
+
+  /**
+   * {@code false} if caching is disabled or the cache directory could not be
+   * created.
+   */
+  private final boolean m_enabled;
+
+  /**
+   * Creates the cache in the server's temporary directory.
+   *
+   * @param configuration
+   *          the server configuration which holds the temporary directory and
+   *          the number of archives to cache.
+   */
+  @Inject
+  ClientConfigCache(Configuration configuration) {
+    this(new File(configuration.getServerTempDir(), CACHE_DIRECTORY), configuration.getClientConfigsCacheSize());
+  }
+
+  ClientConfigCache(File directory, final int maxEntries) {
+    m_directory = directory;
+    m_archives = new LinkedHashMap<String, File>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+        if (size() > maxEntries) {
+          FileUtils.deleteQuietly(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+
+    boolean enabled = maxEntries > 0;
+    if (enabled) {
+      try {
+        if (directory.exists()) {
+          FileUtils.cleanDirectory(directory);
+        } else {
+          FileUtils.forceMkdir(directory);
+        }
+      } catch (IOException e) {
+        LOG.warn("Unable to create the client configuration cache in {}, archives will not be cached", directory, e);
+        enabled = false;
+      }
+    }
+    m_enabled = enabled;
+  }
+
+  /**
+   * @return {@code false} if caching is disabled or the cache directory could
+   *         not be created
+   */
+  boolean isEnabled() {
+    return m_enabled;
+  }
+
+  /**
+   * Gets the key of the archive generated from the specified inputs.
+   *
+   * @param inputs
+   *          everything the archive is generated from.
+   * @return the key
+   */
+  static String getKey(String... inputs) {
+    StringBuilder builder = new StringBuilder();
+    for (String input : inputs) {
+      builder.append(input.length()).append(':').append(input);
+    }
+    return DigestUtils.sha256Hex(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Copies a cached archive to the specified file. The file is replaced
+   * atomically so that a concurrent download of it never reads a partial
+   * archive.
+   *
+   * @param key
+   *          the key of the archive.
+   * @param target
+   *          the file to copy the archive to.
+   * @return {@code true} if the archive was cached and copied
+   * @throws IOException
+   *           if the archive could not be copied.
+   */
+  synchronized boolean copyTo(String key, File target) throws IOException {
+    File archive = m_archives.get(key);
+    if (null == archive) {
+      return false;
+    }
+
+    Path tmpFile = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+    try {
+      Files.copy(archive.toPath(), tmpFile, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(tmpFile, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+    return true;
+  }
+
+  /**
+   * Starts the generation of an archive unless it is already cached or being
+   * generated. A caller which starts a generation must end it with either
+   * {@link #finishGeneration(String, File)} or
+   * {@link #failGeneration(String, Throwable)}.
+   *
+   * @param key
+   *          the key of the archive.
+   * @return {@code null} if the caller must generate the archive, otherwise a
+   *         future which completes once the archive is cached
+   */
+  synchronized CompletableFuture<Void> startGeneration(String key) {
+    if (m_archives.containsKey(key)) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    CompletableFuture<Void> generation = m_generations.get(key);
+    if (null == generation) {
+      m_generations.put(key, new CompletableFuture<>());
+    }
+    return generation;
+  }
+
+  /**
+   * Caches a generated archive and completes its generation.
+   *
+   * @param key
+   *          the key of the archive.
+   * @param generated
+   *          the generated archive, which is moved into the cache or deleted
+   *          if it can not be cached. It must be on the same file system as
+   *          the cache and must not be shared with the generation of another
+   *          key.
+   */
+  void finishGeneration(String key, File generated) {
+    File archive = new File(m_directory, key + Configuration.DEF_ARCHIVE_EXTENSION);
+    try {
+      Files.move(generated.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Unable to cache the client configuration archive {}", generated, e);
+      FileUtils.deleteQuietly(generated);
+      failGeneration(key, e);
+      return;
+    }
+
+    CompletableFuture<Void> generation;
+    synchronized (this) {
+      m_archives.put(key, archive);
+      generation = m_generations.remove(key);
+    }
+
+    if (null != generation) {
+      generation.complete(null);
+    }
+  }
+
+  /**
+   * Fails the generation of an archive, so that the callers waiting for it
+   * fail as well.
+   *
+   * @param key
+   *          the key of the archive.
+   * @param cause
+   *          the reason the archive could not be generated.
+   */
+  void failGeneration(String key, Throwable cause) {
+    CompletableFuture<Void> generation;
+    synchronized (this) {
+      generation = m_generations.remove(key);
+    }
+
+    if (null != generation) {
+      generation.completeExceptionally(cause);
+    }
+  }
+
+  /**
+   * @return the number of cached archives
+   */
+  synchronized int size() {
+    return m_archives.size();
+  }
+}
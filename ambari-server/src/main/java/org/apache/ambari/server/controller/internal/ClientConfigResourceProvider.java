@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -62,6 +63,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.StaticallyInject;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AmbariManagementController;
@@ -106,12 +108,14 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 
 /**
  * Resource provider for client config resources.
  */
+@StaticallyInject
 public class ClientConfigResourceProvider extends AbstractControllerResourceProvider {
 
 
@@ -145,6 +149,14 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
       HOST_COMPONENT_HOST_NAME_PROPERTY_ID);
 
   private MaintenanceStateHelper maintenanceStateHelper;
+
+  /**
+   * Caches the generated archives so that they are reused until their inputs
+   * change.
+   */
+  @Inject
+  private static ClientConfigCache clientConfigCache;
+
   private static final Logger LOG = LoggerFactory.getLogger(ClientConfigResourceProvider.class);
 
   // ----- Constructors ----------------------------------------------------
@@ -223,6 +235,13 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
     List<String> pythonCompressFilesCmds = new ArrayList<>();
     List<File> commandFiles = new ArrayList<>();
 
+    // archives generated from the same inputs are reused, so the cache keys
+    // of the commands and the archive they generate are kept
+    ClientConfigCache configCache = null != clientConfigCache && clientConfigCache.isEnabled() ? clientConfigCache : null;
+    List<String> cacheKeys = new ArrayList<>();
+    Map<String, File> archives = new HashMap<>();
+    Map<String, File> outputFiles = new HashMap<>();
+
     for (ServiceComponentHostResponse response : componentMap.values()){
 
       AmbariManagementController managementController = getManagementController();
@@ -472,6 +491,26 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
             throw new SystemException("Failed to get temporary directory to store configurations", se);
           }
         }
+        if (null != configCache) {
+          String cacheKey = ClientConfigCache.getKey(commandScriptAbsolute, packageFolderAbsolute, jsonConfigurations);
+          File archive = new File(TMP_PATH, componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
+          if (configCache.copyTo(cacheKey, archive)) {
+            LOG.debug("Using the cached client configs of component {}", componentName);
+            continue;
+          }
+
+          // the script generates the archive into a file of its own, which is
+          // moved into the cache and then copied to the archive atomically, so
+          // that concurrent requests never write to the same file
+          String outputFile = componentName + "-configs-" + cacheKey + Configuration.DEF_ARCHIVE_EXTENSION;
+          commandParams.put("output_file", outputFile);
+          jsonConfigurations = gson.toJson(jsonContent);
+
+          cacheKeys.add(cacheKey);
+          archives.put(cacheKey, archive);
+          outputFiles.put(cacheKey, new File(TMP_PATH, outputFile));
+        }
+
         File jsonFile = File.createTempFile(componentName, "-configuration.json", tmpDirectory);
         try {
           jsonFile.setWritable(true, true);
@@ -504,23 +543,64 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
       throw new SystemException("No configuration files defined for any component" );
     }
 
-    Integer totalCommands = pythonCompressFilesCmds.size() * 2;
-    Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
-    ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
+    // only generate the archives which are not being generated for another request
+    List<String> commandsToRun = pythonCompressFilesCmds;
+    Map<String, File> generatedArchives = new HashMap<>();
+    Map<String, CompletableFuture<Void>> otherGenerations = new HashMap<>();
+    if (null != configCache) {
+      commandsToRun = new ArrayList<>();
+      for (int i = 0; i < pythonCompressFilesCmds.size(); i++) {
+        String cacheKey = cacheKeys.get(i);
+        CompletableFuture<Void> generation = configCache.startGeneration(cacheKey);
+        if (null == generation) {
+          commandsToRun.add(pythonCompressFilesCmds.get(i));
+          generatedArchives.put(cacheKey, outputFiles.get(cacheKey));
+        } else {
+          otherGenerations.put(cacheKey, generation);
+        }
+      }
+    }
 
-    // put all threads that starts process to compress each component config files in the executor
     try {
-      List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, pythonCompressFilesCmds);
+      if (!commandsToRun.isEmpty()) {
+        Integer totalCommands = commandsToRun.size() * 2;
+        Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
+        ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
 
-      // wait for all threads to finish
-      Integer timeout = configs.getExternalScriptTimeout();
-      waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
+        // put all threads that starts process to compress each component config files in the executor
+        List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, commandsToRun);
+
+        // wait for all threads to finish
+        Integer timeout = configs.getExternalScriptTimeout();
+        waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
+      }
+
+      for (Map.Entry<String, File> generatedArchive : generatedArchives.entrySet()) {
+        configCache.finishGeneration(generatedArchive.getKey(), generatedArchive.getValue());
+      }
+      Set<String> generatedKeys = new HashSet<>(generatedArchives.keySet());
+      generatedArchives.clear();
+      for (String cacheKey : generatedKeys) {
+        if (!configCache.copyTo(cacheKey, archives.get(cacheKey))) {
+          throw new SystemException("Failed to get the generated client configs from the cache");
+        }
+      }
+    } catch (IOException e) {
+      throw new SystemException("Controller error ", e);
     } finally {
+      for (Map.Entry<String, File> generatedArchive : generatedArchives.entrySet()) {
+        configCache.failGeneration(generatedArchive.getKey(), new SystemException("Failed to run generate client configs script for components"));
+        generatedArchive.getValue().delete();
+      }
       for (File each : commandFiles) {
         each.delete();
       }
     }
 
+    if (!otherGenerations.isEmpty()) {
+      waitForGenerations(configCache, otherGenerations, archives, configs.getExternalScriptTimeout());
+    }
+
     if (StringUtils.isEmpty(requestComponentName)) {
       TarUtils tarUtils;
       String fileName;
@@ -631,6 +711,38 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
   }
 
 
+  /**
+   * Waits for the archives which are generated for other requests and copies them from the cache
+   * @param configCache {@link ClientConfigCache} which holds the generated archives
+   * @param generations the generations to wait for by cache key
+   * @param archives the files to copy the archives to by cache key
+   * @param timeout {Integer} time to wait for each generation
+   * @throws SystemException
+   */
+  private void waitForGenerations(ClientConfigCache configCache, Map<String, CompletableFuture<Void>> generations,
+                                  Map<String, File> archives, Integer timeout) throws SystemException {
+    for (Map.Entry<String, CompletableFuture<Void>> generation : generations.entrySet()) {
+      String cacheKey = generation.getKey();
+      try {
+        generation.getValue().get(timeout, TimeUnit.MILLISECONDS);
+        if (!configCache.copyTo(cacheKey, archives.get(cacheKey))) {
+          throw new SystemException("Failed to get the generated client configs from the cache");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SystemException("Failed to run generate client configs script for components");
+      } catch (ExecutionException e) {
+        throw new SystemException("Failed to run generate client configs script for components", e.getCause());
+      } catch (TimeoutException e) {
+        LOG.error("Generate client configs script was killed due to timeout ", e);
+        throw new SystemException("Generate client configs script was killed due to timeout ", e);
+      } catch (IOException e) {
+        throw new SystemException("Controller error ", e);
+      }
+    }
+  }
+
+
   /**
    * wrapper class that holds all information and references to the thread and python process
    * started to create compressed configuration config files
@@ -153,6 +153,13 @@ public class ClusterControllerImpl implements ClusterController {
         keepers = propertyProvider.populateResources(keepers, request, predicate);
       }
     }
+
+    // the populated resources are only read from here on
+    for (Resource resource : keepers) {
+      if (resource instanceof ResourceImpl) {
+        ((ResourceImpl) resource).freeze();
+      }
+    }
     return keepers;
   }
 
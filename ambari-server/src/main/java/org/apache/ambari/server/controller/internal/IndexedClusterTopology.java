@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ambari.server.controller.RequestStatusResponse;
+import org.apache.ambari.server.topology.AdvisedConfiguration;
+import org.apache.ambari.server.topology.AmbariContext;
+import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
+import org.apache.ambari.server.topology.Configuration;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.apache.ambari.server.topology.InvalidTopologyException;
+import org.apache.ambari.server.topology.NoSuchHostGroupException;
+import org.apache.ambari.server.topology.TopologyRequest;
+
+/**
+ * A {@link ClusterTopology} which indexes the host assignments of another topology.
+ * <p/>
+ * The {@link BlueprintConfigurationProcessor} resolves the host groups and hosts of the same
+ * components for hundreds of properties, and for every host group configuration. Resolving a
+ * component walks every host group of the blueprint, and resolving the hosts of a host group copies
+ * its host names. This topology resolves each component once and keeps a snapshot of the hosts of
+ * each host group, so it must only be used while the host assignments of the indexed topology do
+ * not change, e.g. for the duration of a single configuration update.
+ * <p/>
+ * All other methods delegate to the indexed topology.
+ */
+class IndexedClusterTopology implements ClusterTopology {
+
+  private final ClusterTopology topology;
+
+  /**
+   * The host names of each host group, in the iteration order of the host group info of the topology.
+   */
+  private final Map<String, Collection<String>> hostsByHostGroup = new LinkedHashMap<>();
+
+  private final Map<String, String> hostGroupByHost = new HashMap<>();
+
+  private final Map<String, Collection<String>> hostGroupsByComponent = new ConcurrentHashMap<>();
+
+  private final Map<String, Collection<String>> hostsByComponent = new ConcurrentHashMap<>();
+
+  /**
+   * Matches the name of any host of the topology which is followed by a word boundary.
+   */
+  private volatile Pattern hostNamePattern;
+
+  IndexedClusterTopology(ClusterTopology topology) {
+    this.topology = topology;
+
+    for (HostGroupInfo groupInfo : topology.getHostGroupInfo().values()) {
+      Collection<String> hostNames = Collections.unmodifiableCollection(groupInfo.getHostNames());
+      hostsByHostGroup.put(groupInfo.getHostGroupName(), hostNames);
+      for (String hostName : hostNames) {
+        // a host can only be associated with a single host group
+        hostGroupByHost.putIfAbsent(hostName, groupInfo.getHostGroupName());
+      }
+    }
+  }
+
+  /**
+   * @return the host names of each host group
+   */
+  Map<String, Collection<String>> getHostsByHostGroup() {
+    return hostsByHostGroup;
+  }
+
+  /**
+   * Replaces each host name in a property value by the token of its host group. Only host names
+   * followed by a word boundary are replaced, and a longer host name is preferred over a shorter
+   * host name it ends with.
+   *
+   * @param value the property value
+   * @return the value with host group tokens instead of host names
+   */
+  String replaceHostNamesWithHostGroupTokens(String value) {
+    if (hostGroupByHost.isEmpty()) {
+      return value;
+    }
+
+    Matcher matcher = getHostNamePattern().matcher(value);
+    StringBuffer result = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(result,
+          Matcher.quoteReplacement("%HOSTGROUP::" + hostGroupByHost.get(matcher.group(1)) + "%"));
+    }
+    matcher.appendTail(result);
+    return result.toString();
+  }
+
+  private Pattern getHostNamePattern() {
+    Pattern pattern = hostNamePattern;
+    if (pattern == null) {
+      List<String> hostNames = new ArrayList<>(hostGroupByHost.keySet());
+      hostNames.sort((left, right) -> right.length() - left.length());
+
+      StringBuilder regex = new StringBuilder("(");
+      for (String hostName : hostNames) {
+        if (regex.length() > 1) {
+          regex.append('|');
+        }
+        regex.append(Pattern.quote(hostName));
+      }
+      regex.append(")\\b");
+
+      pattern = Pattern.compile(regex.toString());
+      hostNamePattern = pattern;
+    }
+    return pattern;
+  }
+
+  @Override
+  public Collection<String> getHostGroupsForComponent(String component) {
+    return new ArrayList<>(hostGroupsByComponent.computeIfAbsent(component, topology::getHostGroupsForComponent));
+  }
+
+  @Override
+  public String getHostGroupForHost(String hostname) {
+    return hostGroupByHost.get(hostname);
+  }
+
+  @Override
+  public Collection<String> getHostAssignmentsForComponent(String component) {
+    return new ArrayList<>(hostsByComponent.computeIfAbsent(component, key -> {
+      Collection<String> hosts = new ArrayList<>();
+      for (String hostGroup : hostGroupsByComponent.computeIfAbsent(key, topology::getHostGroupsForComponent)) {
+        Collection<String> hostNames = hostsByHostGroup.get(hostGroup);
+        if (hostNames != null) {
+          hosts.addAll(hostNames);
+        }
+      }
+      return hosts;
+    }));
+  }
+
+  @Override
+  public Long getClusterId() {
+    return topology.getClusterId();
+  }
+
+  @Override
+  public void setClusterId(Long clusterId) {
+    topology.setClusterId(clusterId);
+  }
+
+  @Override
+  public Blueprint getBlueprint() {
+    return topology.getBlueprint();
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return topology.getConfiguration();
+  }
+
+  @Override
+  public Map<String, HostGroupInfo> getHostGroupInfo() {
+    return topology.getHostGroupInfo();
+  }
+
+  @Override
+  public void update(TopologyRequest topologyRequest) throws InvalidTopologyException {
+    topology.update(topologyRequest);
+  }
+
+  @Override
+  public void addHostToTopology(String hostGroupName, String host) throws InvalidTopologyException, NoSuchHostGroupException {
+    topology.addHostToTopology(hostGroupName, host);
+  }
+
+  @Override
+  public boolean isNameNodeHAEnabled() {
+    return topology.isNameNodeHAEnabled();
+  }
+
+  @Override
+  public boolean isYarnResourceManagerHAEnabled() {
+    return topology.isYarnResourceManagerHAEnabled();
+  }
+
+  @Override
+  public boolean isClusterKerberosEnabled() {
+    return topology.isClusterKerberosEnabled();
+  }
+
+  @Override
+  public RequestStatusResponse installHost(String hostName, boolean skipInstallTaskCreate, boolean skipFailure) {
+    return topology.installHost(hostName, skipInstallTaskCreate, skipFailure);
+  }
+
+  @Override
+  public RequestStatusResponse startHost(String hostName, boolean skipFailure) {
+    return topology.startHost(hostName, skipFailure);
+  }
+
+  @Override
+  public void setConfigRecommendationStrategy(ConfigRecommendationStrategy strategy) {
+    topology.setConfigRecommendationStrategy(strategy);
+  }
+
+  @Override
+  public ConfigRecommendationStrategy getConfigRecommendationStrategy() {
+    return topology.getConfigRecommendationStrategy();
+  }
+
+  @Override
+  public void setProvisionAction(ProvisionAction provisionAction) {
+    topology.setProvisionAction(provisionAction);
+  }
+
+  @Override
+  public ProvisionAction getProvisionAction() {
+    return topology.getProvisionAction();
+  }
+
+  @Override
+  public Map<String, AdvisedConfiguration> getAdvisedConfigurations() {
+    return topology.getAdvisedConfigurations();
+  }
+
+  @Override
+  public AmbariContext getAmbariContext() {
+    return topology.getAmbariContext();
+  }
+
+  @Override
+  public void removeHost(String hostname) {
+    topology.removeHost(hostname);
+  }
+
+  @Override
+  public String getDefaultPassword() {
+    return topology.getDefaultPassword();
+  }
+
+  @Override
+  public boolean isComponentHadoopCompatible(String component) {
+    return topology.isComponentHadoopCompatible(component);
+  }
+}
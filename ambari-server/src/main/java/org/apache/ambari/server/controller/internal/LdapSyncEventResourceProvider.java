@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +87,7 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
   public static final String EVENT_STATUS_DETAIL_PROPERTY_ID = "Event/status_detail";
   public static final String EVENT_START_TIME_PROPERTY_ID    = "Event/sync_time/start";
   public static final String EVENT_END_TIME_PROPERTY_ID      = "Event/sync_time/end";
+  public static final String EVENT_PHASE_TIMES_PROPERTY_ID   = "Event/sync_time/phases";
   public static final String USERS_CREATED_PROPERTY_ID       = "Event/summary/users/created";
   public static final String USERS_UPDATED_PROPERTY_ID       = "Event/summary/users/updated";
   public static final String USERS_REMOVED_PROPERTY_ID       = "Event/summary/users/removed";
@@ -113,6 +115,7 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
       EVENT_STATUS_DETAIL_PROPERTY_ID,
       EVENT_START_TIME_PROPERTY_ID,
       EVENT_END_TIME_PROPERTY_ID,
+      EVENT_PHASE_TIMES_PROPERTY_ID,
       USERS_CREATED_PROPERTY_ID,
       USERS_UPDATED_PROPERTY_ID,
       USERS_REMOVED_PROPERTY_ID,
@@ -303,6 +306,7 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
 
     setResourceProperty(resource, EVENT_START_TIME_PROPERTY_ID, eventEntity.getStartTime(), requestedIds);
     setResourceProperty(resource, EVENT_END_TIME_PROPERTY_ID, eventEntity.getEndTime(), requestedIds);
+    setResourceProperty(resource, EVENT_PHASE_TIMES_PROPERTY_ID, eventEntity.getPhaseDurations(), requestedIds);
 
     return resource;
   }
@@ -532,5 +536,6 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
     event.setGroupsRemoved(syncInfo.getGroupsToBeRemoved().size());
     event.setMembershipsCreated(syncInfo.getMembershipToAdd().size());
     event.setMembershipsRemoved(syncInfo.getMembershipToRemove().size());
+    event.setPhaseDurations(new LinkedHashMap<>(syncInfo.getPhaseDurations()));
   }
 }
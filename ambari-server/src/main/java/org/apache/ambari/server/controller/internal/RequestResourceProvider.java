@@ -56,6 +56,7 @@ import org.apache.ambari.server.controller.spi.UnsupportedPropertyException;
 import org.apache.ambari.server.controller.utilities.PredicateBuilder;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.customactions.ActionDefinition;
+import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
@@ -96,6 +97,9 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
   @Inject
   private static TopologyManager topologyManager;
 
+  @Inject
+  private static TaskStatusListener s_taskStatusListener;
+
   // ----- Property ID constants ---------------------------------------------
   // Requests
   public static final String REQUESTS = "Requests";
@@ -127,6 +131,7 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
   public static final String REQUEST_PROGRESS_PERCENT_ID = REQUESTS + "/progress_percent";
   public static final String REQUEST_REMOVE_PENDING_HOST_REQUESTS_ID = REQUESTS + "/remove_pending_host_requests";
   public static final String REQUEST_PENDING_HOST_REQUEST_COUNT_ID = REQUESTS + "/pending_host_request_count";
+  public static final String REQUEST_TOPOLOGY_TASK_STATISTICS_ID = REQUESTS + "/topology_task_statistics";
   public static final String REQUEST_USER_NAME = REQUESTS + "/user_name";
   public static final String COMMAND_ID = "command";
   public static final String SERVICE_ID = "service_name";
@@ -177,6 +182,7 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
     REQUEST_PROGRESS_PERCENT_ID,
     REQUEST_REMOVE_PENDING_HOST_REQUESTS_ID,
     REQUEST_PENDING_HOST_REQUEST_COUNT_ID,
+    REQUEST_TOPOLOGY_TASK_STATISTICS_ID,
     REQUEST_CLUSTER_HOST_INFO_ID,
     REQUEST_USER_NAME
   );
@@ -802,7 +808,12 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
       setResourceProperty(resource, REQUEST_SOURCE_SCHEDULE, null, requestedPropertyIds);
     }
 
-    Map<Long, HostRoleCommandStatusSummaryDTO> summary = s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId());
+    // the tasks of running requests are counted as their status changes, so
+    // only the tasks of other requests need to be aggregated by the database
+    Map<Long, HostRoleCommandStatusSummaryDTO> summary = s_taskStatusListener.getStageSummaries(entity.getRequestId());
+    if (null == summary) {
+      summary = s_hostRoleCommandDAO.findAggregateCounts(entity.getRequestId());
+    }
 
     // get summaries from TopologyManager for logical requests
     summary.putAll(topologyManager.getStageSummaries(entity.getRequestId()));
@@ -829,6 +840,9 @@ public class RequestResourceProvider extends AbstractControllerResourceProvider
 
     if (null != logicalRequest) {
       setResourceProperty(resource, REQUEST_PENDING_HOST_REQUEST_COUNT_ID, logicalRequest.getPendingHostRequestCount(), requestedPropertyIds);
+      if (isPropertyRequested(REQUEST_TOPOLOGY_TASK_STATISTICS_ID, requestedPropertyIds)) {
+        resource.setProperty(REQUEST_TOPOLOGY_TASK_STATISTICS_ID, logicalRequest.getTaskStatistics().getSummary());
+      }
     }
 
     setResourceProperty(resource, REQUEST_STATUS_PROPERTY_ID, status.getStatus().toString(), requestedPropertyIds);
@@ -18,17 +18,25 @@
 
 package org.apache.ambari.server.controller.internal;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 
 /**
  * Simple resource implementation.
+ * <p/>
+ * The properties are kept in maps backed by sorted arrays whose keys are the
+ * categories and names split by {@link PropertyHelper}, so that they are
+ * shared by all the resources with the same properties. While a resource is
+ * being populated every access to its properties is guarded by the resource's
+ * monitor. Once it is {@link #freeze() frozen} the properties are read without
+ * locking; changes are still possible but copy the arrays they change.
  */
 public class ResourceImpl implements Resource {
 
@@ -40,8 +48,12 @@ public class ResourceImpl implements Resource {
   /**
    * The map of property maps keyed by property category.
    */
-  private final Map<String, Map<String, Object>> propertiesMap =
-      Collections.synchronizedMap(new TreeMap<String, Map<String, Object>>());
+  private final PropertyMap<Map<String, Object>> propertiesMap = new PropertyMap<>(this);
+
+  /**
+   * Whether the resource is frozen.
+   */
+  private volatile boolean frozen;
 
   // ----- Constructors ------------------------------------------------------
 
@@ -104,33 +116,55 @@ public class ResourceImpl implements Resource {
 
   @Override
   public void setProperty(String id, Object value) {
-    String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
-
-    Map<String, Object> properties = propertiesMap.get(categoryKey);
-    if (properties == null) {
-      properties = Collections.synchronizedMap(new TreeMap<String, Object>());
-      propertiesMap.put(categoryKey, properties);
+    PropertyHelper.SplitPropertyId splitId = PropertyHelper.getSplitPropertyId(id);
+    String categoryKey = getCategoryKey(splitId.getCategory());
+
+    synchronized (this) {
+      Map<String, Object> properties = propertiesMap.get(categoryKey);
+      if (properties == null) {
+        properties = new PropertyMap<>(this);
+        propertiesMap.put(categoryKey, properties);
+      }
+      properties.put(splitId.getName(), value);
     }
-    properties.put(PropertyHelper.getPropertyName(id), value);
   }
 
   @Override
   public void addCategory(String id) {
     String categoryKey = getCategoryKey(id);
 
-    if (!propertiesMap.containsKey(categoryKey)) {
-      propertiesMap.put(categoryKey, new HashMap<>());
+    synchronized (this) {
+      if (!propertiesMap.containsKey(categoryKey)) {
+        propertiesMap.put(categoryKey, new PropertyMap<>(this));
+      }
     }
   }
 
   @Override
   public Object getPropertyValue(String id) {
-    String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
+    PropertyHelper.SplitPropertyId splitId = PropertyHelper.getSplitPropertyId(id);
 
-    Map<String, Object> properties = propertiesMap.get(categoryKey);
+    Map<String, Object> properties = propertiesMap.get(getCategoryKey(splitId.getCategory()));
 
     return properties == null ?
-        null : properties.get(PropertyHelper.getPropertyName(id));
+        null : properties.get(splitId.getName());
+  }
+
+  /**
+   * Freezes the resource once it is populated. The properties of a frozen
+   * resource are read without locking.
+   */
+  public void freeze() {
+    synchronized (this) {
+      frozen = true;
+    }
+  }
+
+  /**
+   * @return whether the resource is frozen
+   */
+  public boolean isFrozen() {
+    return frozen;
   }
 
 
@@ -154,13 +188,12 @@ public class ResourceImpl implements Resource {
 
     ResourceImpl resource = (ResourceImpl) o;
 
-    return type == resource.type &&
-        !(propertiesMap != null ? !propertiesMap.equals(resource.propertiesMap) : resource.propertiesMap != null);
+    return type == resource.type && propertiesMap.equals(resource.propertiesMap);
   }
 
   @Override
   public int hashCode() {
-    return 31 * type.hashCode() + (propertiesMap != null ? propertiesMap.hashCode() : 0);
+    return 31 * type.hashCode() + propertiesMap.hashCode();
   }
 
   // ----- utility methods ---------------------------------------------------
@@ -168,4 +201,258 @@ public class ResourceImpl implements Resource {
   private String getCategoryKey(String category) {
     return category == null ? "" : category;
   }
+
+
+  // ----- inner class : PropertyMap -----------------------------------------
+
+  /**
+   * A map of the properties or categories of a resource. The entries are kept
+   * sorted by key in a single array, with the keys at even and the values at
+   * odd indexes. The unused slots at the end of the array are null.
+   * <p/>
+   * Until the resource is frozen the array is changed in place while holding
+   * the resource's monitor. Afterwards it is replaced by a changed copy, so
+   * that readers which do not lock always see a consistent array.
+   *
+   * @param <V> the type of the values
+   */
+  private static final class PropertyMap<V> extends AbstractMap<String, V> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * The number of entries the array has room for when it is first used.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final ResourceImpl resource;
+
+    private volatile Object[] table = EMPTY;
+
+    private PropertyMap(ResourceImpl resource) {
+      this.resource = resource;
+    }
+
+    @Override
+    public int size() {
+      if (resource.frozen) {
+        return size(table);
+      }
+      synchronized (resource) {
+        return size(table);
+      }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(getTable(), key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+      Object[] table = getTable();
+      int index = indexOf(table, key);
+      return index < 0 ? null : PropertyMap.<V>valueAt(table, index);
+    }
+
+    @Override
+    public V put(String key, V value) {
+      if (key == null) {
+        throw new NullPointerException();
+      }
+
+      synchronized (resource) {
+        Object[] table = this.table;
+        int size = size(table);
+        int index = indexOf(table, size, key);
+
+        if (index >= 0) {
+          V previous = valueAt(table, index);
+          if (resource.frozen) {
+            table = table.clone();
+          }
+          table[2 * index + 1] = value;
+          this.table = table;
+          return previous;
+        }
+
+        index = -index - 1;
+        Object[] target = table;
+        if (resource.frozen || table.length == 2 * size) {
+          int capacity = table.length > 2 * size ? table.length :
+              2 * Math.max(INITIAL_CAPACITY, resource.frozen ? size + 1 : 2 * size);
+          target = new Object[capacity];
+          System.arraycopy(table, 0, target, 0, 2 * index);
+        }
+        System.arraycopy(table, 2 * index, target, 2 * index + 2, 2 * (size - index));
+        target[2 * index] = key;
+        target[2 * index + 1] = value;
+        this.table = target;
+        return null;
+      }
+    }
+
+    @Override
+    public V remove(Object key) {
+      synchronized (resource) {
+        Object[] table = this.table;
+        int size = size(table);
+        int index = indexOf(table, size, key);
+        if (index < 0) {
+          return null;
+        }
+
+        V previous = valueAt(table, index);
+        Object[] target = resource.frozen ? new Object[table.length] : table;
+        System.arraycopy(table, 0, target, 0, 2 * index);
+        System.arraycopy(table, 2 * index + 2, target, 2 * index, 2 * (size - index - 1));
+        target[2 * size - 2] = null;
+        target[2 * size - 1] = null;
+        this.table = target;
+        return previous;
+      }
+    }
+
+    @Override
+    public void clear() {
+      synchronized (resource) {
+        table = EMPTY;
+      }
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+      return new AbstractSet<Entry<String, V>>() {
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return PropertyMap.this.size();
+        }
+      };
+    }
+
+    /**
+     * Gets the array to read, waiting for any change in progress if the
+     * resource is not frozen yet.
+     */
+    private Object[] getTable() {
+      if (resource.frozen) {
+        return table;
+      }
+      synchronized (resource) {
+        return table;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueAt(Object[] table, int index) {
+      return (V) table[2 * index + 1];
+    }
+
+    /**
+     * Gets the number of entries in the given array, i.e. the index of the
+     * first unused slot.
+     */
+    private static int size(Object[] table) {
+      int low = 0;
+      int high = table.length / 2;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (table[2 * mid] == null) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+
+    private static int indexOf(Object[] table, Object key) {
+      return indexOf(table, size(table), key);
+    }
+
+    /**
+     * Searches the entries of the given array for the given key.
+     *
+     * @return the index of the entry with the key if found; otherwise
+     *         (-(insertion point) - 1)
+     */
+    private static int indexOf(Object[] table, int size, Object key) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        String midKey = (String) table[2 * mid];
+        int comparison = midKey == key ? 0 : midKey.compareTo((String) key);
+        if (comparison < 0) {
+          low = mid + 1;
+        } else if (comparison > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    /**
+     * Iterates over the entries by index, so that the entries can be removed
+     * while iterating.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, V>> {
+      private int next;
+      private String lastKey;
+
+      @Override
+      public boolean hasNext() {
+        return next < size(getTable());
+      }
+
+      @Override
+      public Entry<String, V> next() {
+        Object[] table = getTable();
+        if (next >= size(table)) {
+          throw new NoSuchElementException();
+        }
+
+        lastKey = (String) table[2 * next];
+        Entry<String, V> entry = new PropertyEntry(lastKey, PropertyMap.<V>valueAt(table, next));
+        next++;
+        return entry;
+      }
+
+      @Override
+      public void remove() {
+        if (lastKey == null) {
+          throw new IllegalStateException();
+        }
+        PropertyMap.this.remove(lastKey);
+        lastKey = null;
+        next--;
+      }
+    }
+
+    /**
+     * An entry whose value is set through the map.
+     */
+    private final class PropertyEntry extends SimpleEntry<String, V> {
+      private PropertyEntry(String key, V value) {
+        super(key, value);
+      }
+
+      @Override
+      public V setValue(V value) {
+        put(getKey(), value);
+        return super.setValue(value);
+      }
+    }
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.jmx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * The {@link JMXMetricHolderReader} parses the JSON produced by a JMX servlet
+ * ({@code {"beans" : [ {...}, {...} ]}}) into a {@link JMXMetricHolder} using
+ * a streaming parser. When a set of attributes is supplied, only those
+ * attributes (and the attributes needed to identify a bean) are materialized;
+ * all other values are skipped without being bound. This keeps both the
+ * parsing cost and the size of the cached {@link JMXMetricHolder} proportional
+ * to what was actually requested rather than to the size of the JMX dump.
+ * <p/>
+ * Instances are thread-safe.
+ */
+public class JMXMetricHolderReader {
+
+  /**
+   * Attributes which are always kept since they are needed in order to
+   * categorize a bean.
+   */
+  private static final Set<String> IDENTIFYING_ATTRIBUTES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList("name", "modelerType", "tag.port")));
+
+  private static final String BEANS_FIELD = "beans";
+
+  private final ObjectMapper m_mapper;
+
+  /**
+   * Constructor.
+   */
+  public JMXMetricHolderReader() {
+    m_mapper = new ObjectMapper();
+    m_mapper.configure(DeserializationConfig.Feature.USE_ANNOTATIONS, false);
+    m_mapper.configure(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS, true);
+  }
+
+  /**
+   * Reads the beans from the stream.
+   *
+   * @param inputStream
+   *          the JMX JSON (not {@code null}).
+   * @param attributes
+   *          the bean attributes to keep, or {@code null} to keep every
+   *          attribute.
+   * @return the beans read from the stream (never {@code null}).
+   * @throws IOException
+   *           if the stream could not be read or is not valid JMX JSON.
+   */
+  public JMXMetricHolder read(InputStream inputStream, @Nullable Set<String> attributes)
+      throws IOException {
+    List<Map<String, Object>> beans = new ArrayList<>();
+
+    JsonParser parser = m_mapper.getJsonFactory().createJsonParser(inputStream);
+    try {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a JSON object containing JMX beans");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if (BEANS_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            beans.add(readBean(parser, attributes));
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } finally {
+      parser.close();
+    }
+
+    JMXMetricHolder holder = new JMXMetricHolder();
+    holder.setBeans(beans);
+    return holder;
+  }
+
+  /**
+   * Reads a single bean; the parser is positioned on the bean's
+   * {@link JsonToken#START_OBJECT}.
+   */
+  private Map<String, Object> readBean(JsonParser parser, @Nullable Set<String> attributes)
+      throws IOException {
+    Map<String, Object> bean = new LinkedHashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String attribute = parser.getCurrentName();
+      parser.nextToken();
+
+      if (null == attributes || attributes.contains(attribute)
+          || IDENTIFYING_ATTRIBUTES.contains(attribute)) {
+        bean.put(attribute, parser.readValueAs(Object.class));
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return bean;
+  }
+}
@@ -19,9 +19,13 @@
 package org.apache.ambari.server.controller.jmx;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +45,6 @@ import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.spi.SystemException;
 import org.apache.ambari.server.controller.utilities.StreamProvider;
 import org.apache.ambari.server.state.services.MetricsRetrievalService;
-import org.apache.ambari.server.state.services.MetricsRetrievalService.MetricSourceType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -250,6 +253,9 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
       return resource;
     }
 
+    // the MBeans and attributes needed, if they can be requested with scoped queries
+    Map<String, Set<String>> scopedBeans = getScopedBeans(componentName, ids);
+
     String spec = null;
     for (String hostName : hostNames) {
       try {
@@ -261,24 +267,23 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
           return resource;
         }
 
-        // build the URL
-        String jmxUrl = getSpec(protocol, hostName, port, "/jmx");
-
-        // always submit a request to cache the latest data
-        metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl);
-
-        // check to see if there is a cached value and use it if there is
-        JMXMetricHolder jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(jmxUrl);
-
-        if( jmxMetricHolder == null && !hostName.equalsIgnoreCase(publicHostName)) {
-          // build the URL using public host name
-          String publicJmxUrl = getSpec(protocol, publicHostName, port, "/jmx");
-
-          // always submit a request to cache the latest data
-          metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicJmxUrl);
+        JMXMetricHolder jmxMetricHolder;
+        if (null == scopedBeans) {
+          jmxMetricHolder = getCachedJMXMetric(protocol, hostName, publicHostName, port, "/jmx", null);
+        } else {
+          // one scoped request per MBean; the results are merged so they can
+          // be categorized exactly like the full output would be
+          List<JMXMetricHolder> scopedHolders = new ArrayList<>();
+          for (Map.Entry<String, Set<String>> entry : scopedBeans.entrySet()) {
+            JMXMetricHolder scopedHolder = getCachedJMXMetric(protocol, hostName, publicHostName, port,
+                getScopedQuery(entry.getKey()), entry.getValue());
+
+            if (null != scopedHolder && null != scopedHolder.getBeans()) {
+              scopedHolders.add(scopedHolder);
+            }
+          }
 
-          // check to see if there is a cached value and use it if there is
-          jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicJmxUrl);
+          jmxMetricHolder = scopedHolders.isEmpty() ? null : mergeBeans(scopedHolders);
         }
 
         // if the ticket becomes invalid (timeout) then bail out
@@ -299,20 +304,8 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
                 queryURL = AD_HOC_PROPERTIES.get(componentName).get(adHocId);
               }
               if (queryURL != null) {
-                String adHocUrl = getSpec(protocol, hostName, port, queryURL);
-                metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, adHocUrl);
-                JMXMetricHolder adHocJMXMetricHolder = metricsRetrievalService.getCachedJMXMetric(adHocUrl);
-
-                if( adHocJMXMetricHolder == null && !hostName.equalsIgnoreCase(publicHostName)) {
-                  // build the adhoc URL using public host name
-                  String publicAdHocUrl = getSpec(protocol, publicHostName, port, queryURL);
-
-                  // always submit a request to cache the latest data
-                  metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicAdHocUrl);
-
-                  // check to see if there is a cached value and use it if there is
-                  adHocJMXMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicAdHocUrl);
-                }
+                JMXMetricHolder adHocJMXMetricHolder = getCachedJMXMetric(protocol, hostName,
+                    publicHostName, port, queryURL, null);
 
                 // if the ticket becomes invalid (timeout) then bail out
                 if (!ticket.isValid()) {
@@ -336,6 +329,169 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
     return resource;
   }
 
+  /**
+   * Submits a request for the JMX URL built from the supplied parts and
+   * returns the currently cached value for it. If nothing is cached for the
+   * host name and the public host name differs, the public host name is tried
+   * as well.
+   *
+   * @param protocol        the protocol (http or https)
+   * @param hostName        the host name
+   * @param publicHostName  the public host name
+   * @param port            the JMX port
+   * @param query           the path and query, such as {@code /jmx}
+   * @param attributes      the bean attributes to retain, or {@code null} for all
+   *
+   * @return the cached metrics, or {@code null} if none
+   */
+  private JMXMetricHolder getCachedJMXMetric(String protocol, String hostName, String publicHostName,
+      String port, String query, @Nullable Set<String> attributes) {
+    // build the URL
+    String jmxUrl = getSpec(protocol, hostName, port, query);
+
+    // always submit a request to cache the latest data
+    metricsRetrievalService.submitJMXRequest(streamProvider, jmxUrl, attributes);
+
+    // check to see if there is a cached value and use it if there is
+    JMXMetricHolder jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(jmxUrl);
+
+    if (jmxMetricHolder == null && !hostName.equalsIgnoreCase(publicHostName)) {
+      // build the URL using public host name
+      String publicJmxUrl = getSpec(protocol, publicHostName, port, query);
+
+      // always submit a request to cache the latest data
+      metricsRetrievalService.submitJMXRequest(streamProvider, publicJmxUrl, attributes);
+
+      // check to see if there is a cached value and use it if there is
+      jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicJmxUrl);
+    }
+
+    return jmxMetricHolder;
+  }
+
+  /**
+   * Determines the MBeans, and the attributes of each, which are needed to
+   * satisfy the requested property ids. Scoped queries are only possible when
+   * every property maps to a literal MBean name; properties with arguments
+   * (regular expression categories) require the full JMX output.
+   *
+   * @param componentName  the component name
+   * @param ids            the requested (and supported) property ids
+   *
+   * @return the MBean names mapped to the attributes to retain, or {@code null}
+   *         if the full JMX output must be retrieved
+   */
+  private Map<String, Set<String>> getScopedBeans(String componentName, Set<String> ids) {
+    int maxBeans = null == configuration ? 0 : configuration.getMetricsServiceJMXScopedQueryMaxBeans();
+    if (maxBeans <= 0) {
+      return null;
+    }
+
+    Map<String, Set<String>> scopedBeans = new HashMap<>();
+    for (String id : ids) {
+      for (Map.Entry<String, PropertyInfo> entry : getPropertyInfoMap(componentName, id).entrySet()) {
+        PropertyInfo propertyInfo = entry.getValue();
+        if (!propertyInfo.isPointInTime()) {
+          continue;
+        }
+
+        if (containsArguments(entry.getKey())) {
+          return null;
+        }
+
+        String property = propertyInfo.getPropertyId();
+        int keyStartIndex = property.indexOf('[');
+        int dotIndex = property.indexOf('.', property.indexOf('='));
+        if (-1 == dotIndex) {
+          return null;
+        }
+
+        // port based categories are renamed when read, so they can't be queried directly
+        String category = property.substring(0, dotIndex);
+        if (category.indexOf(':') == -1 || category.contains(",tag=")) {
+          return null;
+        }
+
+        String attribute = (-1 == keyStartIndex) ?
+            property.substring(dotIndex + 1) :
+            property.substring(dotIndex + 1, keyStartIndex);
+
+        attribute = dotReplacementCharPattern.matcher(attribute).replaceAll(".");
+
+        Set<String> attributes = scopedBeans.get(category);
+        if (null == attributes) {
+          if (scopedBeans.size() >= maxBeans) {
+            return null;
+          }
+
+          attributes = new HashSet<>();
+          scopedBeans.put(category, attributes);
+        }
+
+        attributes.add(attribute);
+      }
+    }
+
+    return scopedBeans.isEmpty() ? null : scopedBeans;
+  }
+
+  /**
+   * Merges the beans of several scoped responses. Since MBean name patterns
+   * may match the same bean from more than one query, the attributes of beans
+   * with the same name are combined rather than having one replace the other.
+   * The cached maps themselves are never modified.
+   *
+   * @param holders  the scoped responses
+   *
+   * @return the merged beans
+   */
+  private JMXMetricHolder mergeBeans(List<JMXMetricHolder> holders) {
+    Map<String, Map<String, Object>> beansByName = new LinkedHashMap<>();
+    List<Map<String, Object>> beans = new ArrayList<>();
+    for (JMXMetricHolder holder : holders) {
+      for (Map<String, Object> bean : holder.getBeans()) {
+        Object name = bean.get(NAME_KEY);
+        if (!(name instanceof String)) {
+          beans.add(bean);
+          continue;
+        }
+
+        Map<String, Object> existing = beansByName.get(name);
+        if (null == existing) {
+          beansByName.put((String) name, bean);
+        } else {
+          Map<String, Object> merged = new LinkedHashMap<>(existing);
+          merged.putAll(bean);
+          beansByName.put((String) name, merged);
+        }
+      }
+    }
+
+    beans.addAll(beansByName.values());
+
+    JMXMetricHolder merged = new JMXMetricHolder();
+    merged.setBeans(beans);
+    return merged;
+  }
+
+  /**
+   * Builds the {@code /jmx?qry=} path for an MBean name. The name is turned
+   * into a pattern so that port specific beans (such as
+   * {@code RpcActivityForPort8020}) are also matched.
+   *
+   * @param beanName  the MBean name
+   *
+   * @return the path and query
+   */
+  private String getScopedQuery(String beanName) {
+    try {
+      return "/jmx?qry=" + URLEncoder.encode(beanName + "*", "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      // UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * Hadoop-specific metrics fetching
    */
@@ -101,6 +101,7 @@ public abstract class ThreadPoolEnabledPropertyProvider extends AbstractProperty
 
   @Inject
   public static void init(Configuration configuration) {
+    ThreadPoolEnabledPropertyProvider.configuration = configuration;
     THREAD_POOL_CORE_SIZE = configuration.getPropertyProvidersThreadPoolCoreSize();
     THREAD_POOL_MAX_SIZE = configuration.getPropertyProvidersThreadPoolMaxSize();
     THREAD_POOL_WORKER_QUEUE_SIZE = configuration.getPropertyProvidersWorkerQueueSize();
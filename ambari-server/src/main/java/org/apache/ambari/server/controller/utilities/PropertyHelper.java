@@ -25,6 +25,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -92,6 +94,20 @@ public class PropertyHelper {
    */
   private static final Pattern METRIC_CATEGORY_TOKENIZE_REGEX = Pattern.compile("/+(?=([^\"\\\\\\\\]*(\\\\\\\\.|\"([^\"\\\\\\\\]*\\\\\\\\.)*[^\"\\\\\\\\]*\"))*[^\"]*$)");
 
+  /**
+   * The maximum number of property ids which are kept split into their
+   * category and name.
+   */
+  private static final int MAX_SPLIT_PROPERTY_IDS = 100000;
+
+  /**
+   * Property ids split into their category and name, keyed by property id.
+   * The ids of the resource types are split as they are registered; other ids
+   * as they are first used. The categories and names are shared by every
+   * resource which sets the same property.
+   */
+  private static final ConcurrentMap<String, SplitPropertyId> SPLIT_PROPERTY_IDS = new ConcurrentHashMap<>();
+
   static {
     RPC_METRIC_SUFFIXES.put("metrics/rpc/", Arrays.asList("client", "datanode", "healthcheck"));
     RPC_METRIC_SUFFIXES.put("metrics/rpcdetailed/", Arrays.asList("client", "datanode", "healthcheck"));
@@ -115,6 +131,12 @@ public class PropertyHelper {
 
   public static void setPropertyIds(Resource.Type resourceType, Set<String> propertyIds) {
     PROPERTY_IDS.put(resourceType.getInternalType(), propertyIds);
+
+    if (propertyIds != null) {
+      for (String propertyId : propertyIds) {
+        getSplitPropertyId(propertyId);
+      }
+    }
   }
 
   /**
@@ -161,9 +183,7 @@ public class PropertyHelper {
    * @return the property name
    */
   public static String getPropertyName(String absProperty) {
-    int lastPathSep = absProperty.lastIndexOf(EXTERNAL_PATH_SEP);
-
-    return lastPathSep == -1 ? absProperty : absProperty.substring(lastPathSep + 1);
+    return getSplitPropertyId(absProperty).getName();
   }
 
   /**
@@ -193,6 +213,44 @@ public class PropertyHelper {
    * @return the property category; null if there is no category
    */
   public static String getPropertyCategory(String property) {
+    return getSplitPropertyId(property).getCategory();
+  }
+
+  /**
+   * Gets the given property id split into its category and name, as returned
+   * by {@link #getPropertyCategory(String)} and {@link #getPropertyName(String)}.
+   * The split is computed once per property id; the returned category is the
+   * same instance for all the property ids of a category.
+   *
+   * @param propertyId  the fully qualified property
+   *
+   * @return the split property id
+   */
+  public static SplitPropertyId getSplitPropertyId(String propertyId) {
+    SplitPropertyId splitPropertyId = SPLIT_PROPERTY_IDS.get(propertyId);
+    if (splitPropertyId != null) {
+      return splitPropertyId;
+    }
+
+    String category = splitPropertyCategory(propertyId);
+    if (category != null) {
+      category = getSplitPropertyId(category).getPropertyId();
+    }
+
+    int lastPathSep = propertyId.lastIndexOf(EXTERNAL_PATH_SEP);
+    String name = lastPathSep == -1 ? propertyId : propertyId.substring(lastPathSep + 1);
+
+    splitPropertyId = new SplitPropertyId(propertyId, category, name);
+    if (SPLIT_PROPERTY_IDS.size() < MAX_SPLIT_PROPERTY_IDS) {
+      SplitPropertyId existing = SPLIT_PROPERTY_IDS.putIfAbsent(propertyId, splitPropertyId);
+      if (existing != null) {
+        splitPropertyId = existing;
+      }
+    }
+    return splitPropertyId;
+  }
+
+  private static String splitPropertyCategory(String property) {
     int lastPathSep = -1;
 
     if( !containsArguments(property) ){
@@ -717,4 +775,40 @@ public class PropertyHelper {
     int pos = metricName.lastIndexOf('.');
     return metricName.substring(0, pos) + ",tag=" + tag + metricName.substring(pos);
   }
+
+  /**
+   * A property id split into its category and name.
+   */
+  public static final class SplitPropertyId {
+    private final String propertyId;
+    private final String category;
+    private final String name;
+
+    private SplitPropertyId(String propertyId, String category, String name) {
+      this.propertyId = propertyId;
+      this.category = category;
+      this.name = name;
+    }
+
+    /**
+     * @return the fully qualified property id
+     */
+    public String getPropertyId() {
+      return propertyId;
+    }
+
+    /**
+     * @return the property category; null if there is no category
+     */
+    public String getCategory() {
+      return category;
+    }
+
+    /**
+     * @return the property name
+     */
+    public String getName() {
+      return name;
+    }
+  }
 }
@@ -175,7 +175,12 @@ public abstract class AmbariEvent {
     /**
      * Service component's repo has been changed..
      */
-    SERVICE_COMPONENT_REPO_CHANGE;
+    SERVICE_COMPONENT_REPO_CHANGE,
+
+    /**
+     * Historical requests and their tasks were purged from the database.
+     */
+    REQUESTS_PURGED;
   }
 
   /**
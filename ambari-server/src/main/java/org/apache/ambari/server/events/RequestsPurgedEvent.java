@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The {@link RequestsPurgedEvent} class is fired when historical requests,
+ * along with their stages and tasks, have been deleted from the database so
+ * that anything caching them can drop the stale entries.
+ */
+public class RequestsPurgedEvent extends AmbariEvent {
+
+  /**
+   * The IDs of the deleted requests.
+   */
+  private final Set<Long> m_requestIds;
+
+  /**
+   * The IDs of the deleted tasks.
+   */
+  private final Set<Long> m_taskIds;
+
+  /**
+   * Constructor.
+   *
+   * @param requestIds
+   *          the IDs of the deleted requests
+   * @param taskIds
+   *          the IDs of the deleted tasks
+   */
+  public RequestsPurgedEvent(Set<Long> requestIds, Set<Long> taskIds) {
+    super(AmbariEventType.REQUESTS_PURGED);
+    m_requestIds = requestIds;
+    m_taskIds = taskIds;
+  }
+
+  /**
+   * @return the IDs of the deleted requests, or an empty set.
+   */
+  public Set<Long> getRequestIds() {
+    if (null == m_requestIds) {
+      return Collections.emptySet();
+    }
+
+    return m_requestIds;
+  }
+
+  /**
+   * @return the IDs of the deleted tasks, or an empty set.
+   */
+  public Set<Long> getTaskIds() {
+    if (null == m_taskIds) {
+      return Collections.emptySet();
+    }
+
+    return m_taskIds;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("RequestsPurgedEvent{");
+    sb.append("requests=").append(getRequestIds().size());
+    sb.append(", tasks=").append(getTaskIds().size());
+    sb.append('}');
+    return sb.toString();
+  }
+}
@@ -22,7 +22,6 @@ import static org.apache.ambari.server.events.AlertDefinitionEventType.UPDATE;
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
 
 import javax.inject.Provider;
 
@@ -120,6 +119,11 @@ public class AlertDefinitionsUIUpdateListener {
     stateUpdateEventPublisher.publish(new AlertDefinitionsUIUpdateEvent(UPDATE, map));
   }
 
+  /**
+   * Publishes the definitions of an uninstalled component to the UI. The
+   * agent is sent the definitions which no longer apply to its host by
+   * {@link AlertHashInvalidationListener}.
+   */
   @Subscribe
   public void onServiceComponentUninstalled(ServiceComponentUninstalledEvent event) throws AmbariException {
     String hostName = event.getHostName();
@@ -127,18 +131,17 @@ public class AlertDefinitionsUIUpdateListener {
     if (event.isMasterComponent()) {
       definitions.putAll(helper.get().findByServiceMaster(event.getClusterId(), event.getServiceName()));
     }
-    alertDefinitionsHolder.provideAlertDefinitionAgentUpdateEvent(DELETE, event.getClusterId(), definitions, hostName);
     Map<Long, AlertCluster> map = Collections.singletonMap(event.getClusterId(), new AlertCluster(definitions, hostName));
     stateUpdateEventPublisher.publish(new AlertDefinitionsUIUpdateEvent(DELETE, map));
   }
 
+  /**
+   * Publishes a created, changed or removed definition to the UI. The agents
+   * are sent the change by {@link AlertHashInvalidationListener}, once
+   * {@link AlertLifecycleListener} has invalidated the affected hosts.
+   */
   private void handleSingleDefinitionChange(AlertDefinitionEventType eventType, AlertDefinition alertDefinition) throws AmbariException {
     LOG.info("{} alert definition '{}'", eventType, alertDefinition);
-    Set<String> hosts = helper.get().invalidateHosts(alertDefinition);
-    for (String hostName : hosts) {
-      alertDefinitionsHolder.provideAlertDefinitionAgentUpdateEvent(eventType, alertDefinition.getClusterId(),
-          Collections.singletonMap(alertDefinition.getDefinitionId(), alertDefinition), hostName);
-    }
     if (alertDefinition.getName().equals(AMBARI_STALE_ALERT_NAME)) {
       for (Host host : clusters.get().getCluster(alertDefinition.getClusterId()).getHosts()) {
         alertDefinitionsHolder.provideStaleAlertDefinitionUpdateEvent(eventType, alertDefinition.getClusterId(),
@@ -17,17 +17,20 @@
  */
 package org.apache.ambari.server.events.listeners.alerts;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 
+import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.EagerSingleton;
-import org.apache.ambari.server.agent.AlertDefinitionCommand;
-import org.apache.ambari.server.agent.HeartBeatResponse;
+import org.apache.ambari.server.agent.stomp.AlertDefinitionsHolder;
 import org.apache.ambari.server.events.AlertHashInvalidationEvent;
 import org.apache.ambari.server.events.AmbariEvent.AmbariEventType;
 import org.apache.ambari.server.events.ClusterEvent;
 import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.alert.AlertDefinitionHash;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,8 +44,8 @@ import com.google.inject.Singleton;
 /**
  * The {@link AlertHashInvalidationListener} is used to respond to
  * {@link AlertHashInvalidationEvent} and {@link ClusterEvent} instances and
- * ensure that the {@link AlertDefinitionCommand}s are enqueued for the
- * {@link HeartBeatResponse}.
+ * ensure that the affected agents are sent the alert definitions which were
+ * added to or removed from their hosts.
  * <p/>
  * <ul>
  * <li>{@link ClusterEvent} - invalidates all alerts across the cluster</li>
@@ -65,6 +68,18 @@ public class AlertHashInvalidationListener {
   @Inject
   private Provider<AlertDefinitionHash> m_alertDefinitionHash;
 
+  /**
+   * Used to send the changed alert definitions to the agents.
+   */
+  @Inject
+  private Provider<AlertDefinitionsHolder> m_alertDefinitionsHolder;
+
+  /**
+   * Used to look up the hosts of a cluster.
+   */
+  @Inject
+  private Provider<Clusters> m_clusters;
+
   /**
    * Constructor.
    *
@@ -79,7 +94,7 @@ public class AlertHashInvalidationListener {
    * Handles {@link AlertHashInvalidationEvent} by performing the following
    * tasks:
    * <ul>
-   * <li>Enqueuing {@link AlertDefinitionCommand}</li>
+   * <li>Sending the changed alert definitions to the affected hosts</li>
    * </ul>
    *
    * @param event
@@ -98,8 +113,7 @@ public class AlertHashInvalidationListener {
       return;
     }
 
-    AlertDefinitionHash hash = m_alertDefinitionHash.get();
-    hash.enqueueAgentCommands(clusterId, hosts);
+    provideAlertDefinitionDeltas(clusterId, hosts);
   }
 
   /**
@@ -107,7 +121,7 @@ public class AlertHashInvalidationListener {
    * tasks:
    * <ul>
    * <li>Alert has invalidation</li>
-   * <li>Enqueuing {@link AlertDefinitionCommand}</li>
+   * <li>Sending the changed alert definitions to the host</li>
    * </ul>
    */
   @Subscribe
@@ -122,10 +136,9 @@ public class AlertHashInvalidationListener {
       return;
     }
 
-    // invalidate hash and enqueue commands
+    // invalidate hash and send the changed definitions
     m_alertDefinitionHash.get().invalidate(hostName);
-    m_alertDefinitionHash.get().enqueueAgentCommands(clusterId,
-        Collections.singletonList(hostName));
+    provideAlertDefinitionDeltas(clusterId, Collections.singletonList(hostName));
   }
 
   /**
@@ -153,6 +166,37 @@ public class AlertHashInvalidationListener {
     hash.invalidateAll();
 
     long clusterId = event.getClusterId();
-    hash.enqueueAgentCommands(clusterId);
+    try {
+      Collection<Host> hosts = m_clusters.get().getClusterById(clusterId).getHosts();
+      Collection<String> hostNames = new ArrayList<>(hosts.size());
+      for (Host host : hosts) {
+        hostNames.add(host.getHostName());
+      }
+
+      provideAlertDefinitionDeltas(clusterId, hostNames);
+    } catch (AmbariException ae) {
+      LOG.error("Unable to lookup cluster for alert definition updates", ae);
+    }
+  }
+
+  /**
+   * Sends each host the alert definitions of the cluster which were added to,
+   * changed on or removed from it, rather than all of its definitions.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param hostNames
+   *          the hosts whose definitions may have changed.
+   */
+  private void provideAlertDefinitionDeltas(long clusterId, Collection<String> hostNames) {
+    AlertDefinitionHash hash = m_alertDefinitionHash.get();
+    AlertDefinitionsHolder holder = m_alertDefinitionsHolder.get();
+    for (String hostName : hostNames) {
+      try {
+        holder.provideAlertDefinitionDelta(clusterId, hash.getAlertDefinitions(clusterId, hostName), hostName);
+      } catch (AmbariException ae) {
+        LOG.warn("Unable to update the alert definitions of host {}", hostName, ae);
+      }
+    }
   }
 }
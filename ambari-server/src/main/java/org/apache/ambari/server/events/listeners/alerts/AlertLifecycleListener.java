@@ -95,6 +95,8 @@ public class AlertLifecycleListener {
    * following tasks:
    * <ul>
    * <li>Registration with {@link AggregateDefinitionMapping}</li>
+   * <li>Registration with {@link AlertDefinitionHash}</li>
+   * <li>{@link AlertDefinitionHash} invalidation</li>
    * </ul>
    *
    * @param event
@@ -112,6 +114,8 @@ public class AlertLifecycleListener {
     if (definition.getSource().getType() == SourceType.AGGREGATE) {
       m_aggregateMapping.registerAggregate(event.getClusterId(), definition);
     }
+
+    registerDefinition(definition);
   }
 
   /**
@@ -119,6 +123,7 @@ public class AlertLifecycleListener {
    * tasks:
    * <ul>
    * <li>Updating definition with {@link AggregateDefinitionMapping}</li>
+   * <li>Updating definition with {@link AlertDefinitionHash}</li>
    * <li>Updating current alerts with definition label</li>
    * </ul>
    *
@@ -138,6 +143,8 @@ public class AlertLifecycleListener {
       m_aggregateMapping.registerAggregate(event.getClusterId(), definition);
     }
 
+    registerDefinition(definition);
+
     // update any current alerts
     List<AlertCurrentEntity> currentAlerts = m_alertsDao.findCurrentByDefinitionId(definition.getDefinitionId());
     for (AlertCurrentEntity current : currentAlerts) {
@@ -156,6 +163,7 @@ public class AlertLifecycleListener {
    * tasks:
    * <ul>
    * <li>Removal from with {@link AggregateDefinitionMapping}</li>
+   * <li>Removal from {@link AlertDefinitionHash}</li>
    * <li>{@link AlertDefinitionHash} invalidation</li>
    * </ul>
    *
@@ -178,8 +186,28 @@ public class AlertLifecycleListener {
     m_aggregateMapping.removeAssociatedAggregate(event.getClusterId(),
         definition.getName());
 
-    // invalidate and publish
+    // remove, invalidate and publish
+    AlertDefinitionHash hashHelper = m_alertDefinitionHash.get();
+    hashHelper.removeDefinition(definition);
+    Set<String> invalidatedHosts = hashHelper.invalidateHosts(definition);
+    AlertHashInvalidationEvent hashInvalidationEvent = new AlertHashInvalidationEvent(
+        definition.getClusterId(), invalidatedHosts);
+
+    m_eventPublisher.publish(hashInvalidationEvent);
+  }
+
+  /**
+   * Registers a created or changed definition with {@link AlertDefinitionHash}
+   * so that the hashes of the affected hosts, which may have been calculated
+   * before the definitions of the cluster were updated, are invalidated and
+   * the hosts receive the definition.
+   *
+   * @param definition
+   *          the definition (not {@code null}).
+   */
+  private void registerDefinition(AlertDefinition definition) {
     AlertDefinitionHash hashHelper = m_alertDefinitionHash.get();
+    hashHelper.registerDefinition(definition);
     Set<String> invalidatedHosts = hashHelper.invalidateHosts(definition);
     AlertHashInvalidationEvent hashInvalidationEvent = new AlertHashInvalidationEvent(
         definition.getClusterId(), invalidatedHosts);
@@ -20,6 +20,7 @@ package org.apache.ambari.server.events.listeners.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -41,6 +42,7 @@ import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.StateUpdateEventPublisher;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
 import org.apache.ambari.server.orm.dao.StageDAO;
 import org.apache.ambari.server.orm.entities.RequestEntity;
@@ -53,7 +55,6 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
-import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -63,6 +64,12 @@ import com.google.inject.Singleton;
  * The {@link TaskStatusListener} is used to constantly update status of running Stages and Requests
  * {@link TaskUpdateEvent} listens for all incoming events. These events are fired when either host role commands are created/updated
  * This listener maintains map of all running tasks, stages and requests
+ * <p/>
+ * The number of tasks in each status is counted per running stage as tasks are
+ * created and updated, so that the progress of running requests can be
+ * reported without aggregating their tasks in the database. The counters are
+ * rebuilt from the tasks of the requests which were in progress when the
+ * server starts, see {@link #onTaskCreateEvent(TaskCreateEvent)}.
  */
 @Singleton
 @EagerSingleton
@@ -117,6 +124,35 @@ public class TaskStatusListener {
     return activeStageMap;
   }
 
+  /**
+   * Gets the task counts of each stage of a running request. The summaries
+   * only hold the number of tasks in each status; the start and end times of
+   * the tasks are not tracked.
+   *
+   * @param requestId
+   *          the request id
+   * @return the map of stage-to-summary objects, or {@code null} if the request
+   *         is not running or its tasks are not all tracked yet
+   */
+  public Map<Long, HostRoleCommandStatusSummaryDTO> getStageSummaries(Long requestId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    if (null == request || !request.isTasksLoaded()) {
+      return null;
+    }
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = new HashMap<>();
+    for (StageEntityPK stageEntityPK : request.getStageEntityPks()) {
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      if (null == activeStage) {
+        // the request has completed while its stages were read
+        return null;
+      }
+      summaries.put(stageEntityPK.getStageId(), HostRoleCommandStatusSummaryDTO.create(
+          stageEntityPK.getStageId(), activeStage.getSkippable(), activeStage.getTaskStatusCounts()));
+    }
+    return summaries;
+  }
+
   /**
    * On receiving task update event, update related entries of the running request, stage and task in the maps
    * Event containing newly created tasks is expected to contain complete set of all tasks for a request
@@ -175,23 +211,38 @@ public class TaskStatusListener {
   public void onTaskCreateEvent(TaskCreateEvent event) {
     LOG.debug("Received task create event {}", event);
     List<HostRoleCommand> hostRoleCommandListAll = event.getHostRoleCommands();
+    Set<Long> requestIds = new HashSet<>();
 
     for (HostRoleCommand hostRoleCommand : hostRoleCommandListAll) {
       activeTasksMap.put(hostRoleCommand.getTaskId(), hostRoleCommand);
       addStagePK(hostRoleCommand);
       addRequestId(hostRoleCommand);
+      requestIds.add(hostRoleCommand.getRequestId());
+    }
+
+    // the event holds all tasks of its requests, so their counters are complete
+    for (Long requestId : requestIds) {
+      activeRequestMap.get(requestId).setTasksLoaded();
     }
   }
 
 
   /**
-   * update changed host role command status
+   * update changed host role command status along with the task counters of their stages
    * @param hostRoleCommandWithReceivedStatus list of host role commands reported
    */
   private void updateActiveTasksMap(List<HostRoleCommand> hostRoleCommandWithReceivedStatus) {
     for (HostRoleCommand hostRoleCommand : hostRoleCommandWithReceivedStatus) {
       Long taskId = hostRoleCommand.getTaskId();
       activeTasksMap.put(taskId , hostRoleCommand);
+
+      StageEntityPK stageEntityPK = new StageEntityPK();
+      stageEntityPK.setRequestId(hostRoleCommand.getRequestId());
+      stageEntityPK.setStageId(hostRoleCommand.getStageId());
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      if (null != activeStage) {
+        activeStage.setTaskStatus(taskId, hostRoleCommand.getStatus());
+      }
     }
   }
 
@@ -205,7 +256,9 @@ public class TaskStatusListener {
     stageEntityPK.setRequestId(hostRoleCommand.getRequestId());
     stageEntityPK.setStageId(hostRoleCommand.getStageId());
     if (activeStageMap.containsKey(stageEntityPK)) {
-      activeStageMap.get(stageEntityPK).addTaskId(hostRoleCommand.getTaskId());
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      activeStage.addTaskId(hostRoleCommand.getTaskId());
+      activeStage.setTaskStatus(hostRoleCommand.getTaskId(), hostRoleCommand.getStatus());
     } else {
       StageEntity stageEntity = stageDAO.findByPK(stageEntityPK);
       // Stage entity of the hostrolecommand should be persisted before publishing task create event
@@ -215,10 +268,12 @@ public class TaskStatusListener {
       for (RoleSuccessCriteriaEntity successCriteriaEntity : roleSuccessCriteriaEntities) {
         successFactors.put(successCriteriaEntity.getRole(), successCriteriaEntity.getSuccessFactor().floatValue());
       }
-      Set<Long> taskIdSet =  Sets.newHashSet(hostRoleCommand.getTaskId());
+      Set<Long> taskIdSet = ConcurrentHashMap.newKeySet();
+      taskIdSet.add(hostRoleCommand.getTaskId());
 
       ActiveStage reportedStage = new ActiveStage(stageEntity.getStatus(), stageEntity.getDisplayStatus(),
           successFactors, stageEntity.isSkippable(), taskIdSet);
+      reportedStage.setTaskStatus(hostRoleCommand.getTaskId(), hostRoleCommand.getStatus());
       activeStageMap.put(stageEntityPK, reportedStage);
     }
   }
@@ -263,7 +318,8 @@ public class TaskStatusListener {
       RequestEntity requestEntity = requestDAO.findByPK(requestId);
       // Request entity of the hostrolecommand should be persisted before publishing task create event
       assert requestEntity != null;
-      Set<StageEntityPK> stageEntityPKs =  Sets.newHashSet(stageEntityPK);
+      Set<StageEntityPK> stageEntityPKs = ConcurrentHashMap.newKeySet();
+      stageEntityPKs.add(stageEntityPK);
       ActiveRequest request = new ActiveRequest(requestEntity.getStatus(),requestEntity.getDisplayStatus(), stageEntityPKs);
       activeRequestMap.put(requestId, request);
     }
@@ -524,6 +580,7 @@ public class TaskStatusListener {
     private HostRoleStatus status;
     private HostRoleStatus displayStatus;
     private Set <StageEntityPK> stageEntityPks;
+    private volatile boolean tasksLoaded;
 
     public ActiveRequest(HostRoleStatus status, HostRoleStatus displayStatus, Set<StageEntityPK> stageEntityPks) {
       this.status = status;
@@ -559,6 +616,17 @@ public class TaskStatusListener {
       stageEntityPks.add(stageEntityPK);
     }
 
+    /**
+     * @return {@code true} if all tasks of the request are counted by its stages
+     */
+    public boolean isTasksLoaded() {
+      return tasksLoaded;
+    }
+
+    public void setTasksLoaded() {
+      tasksLoaded = true;
+    }
+
   }
 
   /**
@@ -574,6 +642,10 @@ public class TaskStatusListener {
     //Map of roles to successFactors for this stage. Default is 1 i.e. 100%
     private Map<Role, Float> successFactors = new HashMap<>();
 
+    //Last counted status of each task and the number of tasks in each status
+    private final Map<Long, HostRoleStatus> taskStatuses = new HashMap<>();
+    private final Map<HostRoleStatus, Integer> taskStatusCounts = new EnumMap<>(HostRoleStatus.class);
+
     public ActiveStage(HostRoleStatus status, HostRoleStatus displayStatus,
                        Map<Role, Float> successFactors, Boolean skippable, Set<Long> taskIds) {
       this.status = status;
@@ -623,5 +695,27 @@ public class TaskStatusListener {
       taskIds.add(taskId);
     }
 
+    /**
+     * Counts the status of a task, moving it from the status it was last counted with.
+     * @param taskId task id
+     * @param status current status of the task
+     */
+    public synchronized void setTaskStatus(Long taskId, HostRoleStatus status) {
+      HostRoleStatus previousStatus = taskStatuses.put(taskId, status);
+      if (previousStatus != status) {
+        if (null != previousStatus) {
+          taskStatusCounts.merge(previousStatus, -1, Integer::sum);
+        }
+        taskStatusCounts.merge(status, 1, Integer::sum);
+      }
+    }
+
+    /**
+     * @return a copy of the number of tasks of the stage in each status
+     */
+    public synchronized Map<HostRoleStatus, Integer> getTaskStatusCounts() {
+      return new EnumMap<>(taskStatusCounts);
+    }
+
   }
 }
@@ -28,6 +28,7 @@ import org.apache.ambari.server.utils.PasswordUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -200,6 +201,18 @@ public class AmbariLdapConfiguration {
     return Boolean.valueOf(configValue(AmbariServerConfigurationKey.PAGINATION_ENABLED));
   }
 
+  public boolean incrementalSyncEnabled() {
+    return Boolean.valueOf(configValue(AmbariServerConfigurationKey.INCREMENTAL_SYNC_ENABLED));
+  }
+
+  public String syncChangeMarkerAttribute() {
+    return configValue(AmbariServerConfigurationKey.SYNC_CHANGE_MARKER_ATTRIBUTE);
+  }
+
+  public int syncMemberResolutionThreads() {
+    return NumberUtils.toInt(configValue(AmbariServerConfigurationKey.SYNC_MEMBER_RESOLUTION_THREADS), 1);
+  }
+
   public String referralHandling() {
     return configValue(AmbariServerConfigurationKey.REFERRAL_HANDLING);
   }
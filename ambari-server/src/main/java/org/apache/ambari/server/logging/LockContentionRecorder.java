@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.logging;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+
+/**
+ * Collects contention statistics for the locks created by {@link LockFactory}.
+ * <p>
+ * For every lock (read and write locks of a read-write lock are tracked separately) it keeps
+ * histograms of the time spent waiting for and holding the lock, the number of holds exceeding
+ * a threshold, and the call sites which spent the most time waiting.  Only a sample of the lock
+ * acquisitions is timed, so that the recorder can be left on in production; the histograms and
+ * counters therefore describe the sampled acquisitions only.
+ */
+public final class LockContentionRecorder {
+
+  /**
+   * Waits shorter than this are not attributed to a call site, they hardly contend for the lock.
+   */
+  private static final long CALL_SITE_WAIT_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * The maximum number of distinct call sites tracked per lock.
+   */
+  private static final int MAX_CALL_SITES = 64;
+
+  private final int samplingRate;
+  private final long longHoldThresholdNanos;
+  private final ConcurrentMap<String, LockStatistics> statistics = new ConcurrentHashMap<>();
+
+  /**
+   * @param samplingRate one in how many lock acquisitions to sample, 0 to disable the recorder
+   * @param longHoldThresholdMillis the hold time after which a sampled hold is counted as long
+   */
+  LockContentionRecorder(int samplingRate, long longHoldThresholdMillis) {
+    this.samplingRate = Math.max(0, samplingRate);
+    longHoldThresholdNanos = TimeUnit.MILLISECONDS.toNanos(longHoldThresholdMillis);
+  }
+
+  /**
+   * @return true if lock acquisitions are being sampled
+   */
+  public boolean isEnabled() {
+    return samplingRate > 0;
+  }
+
+  /**
+   * @return true if the current lock acquisition should be timed
+   */
+  boolean shouldSample() {
+    return samplingRate == 1 || (samplingRate > 1 && ThreadLocalRandom.current().nextInt(samplingRate) == 0);
+  }
+
+  /**
+   * @param name the name of the lock, including the read/write qualifier if applicable
+   * @return the statistics for the lock, created on first use
+   */
+  LockStatistics getStatistics(String name) {
+    return statistics.computeIfAbsent(name == null ? "" : name.trim(), LockStatistics::new);
+  }
+
+  /**
+   * @return the statistics of every lock recorded so far, sorted by lock name
+   */
+  public Map<String, LockStatistics> getAllStatistics() {
+    return Collections.unmodifiableMap(new TreeMap<>(statistics));
+  }
+
+  /**
+   * Contention statistics of a single lock.  Times are kept in microseconds.
+   */
+  public final class LockStatistics {
+
+    private final String name;
+    private final Histogram waitTimes = new Histogram(new ExponentiallyDecayingReservoir());
+    private final Histogram holdTimes = new Histogram(new ExponentiallyDecayingReservoir());
+    private final Counter longHolds = new Counter();
+    private final ConcurrentMap<String, AtomicLong> callSiteWaitTimes = new ConcurrentHashMap<>();
+
+    private LockStatistics(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the sampled times (in microseconds) spent waiting for the lock
+     */
+    public Histogram getWaitTimes() {
+      return waitTimes;
+    }
+
+    /**
+     * @return the sampled times (in microseconds) the lock was held
+     */
+    public Histogram getHoldTimes() {
+      return holdTimes;
+    }
+
+    /**
+     * @return the number of sampled holds which exceeded the long hold threshold
+     */
+    public long getLongHoldCount() {
+      return longHolds.getCount();
+    }
+
+    /**
+     * @param limit the maximum number of call sites to return
+     * @return the call sites which waited the longest for the lock, with their total sampled wait
+     *         time in microseconds, longest first
+     */
+    public Map<String, Long> getTopWaitingCallSites(int limit) {
+      List<Map.Entry<String, Long>> entries = new ArrayList<>();
+      for (Map.Entry<String, AtomicLong> entry : callSiteWaitTimes.entrySet()) {
+        entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get()));
+      }
+      entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+      Map<String, Long> result = new LinkedHashMap<>();
+      for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+        result.put(entry.getKey(), entry.getValue());
+      }
+      return result;
+    }
+
+    /**
+     * @param nanos the time spent waiting for the lock
+     * @param callSite the call site which requested the lock, captured before waiting for it so
+     *                 that the stack is not walked while the lock is held (optional)
+     */
+    void recordWait(long nanos, String callSite) {
+      waitTimes.update(TimeUnit.NANOSECONDS.toMicros(nanos));
+      if (callSite != null && nanos >= CALL_SITE_WAIT_THRESHOLD_NANOS) {
+        AtomicLong total = callSiteWaitTimes.get(callSite);
+        if (total == null && callSiteWaitTimes.size() < MAX_CALL_SITES) {
+          total = callSiteWaitTimes.computeIfAbsent(callSite, key -> new AtomicLong());
+        }
+        if (total != null) {
+          total.addAndGet(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+      }
+    }
+
+    void recordHold(long nanos) {
+      holdTimes.update(TimeUnit.NANOSECONDS.toMicros(nanos));
+      if (nanos >= longHoldThresholdNanos) {
+        longHolds.inc();
+      }
+    }
+  }
+
+  /**
+   * @return the innermost Ambari method outside of this package on the current thread's stack
+   */
+  static String getCallSite() {
+    for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+      String className = element.getClassName();
+      if (className.startsWith("org.apache.ambari") && !className.startsWith("org.apache.ambari.server.logging")) {
+        return className + "#" + element.getMethodName() + "(" + element.getFileName() + ":" + element.getLineNumber() + ")";
+      }
+    }
+    return "unknown";
+  }
+}
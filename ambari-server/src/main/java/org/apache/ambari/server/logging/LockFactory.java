@@ -36,8 +36,12 @@ import com.google.inject.Singleton;
  * Factory to create locks depending on configuration.  If lock profiling is enabled,
  * it creates instrumented locks that collect statistics and log requests.  If profiling is
  * disabled, it creates regular reentrant locks.
+ * <p>
+ * Independently of profiling, lock contention sampling can be enabled, in which case the locks
+ * report a sample of their wait and hold times to the {@link LockContentionRecorder}.
  *
  * @see Configuration#isServerLocksProfilingEnabled()
+ * @see Configuration#getServerLocksContentionSamplingRate()
  */
 @Singleton
 public class LockFactory {
@@ -46,12 +50,23 @@ public class LockFactory {
 
   private final boolean profiling;
   private final Set<ProfiledLock> profiledLocks;
+  private final LockContentionRecorder contentionRecorder;
 
   @Inject
   public LockFactory(Configuration config) {
     profiling = config.isServerLocksProfilingEnabled();
     profiledLocks = profiling ? new CopyOnWriteArraySet<>() : null;
+    contentionRecorder = new LockContentionRecorder(config.getServerLocksContentionSamplingRate(),
+      config.getServerLocksContentionLongHoldThreshold());
     LOG.info("Lock profiling is {}", profiling ? "enabled" : "disabled");
+    LOG.info("Lock contention sampling is {}", contentionRecorder.isEnabled() ? "enabled" : "disabled");
+  }
+
+  /**
+   * @return the recorder holding the contention statistics of the locks created by this factory
+   */
+  public LockContentionRecorder getContentionRecorder() {
+    return contentionRecorder;
   }
 
   /**
@@ -66,9 +81,12 @@ public class LockFactory {
    */
   public Lock newLock(String label) {
     ReentrantLock baseLock = new ReentrantLock();
-    if (profiling) {
-      ProfiledReentrantLock profiledLock = new ProfiledReentrantLock(baseLock, Ticker.systemTicker(), label);
-      profiledLocks.add(profiledLock);
+    if (profiling || contentionRecorder.isEnabled()) {
+      ProfiledReentrantLock profiledLock = new ProfiledReentrantLock(baseLock, Ticker.systemTicker(), label, profiling,
+        getRecorderIfEnabled());
+      if (profiling) {
+        profiledLocks.add(profiledLock);
+      }
       return profiledLock;
     }
     return baseLock;
@@ -86,10 +104,13 @@ public class LockFactory {
    */
   public ReadWriteLock newReadWriteLock(String label) {
     ReentrantReadWriteLock baseLock = new ReentrantReadWriteLock();
-    if (profiling) {
-      ProfiledReentrantReadWriteLock profiledLock = new ProfiledReentrantReadWriteLock(baseLock, Ticker.systemTicker(), label);
-      profiledLocks.add(profiledLock.readLock());
-      profiledLocks.add(profiledLock.writeLock());
+    if (profiling || contentionRecorder.isEnabled()) {
+      ProfiledReentrantReadWriteLock profiledLock = new ProfiledReentrantReadWriteLock(baseLock, Ticker.systemTicker(),
+        label, profiling, getRecorderIfEnabled());
+      if (profiling) {
+        profiledLocks.add(profiledLock.readLock());
+        profiledLocks.add(profiledLock.writeLock());
+      }
       return profiledLock;
     }
     return baseLock;
@@ -116,6 +137,10 @@ public class LockFactory {
     }
   }
 
+  private LockContentionRecorder getRecorderIfEnabled() {
+    return contentionRecorder.isEnabled() ? contentionRecorder : null;
+  }
+
   private static String getDefaultPrefix() {
     StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
     // 0: getStackTrace()
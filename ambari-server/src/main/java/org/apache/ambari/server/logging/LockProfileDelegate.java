@@ -35,6 +35,10 @@ import com.google.common.base.Ticker;
  * and the number of times the lock was taken.  Lock requests, acquisitions and releases
  * are also logged at debug level.  The log message for requests contains a filtered stack
  * trace, only including methods from org.apache.ambari and subpackages to eliminate the noise.
+ * <p>
+ * If a {@link LockContentionRecorder.LockStatistics} is given, the wait and hold times are also
+ * recorded there.  Without full profiling, only the acquisitions sampled by the
+ * {@link LockContentionRecorder} are timed, and nothing is logged or collected per thread.
  */
 final class LockProfileDelegate {
 
@@ -42,12 +46,16 @@ final class LockProfileDelegate {
 
   private final ThreadLocal<Long> lockRequestTime = new ThreadLocal<>();
   private final ThreadLocal<Long> lockAcquireTime = new ThreadLocal<>();
+  private final ThreadLocal<String> lockRequestCallSite = new ThreadLocal<>();
   private final ConcurrentMap<String, Long> timeSpentWaitingForLock = new ConcurrentHashMap<>();
   private final ConcurrentMap<String, Long> timeSpentLocked = new ConcurrentHashMap<>();
   private final ConcurrentMap<String, Integer> lockCount = new ConcurrentHashMap<>();
   private final String label;
   private final ProfiledLock lock;
   private final Ticker ticker;
+  private final boolean profiling;
+  private final LockContentionRecorder recorder;
+  private final LockContentionRecorder.LockStatistics statistics;
 
   /**
    * @param ticker is the source of time information, replaceable for testing purpose
@@ -55,9 +63,25 @@ final class LockProfileDelegate {
    * @param lock the lock to profile
    */
   LockProfileDelegate(Ticker ticker, String label, ProfiledLock lock) {
+    this(ticker, label, lock, true, null, null);
+  }
+
+  /**
+   * @param ticker is the source of time information, replaceable for testing purpose
+   * @param label is included in log messages (optional, may be empty or null)
+   * @param lock the lock to profile
+   * @param profiling whether every request should be logged and profiled per thread
+   * @param recorder the contention recorder deciding which requests are sampled (optional)
+   * @param statistics the contention statistics to record sampled requests to (optional)
+   */
+  LockProfileDelegate(Ticker ticker, String label, ProfiledLock lock, boolean profiling,
+                      LockContentionRecorder recorder, LockContentionRecorder.LockStatistics statistics) {
     this.label = addSpacePostfixIfNeeded(label);
     this.lock = lock;
     this.ticker = ticker;
+    this.profiling = profiling;
+    this.recorder = statistics != null ? recorder : null;
+    this.statistics = statistics;
   }
 
   /**
@@ -96,10 +120,19 @@ final class LockProfileDelegate {
   boolean logRequest() {
     boolean alreadyOwned = lock.isHeldByCurrentThread();
     if (!alreadyOwned) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("{}request {} from {}", label, lock, getFilteredStackTrace());
+      if (profiling) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("{}request {} from {}", label, lock, getFilteredStackTrace());
+        }
+        setCallSite();
+        lockRequestTime.set(ticker.read());
+      } else if (recorder != null && recorder.shouldSample()) {
+        setCallSite();
+        lockRequestTime.set(ticker.read());
+      } else {
+        lockRequestTime.remove();
+        lockRequestCallSite.remove();
       }
-      lockRequestTime.set(ticker.read());
     }
     return alreadyOwned;
   }
@@ -113,8 +146,18 @@ final class LockProfileDelegate {
    */
   void logRequestCompleted(boolean alreadyOwned, boolean acquired) {
     if (!alreadyOwned) {
-      if (acquired) {
-        long elapsed = storeElapsedTime(lockRequestTime, timeSpentWaitingForLock);
+      String callSite = lockRequestCallSite.get();
+      lockRequestCallSite.remove();
+      if (!profiling) {
+        if (lockRequestTime.get() != null) {
+          long waited = getElapsedTime(lockRequestTime);
+          if (acquired) {
+            statistics.recordWait(waited, callSite);
+            lockAcquireTime.set(ticker.read());
+          }
+        }
+      } else if (acquired) {
+        long elapsed = storeElapsedTime(lockRequestTime, timeSpentWaitingForLock, true, callSite);
         LOG.debug("{}acquired {} after {} ms", label, lock, elapsed);
         increment(lockCount);
         lockAcquireTime.set(ticker.read());
@@ -131,19 +174,34 @@ final class LockProfileDelegate {
   void logUnlock() {
     boolean released = !lock.isHeldByCurrentThread();
     if (released) {
-      long elapsed = storeElapsedTime(lockAcquireTime, timeSpentLocked);
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("{}released {} after {} ms", label, lock, elapsed);
+      if (!profiling) {
+        if (lockAcquireTime.get() != null) {
+          statistics.recordHold(getElapsedTime(lockAcquireTime));
+        }
+      } else {
+        long elapsed = storeElapsedTime(lockAcquireTime, timeSpentLocked, false, null);
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("{}released {} after {} ms", label, lock, elapsed);
+        }
       }
     }
   }
 
-  private long storeElapsedTime(ThreadLocal<Long> startHolder, ConcurrentMap<String, Long> map) {
+  private long storeElapsedTime(ThreadLocal<Long> startHolder, ConcurrentMap<String, Long> map, boolean waiting,
+                                String callSite) {
     long end = ticker.read();
     long elapsed = Long.MIN_VALUE;
     Long start = startHolder.get();
     if (start != null && start <= end) {
-      elapsed = TimeUnit.NANOSECONDS.toMillis(end - start);
+      long elapsedNanos = end - start;
+      if (statistics != null) {
+        if (waiting) {
+          statistics.recordWait(elapsedNanos, callSite);
+        } else {
+          statistics.recordHold(elapsedNanos);
+        }
+      }
+      elapsed = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
       String name = Thread.currentThread().getName();
       map.putIfAbsent(name, 0L);
       if (elapsed > 0) {
@@ -154,6 +212,25 @@ final class LockProfileDelegate {
     return elapsed;
   }
 
+  /**
+   * Remembers the call site requesting the lock for the contention statistics, before the lock
+   * is acquired so that walking the stack does not lengthen the time the lock is held.
+   */
+  private void setCallSite() {
+    if (statistics != null) {
+      lockRequestCallSite.set(LockContentionRecorder.getCallSite());
+    }
+  }
+
+  /**
+   * @return the nanoseconds elapsed since the time in <code>startHolder</code>, which is cleared
+   */
+  private long getElapsedTime(ThreadLocal<Long> startHolder) {
+    long elapsed = Math.max(0, ticker.read() - startHolder.get());
+    startHolder.remove();
+    return elapsed;
+  }
+
   private static void increment(ConcurrentMap<String, Integer> map) {
     String name = Thread.currentThread().getName();
     map.putIfAbsent(name, 0);
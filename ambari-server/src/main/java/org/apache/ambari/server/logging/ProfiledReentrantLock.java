@@ -38,8 +38,21 @@ final class ProfiledReentrantLock implements ProfiledLock {
    * @param label is included in log messages for easier identification of locks (optional, may be empty or null)
    */
   ProfiledReentrantLock(ReentrantLock delegate, Ticker ticker, String label) {
+    this(delegate, ticker, label, true, null);
+  }
+
+  /**
+   * @param delegate the lock to profile
+   * @param ticker is the source of time information, replaceable for testing purpose
+   * @param label is included in log messages for easier identification of locks (optional, may be empty or null)
+   * @param profiling whether every request should be logged and profiled per thread
+   * @param recorder collects contention statistics for the lock (optional)
+   */
+  ProfiledReentrantLock(ReentrantLock delegate, Ticker ticker, String label, boolean profiling,
+                        LockContentionRecorder recorder) {
     this.delegate = delegate;
-    helper = new LockProfileDelegate(ticker, label, this);
+    helper = new LockProfileDelegate(ticker, label, this, profiling, recorder,
+      recorder != null ? recorder.getStatistics(label) : null);
   }
 
   @Override
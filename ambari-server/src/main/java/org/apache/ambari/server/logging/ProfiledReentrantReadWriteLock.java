@@ -38,8 +38,20 @@ final class ProfiledReentrantReadWriteLock implements ReadWriteLock {
    * @param label is included in log messages for easier identification of locks (optional, may be empty or null)
    */
   ProfiledReentrantReadWriteLock(ReentrantReadWriteLock delegate, Ticker ticker, String label) {
-    readLock = new ProfiledReadLock(delegate, ticker, label);
-    writeLock = new ProfiledWriteLock(delegate, ticker, label);
+    this(delegate, ticker, label, true, null);
+  }
+
+  /**
+   * @param delegate the lock to profile
+   * @param ticker is the source of time information, replaceable for testing purpose
+   * @param label is included in log messages for easier identification of locks (optional, may be empty or null)
+   * @param profiling whether every request should be logged and profiled per thread
+   * @param recorder collects contention statistics for the read and write locks (optional)
+   */
+  ProfiledReentrantReadWriteLock(ReentrantReadWriteLock delegate, Ticker ticker, String label, boolean profiling,
+                                 LockContentionRecorder recorder) {
+    readLock = new ProfiledReadLock(delegate, ticker, label, profiling, recorder);
+    writeLock = new ProfiledWriteLock(delegate, ticker, label, profiling, recorder);
   }
 
   @Override
@@ -57,10 +69,12 @@ final class ProfiledReentrantReadWriteLock implements ReadWriteLock {
     private final LockProfileDelegate helper;
     private final ReentrantReadWriteLock delegate;
 
-    ProfiledReadLock(ReentrantReadWriteLock delegate, Ticker ticker, String label) {
+    ProfiledReadLock(ReentrantReadWriteLock delegate, Ticker ticker, String label, boolean profiling,
+                   LockContentionRecorder recorder) {
       super(delegate);
       this.delegate = delegate;
-      helper = new LockProfileDelegate(ticker, label, this);
+      helper = new LockProfileDelegate(ticker, label, this, profiling, recorder,
+        recorder != null ? recorder.getStatistics(label + " (read)") : null);
     }
 
     @Override
@@ -138,10 +152,12 @@ final class ProfiledReentrantReadWriteLock implements ReadWriteLock {
     private final LockProfileDelegate helper;
     private final ReentrantReadWriteLock delegate;
 
-    ProfiledWriteLock(ReentrantReadWriteLock delegate, Ticker ticker, String label) {
+    ProfiledWriteLock(ReentrantReadWriteLock delegate, Ticker ticker, String label, boolean profiling,
+                   LockContentionRecorder recorder) {
       super(delegate);
       this.delegate = delegate;
-      helper = new LockProfileDelegate(ticker, label, this);
+      helper = new LockProfileDelegate(ticker, label, this, profiling, recorder,
+        recorder != null ? recorder.getStatistics(label + " (write)") : null);
     }
 
     @Override
@@ -17,10 +17,31 @@
  */
 package org.apache.ambari.server.metrics.system.impl;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.ambari.server.metrics.system.MetricsSink;
 import org.apache.ambari.server.metrics.system.MetricsSource;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public abstract class AbstractMetricsSource implements MetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractMetricsSource.class);
+
   protected MetricsSink sink;
   protected MetricsConfiguration configuration;
 
@@ -31,4 +52,82 @@ public abstract class AbstractMetricsSource implements MetricsSource {
   public void init(MetricsConfiguration configuration, MetricsSink sink) {
     this.sink = sink;
   }
+
+  /**
+   * Gets the metrics which {@link #startPublishing(int)} publishes on every
+   * interval. Sources which publish to the sink themselves need not override
+   * this.
+   *
+   * @return the current metrics (never {@code null}).
+   */
+  public List<SingleMetric> getMetrics() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Publishes the result of {@link #getMetrics()} to the sink every
+   * {@code interval} seconds, on a daemon thread named after the source.
+   *
+   * @param interval
+   *          the number of seconds between publications
+   */
+  protected void startPublishing(int interval) {
+    final String name = getClass().getSimpleName();
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat(name + "-%d").setDaemon(true).build());
+
+    executor.scheduleWithFixedDelay(() -> {
+      try {
+        LOG.debug("Publishing {} metrics to sink", name);
+        sink.publish(getMetrics());
+      } catch (Exception e) {
+        LOG.debug("Error in publishing {} metrics to sink.", name, e);
+      }
+    }, interval, interval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Converts the metrics of a registry. Numeric gauges and counters are
+   * published as they are, meters as their count and one minute rate, and
+   * timers as their count and the mean, 95th and 99th percentiles and maximum
+   * of their recent durations in milliseconds.
+   *
+   * @param registry
+   *          the registry to convert
+   * @param metrics
+   *          the list to add the converted metrics to
+   * @param currentTime
+   *          the timestamp of the converted metrics
+   */
+  protected static void addMetrics(MetricRegistry registry, List<SingleMetric> metrics, long currentTime) {
+    for (Map.Entry<String, Metric> entry : registry.getMetrics().entrySet()) {
+      String name = entry.getKey();
+      Metric metric = entry.getValue();
+
+      if (metric instanceof Gauge) {
+        Object value = ((Gauge<?>) metric).getValue();
+        if (value instanceof Number) {
+          metrics.add(new SingleMetric(name, ((Number) value).doubleValue(), currentTime));
+        }
+      } else if (metric instanceof Counter) {
+        metrics.add(new SingleMetric(name, ((Counter) metric).getCount(), currentTime));
+      } else if (metric instanceof Meter) {
+        Meter meter = (Meter) metric;
+        metrics.add(new SingleMetric(name + ".count", meter.getCount(), currentTime));
+        metrics.add(new SingleMetric(name + ".rate", meter.getOneMinuteRate(), currentTime));
+      } else if (metric instanceof Timer) {
+        Timer timer = (Timer) metric;
+        Snapshot snapshot = timer.getSnapshot();
+        metrics.add(new SingleMetric(name + ".count", timer.getCount(), currentTime));
+        metrics.add(new SingleMetric(name + ".mean", toMillis(snapshot.getMean()), currentTime));
+        metrics.add(new SingleMetric(name + ".p95", toMillis(snapshot.get95thPercentile()), currentTime));
+        metrics.add(new SingleMetric(name + ".p99", toMillis(snapshot.get99thPercentile()), currentTime));
+        metrics.add(new SingleMetric(name + ".max", toMillis(snapshot.getMax()), currentTime));
+      }
+    }
+  }
+
+  private static double toMillis(double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.agent.AgentReportsProcessor;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * @{link AgentReportsMetricsSource} publishes the queue size and processing lag
+ * of each shard of the {@link AgentReportsProcessor}, along with the number of
+ * agent reports which were merged into waiting ones and of those which were
+ * queued into a full shard, to the Metrics Sink. Lags are published in
+ * milliseconds.
+ */
+@StaticallyInject
+public class AgentReportsMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(AgentReportsMetricsSource.class);
+
+  /**
+   * A provider, since creating the processor while the injector is created
+   * would access the database before it is available.
+   */
+  @Inject
+  private static Provider<AgentReportsProcessor> agentReportsProcessorProvider;
+
+  private int interval = 60;
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized Agent Reports Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    startPublishing(interval);
+    LOG.info("Started Agent Reports Metrics source...");
+  }
+
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (null == agentReportsProcessorProvider) {
+      return metrics;
+    }
+
+    addMetrics(agentReportsProcessorProvider.get().getMetricRegistry(), metrics, System.currentTimeMillis());
+    return metrics;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.notifications.DispatchFactory;
+import org.apache.ambari.server.notifications.NotificationDispatcher;
+import org.apache.ambari.server.notifications.dispatchers.AlertScriptDispatcher;
+import org.apache.ambari.server.state.alert.TargetType;
+import org.apache.ambari.server.state.services.AlertNoticeDispatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link AlertNoticeDispatchMetricsSource} publishes the backlog, the queue and
+ * dispatch latencies and the delivered and failed counts of the alert
+ * notifications sent by the {@link AlertNoticeDispatchService} to the Metrics
+ * Sink, along with the script process start rate and the latencies of the
+ * {@link AlertScriptDispatcher}. Latencies are published in milliseconds.
+ */
+@StaticallyInject
+public class AlertNoticeDispatchMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(AlertNoticeDispatchMetricsSource.class);
+
+  @Inject
+  private static AlertNoticeDispatchService alertNoticeDispatchService;
+
+  @Inject
+  private static DispatchFactory dispatchFactory;
+
+  private int interval = 60;
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized Alert Notice Dispatch Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    startPublishing(interval);
+    LOG.info("Started Alert Notice Dispatch Metrics source...");
+  }
+
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (null == alertNoticeDispatchService) {
+      return metrics;
+    }
+
+    long currentTime = System.currentTimeMillis();
+    addMetrics(alertNoticeDispatchService.getMetricRegistry(), metrics, currentTime);
+
+    if (null != dispatchFactory) {
+      NotificationDispatcher dispatcher = dispatchFactory.getDispatcher(TargetType.ALERT_SCRIPT.name());
+      if (dispatcher instanceof AlertScriptDispatcher) {
+        addMetrics(((AlertScriptDispatcher) dispatcher).getMetricRegistry(), metrics, currentTime);
+      }
+    }
+
+    return metrics;
+  }
+}
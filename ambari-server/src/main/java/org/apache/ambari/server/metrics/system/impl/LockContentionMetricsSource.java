@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.logging.LockContentionRecorder;
+import org.apache.ambari.server.logging.LockFactory;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Snapshot;
+import com.google.inject.Inject;
+
+/**
+ * @{link LockContentionMetricsSource} publishes the sampled wait and hold times of the server's
+ * internal locks, as collected by the {@link LockContentionRecorder}, to the Metrics Sink.
+ * Times are published in milliseconds.
+ */
+@StaticallyInject
+public class LockContentionMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(LockContentionMetricsSource.class);
+  private static final String LOCKS_PREFIX = "locks.";
+
+  @Inject
+  private static LockFactory lockFactory;
+
+  private int interval = 60;
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized Lock Contention Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    startPublishing(interval);
+    LOG.info("Started Lock Contention Metrics source...");
+  }
+
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (null == lockFactory || !lockFactory.getContentionRecorder().isEnabled()) {
+      return metrics;
+    }
+
+    long currentTime = System.currentTimeMillis();
+    for (LockContentionRecorder.LockStatistics statistics : lockFactory.getContentionRecorder().getAllStatistics().values()) {
+      String prefix = LOCKS_PREFIX + getMetricName(statistics.getName());
+
+      Snapshot waitTimes = statistics.getWaitTimes().getSnapshot();
+      metrics.add(new SingleMetric(prefix + ".wait.mean", toMillis(waitTimes.getMean()), currentTime));
+      metrics.add(new SingleMetric(prefix + ".wait.p99", toMillis(waitTimes.get99thPercentile()), currentTime));
+      metrics.add(new SingleMetric(prefix + ".wait.max", toMillis(waitTimes.getMax()), currentTime));
+
+      Snapshot holdTimes = statistics.getHoldTimes().getSnapshot();
+      metrics.add(new SingleMetric(prefix + ".hold.mean", toMillis(holdTimes.getMean()), currentTime));
+      metrics.add(new SingleMetric(prefix + ".hold.p99", toMillis(holdTimes.get99thPercentile()), currentTime));
+      metrics.add(new SingleMetric(prefix + ".hold.max", toMillis(holdTimes.getMax()), currentTime));
+
+      metrics.add(new SingleMetric(prefix + ".acquisitions", statistics.getWaitTimes().getCount(), currentTime));
+      metrics.add(new SingleMetric(prefix + ".long_holds", statistics.getLongHoldCount(), currentTime));
+    }
+
+    return metrics;
+  }
+
+  /**
+   * Lock names may be file/line references or contain a read/write qualifier; only keep
+   * characters which are safe in a metric name.
+   */
+  private static String getMetricName(String lockName) {
+    return lockName.replaceAll("[^A-Za-z0-9_.-]+", "_");
+  }
+
+  private static double toMillis(double micros) {
+    return micros / TimeUnit.MILLISECONDS.toMicros(1);
+  }
+}
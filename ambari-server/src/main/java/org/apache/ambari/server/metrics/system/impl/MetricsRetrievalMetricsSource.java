@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.state.services.MetricsRetrievalService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link MetricsRetrievalMetricsSource} publishes the request latency
+ * histograms and the timeout, failure and discard counters of the
+ * {@link MetricsRetrievalService} to the Metrics Sink. Latencies are published
+ * in milliseconds as the mean, 95th and 99th percentiles and maximum of the
+ * recent requests.
+ */
+@StaticallyInject
+public class MetricsRetrievalMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsRetrievalMetricsSource.class);
+
+  @Inject
+  private static MetricsRetrievalService metricsRetrievalService;
+
+  private int interval = 60;
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized Metrics Retrieval Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    startPublishing(interval);
+    LOG.info("Started Metrics Retrieval Metrics source...");
+  }
+
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (null == metricsRetrievalService) {
+      return metrics;
+    }
+
+    addMetrics(metricsRetrievalService.getMetricRegistry(), metrics, System.currentTimeMillis());
+    return metrics;
+  }
+}
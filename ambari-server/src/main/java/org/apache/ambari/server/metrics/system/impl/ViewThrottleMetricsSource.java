@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.StaticallyInject;
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.apache.ambari.server.view.ViewThrottleFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * @{link ViewThrottleMetricsSource} publishes the queue sizes, concurrency
+ * limits, in-flight and rejected requests and request latencies of each view
+ * instance limited by the {@link ViewThrottleFilter} to the Metrics Sink.
+ * Latencies are published in milliseconds.
+ */
+@StaticallyInject
+public class ViewThrottleMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(ViewThrottleMetricsSource.class);
+
+  @Inject
+  private static ViewThrottleFilter viewThrottleFilter;
+
+  private int interval = 60;
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "60"));
+    LOG.info("Initialized View Throttle Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    startPublishing(interval);
+    LOG.info("Started View Throttle Metrics source...");
+  }
+
+  @Override
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    if (null == viewThrottleFilter) {
+      return metrics;
+    }
+
+    addMetrics(viewThrottleFilter.getMetricRegistry(), metrics, System.currentTimeMillis());
+    return metrics;
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.ambari.server.notifications.dispatchers;
 
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -41,6 +43,10 @@ import org.apache.commons.lang.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.escape.Escaper;
 import com.google.common.escape.Escapers;
 import com.google.inject.Inject;
@@ -52,6 +58,11 @@ import com.google.inject.Inject;
  * {@link Notification}.
  * <p/>
  * This dispatcher only deals with non-digest notifications.
+ * <p/>
+ * If {@link Configuration#isAlertScriptWorkerEnabled()} is set, notifications
+ * are instead delivered over standard input to long-lived processes of each
+ * script, see {@link AlertScriptWorkerPool}. The script is still invoked once
+ * per notification for any notification its workers fail to deliver.
  */
 public class AlertScriptDispatcher implements NotificationDispatcher {
 
@@ -91,6 +102,20 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
    */
   private static final long DEFAULT_SCRIPT_TIMEOUT = 5000L;
 
+  /**
+   * The worker pool of a script is closed once no notification was dispatched
+   * to it for an hour, such as after the script of a target was changed.
+   */
+  private static final long WORKER_POOL_IDLE_TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * The names of the metrics recorded by this dispatcher.
+   */
+  static final String METRIC_PREFIX = "alerts.notifications.script.";
+  static final String METRIC_FORKS = METRIC_PREFIX + "forks";
+  static final String METRIC_LATENCY = METRIC_PREFIX + "latency";
+  static final String METRIC_WORKER_PENDING = METRIC_PREFIX + "worker.pending";
+
   /**
    * Used to escape text being passed into the shell command.
    */
@@ -116,6 +141,45 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
     new LinkedBlockingQueue<>(), new ScriptDispatchThreadFactory(),
       new ThreadPoolExecutor.CallerRunsPolicy());
 
+  /**
+   * The worker pool of each script, if notifications are delivered to
+   * long-lived script processes.
+   */
+  private final ConcurrentMap<String, AlertScriptWorkerPool> m_workerPools = new ConcurrentHashMap<>();
+
+  /**
+   * Records the script processes started and the time it takes to deliver a
+   * notification.
+   */
+  private final MetricRegistry m_metricRegistry = new MetricRegistry();
+
+  private final Meter m_forks = m_metricRegistry.meter(METRIC_FORKS);
+  private final Timer m_latency = m_metricRegistry.timer(METRIC_LATENCY);
+
+  /**
+   * Constructor.
+   */
+  public AlertScriptDispatcher() {
+    m_metricRegistry.register(METRIC_WORKER_PENDING, (Gauge<Integer>) () -> {
+      int pending = 0;
+      for (AlertScriptWorkerPool workerPool : m_workerPools.values()) {
+        pending += workerPool.getPendingCount();
+      }
+      return pending;
+    });
+  }
+
+  /**
+   * Gets the registry of the metrics of this dispatcher: the rate at which
+   * script processes are started, the time it takes to deliver a notification
+   * and the failures of script workers.
+   *
+   * @return the metric registry (never {@code null}).
+   */
+  public MetricRegistry getMetricRegistry() {
+    return m_metricRegistry;
+  }
+
   /**
    * Gets the key that will be used to lookup the script to execute from
    * {@link Configuration}.
@@ -207,19 +271,104 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
       return;
     }
 
-    // execute the script asynchronously
+    AlertNotification alertNotification = (AlertNotification) notification;
+    if (m_configuration.isAlertScriptWorkerEnabled()) {
+      getWorkerPool(script).dispatch(alertNotification);
+      return;
+    }
+
+    dispatchToProcess(script, alertNotification);
+  }
+
+  /**
+   * Closes the worker pools of all scripts. The notifications which are still
+   * queued for the workers are dispatched by invoking the script.
+   */
+  public void shutdown() {
+    for (AlertScriptWorkerPool workerPool : m_workerPools.values()) {
+      closeWorkerPool(workerPool);
+    }
+  }
+
+  /**
+   * Gets the worker pool of a script, replacing the pool if the script file
+   * was modified since its processes were started. Pools which have not been
+   * used for {@link #WORKER_POOL_IDLE_TIMEOUT} are closed.
+   *
+   * @param script
+   *          the script to run (not {@code null}).
+   * @return the worker pool
+   */
+  private AlertScriptWorkerPool getWorkerPool(String script) {
+    long now = System.currentTimeMillis();
+    for (AlertScriptWorkerPool workerPool : m_workerPools.values()) {
+      if (now - workerPool.getLastDispatchTime() > WORKER_POOL_IDLE_TIMEOUT) {
+        closeWorkerPool(workerPool);
+      }
+    }
+
+    AlertScriptWorkerPool workerPool = m_workerPools.computeIfAbsent(script, this::createWorkerPool);
+    long lastModified = new File(script).lastModified();
+    if (lastModified > workerPool.getCreationTime() && lastModified <= now) {
+      LOG.info("The alert script {} was modified; its workers will be restarted", script);
+      closeWorkerPool(workerPool);
+      workerPool = m_workerPools.computeIfAbsent(script, this::createWorkerPool);
+    }
+
+    return workerPool;
+  }
+
+  /**
+   * Removes a worker pool and stops its processes.
+   *
+   * @param workerPool
+   *          the worker pool to close (not {@code null}).
+   */
+  private void closeWorkerPool(AlertScriptWorkerPool workerPool) {
+    if (m_workerPools.remove(workerPool.getScript(), workerPool)) {
+      workerPool.close();
+    }
+  }
+
+  /**
+   * Invokes the script asynchronously with the parameters of a single
+   * notification.
+   *
+   * @param script
+   *          the script to invoke (not {@code null}).
+   * @param notification
+   *          the notification to dispatch (not {@code null}).
+   */
+  private void dispatchToProcess(String script, AlertNotification notification) {
     long timeout = getScriptConfigurationTimeout();
     TimeUnit timeUnit = TimeUnit.MILLISECONDS;
-    AlertNotification alertNotification = (AlertNotification) notification;
-    ProcessBuilder processBuilder = getProcessBuilder(script, alertNotification);
+    ProcessBuilder processBuilder = getProcessBuilder(script, notification);
 
-    AlertScriptRunnable runnable = new AlertScriptRunnable(alertNotification, script,
+    AlertScriptRunnable runnable = new AlertScriptRunnable(notification, script,
         processBuilder,
-        timeout, timeUnit);
+        timeout, timeUnit, m_forks, m_latency);
 
     m_executor.execute(runnable);
   }
 
+  /**
+   * Creates the worker pool of a script. Notifications the workers fail to
+   * deliver are dispatched by invoking the script once per notification.
+   *
+   * @param script
+   *          the script to run (not {@code null}).
+   * @return the worker pool
+   */
+  private AlertScriptWorkerPool createWorkerPool(String script) {
+    LOG.info("Starting {} workers for alert script {}", m_configuration.getAlertScriptWorkerCount(), script);
+
+    return new AlertScriptWorkerPool(script, m_configuration.getAlertScriptWorkerCount(),
+        m_configuration.getAlertScriptWorkerBatchSize(), m_configuration.getAlertScriptWorkerTimeout(),
+        m_configuration.getAlertScriptWorkerRestartAttempts(),
+        m_configuration.getAlertScriptWorkerRecoveryInterval(), m_metricRegistry,
+        notification -> dispatchToProcess(script, notification));
+  }
+
   /**
    * Gets the dispatch script location from ambari.properties and notification.
    *
@@ -279,16 +428,6 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
    * @return
    */
   ProcessBuilder getProcessBuilder(String script, AlertNotification notification) {
-    final String shellCommand;
-    final String shellCommandOption;
-    if (SystemUtils.IS_OS_WINDOWS) {
-      shellCommand = "cmd";
-      shellCommandOption = "/c";
-    } else {
-      shellCommand = "sh";
-      shellCommandOption = "-c";
-    }
-
     AlertInfo alertInfo = notification.getAlertInfo();
     AlertDefinitionEntity definition = alertInfo.getAlertDefinition();
     String definitionName = definition.getDefinitionName();
@@ -310,7 +449,29 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
 
     // sh -c '/foo/sys_logger.py ambari_server_agent_heartbeat "Agent Heartbeat"
     // AMBARI CRITICAL "Something went wrong with the host" 1111111 host222'
-    return new ProcessBuilder(shellCommand, shellCommandOption, foo);
+    return createShellProcessBuilder(foo);
+  }
+
+  /**
+   * Gets a {@link ProcessBuilder} which runs a command with the shell of the
+   * operating system.
+   *
+   * @param command
+   *          the command to run (not {@code null}).
+   * @return the process builder
+   */
+  static ProcessBuilder createShellProcessBuilder(String command) {
+    final String shellCommand;
+    final String shellCommandOption;
+    if (SystemUtils.IS_OS_WINDOWS) {
+      shellCommand = "cmd";
+      shellCommandOption = "/c";
+    } else {
+      shellCommand = "sh";
+      shellCommandOption = "-c";
+    }
+
+    return new ProcessBuilder(shellCommand, shellCommandOption, command);
   }
 
   /**
@@ -328,6 +489,9 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
     private final TimeUnit m_timeoutUnits;
     private final Notification m_notification;
     private final String m_script;
+    private final Meter m_forks;
+    private final Timer m_latency;
+    private final long m_queuedTime = System.nanoTime();
 
     /**
      * Constructor.
@@ -337,15 +501,21 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
      * @param processBuilder
      * @param timeout
      * @param timeoutUnits
+     * @param forks
+     *          marked when the process is started
+     * @param latency
+     *          updated with the time from queuing to the end of the process
      */
     private AlertScriptRunnable(Notification notification, String script,
         ProcessBuilder processBuilder,
-        long timeout, TimeUnit timeoutUnits) {
+        long timeout, TimeUnit timeoutUnits, Meter forks, Timer latency) {
       m_notification = notification;
       m_script = script;
       m_processBuilder = processBuilder;
       m_timeout = timeout;
       m_timeoutUnits = timeoutUnits;
+      m_forks = forks;
+      m_latency = latency;
     }
 
     /**
@@ -357,6 +527,8 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
 
       try {
         Process process = m_processBuilder.start();
+        m_forks.mark();
+
         int exitCode = execute(process, m_timeout, TimeUnit.MILLISECONDS);
 
         if (exitCode != 0) {
@@ -376,6 +548,8 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
         LOG.warn("Unable to dispatch notification with {}", m_script, exception);
       }
 
+      m_latency.update(System.nanoTime() - m_queuedTime, TimeUnit.NANOSECONDS);
+
       // callback
       if (null != m_notification.Callback) {
         if (isDispatchSuccessful) {
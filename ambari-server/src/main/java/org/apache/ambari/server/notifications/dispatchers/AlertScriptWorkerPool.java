@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.notifications.dispatchers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.state.alert.AlertNotification;
+import org.apache.ambari.server.state.services.AlertNoticeDispatchService.AlertInfo;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * The {@link AlertScriptWorkerPool} delivers {@link AlertNotification}s to
+ * long-lived processes of a single alert script instead of starting the script
+ * once per notification.
+ * <p/>
+ * Each worker of the pool owns one script process, which is started without
+ * arguments and with the {@value #WORKER_ENVIRONMENT_VARIABLE} environment
+ * variable set to {@code true}. Notifications are queued, and a worker writes up
+ * to a batch of them to the standard input of its process, one JSON object per
+ * line. The script must answer each line, in order, with a line on its standard
+ * output: {@value #ACKNOWLEDGEMENT} if the notification was delivered, anything
+ * else if it was not.
+ * <p/>
+ * If the process exits, or does not answer a batch within the timeout, it is
+ * destroyed and the notifications it did not answer are handed to the
+ * fallback, which invokes the script once per notification. The next batch
+ * starts a new process. Once the processes of the pool failed more than the
+ * allowed number of times in a row, every notification is handed to the
+ * fallback until the recovery interval has passed, after which the workers
+ * are given another chance.
+ */
+final class AlertScriptWorkerPool {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOG = LoggerFactory.getLogger(AlertScriptWorkerPool.class);
+
+  /**
+   * The environment variable which tells a script that it runs as a worker.
+   */
+  static final String WORKER_ENVIRONMENT_VARIABLE = "AMBARI_ALERT_SCRIPT_WORKER";
+
+  /**
+   * The answer of a worker for a delivered notification.
+   */
+  static final String ACKNOWLEDGEMENT = "OK";
+
+  /**
+   * The names of the metrics recorded by the pool.
+   */
+  static final String METRIC_WORKER_FAILURES = AlertScriptDispatcher.METRIC_PREFIX + "worker.failures";
+  static final String METRIC_WORKER_FALLBACKS = AlertScriptDispatcher.METRIC_PREFIX + "worker.fallbacks";
+
+  private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+  /**
+   * Queued by the reader of a process once its output is closed.
+   */
+  private static final String END_OF_STREAM = "\u0000";
+
+  private static final AtomicInteger s_threadIdPool = new AtomicInteger(1);
+
+  /**
+   * Destroys the processes which do not answer a batch in time.
+   */
+  private static final ScheduledThreadPoolExecutor s_watchdog = new ScheduledThreadPoolExecutor(1,
+      new ThreadFactoryBuilder().setNameFormat("script-worker-watchdog-%d").setDaemon(true).build());
+
+  static {
+    s_watchdog.setRemoveOnCancelPolicy(true);
+  }
+
+  private final String m_script;
+  private final int m_batchSize;
+  private final long m_timeout;
+  private final int m_restartAttempts;
+  private final long m_recoveryInterval;
+  private final Consumer<AlertNotification> m_fallback;
+
+  private final BlockingQueue<PendingNotification> m_queue = new LinkedBlockingQueue<>();
+  private final List<Thread> m_threads = new ArrayList<>();
+  private final AtomicInteger m_consecutiveFailures = new AtomicInteger();
+
+  /**
+   * {@code true} once the processes failed too often, until the recovery
+   * interval has passed.
+   */
+  private volatile boolean m_disabled = false;
+
+  /**
+   * The {@link System#nanoTime()} at which the processes were disabled.
+   */
+  private volatile long m_disabledTime;
+
+  /**
+   * {@code true} once the pool was closed.
+   */
+  private volatile boolean m_closed = false;
+
+  /**
+   * The {@link System#currentTimeMillis()} at which the pool was created.
+   */
+  private final long m_creationTime = System.currentTimeMillis();
+
+  /**
+   * The {@link System#currentTimeMillis()} at which a notification was last
+   * dispatched.
+   */
+  private volatile long m_lastDispatchTime = m_creationTime;
+
+  private final Meter m_forks;
+  private final Timer m_latency;
+  private final Counter m_failures;
+  private final Counter m_fallbacks;
+
+  /**
+   * Constructor. Starts the worker threads; the script processes are started
+   * by the first batch of each worker.
+   *
+   * @param script
+   *          the script to run (not {@code null}).
+   * @param workerCount
+   *          the number of processes of the script to run.
+   * @param batchSize
+   *          the maximum number of notifications written to a process at once.
+   * @param timeout
+   *          the time, in milliseconds, a process has to answer a batch.
+   * @param restartAttempts
+   *          the number of consecutive times a failed process is replaced.
+   * @param recoveryInterval
+   *          the time, in milliseconds, after which processes which failed
+   *          too often are started again.
+   * @param metricRegistry
+   *          the registry to record the forks, latencies, failures and
+   *          fallbacks in (not {@code null}).
+   * @param fallback
+   *          dispatches a notification by invoking the script once (not
+   *          {@code null}).
+   */
+  AlertScriptWorkerPool(String script, int workerCount, int batchSize, long timeout, int restartAttempts,
+      long recoveryInterval, MetricRegistry metricRegistry, Consumer<AlertNotification> fallback) {
+    m_script = script;
+    m_batchSize = Math.max(1, batchSize);
+    m_timeout = timeout;
+    m_restartAttempts = restartAttempts;
+    m_recoveryInterval = recoveryInterval;
+    m_fallback = fallback;
+
+    m_forks = metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS);
+    m_latency = metricRegistry.timer(AlertScriptDispatcher.METRIC_LATENCY);
+    m_failures = metricRegistry.counter(METRIC_WORKER_FAILURES);
+    m_fallbacks = metricRegistry.counter(METRIC_WORKER_FALLBACKS);
+
+    for (int i = 0; i < Math.max(1, workerCount); i++) {
+      Thread thread = new Thread(new Worker(), "script-worker-" + s_threadIdPool.getAndIncrement());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      thread.start();
+      m_threads.add(thread);
+    }
+  }
+
+  /**
+   * Queues a notification for the workers of the pool, or hands it to the
+   * fallback if the workers are disabled.
+   *
+   * @param notification
+   *          the notification to dispatch (not {@code null}).
+   */
+  void dispatch(AlertNotification notification) {
+    m_lastDispatchTime = System.currentTimeMillis();
+    if (isDisabled()) {
+      fallback(notification);
+      return;
+    }
+
+    PendingNotification pending = new PendingNotification(notification);
+    m_queue.add(pending);
+
+    // the pool may have been closed after it was checked
+    if (m_closed && m_queue.remove(pending)) {
+      fallback(notification);
+    }
+  }
+
+  /**
+   * @return the number of notifications waiting for a worker
+   */
+  int getPendingCount() {
+    return m_queue.size();
+  }
+
+  /**
+   * @return the script run by the workers of the pool
+   */
+  String getScript() {
+    return m_script;
+  }
+
+  /**
+   * @return the {@link System#currentTimeMillis()} at which the pool was
+   *         created
+   */
+  long getCreationTime() {
+    return m_creationTime;
+  }
+
+  /**
+   * @return the {@link System#currentTimeMillis()} at which a notification
+   *         was last dispatched to the pool
+   */
+  long getLastDispatchTime() {
+    return m_lastDispatchTime;
+  }
+
+  /**
+   * Gets whether every notification is handed to the fallback. Processes
+   * which failed too often are enabled again once the recovery interval has
+   * passed.
+   *
+   * @return {@code true} if every notification is handed to the fallback
+   */
+  boolean isDisabled() {
+    if (m_closed) {
+      return true;
+    }
+
+    if (!m_disabled) {
+      return false;
+    }
+
+    if (System.nanoTime() - m_disabledTime < TimeUnit.MILLISECONDS.toNanos(m_recoveryInterval)) {
+      return true;
+    }
+
+    LOG.info("Restarting the {} workers after {}ms", m_script, m_recoveryInterval);
+    m_consecutiveFailures.set(0);
+    m_disabled = false;
+    return false;
+  }
+
+  /**
+   * Stops the workers and their processes. Notifications which are still
+   * queued are handed to the fallback.
+   */
+  void close() {
+    m_closed = true;
+    for (Thread thread : m_threads) {
+      thread.interrupt();
+    }
+
+    List<PendingNotification> pending = new ArrayList<>();
+    m_queue.drainTo(pending);
+    fallback(pending);
+  }
+
+  /**
+   * Serializes the alert of a notification as a single line of JSON.
+   *
+   * @param notification
+   *          the notification (not {@code null}).
+   * @return the JSON object, without line breaks
+   */
+  static String toJson(AlertNotification notification) {
+    AlertInfo alertInfo = notification.getAlertInfo();
+    AlertDefinitionEntity definition = alertInfo.getAlertDefinition();
+
+    JsonObject json = new JsonObject();
+    json.addProperty("definitionName", definition.getDefinitionName());
+    json.addProperty("definitionLabel", definition.getLabel());
+    json.addProperty("serviceName", alertInfo.getServiceName());
+    json.addProperty("alertState", alertInfo.getAlertState().name());
+    json.addProperty("alertText", alertInfo.getAlertText());
+    json.addProperty("alertTimestamp", alertInfo.getAlertTimestamp());
+    json.addProperty("hostName", alertInfo.getHostName());
+    return GSON.toJson(json);
+  }
+
+  private void complete(PendingNotification pending, boolean delivered) {
+    m_latency.update(System.nanoTime() - pending.m_queuedTime, TimeUnit.NANOSECONDS);
+
+    AlertNotification notification = pending.m_notification;
+    if (null != notification.Callback) {
+      if (delivered) {
+        notification.Callback.onSuccess(notification.CallbackIds);
+      } else {
+        notification.Callback.onFailure(notification.CallbackIds);
+      }
+    }
+  }
+
+  private void fallback(List<PendingNotification> pending) {
+    for (PendingNotification notification : pending) {
+      fallback(notification.m_notification);
+    }
+  }
+
+  private void fallback(AlertNotification notification) {
+    m_fallbacks.inc();
+    m_fallback.accept(notification);
+  }
+
+  /**
+   * A queued notification.
+   */
+  private static final class PendingNotification {
+    private final AlertNotification m_notification;
+    private final long m_queuedTime = System.nanoTime();
+
+    private PendingNotification(AlertNotification notification) {
+      m_notification = notification;
+    }
+  }
+
+  /**
+   * Takes batches of notifications from the queue of the pool and writes them
+   * to its script process.
+   */
+  private final class Worker implements Runnable {
+    private Process m_process;
+    private BufferedWriter m_writer;
+    private BlockingQueue<String> m_answers;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      List<PendingNotification> batch = new ArrayList<>(m_batchSize);
+
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          batch.add(m_queue.take());
+          m_queue.drainTo(batch, m_batchSize - 1);
+
+          if (isDisabled()) {
+            fallback(batch);
+          } else {
+            deliver(batch);
+          }
+
+          batch.clear();
+        }
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+      } finally {
+        stop();
+      }
+    }
+
+    /**
+     * Writes a batch of notifications to the process, starting it if needed,
+     * and waits for the answers. The notifications the process did not answer
+     * are handed to the fallback.
+     *
+     * @param batch
+     *          the notifications to deliver (not {@code null}).
+     */
+    private void deliver(List<PendingNotification> batch) {
+      int answered = 0;
+      AtomicBoolean timedOut = new AtomicBoolean();
+      ScheduledFuture<?> watchdog = null;
+
+      try {
+        if (null == m_process || !m_process.isAlive()) {
+          start();
+        }
+
+        // the watchdog unblocks writes to a process which stopped reading
+        final Process process = m_process;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(m_timeout);
+        watchdog = s_watchdog.schedule(() -> {
+          timedOut.set(true);
+          process.destroyForcibly();
+        }, m_timeout, TimeUnit.MILLISECONDS);
+
+        for (PendingNotification pending : batch) {
+          m_writer.write(toJson(pending.m_notification));
+          m_writer.newLine();
+        }
+        m_writer.flush();
+
+        for (PendingNotification pending : batch) {
+          String answer = readAnswer(deadline);
+          if (null == answer) {
+            throw new IOException("The worker process exited");
+          }
+
+          answered++;
+
+          boolean delivered = ACKNOWLEDGEMENT.equals(answer.trim());
+          if (!delivered) {
+            LOG.warn("Unable to dispatch notification with {}: {}", m_script, answer);
+          }
+
+          complete(pending, delivered);
+        }
+
+        m_consecutiveFailures.set(0);
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        stop();
+        fallback(batch.subList(answered, batch.size()));
+      } catch (Exception exception) {
+        if (timedOut.get() || exception instanceof TimeoutException) {
+          LOG.warn("The {} worker did not answer {} notifications in under {}ms", m_script,
+              batch.size() - answered, m_timeout);
+        } else {
+          LOG.warn("The {} worker failed to dispatch {} notifications", m_script,
+              batch.size() - answered, exception);
+        }
+
+        stop();
+        m_failures.inc();
+
+        if (m_consecutiveFailures.incrementAndGet() > m_restartAttempts && !m_disabled) {
+          m_disabledTime = System.nanoTime();
+          m_disabled = true;
+          LOG.error("The {} worker failed {} times in a row; notifications will be dispatched by invoking the script once per notification for {}ms",
+              m_script, m_consecutiveFailures.get(), m_recoveryInterval);
+        }
+
+        fallback(batch.subList(answered, batch.size()));
+      } finally {
+        if (null != watchdog) {
+          watchdog.cancel(false);
+        }
+      }
+    }
+
+    /**
+     * Waits for the next answer of the process. The output is read by a
+     * separate thread, since a child of a destroyed process may still hold the
+     * output open.
+     *
+     * @param deadline
+     *          the {@link System#nanoTime()} by which the answer must arrive.
+     * @return the answer, or {@code null} if the process closed its output
+     * @throws TimeoutException
+     *           if the answer did not arrive before the deadline.
+     */
+    private String readAnswer(long deadline) throws InterruptedException, TimeoutException {
+      String answer = m_answers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      if (null == answer) {
+        throw new TimeoutException();
+      }
+
+      return END_OF_STREAM.equals(answer) ? null : answer;
+    }
+
+    private void start() throws IOException {
+      ProcessBuilder processBuilder = AlertScriptDispatcher.createShellProcessBuilder(m_script);
+      processBuilder.environment().put(WORKER_ENVIRONMENT_VARIABLE, Boolean.TRUE.toString());
+      processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+      m_process = processBuilder.start();
+      m_forks.mark();
+
+      m_writer = new BufferedWriter(new OutputStreamWriter(m_process.getOutputStream(), StandardCharsets.UTF_8));
+
+      BlockingQueue<String> answers = new LinkedBlockingQueue<>();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(m_process.getInputStream(), StandardCharsets.UTF_8));
+      Thread readerThread = new Thread(() -> readAnswers(reader, answers), Thread.currentThread().getName() + "-reader");
+      readerThread.setDaemon(true);
+      readerThread.start();
+      m_answers = answers;
+    }
+
+    /**
+     * Queues the lines of the output of a process until it is closed.
+     *
+     * @param reader
+     *          the output of the process (not {@code null}).
+     * @param answers
+     *          the queue of lines (not {@code null}).
+     */
+    private void readAnswers(BufferedReader reader, BlockingQueue<String> answers) {
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          answers.add(line);
+        }
+      } catch (IOException ioException) {
+        LOG.debug("Unable to read the output of {}", m_script, ioException);
+      } finally {
+        IOUtils.closeQuietly(reader);
+        answers.add(END_OF_STREAM);
+      }
+    }
+
+    private void stop() {
+      if (null == m_process) {
+        return;
+      }
+
+      // closing standard input lets a well behaved worker exit on its own, and
+      // its reader stops once the output is closed
+      IOUtils.closeQuietly(m_writer);
+      m_process.destroy();
+
+      m_process = null;
+      m_writer = null;
+      m_answers = null;
+    }
+  }
+}
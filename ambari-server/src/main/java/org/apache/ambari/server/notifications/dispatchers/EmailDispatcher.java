@@ -17,11 +17,21 @@
  */
 package org.apache.ambari.server.notifications.dispatchers;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.mail.AuthenticationFailedException;
 import javax.mail.Authenticator;
@@ -48,14 +58,17 @@ import com.google.inject.Singleton;
 
 /**
  * The {@link EmailDispatcher} class is used to dispatch {@link Notification}
- * via JavaMail. This class currently does not attempt to reuse an existing
- * {@link Session} or {@link Transport} since each {@link Notification} could
- * have a different target server with different properties.
+ * via JavaMail.
  * <p/>
- * In the future, this class could keep various {@link Transport} instances open
- * on a {@link Timer}, but those instances would need to be hashed so that the
- * proper instance is retrieved from the properties of the incoming
- * {@link Notification}.
+ * Since each {@link Notification} could have a different target server with
+ * different properties, a {@link Session} is kept for every distinct
+ * combination of properties and credentials. The connected {@link Transport}
+ * instances of each session are returned to the session after sending and
+ * reused by the next {@link Notification} for the same server, which saves
+ * the connect, TLS and authentication round trips of every email. Transports
+ * which have been idle for longer than {@link #IDLE_TRANSPORT_TIMEOUT_MS} are
+ * closed on a {@link Timer}, which also discards the sessions that have not
+ * been used for as long.
  */
 @Singleton
 public class EmailDispatcher implements NotificationDispatcher {
@@ -70,6 +83,27 @@ public class EmailDispatcher implements NotificationDispatcher {
    */
   public static final String JAVAMAIL_FROM_PROPERTY = "mail.smtp.from";
 
+  /**
+   * The time that an open {@link Transport} is kept without being used.
+   */
+  static final long IDLE_TRANSPORT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * The maximum number of open, unused {@link Transport}s kept per session.
+   */
+  private static final int MAX_IDLE_TRANSPORTS = 4;
+
+  /**
+   * The sessions and their reusable transports, keyed by the properties and
+   * credentials which were used to create them.
+   */
+  private final ConcurrentMap<SessionKey, SmtpSession> m_sessions = new ConcurrentHashMap<>();
+
+  /**
+   * Closes idle transports and sessions; created along with the first session.
+   */
+  private Timer m_idleTransportTimer;
+
   /**
    * {@inheritDoc}
    */
@@ -103,20 +137,8 @@ public class EmailDispatcher implements NotificationDispatcher {
       return;
     }
 
-    // convert properties to JavaMail properties, extracting certain properties for use later
-    String fromAddress = null;
-    Properties properties = new Properties();
-    for (Entry<String, String> entry : notification.DispatchProperties.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-
-      properties.put(key, value);
-
-      // this is needed later on for RFC 2822 compliance when setting headers
-      if (key.equals(JAVAMAIL_FROM_PROPERTY)) {
-        fromAddress = value;
-      }
-    }
+    // this is needed later on for RFC 2822 compliance when setting headers
+    String fromAddress = notification.DispatchProperties.get(JAVAMAIL_FROM_PROPERTY);
 
     // notifications must have recipients
     if (null == notification.Recipients) {
@@ -129,15 +151,11 @@ public class EmailDispatcher implements NotificationDispatcher {
       return;
     }
 
-    // create a simple email authentication for username/password
-    final Session session;
-    EmailAuthenticator authenticator = null;
-
-    if (null != notification.Credentials) {
-      authenticator = new EmailAuthenticator(notification.Credentials);
-    }
+    SmtpSession smtpSession = getSession(notification.DispatchProperties,
+        notification.Credentials);
 
-    session = Session.getInstance(properties, authenticator);
+    Session session = smtpSession.getSession();
+    Transport transport = null;
 
     try {
       // !!! at some point in the future we can worry about multipart
@@ -157,7 +175,12 @@ public class EmailDispatcher implements NotificationDispatcher {
         message.setFrom(fromAddress);
       }
 
-      Transport.send(message);
+      message.saveChanges();
+
+      transport = smtpSession.borrowTransport();
+      transport.sendMessage(message, message.getAllRecipients());
+      smtpSession.releaseTransport(transport);
+      transport = null;
 
       if (LOG.isDebugEnabled()) {
         LOG.debug("Successfully dispatched email to {}",
@@ -176,14 +199,108 @@ public class EmailDispatcher implements NotificationDispatcher {
         notification.Callback.onFailure(notification.CallbackIds);
       }
     } finally {
-      try {
-        session.getTransport().close();
-      } catch (MessagingException me) {
-        LOG.warn("Dispatcher unable to close SMTP transport", me);
+      // a transport which failed is not reused
+      if (null != transport) {
+        closeTransport(transport);
       }
     }
   }
 
+  /**
+   * Gets the session for the given properties and credentials, creating it if
+   * needed.
+   *
+   * @param dispatchProperties
+   *          the JavaMail properties of the notification (not {@code null}).
+   * @param credentials
+   *          the credentials to authenticate with, or {@code null} for none.
+   * @return the session (never {@code null}).
+   */
+  private SmtpSession getSession(Map<String, String> dispatchProperties,
+      DispatchCredentials credentials) {
+    SessionKey key = new SessionKey(dispatchProperties, credentials);
+    SmtpSession session = m_sessions.computeIfAbsent(key, sessionKey -> {
+      Properties properties = new Properties();
+      properties.putAll(dispatchProperties);
+
+      // create a simple email authentication for username/password
+      EmailAuthenticator authenticator = null;
+      if (null != credentials) {
+        authenticator = new EmailAuthenticator(credentials);
+      }
+
+      scheduleIdleTransportTimer();
+      return new SmtpSession(Session.getInstance(properties, authenticator));
+    });
+
+    session.touch();
+    return session;
+  }
+
+  /**
+   * Closes the transports which have not been used for
+   * {@link #IDLE_TRANSPORT_TIMEOUT_MS} and discards the sessions which have
+   * not been used for as long, so that sessions for target properties which
+   * changed or were removed do not accumulate.
+   *
+   * @param now
+   *          the current time, in milliseconds
+   */
+  void closeIdleTransports(long now) {
+    long idleSince = now - IDLE_TRANSPORT_TIMEOUT_MS;
+    for (Entry<SessionKey, SmtpSession> entry : m_sessions.entrySet()) {
+      if (entry.getValue().closeIdleTransports(idleSince)) {
+        m_sessions.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Starts the {@link Timer} which closes idle transports and sessions if it
+   * is not already running.
+   */
+  private synchronized void scheduleIdleTransportTimer() {
+    if (null == m_idleTransportTimer) {
+      m_idleTransportTimer = new Timer("alert-email-idle-transports", true);
+      m_idleTransportTimer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          closeIdleTransports(System.currentTimeMillis());
+        }
+      }, IDLE_TRANSPORT_TIMEOUT_MS, IDLE_TRANSPORT_TIMEOUT_MS);
+    }
+  }
+
+  /**
+   * Closes the transport, logging any problem.
+   */
+  private static void closeTransport(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException me) {
+      LOG.warn("Dispatcher unable to close SMTP transport", me);
+    }
+  }
+
+  /**
+   * @return the number of open transports which are not in use
+   */
+  int getIdleTransportCount() {
+    int count = 0;
+    for (SmtpSession session : m_sessions.values()) {
+      count += session.getIdleTransportCount();
+    }
+
+    return count;
+  }
+
+  /**
+   * @return the number of sessions which have not been discarded
+   */
+  int getSessionCount() {
+    return m_sessions.size();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -226,6 +343,201 @@ public class EmailDispatcher implements NotificationDispatcher {
     return session.getTransport();
   }
 
+  /**
+   * The {@link SessionKey} identifies the {@link Session} to use for a
+   * {@link Notification} by its properties and credentials.
+   */
+  private static final class SessionKey {
+
+    private final Map<String, String> m_properties;
+    private final String m_userName;
+    private final String m_password;
+
+    /**
+     * Constructor.
+     *
+     * @param properties
+     * @param credentials
+     */
+    private SessionKey(Map<String, String> properties, DispatchCredentials credentials) {
+      m_properties = new HashMap<>(properties);
+      m_userName = null == credentials ? null : credentials.UserName;
+      m_password = null == credentials ? null : credentials.Password;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+
+      if (object == null || getClass() != object.getClass()) {
+        return false;
+      }
+
+      SessionKey that = (SessionKey) object;
+      return Objects.equals(m_properties, that.m_properties)
+          && Objects.equals(m_userName, that.m_userName)
+          && Objects.equals(m_password, that.m_password);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return Objects.hash(m_properties, m_userName, m_password);
+    }
+  }
+
+  /**
+   * The {@link SmtpSession} class holds a {@link Session} along with the
+   * connected {@link Transport}s which are not currently sending a message.
+   */
+  private final class SmtpSession {
+
+    private final Session m_session;
+
+    /**
+     * The idle transports, most recently used first.
+     */
+    private final Deque<IdleTransport> m_idleTransports = new ArrayDeque<>();
+
+    /**
+     * The last time the session was used; guarded by {@link #m_idleTransports}.
+     */
+    private long m_lastUsed = System.currentTimeMillis();
+
+    /**
+     * Whether the session was discarded, after which its transports are
+     * closed instead of being kept; guarded by {@link #m_idleTransports}.
+     */
+    private boolean m_closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param session
+     */
+    private SmtpSession(Session session) {
+      m_session = session;
+    }
+
+    private Session getSession() {
+      return m_session;
+    }
+
+    /**
+     * Marks the session as used now, so that it is not discarded.
+     */
+    private void touch() {
+      synchronized (m_idleTransports) {
+        m_lastUsed = System.currentTimeMillis();
+      }
+    }
+
+    /**
+     * Gets a connected transport, reusing an idle one if it is still
+     * connected.
+     *
+     * @return a connected transport which the caller must either release or
+     *         close.
+     * @throws MessagingException
+     *           if a new transport could not be connected
+     */
+    private Transport borrowTransport() throws MessagingException {
+      IdleTransport idleTransport;
+      while (null != (idleTransport = pollIdleTransport())) {
+        if (idleTransport.m_transport.isConnected()) {
+          return idleTransport.m_transport;
+        }
+
+        closeTransport(idleTransport.m_transport);
+      }
+
+      Transport transport = m_session.getTransport();
+      transport.connect();
+      return transport;
+    }
+
+    /**
+     * Keeps the transport open for the next message, closing it if there are
+     * enough idle transports already or the session was discarded.
+     *
+     * @param transport
+     *          a connected transport which sent a message successfully.
+     */
+    private void releaseTransport(Transport transport) {
+      synchronized (m_idleTransports) {
+        if (!m_closed && m_idleTransports.size() < MAX_IDLE_TRANSPORTS) {
+          m_idleTransports.addFirst(new IdleTransport(transport));
+          transport = null;
+        }
+      }
+
+      if (null != transport) {
+        closeTransport(transport);
+      }
+    }
+
+    private IdleTransport pollIdleTransport() {
+      synchronized (m_idleTransports) {
+        return m_idleTransports.pollFirst();
+      }
+    }
+
+    private int getIdleTransportCount() {
+      synchronized (m_idleTransports) {
+        return m_idleTransports.size();
+      }
+    }
+
+    /**
+     * Closes the transports which have been idle since before the given time,
+     * and closes the session if it has not been used since then either.
+     *
+     * @param idleSince
+     *          the time, in milliseconds
+     * @return {@code true} if the session was closed and should be discarded
+     */
+    private boolean closeIdleTransports(long idleSince) {
+      List<Transport> expired = new ArrayList<>();
+      boolean closed;
+      synchronized (m_idleTransports) {
+        while (!m_idleTransports.isEmpty() && m_idleTransports.peekLast().m_idleSince < idleSince) {
+          expired.add(m_idleTransports.pollLast().m_transport);
+        }
+
+        if (m_idleTransports.isEmpty() && m_lastUsed < idleSince) {
+          m_closed = true;
+        }
+        closed = m_closed;
+      }
+
+      for (Transport transport : expired) {
+        closeTransport(transport);
+      }
+
+      return closed;
+    }
+  }
+
+  /**
+   * An open {@link Transport} and the time it was last used.
+   */
+  private static final class IdleTransport {
+
+    private final Transport m_transport;
+    private final long m_idleSince = System.currentTimeMillis();
+
+    private IdleTransport(Transport transport) {
+      m_transport = transport;
+    }
+  }
+
   /**
    * The {@link EmailAuthenticator} class is used to provide a username and
    * password combination to an SMTP server.
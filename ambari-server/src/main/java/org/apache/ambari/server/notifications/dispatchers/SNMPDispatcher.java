@@ -85,14 +85,17 @@ public class SNMPDispatcher implements NotificationDispatcher {
   public static final String SECURITY_PRIV_PASSPHRASE_PROPERTY = "ambari.dispatch.snmp.security.priv.passphrase";
   public static final String SECURITY_LEVEL_PROPERTY = "ambari.dispatch.snmp.security.level";
 
-  private Snmp snmp;
-
   private final Integer port;
-  private volatile UdpTransportMapping transportMapping;
+
+  /**
+   * The SNMP session new dispatches send their traps with. It is created on
+   * first use and replaced after a send fails; guarded by {@code this}.
+   */
+  private SnmpSession session;
 
   public SNMPDispatcher(Snmp snmp) {
     this.port = null;
-    this.snmp = snmp;
+    session = new SnmpSession(snmp, null);
   }
 
   public SNMPDispatcher() throws IOException {
@@ -113,19 +116,56 @@ public class SNMPDispatcher implements NotificationDispatcher {
     }
   }
 
-  private void createTransportMapping() throws IOException {
-    if (transportMapping == null) {
-      synchronized (this) {
-        if (transportMapping == null) {
-          if (port != null) {
-            LOG.info("Setting SNMP dispatch port: " + port);
-            transportMapping = new DefaultUdpTransportMapping(new UdpAddress(port), true);
-          } else {
-            transportMapping = new DefaultUdpTransportMapping();
-          }
-        }
+  private UdpTransportMapping createTransportMapping() throws IOException {
+    if (port != null) {
+      LOG.info("Setting SNMP dispatch port: " + port);
+      return new DefaultUdpTransportMapping(new UdpAddress(port), true);
+    }
+    return new DefaultUdpTransportMapping();
+  }
+
+  /**
+   * Returns the current SNMP session, creating it if it does not exist yet,
+   * and registers the caller as one of its users.
+   *
+   * @return the session to send with, which must be passed to
+   *         {@link #releaseSession(SnmpSession, boolean)} afterwards
+   * @throws IOException if the UDP transport could not be created
+   */
+  private synchronized SnmpSession acquireSession() throws IOException {
+    if (session == null) {
+      UdpTransportMapping transportMapping = createTransportMapping();
+      session = new SnmpSession(new Snmp(transportMapping), transportMapping);
+    }
+    session.users++;
+    return session;
+  }
+
+  /**
+   * Releases a session acquired by {@link #acquireSession()}. A session that
+   * failed to send is no longer handed out, and it is closed once the last
+   * dispatch still sending with it has released it.
+   *
+   * @param released the session to release
+   * @param failed   whether sending with the session failed
+   */
+  private void releaseSession(SnmpSession released, boolean failed) {
+    synchronized (this) {
+      released.users--;
+      if (failed && session == released) {
+        session = null;
+        released.retired = true;
+      }
+      if (!released.retired || released.users > 0) {
+        return;
       }
     }
+
+    try {
+      released.snmp.close();
+    } catch (IOException ex) {
+      LOG.warn("Unable to close SNMP session", ex);
+    }
   }
 
   /**
@@ -151,8 +191,6 @@ public class SNMPDispatcher implements NotificationDispatcher {
   public void dispatch(Notification notification) {
     LOG.info("Sending SNMP trap: {}", notification.Subject);
     try {
-      createTransportMapping();
-      snmp = new Snmp(transportMapping);
       SnmpVersion snmpVersion = getSnmpVersion(notification.DispatchProperties);
       sendTraps(notification, snmpVersion);
       successCallback(notification);
@@ -162,7 +200,6 @@ public class SNMPDispatcher implements NotificationDispatcher {
     } catch (Exception ex) {
       LOG.error("Error occurred during SNMP trap dispatching.", ex);
       failureCallback(notification);
-      transportMapping = null;
     }
   }
 
@@ -235,6 +272,7 @@ public class SNMPDispatcher implements NotificationDispatcher {
 
   /**
    * Creates trap based on alerts notification and sends it to hosts specified in recipients list.
+   * The traps are sent with the shared SNMP session, which is replaced if sending fails.
    * @param notification alert notification to dispatch
    * @param snmpVersion SNMP version
    * @throws InvalidSnmpConfigurationException if notification's dispatch properties don't contain any of required properties or recipient list is empty.
@@ -243,22 +281,36 @@ public class SNMPDispatcher implements NotificationDispatcher {
   protected void sendTraps(Notification notification, SnmpVersion snmpVersion) throws InvalidSnmpConfigurationException, IOException {
     PDU trap = prepareTrap(notification, snmpVersion);
     String udpPort = getDispatchProperty(notification.DispatchProperties, PORT_PROPERTY);
-    for (Recipient recipient : getNotificationRecipients(notification)) {
-      String address = recipient.Identifier;
-      Target target = createTrapTarget(notification, snmpVersion);
-      target.setAddress(new UdpAddress(address + "/" + udpPort));
-      snmp.send(trap, target);
+    List<Recipient> recipients = getNotificationRecipients(notification);
+
+    SnmpSession current = acquireSession();
+    boolean failed = true;
+    try {
+      for (Recipient recipient : recipients) {
+        String address = recipient.Identifier;
+        Target target = createTrapTarget(current.snmp, notification, snmpVersion);
+        target.setAddress(new UdpAddress(address + "/" + udpPort));
+        current.snmp.send(trap, target);
+      }
+      failed = false;
+    } catch (InvalidSnmpConfigurationException ex) {
+      // the configuration of this notification is wrong, not the session
+      failed = false;
+      throw ex;
+    } finally {
+      releaseSession(current, failed);
     }
   }
 
   /**
    * Creates snmp target with security model corresponding to snmp version.
+   * @param snmp the SNMP session the trap is sent with
    * @param notification alerts notification
    * @param snmpVersion SNMP version
    * @return target with corresponding security model
    * @throws InvalidSnmpConfigurationException if notification's dispatch properties don't contain any of required properties
    */
-  protected Target createTrapTarget(Notification notification, SnmpVersion snmpVersion) throws InvalidSnmpConfigurationException {
+  protected Target createTrapTarget(Snmp snmp, Notification notification, SnmpVersion snmpVersion) throws InvalidSnmpConfigurationException {
     if (snmpVersion.isCommunityTargetRequired()) {
       OctetString community = new OctetString(getDispatchProperty(notification.DispatchProperties, COMMUNITY_PROPERTY));
       CommunityTarget communityTarget = new CommunityTarget();
@@ -444,7 +496,32 @@ public class SNMPDispatcher implements NotificationDispatcher {
     return port;
   }
 
-  protected UdpTransportMapping getTransportMapping() {
-    return transportMapping;
+  protected synchronized UdpTransportMapping getTransportMapping() {
+    return session == null ? null : session.transportMapping;
+  }
+
+  /**
+   * An SNMP session and the number of dispatches currently sending with it.
+   */
+  private static final class SnmpSession {
+    private final Snmp snmp;
+    private final UdpTransportMapping transportMapping;
+
+    /**
+     * The number of dispatches sending with this session; guarded by the
+     * dispatcher.
+     */
+    private int users;
+
+    /**
+     * Whether the session was replaced and is closed once it has no users;
+     * guarded by the dispatcher.
+     */
+    private boolean retired;
+
+    private SnmpSession(Snmp snmp, UdpTransportMapping transportMapping) {
+      this.snmp = snmp;
+      this.transportMapping = transportMapping;
+    }
   }
 }
@@ -22,6 +22,7 @@ import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -77,6 +78,14 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     }
   };
 
+  /**
+   * The tasks to run once the outer-most transaction of the thread is
+   * committed, or {@code null} if the thread is not in a transaction.
+   *
+   * @see #runAfterCommit(Runnable)
+   */
+  private static final ThreadLocal<List<Runnable>> s_afterCommitTasks = new ThreadLocal<>();
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -122,6 +131,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // this is the outer-most transactional, begin a transaction
       final EntityTransaction txn = em.getTransaction();
       txn.begin();
+      s_afterCommitTasks.set(new LinkedList<>());
 
       Object result;
       try {
@@ -131,6 +141,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         // commit transaction only if rollback didn't occur
         if (rollbackIfNecessary(transactional, e, txn)) {
           txn.commit();
+          runAfterCommitTasks();
         }
 
         detailedLogForPersistenceError(e);
@@ -151,6 +162,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // interferes with the advised method's throwing semantics)
       try {
         txn.commit();
+        runAfterCommitTasks();
       } catch (Exception e) {
         detailedLogForPersistenceError(e);
         throw e;
@@ -165,11 +177,52 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // or return result
       return result;
     } finally {
+      s_afterCommitTasks.remove();
+
       // unlock all lock areas for this transaction
       unlockTransaction();
     }
   }
 
+  /**
+   * Runs the given task once the transaction of the current thread is
+   * committed, so that it sees the committed changes. The task is discarded if
+   * the transaction is rolled back, and is run right away if the thread is not
+   * in a transaction.
+   *
+   * @param task
+   *          the task to run after the commit
+   */
+  public static void runAfterCommit(Runnable task) {
+    List<Runnable> tasks = s_afterCommitTasks.get();
+    if (null == tasks) {
+      task.run();
+    } else {
+      tasks.add(task);
+    }
+  }
+
+  /**
+   * Runs the tasks registered with {@link #runAfterCommit(Runnable)} once the
+   * transaction was committed. A failing task is logged and does not fail the
+   * committed transaction.
+   */
+  private static void runAfterCommitTasks() {
+    List<Runnable> tasks = s_afterCommitTasks.get();
+    s_afterCommitTasks.remove();
+    if (null == tasks) {
+      return;
+    }
+
+    for (Runnable task : tasks) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("Unable to run a task after the transaction was committed", e);
+      }
+    }
+  }
+
   private void detailedLogForPersistenceError(Exception e) {
     if (e instanceof PersistenceException) {
       PersistenceException rbe = (PersistenceException) e;
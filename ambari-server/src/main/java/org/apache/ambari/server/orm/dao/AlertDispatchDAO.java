@@ -57,6 +57,7 @@ import org.eclipse.persistence.config.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -91,6 +92,11 @@ public class AlertDispatchDAO {
   @Inject
   private StateUpdateEventPublisher stateUpdateEventPublisher;
 
+  /**
+   * The maximum number of values passed in a single {@code IN} clause.
+   */
+  private static final int BATCH_SIZE = 999;
+
   /**
    * Used for ensuring that the concurrent nature of the event handler methods
    * don't collide when attempting to creation alert groups for the same
@@ -728,6 +734,66 @@ public class AlertDispatchDAO {
     return entityManagerProvider.get().merge(alertNotice);
   }
 
+  /**
+   * Sets the {@link NotificationState} of the specified notifications with a
+   * single bulk {@code UPDATE} per batch of IDs instead of merging each
+   * notification. This will invoke {@link EntityManager#clear()} when completed
+   * since the JPQL statement will update entries without going through the EM.
+   *
+   * @param noticeIds
+   *          the IDs of the notifications to update (not {@code null}).
+   * @param notifyState
+   *          the new state of the notifications (not {@code null}).
+   * @return the number of updated notifications.
+   */
+  @Transactional
+  public int updateNotifyState(List<Long> noticeIds, NotificationState notifyState) {
+    return updateNotifyState("AlertNoticeEntity.updateNotifyStateByIds", "noticeIds", noticeIds,
+        notifyState);
+  }
+
+  /**
+   * Sets the {@link NotificationState} of the notifications with the specified
+   * UUIDs with a single bulk {@code UPDATE} per batch of UUIDs. This will invoke
+   * {@link EntityManager#clear()} when completed.
+   *
+   * @param uuids
+   *          the UUIDs of the notifications to update (not {@code null}).
+   * @param notifyState
+   *          the new state of the notifications (not {@code null}).
+   * @return the number of updated notifications.
+   */
+  @Transactional
+  public int updateNotifyStateByUuids(List<String> uuids, NotificationState notifyState) {
+    return updateNotifyState("AlertNoticeEntity.updateNotifyStateByUuids", "uuids", uuids,
+        notifyState);
+  }
+
+  /**
+   * Executes the named bulk update in batches of {@link #BATCH_SIZE} values so
+   * that the {@code IN} clause stays within the limits of all databases.
+   */
+  private <T> int updateNotifyState(String queryName, String parameterName, List<T> values,
+      NotificationState notifyState) {
+    if (values.isEmpty()) {
+      return 0;
+    }
+
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<AlertNoticeEntity> query = entityManager.createNamedQuery(queryName,
+        AlertNoticeEntity.class);
+    query.setParameter("notifyState", notifyState);
+
+    int updated = 0;
+    for (List<T> batch : Lists.partition(values, BATCH_SIZE)) {
+      query.setParameter(parameterName, batch);
+      updated += query.executeUpdate();
+    }
+
+    entityManager.clear();
+    return updated;
+  }
+
   /**
    * Removes the specified notification from the database.
    *
@@ -756,7 +822,6 @@ public class AlertDispatchDAO {
     historyIdQuery.setParameter("definitionId", definitionId);
     List<Integer> ids = daoUtils.selectList(historyIdQuery);
     // Batch delete notice
-    int BATCH_SIZE = 999;
     TypedQuery<AlertNoticeEntity> noticeQuery = entityManager.createNamedQuery(
       "AlertNoticeEntity.removeByHistoryIds", AlertNoticeEntity.class);
     if (ids != null && !ids.isEmpty()) {
@@ -1228,9 +1228,15 @@ public class AlertsDAO implements Cleanable {
     Long clusterId = null;
     try {
       clusterId = m_clusters.get().getCluster(policy.getClusterName()).getClusterId();
-      affectedRows += cleanAlertNoticesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
-      affectedRows += cleanAlertCurrentsForClusterBeforeDate(clusterId, policy.getToDateInMillis());
-      affectedRows += cleanAlertHistoriesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
+      if (null != policy.getMaxRecords()) {
+        List<Integer> historyIds = findAlertHistoryIdsBeforeDate(clusterId,
+            policy.getToDateInMillis(), policy.getMaxRecords());
+        affectedRows += cleanAlertsByHistoryIds(historyIds);
+      } else {
+        affectedRows += cleanAlertNoticesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
+        affectedRows += cleanAlertCurrentsForClusterBeforeDate(clusterId, policy.getToDateInMillis());
+        affectedRows += cleanAlertHistoriesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
+      }
     } catch (AmbariException e) {
       LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
       throw new IllegalStateException(e);
@@ -1484,6 +1490,60 @@ public class AlertsDAO implements Cleanable {
     return m_daoUtils.selectList(alertHistoryQuery);
   }
 
+  /**
+   * Find the oldest @AlertHistoryEntity ids with date before provided date
+   * which are no longer the state of a current alert. An alert which kept its
+   * state since before the date still refers to its old history entry.
+   * @param clusterId cluster id
+   * @param beforeDateMillis timestamp in millis
+   * @param maxResults the maximum number of ids to return
+   * @return List<Integer> ids, in ascending order
+   */
+  private List<Integer> findAlertHistoryIdsBeforeDate(Long clusterId, long beforeDateMillis, int maxResults) {
+    EntityManager entityManager = m_entityManagerProvider.get();
+    TypedQuery<Integer> alertHistoryQuery =
+      entityManager.createNamedQuery("AlertHistoryEntity.findNonCurrentIdsInClusterBeforeDate", Integer.class);
+
+    alertHistoryQuery.setParameter("clusterId", clusterId);
+    alertHistoryQuery.setParameter("beforeDate", beforeDateMillis);
+    alertHistoryQuery.setMaxResults(maxResults);
+
+    return m_daoUtils.selectList(alertHistoryQuery);
+  }
+
+  /**
+   * Deletes the given AlertHistory entries along with the AlertNotice records
+   * which refer to them. The entries must not be referred to by current alerts,
+   * which are never deleted while the server is running.
+   *
+   * @param historyIds the AlertHistory entries to delete
+   * @return the number of affected (deleted) records
+   */
+  @Transactional
+  int cleanAlertsByHistoryIds(List<Integer> historyIds) {
+    if (historyIds.isEmpty()) {
+      return 0;
+    }
+
+    EntityManager entityManager = m_entityManagerProvider.get();
+    TypedQuery<AlertNoticeEntity> noticeQuery =
+      entityManager.createNamedQuery("AlertNoticeEntity.removeByHistoryIds", AlertNoticeEntity.class);
+    TypedQuery<AlertHistoryEntity> historyQuery =
+      entityManager.createNamedQuery("AlertHistoryEntity.removeByIds", AlertHistoryEntity.class);
+
+    int affectedRows = 0;
+    for (int i = 0; i < historyIds.size(); i += BATCH_SIZE) {
+      List<Integer> idsSubList = historyIds.subList(i, Math.min(i + BATCH_SIZE, historyIds.size()));
+      noticeQuery.setParameter("historyIds", idsSubList);
+      affectedRows += noticeQuery.executeUpdate();
+      historyQuery.setParameter("historyIds", idsSubList);
+      affectedRows += historyQuery.executeUpdate();
+    }
+
+    LOG.debug("Deleted {} alert records for {} alert history entries", affectedRows, historyIds.size());
+    return affectedRows;
+  }
+
   /**
    * Deletes AlertNotice records in relation with AlertHistory entries older than the given date.
    *
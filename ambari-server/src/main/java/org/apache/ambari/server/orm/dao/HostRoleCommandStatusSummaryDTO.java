@@ -141,6 +141,32 @@ public class HostRoleCommandStatusSummaryDTO {
     return m_maxTime;
   }
 
+  /**
+   * Creates a summary from task counts which are kept in memory instead of
+   * being aggregated by the database. The start and end times of the tasks are
+   * not known to such a summary.
+   *
+   * @param stageId
+   *          the stage id
+   * @param skippable
+   *          {@code true} if the stage is skippable
+   * @param counts
+   *          the number of tasks in each status
+   * @return the summary
+   */
+  public static HostRoleCommandStatusSummaryDTO create(long stageId, boolean skippable,
+      Map<HostRoleStatus, Integer> counts) {
+    HostRoleCommandStatusSummaryDTO summary = create();
+    summary.m_stageId = Long.valueOf(stageId);
+    summary.m_skippable = skippable;
+    summary.m_minTime = null;
+    summary.m_maxTime = null;
+    for (Map.Entry<HostRoleStatus, Integer> entry : counts.entrySet()) {
+      summary.put(entry.getKey(), entry.getValue());
+    }
+    return summary;
+  }
+
   /**
    * For testing, create an empty summary.
    */
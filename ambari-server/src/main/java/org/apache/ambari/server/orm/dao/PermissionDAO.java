@@ -28,6 +28,7 @@ import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.PermissionEntity;
 import org.apache.ambari.server.orm.entities.PrincipalEntity;
 import org.apache.ambari.server.orm.entities.ResourceTypeEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -57,6 +58,7 @@ public class PermissionDAO {
   @Transactional
   public void create(PermissionEntity permissionEntity) {
     entityManagerProvider.get().persist(permissionEntity);
+    AuthorizationHelper.invalidateAuthorizationIndexesOnCommit();
   }
 
   /**
@@ -66,7 +68,9 @@ public class PermissionDAO {
    */
   @Transactional
   public PermissionEntity merge(PermissionEntity permissionEntity) {
-    return entityManagerProvider.get().merge(permissionEntity);
+    PermissionEntity mergedEntity = entityManagerProvider.get().merge(permissionEntity);
+    AuthorizationHelper.invalidateAuthorizationIndexesOnCommit();
+    return mergedEntity;
   }
 
   /**
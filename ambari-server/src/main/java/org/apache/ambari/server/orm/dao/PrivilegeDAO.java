@@ -29,6 +29,7 @@ import org.apache.ambari.server.orm.entities.PermissionEntity;
 import org.apache.ambari.server.orm.entities.PrincipalEntity;
 import org.apache.ambari.server.orm.entities.PrivilegeEntity;
 import org.apache.ambari.server.orm.entities.ResourceEntity;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -143,6 +144,7 @@ public class PrivilegeDAO {
   @Transactional
   public void create(PrivilegeEntity entity) {
     entityManagerProvider.get().persist(entity);
+    AuthorizationHelper.invalidateAuthorizationIndexesOnCommit();
   }
 
   /**
@@ -154,7 +156,9 @@ public class PrivilegeDAO {
    */
   @Transactional
   public PrivilegeEntity merge(PrivilegeEntity entity) {
-    return entityManagerProvider.get().merge(entity);
+    PrivilegeEntity mergedEntity = entityManagerProvider.get().merge(entity);
+    AuthorizationHelper.invalidateAuthorizationIndexesOnCommit();
+    return mergedEntity;
   }
   /**
    * Remove the entity instance.
@@ -164,6 +168,7 @@ public class PrivilegeDAO {
   @Transactional
   public void remove(PrivilegeEntity entity) {
     entityManagerProvider.get().remove(merge(entity));
+    AuthorizationHelper.invalidateAuthorizationIndexesOnCommit();
   }
 
   /**
@@ -35,6 +35,8 @@ import javax.persistence.TypedQuery;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
+import org.apache.ambari.server.events.RequestsPurgedEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.ExecutionCommandEntity;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
@@ -96,6 +98,9 @@ public class RequestDAO implements Cleanable {
   @Inject
   private HostRoleCommandDAO hostRoleCommandDAO;
 
+  @Inject
+  private AmbariEventPublisher eventPublisher;
+
   @Inject
   private StageDAO stageDAO;
 
@@ -298,6 +303,48 @@ public class RequestDAO implements Cleanable {
     return daoUtils.selectList(requestQuery);
   }
 
+  /**
+   * Finds the oldest completed requests of a cluster created before the given
+   * date, skipping requests which belong to an upgrade.
+   *
+   * @param clusterId        the cluster
+   * @param beforeDateMillis the date before which the requests were created
+   * @param maxResults       the maximum number of request ids to return
+   * @return the request ids, in ascending order
+   */
+  public List<Long> findCompletedRequestIdsInClusterBeforeDate(Long clusterId, long beforeDateMillis, int maxResults) {
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<Long> requestQuery =
+            entityManager.createNamedQuery("RequestEntity.findCompletedRequestIdsInClusterBeforeDate", Long.class);
+
+    requestQuery.setParameter("clusterId", clusterId);
+    requestQuery.setParameter("beforeDate", beforeDateMillis);
+    requestQuery.setParameter("statuses", HostRoleStatus.getCompletedStates());
+    requestQuery.setMaxResults(maxResults);
+
+    return daoUtils.selectList(requestQuery);
+  }
+
+  /**
+   * Finds the stages of the given requests.
+   *
+   * @param requestIds the requests
+   * @return the request/stage ids of the stages
+   */
+  public List<StageEntityPK> findRequestAndStageIdsByRequestIds(Collection<Long> requestIds) {
+    if (requestIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<StageEntityPK> stageQuery =
+            entityManager.createNamedQuery("RequestEntity.findRequestStageIdsByRequestIds", StageEntityPK.class);
+
+    stageQuery.setParameter("requestIds", requestIds);
+
+    return daoUtils.selectList(stageQuery);
+  }
+
   /**
    * In this method we are removing entities using passed ids,
    * To prevent issues we are using batch request to remove limited
@@ -378,24 +425,33 @@ public class RequestDAO implements Cleanable {
     Long clusterId = null;
     try {
       clusterId = m_clusters.get().getCluster(policy.getClusterName()).getClusterId();
-      // find request and stage ids that were created before date populated by user.
-      List<StageEntityPK> requestStageIds = findRequestAndStageIdsInClusterBeforeDate(clusterId, policy.getToDateInMillis());
-
-      // find request ids from Upgrade table and exclude these ids from
-      // request ids set that we already have. We don't want to make any changes for upgrade
-      Set<Long> requestIdsFromUpgrade = findAllRequestIdsFromUpgrade();
-      Iterator<StageEntityPK> requestStageIdsIterator =  requestStageIds.iterator();
-      while (requestStageIdsIterator.hasNext()) {
-        StageEntityPK nextRequestStageIds = requestStageIdsIterator.next();
-        if (requestIdsFromUpgrade.contains(nextRequestStageIds.getRequestId())) {
-          requestStageIdsIterator.remove();
-        }
-      }
-
 
+      List<StageEntityPK> requestStageIds;
       Set<Long> requestIds = new HashSet<>();
-      for (StageEntityPK ids : requestStageIds) {
-        requestIds.add(ids.getRequestId());
+      if (null != policy.getMaxRecords()) {
+        // purge only the oldest completed requests so that the server can
+        // keep running while the history is trimmed chunk by chunk
+        requestIds.addAll(findCompletedRequestIdsInClusterBeforeDate(clusterId,
+            policy.getToDateInMillis(), policy.getMaxRecords()));
+        requestStageIds = findRequestAndStageIdsByRequestIds(requestIds);
+      } else {
+        // find request and stage ids that were created before date populated by user.
+        requestStageIds = findRequestAndStageIdsInClusterBeforeDate(clusterId, policy.getToDateInMillis());
+
+        // find request ids from Upgrade table and exclude these ids from
+        // request ids set that we already have. We don't want to make any changes for upgrade
+        Set<Long> requestIdsFromUpgrade = findAllRequestIdsFromUpgrade();
+        Iterator<StageEntityPK> requestStageIdsIterator =  requestStageIds.iterator();
+        while (requestStageIdsIterator.hasNext()) {
+          StageEntityPK nextRequestStageIds = requestStageIdsIterator.next();
+          if (requestIdsFromUpgrade.contains(nextRequestStageIds.getRequestId())) {
+            requestStageIdsIterator.remove();
+          }
+        }
+
+        for (StageEntityPK ids : requestStageIds) {
+          requestIds.add(ids.getRequestId());
+        }
       }
 
       // find task ids using request stage ids
@@ -447,6 +503,11 @@ public class RequestDAO implements Cleanable {
       affectedRows += cleanTableByIds(requestIds, "requestIds", "Request", policy.getToDateInMillis(),
               "RequestEntity.removeByRequestIds", RequestEntity.class);
 
+      if (!requestIds.isEmpty()) {
+        hostRoleCommandDAO.invalidateHostRoleCommandStatusSummaryCache(requestIds);
+        eventPublisher.publish(new RequestsPurgedEvent(requestIds, taskIds));
+      }
+
     } catch (AmbariException e) {
       LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
       throw new IllegalStateException(e);
@@ -19,6 +19,7 @@
 package org.apache.ambari.server.orm.entities;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * LDAP sync event entity.
@@ -59,6 +60,11 @@ public class LdapSyncEventEntity {
   private Integer membershipsCreated;
   private Integer membershipsRemoved;
 
+  /**
+   * Time spent in each phase of the sync event, in milliseconds.
+   */
+  private Map<String, Long> phaseDurations;
+
   /**
    * The specifications that define the sync event.
    */
@@ -323,6 +329,24 @@ public class LdapSyncEventEntity {
     this.membershipsRemoved = membershipsRemoved;
   }
 
+  /**
+   * Get the time spent in each phase of the sync event.
+   *
+   * @return the duration of each phase in milliseconds, keyed by phase name
+   */
+  public Map<String, Long> getPhaseDurations() {
+    return phaseDurations;
+  }
+
+  /**
+   * Set the time spent in each phase of the sync event.
+   *
+   * @param phaseDurations  the duration of each phase in milliseconds, keyed by phase name
+   */
+  public void setPhaseDurations(Map<String, Long> phaseDurations) {
+    this.phaseDurations = phaseDurations;
+  }
+
   public Integer getUsersSkipped() {
     return usersSkipped;
   }
@@ -22,12 +22,12 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.dao.PrivilegeDAO;
 import org.apache.ambari.server.orm.dao.ViewInstanceDAO;
-import org.apache.ambari.server.orm.entities.PermissionEntity;
 import org.apache.ambari.server.orm.entities.PrivilegeEntity;
-import org.apache.ambari.server.orm.entities.ResourceEntity;
 import org.apache.ambari.server.orm.entities.RoleAuthorizationEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +39,8 @@ import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -57,6 +59,19 @@ public class AuthorizationHelper {
   @Inject
   static Provider<ViewInstanceDAO> viewInstanceDAOProvider;
 
+  /**
+   * The authorization indexes of the authentications which have been checked, keyed by the
+   * identity of the authentication. Authentications live as long as their session, so the
+   * indexes are only weakly referenced through them.
+   */
+  private static final Cache<Authentication, AuthorizationIndex> authorizationIndexes =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  /**
+   * Incremented when privileges change; indexes built at an older generation are rebuilt.
+   */
+  private static final AtomicLong authorizationIndexGeneration = new AtomicLong();
+
   /**
    * Converts collection of RoleEntities to collection of GrantedAuthorities
    */
@@ -172,6 +187,9 @@ public class AuthorizationHelper {
    * <p/>
    * The specified resource id is the (admin)resource id referenced by a specific resource instance
    * such as a cluster or view.
+   * <p/>
+   * The authorizations of the user are looked up in the {@link AuthorizationIndex} of the
+   * authentication rather than in its privilege entities.
    *
    * @param authentication         the authenticated user and associated access privileges
    * @param resourceType           a resource type being acted upon
@@ -186,49 +204,47 @@ public class AuthorizationHelper {
     } else if (authentication == null) {
       return false;
     } else {
-      // Iterate through the set of required authorizations to see if at least one match is found.
-      // If the user has at least one authorization that exists in the set of required authorizations,
-      // that user is authorized to perform the operation.
-      for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
-        AmbariGrantedAuthority ambariGrantedAuthority = (AmbariGrantedAuthority) grantedAuthority;
-        PrivilegeEntity privilegeEntity = ambariGrantedAuthority.getPrivilegeEntity();
-        ResourceEntity privilegeResource = privilegeEntity.getResource();
-        ResourceType privilegeResourceType = ResourceType.translate(privilegeResource.getResourceType().getName());
-        boolean resourceOK;
-
-        if (ResourceType.AMBARI == privilegeResourceType) {
-          // This resource type indicates administrative access
-          resourceOK = true;
-        } else if ((resourceType == null) || (resourceType == privilegeResourceType)) {
-          resourceOK = (resourceId == null) || resourceId.equals(privilegeResource.getId());
-        } else {
-          resourceOK = false;
-        }
+      return getAuthorizationIndex(authentication).isAuthorized(resourceType, resourceId, requiredAuthorizations);
+    }
+  }
 
-        // The the authority is for the relevant resource, see if one of the authorizations matches
-        // one of the required authorizations...
-        if (resourceOK) {
-          PermissionEntity permission = privilegeEntity.getPermission();
-          Collection<RoleAuthorizationEntity> userAuthorizations = (permission == null)
-              ? null
-              : permission.getAuthorizations();
-
-          if (userAuthorizations != null) {
-            for (RoleAuthorizationEntity userAuthorization : userAuthorizations) {
-              try {
-                if (requiredAuthorizations.contains(RoleAuthorization.translate(userAuthorization.getAuthorizationId()))) {
-                  return true;
-                }
-              } catch (IllegalArgumentException e) {
-                LOG.warn("Invalid authorization name, '{}'... ignoring.", userAuthorization.getAuthorizationId());
-              }
-            }
-          }
-        }
-      }
+  /**
+   * Gets the {@link AuthorizationIndex} of an authentication, building it from the authorities of
+   * the authentication the first time it is checked and again after the privileges changed.
+   *
+   * @param authentication the authenticated user and associated access privileges
+   * @return the authorization index of the authentication
+   * @see #invalidateAuthorizationIndexes()
+   */
+  static AuthorizationIndex getAuthorizationIndex(Authentication authentication) {
+    long generation = authorizationIndexGeneration.get();
+    AuthorizationIndex authorizationIndex = authorizationIndexes.getIfPresent(authentication);
 
-      return false;
+    if ((authorizationIndex == null) || (authorizationIndex.getGeneration() != generation)) {
+      authorizationIndex = new AuthorizationIndex(authentication.getAuthorities(), generation);
+      authorizationIndexes.put(authentication, authorizationIndex);
     }
+
+    return authorizationIndex;
+  }
+
+  /**
+   * Invalidates the authorization indexes of all authentications so that they are rebuilt from
+   * the current privileges by the next authorization check. Invoked whenever privileges or
+   * permissions are changed.
+   */
+  public static void invalidateAuthorizationIndexes() {
+    authorizationIndexGeneration.incrementAndGet();
+  }
+
+  /**
+   * Invalidates the authorization indexes of all authentications for privileges or permissions
+   * changed by the current transaction. They are invalidated right away and once more after the
+   * commit, since an index rebuilt before the commit still holds the previous privileges.
+   */
+  public static void invalidateAuthorizationIndexesOnCommit() {
+    invalidateAuthorizationIndexes();
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(AuthorizationHelper::invalidateAuthorizationIndexes);
   }
 
   /**
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.authorization;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ambari.server.orm.entities.PermissionEntity;
+import org.apache.ambari.server.orm.entities.PrivilegeEntity;
+import org.apache.ambari.server.orm.entities.ResourceEntity;
+import org.apache.ambari.server.orm.entities.RoleAuthorizationEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * AuthorizationIndex is an immutable view of the authorizations granted by a set of
+ * {@link AmbariGrantedAuthority authorities}, keyed by the resource they were granted on.
+ * <p/>
+ * It is built once from the privilege entities of an authentication so that authorization checks
+ * do not have to walk the privileges, permissions and role authorizations (and translate the
+ * authorization ids) on every call.
+ *
+ * @see AuthorizationHelper#isAuthorized(org.springframework.security.core.Authentication, ResourceType, Long, Set)
+ */
+final class AuthorizationIndex {
+  private final static Logger LOG = LoggerFactory.getLogger(AuthorizationIndex.class);
+
+  /**
+   * The generation of the privileges this index was built from.
+   */
+  private final long generation;
+
+  /**
+   * Authorizations granted on the {@link ResourceType#AMBARI Ambari} resource, which apply to
+   * every resource.
+   */
+  private final EnumSet<RoleAuthorization> administrativeAuthorizations = EnumSet.noneOf(RoleAuthorization.class);
+
+  /**
+   * Authorizations granted on any resource.
+   */
+  private final EnumSet<RoleAuthorization> allAuthorizations = EnumSet.noneOf(RoleAuthorization.class);
+
+  /**
+   * Authorizations granted on any resource of a type.
+   */
+  private final Map<ResourceType, EnumSet<RoleAuthorization>> authorizationsByType = new EnumMap<>(ResourceType.class);
+
+  /**
+   * Authorizations granted on a resource id, regardless of its type.
+   */
+  private final Map<Long, EnumSet<RoleAuthorization>> authorizationsById = new HashMap<>();
+
+  /**
+   * Authorizations granted on a resource id of a type.
+   */
+  private final Map<ResourceType, Map<Long, EnumSet<RoleAuthorization>>> authorizationsByTypeAndId = new EnumMap<>(ResourceType.class);
+
+  /**
+   * Constructor.
+   *
+   * @param authorities the authorities of an authentication
+   * @param generation  the generation of the privileges the authorities are read at
+   */
+  AuthorizationIndex(Collection<? extends GrantedAuthority> authorities, long generation) {
+    this.generation = generation;
+
+    if (authorities != null) {
+      for (GrantedAuthority grantedAuthority : authorities) {
+        AmbariGrantedAuthority ambariGrantedAuthority = (AmbariGrantedAuthority) grantedAuthority;
+        addPrivilege(ambariGrantedAuthority.getPrivilegeEntity());
+      }
+    }
+  }
+
+  /**
+   * @return the generation of the privileges this index was built from
+   */
+  long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Determines if one of the required authorizations has been granted on the given resource.
+   *
+   * @param resourceType           the type of the resource, or null for any type
+   * @param resourceId             the (admin)resource id of the resource, or null for any resource
+   * @param requiredAuthorizations a set of requirements for which one match will allow authorization
+   * @return true if authorized; otherwise false
+   */
+  boolean isAuthorized(ResourceType resourceType, Long resourceId, Set<RoleAuthorization> requiredAuthorizations) {
+    if (containsAny(administrativeAuthorizations, requiredAuthorizations)) {
+      return true;
+    }
+
+    EnumSet<RoleAuthorization> granted;
+    if (resourceType == null) {
+      granted = (resourceId == null) ? allAuthorizations : authorizationsById.get(resourceId);
+    } else if (resourceId == null) {
+      granted = authorizationsByType.get(resourceType);
+    } else {
+      Map<Long, EnumSet<RoleAuthorization>> authorizationsForType = authorizationsByTypeAndId.get(resourceType);
+      granted = (authorizationsForType == null) ? null : authorizationsForType.get(resourceId);
+    }
+
+    return containsAny(granted, requiredAuthorizations);
+  }
+
+  private void addPrivilege(PrivilegeEntity privilegeEntity) {
+    ResourceEntity privilegeResource = privilegeEntity.getResource();
+    ResourceType privilegeResourceType = ResourceType.translate(privilegeResource.getResourceType().getName());
+
+    PermissionEntity permission = privilegeEntity.getPermission();
+    Collection<RoleAuthorizationEntity> userAuthorizations = (permission == null)
+        ? null
+        : permission.getAuthorizations();
+
+    if (userAuthorizations == null) {
+      return;
+    }
+
+    EnumSet<RoleAuthorization> authorizations = EnumSet.noneOf(RoleAuthorization.class);
+    for (RoleAuthorizationEntity userAuthorization : userAuthorizations) {
+      try {
+        RoleAuthorization authorization = RoleAuthorization.translate(userAuthorization.getAuthorizationId());
+        if (authorization != null) {
+          authorizations.add(authorization);
+        }
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Invalid authorization name, '{}'... ignoring.", userAuthorization.getAuthorizationId());
+      }
+    }
+
+    if (ResourceType.AMBARI == privilegeResourceType) {
+      // This resource type indicates administrative access
+      administrativeAuthorizations.addAll(authorizations);
+    }
+
+    allAuthorizations.addAll(authorizations);
+    getOrCreate(authorizationsById, privilegeResource.getId()).addAll(authorizations);
+
+    if (privilegeResourceType != null) {
+      getOrCreate(authorizationsByType, privilegeResourceType).addAll(authorizations);
+      getOrCreate(authorizationsByTypeAndId.computeIfAbsent(privilegeResourceType, k -> new HashMap<>()),
+          privilegeResource.getId()).addAll(authorizations);
+    }
+  }
+
+  private static <K> EnumSet<RoleAuthorization> getOrCreate(Map<K, EnumSet<RoleAuthorization>> map, K key) {
+    return map.computeIfAbsent(key, k -> EnumSet.noneOf(RoleAuthorization.class));
+  }
+
+  private static boolean containsAny(EnumSet<RoleAuthorization> granted, Set<RoleAuthorization> requiredAuthorizations) {
+    if (granted == null || granted.isEmpty()) {
+      return false;
+    }
+
+    for (RoleAuthorization requiredAuthorization : requiredAuthorizations) {
+      if (granted.contains(requiredAuthorization)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
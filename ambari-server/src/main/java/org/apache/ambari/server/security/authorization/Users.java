@@ -814,31 +814,11 @@ public class Users {
     // prepare create principals
     final List<PrincipalEntity> principalsToCreate = new ArrayList<>();
 
-    // Create users
-    for (LdapUserDto user : batchInfo.getUsersToBeCreated()) {
-      String userName = user.getUserName();
-      UserEntity userEntity;
-
-      try {
-        userEntity = createUser(userName, userName, userName, true);
-      } catch (AmbariException e) {
-        LOG.error(String.format("Failed to create new user: %s", userName), e);
-        userEntity = null;
-      }
-
-      if (userEntity != null) {
-        LOG.trace("Enabling LDAP authentication for the user account with the username {}.", userName);
-        try {
-          addLdapAuthentication(userEntity, user.getDn(), false);
-        } catch (AmbariException e) {
-          LOG.warn(String.format("Failed to enable LDAP authentication for the user account with the username %s: %s", userName, e.getLocalizedMessage()), e);
-        }
-
-        userDAO.merge(userEntity);
-
-        // Add the new user to the allUsers map.
-        allUsers.put(userEntity.getUserName(), userEntity);
-      }
+    // Create users, a chunk per transaction
+    final List<LdapUserDto> usersToCreate = new ArrayList<>(batchInfo.getUsersToBeCreated());
+    final int batchSize = configuration.getLdapSyncDatabaseBatchSize();
+    for (int i = 0; i < usersToCreate.size(); i += batchSize) {
+      createLdapUsers(usersToCreate.subList(i, Math.min(i + batchSize, usersToCreate.size())), allUsers);
     }
 
     // prepare create groups
@@ -894,6 +874,42 @@ public class Users {
     entityManagerProvider.get().getEntityManagerFactory().getCache().evictAll();
   }
 
+  /**
+   * Creates LDAP users and enables LDAP authentication for them in a single transaction, rather
+   * than a transaction per user. Users which cannot be created are logged and skipped.
+   *
+   * @param ldapUsers the users to create
+   * @param allUsers  all users by user name; the created users are added to it
+   */
+  @Transactional
+  protected void createLdapUsers(List<LdapUserDto> ldapUsers, Map<String, UserEntity> allUsers) {
+    for (LdapUserDto user : ldapUsers) {
+      String userName = user.getUserName();
+      UserEntity userEntity;
+
+      try {
+        userEntity = createUser(userName, userName, userName, true);
+      } catch (AmbariException e) {
+        LOG.error(String.format("Failed to create new user: %s", userName), e);
+        userEntity = null;
+      }
+
+      if (userEntity != null) {
+        LOG.trace("Enabling LDAP authentication for the user account with the username {}.", userName);
+        try {
+          addLdapAuthentication(userEntity, user.getDn(), false);
+        } catch (AmbariException e) {
+          LOG.warn(String.format("Failed to enable LDAP authentication for the user account with the username %s: %s", userName, e.getLocalizedMessage()), e);
+        }
+
+        userDAO.merge(userEntity);
+
+        // Add the new user to the allUsers map.
+        allUsers.put(userEntity.getUserName(), userEntity);
+      }
+    }
+  }
+
   private void processLdapAdminGroupMappingRules(Set<MemberEntity> membershipsToCreate) {
 
     String adminGroupMappings = ldapConfiguration.groupMappingRules();
@@ -17,6 +17,8 @@
  */
 package org.apache.ambari.server.security.ldap;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,7 +26,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,12 +43,15 @@ import javax.naming.directory.SearchControls;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.configuration.LdapUsernameCollisionHandlingBehavior;
 import org.apache.ambari.server.ldap.domain.AmbariLdapConfiguration;
+import org.apache.ambari.server.orm.dao.MetainfoDAO;
+import org.apache.ambari.server.orm.entities.MetainfoEntity;
 import org.apache.ambari.server.security.authorization.AmbariLdapUtils;
 import org.apache.ambari.server.security.authorization.Group;
 import org.apache.ambari.server.security.authorization.LdapServerProperties;
 import org.apache.ambari.server.security.authorization.User;
 import org.apache.ambari.server.security.authorization.Users;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ldap.control.PagedResultsDirContextProcessor;
@@ -59,6 +70,7 @@ import org.springframework.ldap.support.LdapUtils;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
@@ -91,6 +103,19 @@ public class AmbariLdapDataPopulator {
    */
   private LdapTemplate ldapTemplate;
 
+  /**
+   * Stores the change marker of the last incremental synchronization of all groups.
+   */
+  @Inject
+  private MetainfoDAO metainfoDAO;
+
+  /**
+   * The users looked up ahead of time for the member attribute values of the groups being
+   * synchronized; null outside of a synchronization. Synchronizations are serialized by the
+   * management controller.
+   */
+  private volatile Map<String, Optional<LdapUserDto>> resolvedMembers;
+
   // Constants
   private static final String UID_ATTRIBUTE = "uid";
   private static final String OBJECT_CLASS_ATTRIBUTE = "objectClass";
@@ -102,6 +127,21 @@ public class AmbariLdapDataPopulator {
   private static final String MEMBER_ATTRIBUTE_REPLACE_STRING = "${member}";
   private static final String MEMBER_ATTRIBUTE_VALUE_PLACEHOLDER = "{member}";
 
+  /**
+   * The metainfo key of the change marker stored by an incremental synchronization of all groups.
+   * The name of the change marker attribute is appended, so that changing the attribute starts
+   * over with a full synchronization.
+   */
+  static final String GROUPS_CHANGE_MARKER_KEY_PREFIX = "ldap.sync.groups.change_marker.";
+
+  /**
+   * Names of the synchronization phases reported by {@link LdapBatchDto#getPhaseDurations()}.
+   */
+  public static final String LDAP_USERS_PHASE = "ldap_users";
+  public static final String LDAP_GROUPS_PHASE = "ldap_groups";
+  public static final String LDAP_MEMBERS_PHASE = "ldap_members";
+  public static final String DATABASE_PHASE = "database";
+
   /**
    * Construct an AmbariLdapDataPopulator.
    *
@@ -193,15 +233,27 @@ public class AmbariLdapDataPopulator {
    */
   public LdapBatchDto synchronizeAllLdapGroups(LdapBatchDto batchInfo) throws AmbariException {
     LOG.trace("Synchronize All LDAP groups...");
+    long startTime = System.currentTimeMillis();
     Set<LdapGroupDto> externalLdapGroupInfo = getExternalLdapGroupInfo();
+    batchInfo.addPhaseDuration(LDAP_GROUPS_PHASE, System.currentTimeMillis() - startTime);
 
     final Map<String, Group> internalGroupsMap = getInternalGroups();
     final Map<String, User> internalUsersMap = getInternalUsers();
 
-    for (LdapGroupDto groupDto : externalLdapGroupInfo) {
-      addLdapGroup(batchInfo, internalGroupsMap, groupDto);
-      refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, false);
+    startTime = System.currentTimeMillis();
+    final Set<LdapGroupDto> groupsToRefresh = getGroupsToRefresh(batchInfo, externalLdapGroupInfo, internalGroupsMap);
+    resolveGroupMembers(groupsToRefresh);
+    try {
+      for (LdapGroupDto groupDto : externalLdapGroupInfo) {
+        addLdapGroup(batchInfo, internalGroupsMap, groupDto);
+        if (groupsToRefresh.contains(groupDto)) {
+          refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, false);
+        }
+      }
+    } finally {
+      resolvedMembers = null;
     }
+    batchInfo.addPhaseDuration(LDAP_MEMBERS_PHASE, System.currentTimeMillis() - startTime);
     for (Entry<String, Group> internalGroup : internalGroupsMap.entrySet()) {
       if (internalGroup.getValue().isLdapGroup()) {
         LdapGroupDto groupDto = new LdapGroupDto();
@@ -220,7 +272,9 @@ public class AmbariLdapDataPopulator {
    */
   public LdapBatchDto synchronizeAllLdapUsers(LdapBatchDto batchInfo) throws AmbariException {
     LOG.trace("Synchronize All LDAP users...");
+    long startTime = System.currentTimeMillis();
     Set<LdapUserDto> externalLdapUserInfo = getExternalLdapUserInfo();
+    batchInfo.addPhaseDuration(LDAP_USERS_PHASE, System.currentTimeMillis() - startTime);
     Map<String, User> internalUsersMap = getInternalUsers();
 
     for (LdapUserDto userDto : externalLdapUserInfo) {
@@ -274,9 +328,14 @@ public class AmbariLdapDataPopulator {
     final Map<String, Group> internalGroupsMap = getInternalGroups();
     final Map<String, User> internalUsersMap = getInternalUsers();
 
-    for (LdapGroupDto groupDto : specifiedGroups) {
-      addLdapGroup(batchInfo, internalGroupsMap, groupDto);
-      refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
+    resolveGroupMembers(specifiedGroups);
+    try {
+      for (LdapGroupDto groupDto : specifiedGroups) {
+        addLdapGroup(batchInfo, internalGroupsMap, groupDto);
+        refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
+      }
+    } finally {
+      resolvedMembers = null;
     }
 
     return batchInfo;
@@ -484,6 +543,21 @@ public class AmbariLdapDataPopulator {
    * @return the user for the given member attribute; null if not found
    */
   protected LdapUserDto getLdapUserByMemberAttr(String memberAttributeValue) {
+    Map<String, Optional<LdapUserDto>> members = resolvedMembers;
+    Optional<LdapUserDto> member = (members == null) ? null : members.get(memberAttributeValue);
+    if (member != null) {
+      return member.orElse(null);
+    }
+    return searchLdapUserByMemberAttr(memberAttributeValue);
+  }
+
+  /**
+   * Search LDAP for the user member for the given member attribute.
+   *
+   * @param memberAttributeValue the member attribute value
+   * @return the user for the given member attribute; null if not found
+   */
+  private LdapUserDto searchLdapUserByMemberAttr(String memberAttributeValue) {
     LdapServerProperties ldapServerProperties = getLdapProperties();
     Set<LdapUserDto> filteredLdapUsers;
 
@@ -579,6 +653,155 @@ public class AmbariLdapDataPopulator {
     return memberAttributeValue;
   }
 
+  /**
+   * Looks up the users for the member attribute values of the given groups ahead of
+   * {@link #refreshGroupMembers}, running up to
+   * {@link AmbariLdapConfiguration#syncMemberResolutionThreads()} LDAP searches at once. Nothing
+   * is looked up ahead of time if a single thread is configured.
+   *
+   * @param groups the groups whose members are about to be refreshed
+   * @throws AmbariException if looking up a member failed
+   */
+  protected void resolveGroupMembers(Collection<LdapGroupDto> groups) throws AmbariException {
+    int threads = getConfiguration().syncMemberResolutionThreads();
+    if (threads <= 1) {
+      return;
+    }
+
+    final Set<String> memberAttributeValues = new HashSet<>();
+    for (LdapGroupDto group : groups) {
+      memberAttributeValues.addAll(group.getMemberAttributes());
+    }
+
+    threads = Math.min(threads, memberAttributeValues.size());
+    if (threads <= 1) {
+      return;
+    }
+
+    LOG.debug("Looking up {} LDAP group members using {} threads", memberAttributeValues.size(), threads);
+    final Map<String, Optional<LdapUserDto>> members = new ConcurrentHashMap<>();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("ldap-sync-member-resolver-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(memberAttributeValues.size());
+      for (String memberAttributeValue : memberAttributeValues) {
+        futures.add(executorService.submit(() -> members.put(memberAttributeValue,
+            Optional.ofNullable(searchLdapUserByMemberAttr(memberAttributeValue)))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while looking up the members of LDAP groups", e);
+    } catch (ExecutionException e) {
+      throw new AmbariException("Unable to look up the members of LDAP groups", e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    resolvedMembers = members;
+  }
+
+  /**
+   * Determines the groups whose members a synchronization of all groups refreshes. Unless
+   * incremental synchronization is enabled, that is every group. Otherwise it is the groups whose
+   * change marker is not lower than the one stored by the previous synchronization, and the groups
+   * which are not LDAP groups in Ambari yet. The highest change marker read is recorded in the batch,
+   * to be stored by {@link #storeGroupsChangeMarker(LdapBatchDto)} once the batch has been applied.
+   *
+   * @param batchInfo         batch update object
+   * @param externalGroups    all LDAP groups
+   * @param internalGroupsMap map of internal groups
+   * @return the groups to refresh
+   */
+  protected Set<LdapGroupDto> getGroupsToRefresh(LdapBatchDto batchInfo, Set<LdapGroupDto> externalGroups,
+                                                 Map<String, Group> internalGroupsMap) {
+    final String changeMarkerAttribute = getChangeMarkerAttribute();
+    if (changeMarkerAttribute == null) {
+      return externalGroups;
+    }
+
+    final MetainfoEntity storedEntity = metainfoDAO.findByKey(getGroupsChangeMarkerKey(changeMarkerAttribute));
+    final String storedChangeMarker = (storedEntity == null) ? null : storedEntity.getMetainfoValue();
+
+    final Set<LdapGroupDto> groupsToRefresh = new HashSet<>();
+    String highestChangeMarker = storedChangeMarker;
+    for (LdapGroupDto group : externalGroups) {
+      final String changeMarker = group.getChangeMarker();
+      final Group internalGroup = internalGroupsMap.get(group.getGroupName());
+
+      // a group changed in the same instant as the stored marker may not have been seen yet
+      if (storedChangeMarker == null || changeMarker == null || internalGroup == null || !internalGroup.isLdapGroup()
+          || compareChangeMarkers(changeMarker, storedChangeMarker) >= 0) {
+        groupsToRefresh.add(group);
+      }
+
+      if (changeMarker != null && (highestChangeMarker == null || compareChangeMarkers(changeMarker, highestChangeMarker) > 0)) {
+        highestChangeMarker = changeMarker;
+      }
+    }
+
+    LOG.info("Refreshing the members of {} of {} LDAP groups ({} since {})", groupsToRefresh.size(),
+        externalGroups.size(), changeMarkerAttribute, storedChangeMarker);
+    batchInfo.setGroupsChangeMarker(highestChangeMarker);
+    return groupsToRefresh;
+  }
+
+  /**
+   * Stores the change marker of an incremental synchronization of all groups, so that the next one
+   * only refreshes the members of the groups changed since. Must only be called once the batch has
+   * been applied.
+   *
+   * @param batchInfo the applied batch
+   */
+  public void storeGroupsChangeMarker(LdapBatchDto batchInfo) {
+    final String changeMarker = batchInfo.getGroupsChangeMarker();
+    final String changeMarkerAttribute = getChangeMarkerAttribute();
+    if (changeMarker == null || changeMarkerAttribute == null) {
+      return;
+    }
+
+    final String key = getGroupsChangeMarkerKey(changeMarkerAttribute);
+    MetainfoEntity entity = metainfoDAO.findByKey(key);
+    if (entity == null) {
+      entity = new MetainfoEntity();
+      entity.setMetainfoName(key);
+      entity.setMetainfoValue(changeMarker);
+      metainfoDAO.create(entity);
+    } else {
+      entity.setMetainfoValue(changeMarker);
+      metainfoDAO.merge(entity);
+    }
+  }
+
+  /**
+   * Compares two change markers. Markers such as uSNChanged are compared as numbers, anything else
+   * (such as the generalized time of modifyTimestamp) as text.
+   */
+  static int compareChangeMarkers(String changeMarker, String otherChangeMarker) {
+    if (NumberUtils.isDigits(changeMarker) && NumberUtils.isDigits(otherChangeMarker)) {
+      return new BigInteger(changeMarker).compareTo(new BigInteger(otherChangeMarker));
+    }
+    return changeMarker.compareTo(otherChangeMarker);
+  }
+
+  /**
+   * @return the name of the change marker attribute to read from groups; null if incremental
+   *         synchronization is disabled
+   */
+  private String getChangeMarkerAttribute() {
+    final AmbariLdapConfiguration configuration = getConfiguration();
+    if (metainfoDAO == null || !configuration.incrementalSyncEnabled()) {
+      return null;
+    }
+    return StringUtils.trimToNull(configuration.syncChangeMarkerAttribute());
+  }
+
+  private static String getGroupsChangeMarkerKey(String changeMarkerAttribute) {
+    return GROUPS_CHANGE_MARKER_KEY_PREFIX + changeMarkerAttribute.toLowerCase();
+  }
+
   /**
    * Removes synced users which are not present in any of group.
    *
@@ -655,9 +878,27 @@ public class AmbariLdapDataPopulator {
     final Set<LdapGroupDto> groups = new HashSet<>();
     final LdapTemplate ldapTemplate = loadLdapTemplate();
     LdapServerProperties ldapServerProperties = getLdapProperties();
-    LOG.trace("LDAP Group Query - Base DN: '{}' ; Filter: '{}'", baseDn, filter.encode());
-    ldapTemplate.search(baseDn, filter.encode(),
-        new LdapGroupContextMapper(groups, ldapServerProperties));
+    PagedResultsDirContextProcessor processor = createPagingProcessor();
+    SearchControls searchControls = new SearchControls();
+    searchControls.setReturningObjFlag(true);
+    searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+    String changeMarkerAttribute = getChangeMarkerAttribute();
+    if (changeMarkerAttribute != null) {
+      // operational attributes such as modifyTimestamp are only returned when asked for
+      searchControls.setReturningAttributes(new String[]{"*", changeMarkerAttribute});
+    }
+    LdapGroupContextMapper ldapGroupContextMapper = new LdapGroupContextMapper(groups, ldapServerProperties, changeMarkerAttribute);
+    String encodedFilter = filter.encode();
+
+    do {
+      LOG.trace("LDAP Group Query - Base DN: '{}' ; Filter: '{}'", baseDn, encodedFilter);
+      if (ldapServerProperties.isPaginationEnabled()) {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapGroupContextMapper, processor);
+      } else {
+        ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapGroupContextMapper);
+      }
+    } while (ldapServerProperties.isPaginationEnabled()
+        && (processor.getCookie() != null) && (processor.getCookie().getCookie() != null));
     return groups;
   }
 
@@ -689,17 +930,21 @@ public class AmbariLdapDataPopulator {
     SearchControls searchControls = new SearchControls();
     searchControls.setReturningObjFlag(true);
     searchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+    if (StringUtils.isNotEmpty(ldapServerProperties.getUsernameAttribute())) {
+      // only the attributes read by the mapper, users may have many and large attributes
+      searchControls.setReturningAttributes(new String[]{ldapServerProperties.getUsernameAttribute(), UID_ATTRIBUTE});
+    }
     LdapUserContextMapper ldapUserContextMapper = new LdapUserContextMapper(ldapServerProperties);
     String encodedFilter = filter.encode();
 
     do {
       LOG.trace("LDAP User Query - Base DN: '{}' ; Filter: '{}'", baseDn, encodedFilter);
-      List dtos = ldapServerProperties.isPaginationEnabled() ?
+      List<LdapUserDto> dtos = ldapServerProperties.isPaginationEnabled() ?
           ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapUserContextMapper, processor) :
           ldapTemplate.search(LdapUtils.newLdapName(baseDn), encodedFilter, searchControls, ldapUserContextMapper);
-      for (Object dto : dtos) {
+      for (LdapUserDto dto : dtos) {
         if (dto != null) {
-          users.add((LdapUserDto) dto);
+          users.add(dto);
         }
       }
     } while (ldapServerProperties.isPaginationEnabled()
@@ -759,7 +1004,7 @@ public class AmbariLdapDataPopulator {
    *
    * @return LdapTemplate instance
    */
-  protected LdapTemplate loadLdapTemplate() {
+  protected synchronized LdapTemplate loadLdapTemplate() {
     LdapServerProperties ldapServerProperties = getLdapProperties();
     final LdapServerProperties properties = getConfiguration().getLdapServerProperties();
     if (ldapTemplate == null || !properties.equals(ldapServerProperties)) {
@@ -828,18 +1073,25 @@ public class AmbariLdapDataPopulator {
   // ContextMapper implementations
   //
 
-  protected static class LdapGroupContextMapper implements ContextMapper {
+  protected static class LdapGroupContextMapper implements ContextMapper<Void> {
 
     private final Set<LdapGroupDto> groups;
     private final LdapServerProperties ldapServerProperties;
+    private final String changeMarkerAttribute;
 
     public LdapGroupContextMapper(Set<LdapGroupDto> groups, LdapServerProperties ldapServerProperties) {
+      this(groups, ldapServerProperties, null);
+    }
+
+    public LdapGroupContextMapper(Set<LdapGroupDto> groups, LdapServerProperties ldapServerProperties,
+                                  String changeMarkerAttribute) {
       this.groups = groups;
       this.ldapServerProperties = ldapServerProperties;
+      this.changeMarkerAttribute = changeMarkerAttribute;
     }
 
     @Override
-    public Object mapFromContext(Object ctx) {
+    public Void mapFromContext(Object ctx) {
       final DirContextAdapter adapter = (DirContextAdapter) ctx;
       final String groupNameAttribute = adapter.getStringAttribute(ldapServerProperties.getGroupNamingAttr());
       boolean outOfScope = AmbariLdapUtils.isLdapObjectOutOfScopeFromBaseDn(adapter, ldapServerProperties.getBaseDN());
@@ -850,6 +1102,9 @@ public class AmbariLdapDataPopulator {
       if (groupNameAttribute != null) {
         final LdapGroupDto group = new LdapGroupDto();
         group.setGroupName(groupNameAttribute.toLowerCase());
+        if (changeMarkerAttribute != null) {
+          group.setChangeMarker(adapter.getStringAttribute(changeMarkerAttribute));
+        }
         final String[] uniqueMembers = adapter.getStringAttributes(ldapServerProperties.getGroupMembershipAttr());
         if (uniqueMembers != null) {
           for (String uniqueMember : uniqueMembers) {
@@ -866,7 +1121,7 @@ public class AmbariLdapDataPopulator {
     return configurationProvider.get();
   }
 
-  protected static class LdapUserContextMapper implements ContextMapper {
+  protected static class LdapUserContextMapper implements ContextMapper<LdapUserDto> {
 
     private final LdapServerProperties ldapServerProperties;
 
@@ -875,7 +1130,7 @@ public class AmbariLdapDataPopulator {
     }
 
     @Override
-    public Object mapFromContext(Object ctx) {
+    public LdapUserDto mapFromContext(Object ctx) {
       final DirContextAdapter adapter = (DirContextAdapter) ctx;
       final String usernameAttribute = adapter.getStringAttribute(ldapServerProperties.getUsernameAttribute());
       final String uidAttribute = adapter.getStringAttribute(UID_ATTRIBUTE);
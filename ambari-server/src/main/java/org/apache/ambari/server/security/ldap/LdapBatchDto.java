@@ -18,6 +18,8 @@
 package org.apache.ambari.server.security.ldap;
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,6 +36,8 @@ public class LdapBatchDto {
   private final Set<LdapUserDto> usersToBeRemoved = new HashSet<>();
   private final Set<LdapUserGroupMemberDto> membershipToAdd = new HashSet<>();
   private final Set<LdapUserGroupMemberDto> membershipToRemove = new HashSet<>();
+  private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+  private String groupsChangeMarker;
 
   public Set<LdapUserDto> getUsersSkipped() {
     return usersSkipped;
@@ -74,4 +78,39 @@ public class LdapBatchDto {
   public Set<LdapGroupDto> getGroupsProcessedInternal() {
     return groupsProcessedInternal;
   }
+
+  /**
+   * Gets the time spent in each phase of the synchronization, in the order
+   * the phases ran.
+   *
+   * @return the duration of each phase in milliseconds, keyed by phase name
+   */
+  public Map<String, Long> getPhaseDurations() {
+    return phaseDurations;
+  }
+
+  /**
+   * Adds to the time spent in a phase of the synchronization.
+   *
+   * @param phase  the name of the phase
+   * @param millis the time spent in milliseconds
+   */
+  public void addPhaseDuration(String phase, long millis) {
+    phaseDurations.merge(phase, millis, Long::sum);
+  }
+
+  /**
+   * Gets the highest change marker of the LDAP groups read by an incremental
+   * synchronization. It is stored once the batch has been applied, so that
+   * the next synchronization only refreshes the groups changed since.
+   *
+   * @return the change marker; null if this is not an incremental synchronization
+   */
+  public String getGroupsChangeMarker() {
+    return groupsChangeMarker;
+  }
+
+  public void setGroupsChangeMarker(String groupsChangeMarker) {
+    this.groupsChangeMarker = groupsChangeMarker;
+  }
 }
@@ -39,6 +39,12 @@ public class LdapGroupDto {
    */
   private boolean synced;
 
+  /**
+   * Value of the change marker attribute of the group (such as modifyTimestamp or uSNChanged);
+   * null if it was not requested or the group does not have it.
+   */
+  private String changeMarker;
+
   /**
    * Get the group name.
    *
@@ -93,6 +99,24 @@ public class LdapGroupDto {
     this.synced = synced;
   }
 
+  /**
+   * Get the value of the change marker attribute.
+   *
+   * @return the change marker; null if unknown
+   */
+  public String getChangeMarker() {
+    return changeMarker;
+  }
+
+  /**
+   * Set the value of the change marker attribute.
+   *
+   * @param changeMarker the change marker
+   */
+  public void setChangeMarker(String changeMarker) {
+    this.changeMarker = changeMarker;
+  }
+
   @Override
   public int hashCode() {
     int result = groupName != null ? groupName.hashCode() : 0;
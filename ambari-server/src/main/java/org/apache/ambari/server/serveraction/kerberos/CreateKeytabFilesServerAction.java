@@ -20,10 +20,10 @@ package org.apache.ambari.server.serveraction.kerberos;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ambari.server.AmbariException;
@@ -84,7 +84,14 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
    * A map of data used to track what has been processed in order to optimize the creation of keytabs
    * such as knowing when to create a cached keytab file or use a cached keytab file.
    */
-  Map<String, Set<String>> visitedIdentities = new HashMap<>();
+  Map<String, Set<String>> visitedIdentities = new ConcurrentHashMap<>();
+
+  /**
+   * Locks serializing the updates of each destination keytab file. Identities are processed
+   * concurrently, and principals with different names may share a keytab file on a host; each
+   * update reads, merges and rewrites the whole file.
+   */
+  private final Map<String, Object> keytabFileLocks = new ConcurrentHashMap<>();
 
   /**
    * Called to execute this action.  Upon invocation, calls
@@ -105,6 +112,16 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
     return processIdentities(requestSharedDataContext);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Keytab files of principals with different names are created concurrently; the updates of
+   * a keytab file shared by several principals are serialized.
+   */
+  @Override
+  protected int getIdentityConcurrency() {
+    return configuration.getKerberosOperationConcurrency();
+  }
 
   /**
    * For each identity, create a keytab and append to a new or existing keytab file.
@@ -223,7 +240,9 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
                       commandReport = createCommandReport(1, HostRoleStatus.FAILED, "{}", actionLog.getStdOut(), actionLog.getStdErr());
                     } else {
                       try {
-                        operationHandler.createKeytabFile(new File(cachedKeytabPath), destinationKeytabFile);
+                        synchronized (getKeytabFileLock(destinationKeytabFile)) {
+                          operationHandler.createKeytabFile(new File(cachedKeytabPath), destinationKeytabFile);
+                        }
                       } catch (KerberosOperationException e) {
                         message = String.format("Failed to create keytab file for %s - %s", resolvedPrincipal.getPrincipal(), e.getMessage());
                         actionLog.writeStdErr(message);
@@ -237,8 +256,15 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
 
                   if (keytab != null) {
                     try {
-                      if (operationHandler.createKeytabFile(keytab, destinationKeytabFile)) {
-                        ensureAmbariOnlyAccess(destinationKeytabFile);
+                      boolean created;
+                      synchronized (getKeytabFileLock(destinationKeytabFile)) {
+                        created = operationHandler.createKeytabFile(keytab, destinationKeytabFile);
+                        if (created) {
+                          ensureAmbariOnlyAccess(destinationKeytabFile);
+                        }
+                      }
+
+                      if (created) {
 
                         message = String.format("Successfully created keytab file for %s at %s", resolvedPrincipal.getPrincipal(), destinationKeytabFile.getAbsolutePath());
                         LOG.debug(message);
@@ -290,6 +316,16 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
     return commandReport;
   }
 
+  /**
+   * Gets the lock to hold while updating the given destination keytab file.
+   *
+   * @param destinationKeytabFile the keytab file to update
+   * @return the lock for the file
+   */
+  private Object getKeytabFileLock(File destinationKeytabFile) {
+    return keytabFileLocks.computeIfAbsent(destinationKeytabFile.getAbsolutePath(), path -> new Object());
+  }
+
   /**
    * Creates the keytab or gets one from the cache for a principal.
    *
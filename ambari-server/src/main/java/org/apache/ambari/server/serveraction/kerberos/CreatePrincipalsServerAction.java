@@ -19,15 +19,16 @@
 package org.apache.ambari.server.serveraction.kerberos;
 
 import java.io.File;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.audit.event.kerberos.CreatePrincipalKerberosAuditEvent;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.orm.dao.KerberosKeytabPrincipalDAO;
 import org.apache.ambari.server.orm.dao.KerberosPrincipalDAO;
 import org.apache.ambari.server.orm.entities.KerberosKeytabPrincipalEntity;
@@ -67,11 +68,17 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
   @Inject
   private KerberosKeytabPrincipalDAO kerberosKeytabPrincipalDAO;
 
+  /**
+   * Configuration used to get the number of identities to process at once
+   */
+  @Inject
+  private Configuration configuration;
+
   /**
    * A set of visited principal names used to prevent unnecessary processing on already processed
    * principal names
    */
-  private Set<String> seenPrincipals = new HashSet<>();
+  private Set<String> seenPrincipals = ConcurrentHashMap.newKeySet();
 
   /**
    * Called to execute this action. Upon invocation, calls
@@ -92,6 +99,15 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
     return processIdentities(requestSharedDataContext);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Principals with different names are created concurrently.
+   */
+  @Override
+  protected int getIdentityConcurrency() {
+    return configuration.getKerberosOperationConcurrency();
+  }
 
   /**
    * For each identity, generate a unique password, and create a new or update an existing principal in
@@ -124,9 +140,7 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
 
     //  Only process this principal name if we haven't already processed it
     // TODO optimize - split invalidation and principal creation to separate stages
-    if (!seenPrincipals.contains(resolvedPrincipal.getPrincipal())) {
-      seenPrincipals.add(resolvedPrincipal.getPrincipal());
-
+    if (seenPrincipals.add(resolvedPrincipal.getPrincipal())) {
       boolean processPrincipal;
 
       KerberosPrincipalEntity kerberosPrincipalEntity = kerberosPrincipalDAO.find(resolvedPrincipal.getPrincipal());
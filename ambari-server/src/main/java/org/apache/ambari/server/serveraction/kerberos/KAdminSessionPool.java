@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.serveraction.kerberos;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.utils.ShellCommandUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * KAdminSessionPool keeps a small number of interactive kadmin processes open and pipelines
+ * queries through them, rather than starting a new kadmin process (and authenticating with the
+ * KDC) for every query.
+ * <p/>
+ * kadmin does not delimit the output of a query, so each query is followed by an unknown request
+ * (a unique marker). kadmin prints a prompt on STDOUT before reading each request, so the STDOUT
+ * of a query ends with the prompt for the marker, and kadmin reports the marker as an error on
+ * STDERR once it has finished with the query. STDOUT and STDERR are kept apart, just as when the
+ * query is sent to a new kadmin process, so that callers may look for the messages of a query on
+ * the stream kadmin writes them to.
+ * <p/>
+ * If a kadmin process exits (for example because the administrator credentials were rejected),
+ * the query fails with the output and exit code of the process, just as if the query had been
+ * sent to a new kadmin process; the process is discarded and a new one is started for the next
+ * query.
+ */
+class KAdminSessionPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KAdminSessionPool.class);
+
+  /**
+   * The prefix of the unknown request sent after each query to mark the end of its output.
+   */
+  static final String END_OF_QUERY_MARKER_PREFIX = "ambari_end_of_query_";
+
+  /**
+   * The prompt kadmin prints (without a trailing newline) on STDOUT before reading each request.
+   */
+  private static final String PROMPT = "kadmin:  ";
+
+  /**
+   * The time to wait for a kadmin process to exit when closing it.
+   */
+  private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private final List<String> command;
+  private final Map<String, String> environment;
+  private final long queryTimeoutMillis;
+
+  /**
+   * Limits the number of kadmin processes; a permit is held while a query is executed.
+   */
+  private final Semaphore permits;
+
+  private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param command            the kadmin command and its arguments, without a query
+   * @param environment        additional environment variables for the kadmin processes, or null
+   * @param size               the maximum number of kadmin processes
+   * @param queryTimeoutMillis the time to wait for the output of a query
+   */
+  KAdminSessionPool(List<String> command, Map<String, String> environment, int size, long queryTimeoutMillis) {
+    this.command = new ArrayList<>(command);
+    this.environment = environment;
+    this.queryTimeoutMillis = queryTimeoutMillis;
+    permits = new Semaphore(size);
+  }
+
+  /**
+   * Executes a kadmin query, waiting for a kadmin process to become available if all of them are
+   * busy.
+   *
+   * @param query the query to execute
+   * @return the result of the query
+   * @throws IOException          if the query could not be sent or no output was received in time
+   * @throws InterruptedException if interrupted while waiting for a kadmin process or the output
+   */
+  ShellCommandUtil.Result execute(String query) throws IOException, InterruptedException {
+    if (closed) {
+      throw new IOException("The kadmin session pool has been closed");
+    }
+
+    permits.acquire();
+    try {
+      Session session = idleSessions.poll();
+      if (session == null) {
+        session = new Session(command, environment);
+      }
+
+      boolean reusable = false;
+      try {
+        ShellCommandUtil.Result result = session.execute(query, queryTimeoutMillis);
+        reusable = result.isSuccessful();
+        return result;
+      } finally {
+        if (reusable && !closed) {
+          idleSessions.add(session);
+        } else {
+          session.close();
+        }
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * @return the number of kadmin processes waiting for a query
+   */
+  int getIdleSessionCount() {
+    return idleSessions.size();
+  }
+
+  /**
+   * Closes the idle kadmin processes. Processes executing a query are closed once their query
+   * completes.
+   */
+  @Override
+  public void close() {
+    closed = true;
+
+    Session session;
+    while ((session = idleSessions.poll()) != null) {
+      session.close();
+    }
+  }
+
+  /**
+   * A single interactive kadmin process.
+   */
+  private static final class Session {
+
+    /**
+     * Queued by an output reader once kadmin closed the stream.
+     */
+    private static final String END_OF_STREAM = "\u0000";
+
+    /**
+     * Queued by the STDOUT reader for every prompt kadmin printed.
+     */
+    private static final String PROMPT_READ = "\u0001";
+
+    private final Process process;
+    private final Writer input;
+    private final BlockingQueue<String> stdout = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> stderr = new LinkedBlockingQueue<>();
+    private long queries = 0;
+
+    private Session(List<String> command, Map<String, String> environment) throws IOException {
+      ProcessBuilder builder = new ProcessBuilder(command);
+      if (environment != null) {
+        builder.environment().putAll(environment);
+      }
+
+      process = builder.start();
+      input = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+
+      Thread stdoutReader = new Thread(() -> readOutput(process.getInputStream(), stdout, true), "kadmin-session-stdout");
+      stdoutReader.setDaemon(true);
+      stdoutReader.start();
+
+      Thread stderrReader = new Thread(() -> readOutput(process.getErrorStream(), stderr, false), "kadmin-session-stderr");
+      stderrReader.setDaemon(true);
+      stderrReader.start();
+    }
+
+    /**
+     * Queues the lines of a stream of kadmin. Prompts are not followed by a newline, so they are
+     * looked for at the start of every line and queued as {@link #PROMPT_READ}.
+     */
+    private static void readOutput(InputStream stream, BlockingQueue<String> lines, boolean prompts) {
+      try (Reader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+          if (c == '\n') {
+            lines.add(line.toString());
+            line.setLength(0);
+          } else {
+            line.append((char) c);
+            if (prompts && (line.length() == PROMPT.length()) && PROMPT.contentEquals(line)) {
+              lines.add(PROMPT_READ);
+              line.setLength(0);
+            }
+          }
+        }
+
+        if (line.length() > 0) {
+          lines.add(line.toString());
+        }
+      } catch (IOException e) {
+        LOG.debug("Stopped reading the output of kadmin", e);
+      } finally {
+        lines.add(END_OF_STREAM);
+      }
+    }
+
+    private ShellCommandUtil.Result execute(String query, long timeoutMillis)
+        throws IOException, InterruptedException {
+      String marker = END_OF_QUERY_MARKER_PREFIX + (++queries);
+      String quotedMarker = "\"" + marker + "\"";
+
+      try {
+        input.write(query + "\n" + marker + "\n");
+        input.flush();
+      } catch (IOException e) {
+        // kadmin most likely exited already; its output tells why
+        LOG.debug("Failed to send a query to kadmin", e);
+      }
+
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      StringBuilder out = new StringBuilder();
+      StringBuilder err = new StringBuilder();
+
+      // STDOUT: the prompt for the query (and, for the first query, the output of kadmin starting
+      // up), the output of the query and the prompt for the marker
+      boolean stdoutClosed = false;
+      int prompts = 0;
+      while (prompts < 2) {
+        String line = poll(stdout, deadline, timeoutMillis);
+        if (END_OF_STREAM.equals(line)) {
+          stdoutClosed = true;
+          break;
+        } else if (PROMPT_READ.equals(line)) {
+          prompts++;
+        } else if (!line.isEmpty()) {
+          out.append(line).append('\n');
+        }
+      }
+
+      // STDERR: the errors of the query and the error about the marker
+      boolean exited = stdoutClosed;
+      while (true) {
+        String line = poll(stderr, deadline, timeoutMillis);
+        if (END_OF_STREAM.equals(line)) {
+          exited = true;
+          break;
+        } else if (!exited && line.contains(quotedMarker)) {
+          break;
+        } else if (!line.isEmpty()) {
+          err.append(line).append('\n');
+        }
+      }
+
+      if (exited) {
+        // collect what is left of STDOUT, which the process closed when it exited
+        while (!stdoutClosed) {
+          String line = poll(stdout, deadline, timeoutMillis);
+          if (END_OF_STREAM.equals(line)) {
+            stdoutClosed = true;
+          } else if (!PROMPT_READ.equals(line) && !line.isEmpty()) {
+            out.append(line).append('\n');
+          }
+        }
+
+        int exitCode = process.waitFor(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) ? process.exitValue() : -1;
+        return new ShellCommandUtil.Result(exitCode == 0 ? 1 : exitCode, out.toString(), err.toString());
+      }
+
+      return new ShellCommandUtil.Result(0, out.toString(), err.toString());
+    }
+
+    private static String poll(BlockingQueue<String> lines, long deadline, long timeoutMillis)
+        throws IOException, InterruptedException {
+      String line = lines.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      if (line == null) {
+        throw new IOException(String.format("Timed out after %dms waiting for kadmin to complete the query", timeoutMillis));
+      }
+      return line;
+    }
+
+    private void close() {
+      try {
+        input.write("quit\n");
+        input.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to ask kadmin to quit", e);
+      }
+
+      try {
+        if (!process.waitFor(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
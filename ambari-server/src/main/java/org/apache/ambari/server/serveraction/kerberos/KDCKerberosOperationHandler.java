@@ -25,6 +25,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.security.credential.PrincipalKeyCredential;
@@ -52,8 +53,10 @@ abstract class KDCKerberosOperationHandler extends KerberosOperationHandler {
   /**
    * A map of principal names to {@link Keytab} entries to ensure a Keyab file is not created/exported
    * for the same principal more than once.
+   * <p>
+   * Keytabs may be created by several threads at once, see {@link #supportsConcurrentOperations()}.
    */
-  private HashMap<String, Keytab> cachedKeytabs = null;
+  private Map<String, Keytab> cachedKeytabs = null;
 
   /**
    * A String containing the resolved path to the kinit executable
@@ -233,6 +236,10 @@ abstract class KDCKerberosOperationHandler extends KerberosOperationHandler {
     return (credentialsCacheFile == null) ? null : credentialsCacheFile.getAbsolutePath();
   }
 
+  Map<String, String> getEnvironmentMap() {
+    return environmentMap;
+  }
+
   /**
    * Return an array of Strings containing the command and the relavant arguments needed authenticate
    * with the KDC and create the Kerberos ticket/credential cache.
@@ -299,7 +306,7 @@ abstract class KDCKerberosOperationHandler extends KerberosOperationHandler {
       throw new KerberosAdminAuthenticationException(message);
     }
 
-    cachedKeytabs = new HashMap<>();
+    cachedKeytabs = new ConcurrentHashMap<>();
 
     return true;
   }
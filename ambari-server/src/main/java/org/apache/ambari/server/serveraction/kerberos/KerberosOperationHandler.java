@@ -238,6 +238,18 @@ public abstract class KerberosOperationHandler {
     setOpen(false);
   }
 
+  /**
+   * Indicates whether this KerberosOperationHandler may be used by several threads at once after
+   * it has been opened.
+   * <p/>
+   * By default, it is assumed that concurrent operations are not supported.
+   *
+   * @return true if operations may be invoked concurrently; false otherwise
+   */
+  public boolean supportsConcurrentOperations() {
+    return false;
+  }
+
   /**
    * Test to see if the specified principal exists in a previously configured KDC
    * <p/>
@@ -21,10 +21,19 @@ package org.apache.ambari.server.serveraction.kerberos;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
@@ -47,7 +56,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * KerberosServerAction is an abstract class to be implemented by Kerberos-related
@@ -184,6 +196,12 @@ public abstract class KerberosServerAction extends AbstractServerAction {
   @Inject
   KerberosKeytabController kerberosKeytabController;
 
+  /**
+   * Used to get the {@link UnitOfWork} of the threads processing identities concurrently
+   */
+  @Inject
+  private Injector injector;
+
   /**
    * Given a (command parameter) Map and a property name, attempts to safely retrieve the requested
    * data.
@@ -281,8 +299,12 @@ public abstract class KerberosServerAction extends AbstractServerAction {
       Object map = requestSharedDataContext.get(PRINCIPAL_PASSWORD_MAP);
 
       if (map == null) {
-        map = new HashMap<String, String>();
-        requestSharedDataContext.put(PRINCIPAL_PASSWORD_MAP, map);
+        // identities may be processed concurrently, see #getIdentityConcurrency
+        map = new ConcurrentHashMap<String, String>();
+        Object existingMap = requestSharedDataContext.putIfAbsent(PRINCIPAL_PASSWORD_MAP, map);
+        if (existingMap != null) {
+          map = existingMap;
+        }
       }
 
       return (Map<String, String>) map;
@@ -307,8 +329,12 @@ public abstract class KerberosServerAction extends AbstractServerAction {
       Object map = requestSharedDataContext.get(PRINCIPAL_KEY_NUMBER_MAP);
 
       if (map == null) {
-        map = new HashMap<String, String>();
-        requestSharedDataContext.put(PRINCIPAL_KEY_NUMBER_MAP, map);
+        // identities may be processed concurrently, see #getIdentityConcurrency
+        map = new ConcurrentHashMap<String, String>();
+        Object existingMap = requestSharedDataContext.putIfAbsent(PRINCIPAL_KEY_NUMBER_MAP, map);
+        if (existingMap != null) {
+          map = existingMap;
+        }
       }
 
       return (Map<String, Integer>) map;
@@ -430,13 +456,25 @@ public abstract class KerberosServerAction extends AbstractServerAction {
       }
 
       try {
-        for (ResolvedKerberosKeytab rkk : kerberosKeytabController.getFilteredKeytabs((Map<String, Collection<String>>) getServiceComponentFilter(), getHostFilter(), getIdentityFilter())) {
-          for (ResolvedKerberosPrincipal principal : rkk.getPrincipals()) {
-            commandReport = processIdentity(principal, handler, kerberosConfiguration, requestSharedDataContext);
-            // If the principal processor returns a CommandReport, than it is time to stop since
-            // an error condition has probably occurred, else all is assumed to be well.
-            if (commandReport != null) {
-              break;
+        Collection<ResolvedKerberosKeytab> keytabs = kerberosKeytabController.getFilteredKeytabs(getServiceComponentFilter(), getHostFilter(), getIdentityFilter());
+
+        int concurrency = getIdentityConcurrency();
+        if ((concurrency > 1) && handler.supportsConcurrentOperations()) {
+          List<ResolvedKerberosPrincipal> principals = new ArrayList<>();
+          for (ResolvedKerberosKeytab rkk : keytabs) {
+            principals.addAll(rkk.getPrincipals());
+          }
+
+          commandReport = processIdentitiesConcurrently(principals, concurrency, handler, kerberosConfiguration, requestSharedDataContext);
+        } else {
+          for (ResolvedKerberosKeytab rkk : keytabs) {
+            for (ResolvedKerberosPrincipal principal : rkk.getPrincipals()) {
+              commandReport = processIdentity(principal, handler, kerberosConfiguration, requestSharedDataContext);
+              // If the principal processor returns a CommandReport, than it is time to stop since
+              // an error condition has probably occurred, else all is assumed to be well.
+              if (commandReport != null) {
+                break;
+              }
             }
           }
         }
@@ -462,6 +500,102 @@ public abstract class KerberosServerAction extends AbstractServerAction {
         : commandReport;
   }
 
+  /**
+   * Processes the given principals on a pool of at most <code>concurrency</code> threads.
+   * <p/>
+   * Principals with the same name are processed one after the other, in the given order, by the
+   * same thread so that implementations may keep track of the principals they already processed;
+   * principals with different names are processed concurrently. Once a principal fails to be
+   * processed no further principals are started.
+   *
+   * @param principals               the principals to process
+   * @param concurrency              the maximum number of principals to process at once
+   * @param operationHandler         a KerberosOperationHandler supporting concurrent operations
+   * @param kerberosConfiguration    a Map of configuration properties from kerberos-env
+   * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
+   *                                 to a given request
+   * @return the CommandReport of the first principal which failed to be processed, or null if all
+   * principals were processed successfully
+   * @throws AmbariException if an error occurs while processing a principal
+   */
+  CommandReport processIdentitiesConcurrently(List<ResolvedKerberosPrincipal> principals, int concurrency,
+                                              final KerberosOperationHandler operationHandler,
+                                              final Map<String, String> kerberosConfiguration,
+                                              final Map<String, Object> requestSharedDataContext)
+      throws AmbariException {
+    Map<String, List<ResolvedKerberosPrincipal>> principalsByName = new LinkedHashMap<>();
+    for (ResolvedKerberosPrincipal principal : principals) {
+      principalsByName.computeIfAbsent(principal.getPrincipal(), name -> new ArrayList<>()).add(principal);
+    }
+
+    if (principalsByName.isEmpty()) {
+      return null;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, principalsByName.size()),
+        new ThreadFactoryBuilder().setNameFormat("kerberos-identity-processor-%d").setDaemon(true).build());
+    CompletionService<CommandReport> completionService = new ExecutorCompletionService<>(executor);
+    final AtomicReference<CommandReport> failure = new AtomicReference<>();
+
+    try {
+      for (final List<ResolvedKerberosPrincipal> samePrincipals : principalsByName.values()) {
+        completionService.submit(() -> {
+          UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+          unitOfWork.begin();
+          try {
+            for (ResolvedKerberosPrincipal principal : samePrincipals) {
+              if (failure.get() != null) {
+                break;
+              }
+
+              CommandReport commandReport = processIdentity(principal, operationHandler, kerberosConfiguration, requestSharedDataContext);
+              if (commandReport != null) {
+                failure.compareAndSet(null, commandReport);
+                break;
+              }
+            }
+          } finally {
+            unitOfWork.end();
+          }
+          return null;
+        });
+      }
+
+      for (int i = 0; i < principalsByName.size(); i++) {
+        completionService.take().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while processing identities", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AmbariException) {
+        throw (AmbariException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new AmbariException(String.format("Failed to process identities: %s", cause.getMessage()), cause);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return failure.get();
+  }
+
+  /**
+   * Gets the maximum number of identities this action processes at once, if the
+   * {@link KerberosOperationHandler} for the KDC supports concurrent operations.
+   * <p/>
+   * By default identities are processed one at a time. Implementations returning a larger value
+   * must be able to process identities with different principal names concurrently; see
+   * {@link #processIdentitiesConcurrently(List, int, KerberosOperationHandler, Map, Map)}.
+   *
+   * @return the maximum number of identities to process at once
+   */
+  protected int getIdentityConcurrency() {
+    return 1;
+  }
+
   /**
    * Processes an identity as necessary.
    * <p/>
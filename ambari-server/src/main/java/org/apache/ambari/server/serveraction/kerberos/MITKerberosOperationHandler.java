@@ -18,10 +18,12 @@
 
 package org.apache.ambari.server.serveraction.kerberos;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.security.credential.PrincipalKeyCredential;
@@ -40,11 +42,20 @@ import com.google.inject.Inject;
  * <p/>
  * It is assumed that a MIT Kerberos client is installed and that the kdamin shell command is
  * available
+ * <p/>
+ * Unless {@link Configuration#getKerberosOperationKadminSessions()} is <code>0</code>, kadmin queries
+ * are pipelined through a few interactive kadmin processes (see {@link KAdminSessionPool}) so that
+ * identities may be processed concurrently without starting a kadmin process per query.
  */
 public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
 
   private final static Logger LOG = LoggerFactory.getLogger(MITKerberosOperationHandler.class);
 
+  /**
+   * The time to wait for an interactive kadmin process to complete a query
+   */
+  private static final long KADMIN_QUERY_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
   @Inject
   private Configuration configuration;
 
@@ -58,6 +69,12 @@ public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
    */
   private String executableKadmin = null;
 
+  /**
+   * The interactive kadmin processes queries are sent to, created when the first query is executed;
+   * null if queries are not pipelined
+   */
+  private KAdminSessionPool kadminSessions = null;
+
   /**
    * Prepares and creates resources to be used by this KerberosOperationHandler
    * <p/>
@@ -90,12 +107,29 @@ public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
 
   @Override
   public void close() throws KerberosOperationException {
+    synchronized (this) {
+      if (kadminSessions != null) {
+        kadminSessions.close();
+        kadminSessions = null;
+      }
+    }
+
     createAttributes = null;
     executableKadmin = null;
 
     super.close();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Each kadmin query is executed by its own or an otherwise idle kadmin process.
+   */
+  @Override
+  public boolean supportsConcurrentOperations() {
+    return true;
+  }
+
   /**
    * Test to see if the specified principal exists in a previously configured MIT KDC
    * <p/>
@@ -230,34 +264,37 @@ public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
       throw new KerberosOperationException("No path for kadmin is available - this KerberosOperationHandler may not have been opened.");
     }
 
-    List<String> command = new ArrayList<>();
-    command.add(executableKadmin);
+    List<String> kadminCommand = new ArrayList<>();
+    kadminCommand.add(executableKadmin);
 
     // Add the credential cache, if available
     String credentialCacheFilePath = getCredentialCacheFilePath();
     if (!StringUtils.isEmpty(credentialCacheFilePath)) {
-      command.add("-c");
-      command.add(credentialCacheFilePath);
+      kadminCommand.add("-c");
+      kadminCommand.add(credentialCacheFilePath);
     }
 
     // Add explicit KDC admin host, if available
     String adminSeverHost = getAdminServerHost();
     if (!StringUtils.isEmpty(adminSeverHost)) {
-      command.add("-s");
-      command.add(adminSeverHost);
+      kadminCommand.add("-s");
+      kadminCommand.add(adminSeverHost);
     }
 
     // Add default realm clause, if available
     String defaultRealm = getDefaultRealm();
     if (!StringUtils.isEmpty(defaultRealm)) {
-      command.add("-r");
-      command.add(defaultRealm);
+      kadminCommand.add("-r");
+      kadminCommand.add(defaultRealm);
     }
 
     // Add kadmin query
+    List<String> command = new ArrayList<>(kadminCommand);
     command.add("-q");
     command.add(query);
 
+    KAdminSessionPool sessions = getKAdminSessions(kadminCommand);
+
     if (LOG.isDebugEnabled()) {
       LOG.debug("Executing: {}", command);
     }
@@ -268,7 +305,9 @@ public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
 
     while (tries <= retryCount) {
       try {
-        result = executeCommand(command.toArray(new String[command.size()]));
+        result = (sessions == null)
+            ? executeCommand(command.toArray(new String[command.size()]))
+            : executeKAdminQuery(sessions, query);
       } catch (KerberosOperationException exception) {
         if (tries == retryCount) {
           throw exception;
@@ -332,6 +371,48 @@ public class MITKerberosOperationHandler extends KDCKerberosOperationHandler {
     return result;
   }
 
+  /**
+   * Gets the interactive kadmin processes to send queries to, creating them if this is the first
+   * query since this handler was opened.
+   *
+   * @param kadminCommand the kadmin command and its arguments, without a query
+   * @return the kadmin processes, or null if each query should be executed by a new kadmin process
+   */
+  private synchronized KAdminSessionPool getKAdminSessions(List<String> kadminCommand) {
+    if (kadminSessions == null) {
+      int size = configuration.getKerberosOperationKadminSessions();
+      if (size > 0) {
+        kadminSessions = new KAdminSessionPool(kadminCommand, getEnvironmentMap(), size, KADMIN_QUERY_TIMEOUT_MILLIS);
+      }
+    }
+
+    return kadminSessions;
+  }
+
+  /**
+   * Executes a kadmin query using one of the interactive kadmin processes.
+   *
+   * @param sessions the kadmin processes
+   * @param query    the query to execute
+   * @return a ShellCommandUtil.Result containing the result of the query
+   * @throws KerberosOperationException if the query could not be executed
+   */
+  private ShellCommandUtil.Result executeKAdminQuery(KAdminSessionPool sessions, String query)
+      throws KerberosOperationException {
+    try {
+      return sessions.execute(query);
+    } catch (IOException e) {
+      String message = String.format("Failed to execute the kadmin query: %s", e.getLocalizedMessage());
+      LOG.error(message, e);
+      throw new KerberosOperationException(message, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      String message = String.format("Failed to wait for the kadmin query to complete: %s", e.getLocalizedMessage());
+      LOG.error(message, e);
+      throw new KerberosOperationException(message, e);
+    }
+  }
+
   @Override
   protected String[] getKinitCommand(String executableKinit, PrincipalKeyCredential credentials, String credentialsCache) {
     // kinit -c <path> -S kadmin/`hostname -f` <principal>
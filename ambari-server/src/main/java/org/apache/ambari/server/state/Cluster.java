@@ -92,7 +92,7 @@ public interface Cluster {
   /**
    * Get all ServiceComponentHosts on a given host
    * @param hostname
-   * @return
+   * @return an unmodifiable list of the host components on the host
    */
   List<ServiceComponentHost> getServiceComponentHosts(String hostname);
 
@@ -125,6 +125,16 @@ public interface Cluster {
    */
   List<ServiceComponentHost> getServiceComponentHosts();
 
+  /**
+   * Gets an immutable snapshot of the host components of this cluster. The same
+   * snapshot is returned until a host component is added or removed, so callers
+   * which look up many components or hosts should take one snapshot and use it
+   * instead of querying the cluster repeatedly.
+   *
+   * @return the current host component topology of the cluster
+   */
+  ServiceComponentHostTopology getServiceComponentHostTopology();
+
   /**
    * Get all hosts associated with this cluster.
    *
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, versioned view of which {@link ServiceComponentHost}s a
+ * cluster has, indexed both by host and by service and component. A new
+ * snapshot is published by the cluster whenever a host component is added or
+ * removed; readers can therefore use a snapshot without any locking or
+ * copying, and can compare {@link #getVersion()} values to find out whether
+ * the topology changed between two snapshots.
+ */
+public final class ServiceComponentHostTopology {
+
+  private final long version;
+
+  /**
+   * [ HostName -> [ ... ] ]
+   */
+  private final Map<String, List<ServiceComponentHost>> byHost;
+
+  /**
+   * [ ServiceName -> [ ServiceComponentName -> [ HostName -> [ ... ] ] ] ]
+   */
+  private final Map<String, Map<String, Map<String, ServiceComponentHost>>> byService;
+
+  private final List<ServiceComponentHost> all;
+
+  /**
+   * Constructor.
+   *
+   * @param version
+   *          the topology version this snapshot was taken at
+   * @param byHost
+   *          the host components of each host; the lists must not be modified
+   *          after being handed to the snapshot
+   */
+  public ServiceComponentHostTopology(long version, Map<String, List<ServiceComponentHost>> byHost) {
+    this.version = version;
+
+    Map<String, Map<String, Map<String, ServiceComponentHost>>> services = new HashMap<>();
+    List<ServiceComponentHost> serviceComponentHosts = new ArrayList<>();
+    for (Map.Entry<String, List<ServiceComponentHost>> entry : byHost.entrySet()) {
+      for (ServiceComponentHost sch : entry.getValue()) {
+        services.computeIfAbsent(sch.getServiceName(), key -> new HashMap<>())
+          .computeIfAbsent(sch.getServiceComponentName(), key -> new HashMap<>())
+          .put(entry.getKey(), sch);
+        serviceComponentHosts.add(sch);
+      }
+    }
+
+    for (Map.Entry<String, Map<String, Map<String, ServiceComponentHost>>> service : services.entrySet()) {
+      for (Map.Entry<String, Map<String, ServiceComponentHost>> component : service.getValue().entrySet()) {
+        component.setValue(Collections.unmodifiableMap(component.getValue()));
+      }
+      service.setValue(Collections.unmodifiableMap(service.getValue()));
+    }
+
+    this.byHost = Collections.unmodifiableMap(new HashMap<>(byHost));
+    byService = Collections.unmodifiableMap(services);
+    all = Collections.unmodifiableList(serviceComponentHosts);
+  }
+
+  /**
+   * @return the version of the cluster topology this snapshot reflects. The
+   *         version increases every time a host component is added or removed.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return all host components of the cluster
+   */
+  public List<ServiceComponentHost> getServiceComponentHosts() {
+    return all;
+  }
+
+  /**
+   * @param hostname
+   *          the host
+   * @return the host components on the host, or an empty list if none
+   */
+  public List<ServiceComponentHost> getServiceComponentHosts(String hostname) {
+    List<ServiceComponentHost> serviceComponentHosts = byHost.get(hostname);
+    return serviceComponentHosts == null ? Collections.emptyList() : serviceComponentHosts;
+  }
+
+  /**
+   * @param serviceName
+   *          the service
+   * @param componentName
+   *          the component
+   * @return the host component by host name, or an empty map if the component
+   *         is not installed anywhere
+   */
+  public Map<String, ServiceComponentHost> getServiceComponentHosts(String serviceName, String componentName) {
+    Map<String, Map<String, ServiceComponentHost>> components = byService.get(serviceName);
+    Map<String, ServiceComponentHost> hosts = components == null ? null : components.get(componentName);
+    return hosts == null ? Collections.emptyMap() : hosts;
+  }
+
+  /**
+   * @param serviceName
+   *          the service
+   * @param componentName
+   *          the component
+   * @return the names of the hosts the component is installed on
+   */
+  public Set<String> getHostNames(String serviceName, String componentName) {
+    return getServiceComponentHosts(serviceName, componentName).keySet();
+  }
+}
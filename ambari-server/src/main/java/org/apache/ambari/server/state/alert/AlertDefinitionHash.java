@@ -20,32 +20,24 @@ package org.apache.ambari.server.state.alert;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.ClusterNotFoundException;
-import org.apache.ambari.server.agent.AlertDefinitionCommand;
 import org.apache.ambari.server.controller.RootComponent;
 import org.apache.ambari.server.controller.RootService;
 import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
 import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
-import org.apache.ambari.server.state.ConfigHelper;
-import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
@@ -53,7 +45,6 @@ import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -63,6 +54,11 @@ import com.google.inject.Singleton;
  * list of {@link AlertDefinitionEntity}s. It is used in order to represent the
  * state of a group of definitions by using
  * {@link AlertDefinitionEntity#getHash()}
+ * <p/>
+ * The definitions of each cluster are kept in an {@link AlertDefinitionIndex}
+ * which is loaded once and then kept up to date as definitions are registered
+ * and removed. The definitions of a host, and its hash, are derived from the
+ * components installed on it without querying the database.
  */
 @Singleton
 public class AlertDefinitionHash {
@@ -96,19 +92,9 @@ public class AlertDefinitionHash {
   private Provider<Clusters> m_clusters;
 
   /**
-   * Used to add configurations to the {@link AlertDefinitionCommand} instances
-   * so that alerts can be scheduled to run with access to the properties they
-   * need.
+   * The definitions of each cluster by cluster ID, loaded on first use.
    */
-  @Inject
-  private Provider<ConfigHelper> m_configHelper;
-
-  /**
-   * Due to the nature of the asynchronous events for alerts and Ambari, this
-   * lock will ensure that only a single writer is writing to the
-   * {@link ActionQueue}.
-   */
-  private ReentrantLock m_actionQueueLock = new ReentrantLock();
+  private final ConcurrentMap<Long, AlertDefinitionIndex> m_indexes = new ConcurrentHashMap<>();
 
   /**
    * The hashes for all hosts for any cluster. The key is the hostname and the
@@ -143,7 +129,7 @@ public class AlertDefinitionHash {
       }
     }
 
-    String hash = clusterMapping.get(hostName);
+    String hash = clusterMapping.get(clusterName);
     if (null != hash) {
       return hash;
     }
@@ -156,8 +142,10 @@ public class AlertDefinitionHash {
 
   /**
    * Invalidate all cached hashes causing subsequent lookups to recalculate.
+   * The definitions of all clusters are reloaded on their next use.
    */
   public void invalidateAll() {
+    m_indexes.clear();
     m_hashes.clear();
   }
 
@@ -226,25 +214,87 @@ public class AlertDefinitionHash {
    *         {@code null}).
    */
   public List<AlertDefinition> getAlertDefinitions(String clusterName, String hostName) {
-    return coerce(getAlertDefinitionEntities(clusterName, hostName));
+    try {
+      Cluster cluster = m_clusters.get().getCluster(clusterName);
+      return new ArrayList<>(getAlertDefinitions(cluster, hostName).values());
+    } catch (ClusterNotFoundException clusterNotFound) {
+      LOG.warn("Unable to get alert definitions for the missing cluster {}", clusterName);
+    } catch (AmbariException ambariException) {
+      LOG.error("Unable to get alert definitions", ambariException);
+    }
+
+    return Collections.emptyList();
   }
 
+  /**
+   * Gets the alert definitions for the specified host in all of its clusters.
+   *
+   * @param hostId
+   *          the host ID.
+   * @return the alert definitions by definition ID for each cluster ID.
+   * @throws AmbariException
+   *           if the host does not exist.
+   */
   public Map<Long, Map<Long, AlertDefinition>> getAlertDefinitions(Long hostId) throws AmbariException {
     Map<Long, Map<Long, AlertDefinition>> result = new HashMap<>();
     String hostName = m_clusters.get().getHostById(hostId).getHostName();
     for (Cluster cluster : m_clusters.get().getClustersForHost(hostName)) {
-      List<AlertDefinition> alertDefinitions = getAlertDefinitions(cluster.getClusterName(), hostName);
-      result.put(cluster.getClusterId(), mapById(alertDefinitions));
+      result.put(cluster.getClusterId(), getAlertDefinitions(cluster, hostName));
     }
     return result;
   }
 
+  /**
+   * Gets the alert definitions for the specified host in a cluster.
+   *
+   * @param clusterId
+   *          the cluster ID.
+   * @param hostName
+   *          the host name (not {@code null}).
+   * @return the alert definitions by definition ID (never {@code null}).
+   * @throws AmbariException
+   *           if the cluster does not exist.
+   * @see #getAlertDefinitions(String, String)
+   */
+  public Map<Long, AlertDefinition> getAlertDefinitions(long clusterId, String hostName) throws AmbariException {
+    return getAlertDefinitions(m_clusters.get().getClusterById(clusterId), hostName);
+  }
+
   public Map<Long, AlertDefinition> findByServiceComponent(long clusterId, String serviceName, String componentName) {
-    return mapById(coerce(m_definitionDao.findByServiceComponent(clusterId, serviceName, componentName)));
+    Map<Long, AlertDefinition> definitions = new HashMap<>();
+    getIndex(clusterId).addComponentDefinitions(serviceName, componentName, definitions);
+    return definitions;
   }
 
   public Map<Long, AlertDefinition> findByServiceMaster(long clusterId, String... serviceName) {
-    return mapById(coerce(m_definitionDao.findByServiceMaster(clusterId, Sets.newHashSet(serviceName))));
+    AlertDefinitionIndex index = getIndex(clusterId);
+    Map<Long, AlertDefinition> definitions = new HashMap<>();
+    for (String service : serviceName) {
+      index.addServiceDefinitions(service, definitions);
+    }
+    return definitions;
+  }
+
+  /**
+   * Adds a definition which was created or changed to the definitions of its
+   * cluster. The hashes of the affected hosts must be invalidated afterwards.
+   *
+   * @param definition
+   *          the definition (not {@code null}).
+   */
+  public void registerDefinition(AlertDefinition definition) {
+    getIndex(definition.getClusterId()).put(definition);
+  }
+
+  /**
+   * Removes a deleted definition from the definitions of its cluster. The
+   * hashes of the affected hosts must be invalidated afterwards.
+   *
+   * @param definition
+   *          the definition (not {@code null}).
+   */
+  public void removeDefinition(AlertDefinition definition) {
+    getIndex(definition.getClusterId()).remove(definition.getDefinitionId());
   }
 
   /**
@@ -361,26 +411,22 @@ public class AlertDefinitionHash {
       return Collections.emptySet();
     }
 
-    Map<String, Host> hosts = null;
     String clusterName = cluster.getClusterName();
     Set<String> affectedHosts = new HashSet<>();
 
-    try {
-      hosts = m_clusters.get().getHostsForCluster(clusterName);
-    } catch (AmbariException ambariException) {
-      LOG.error("Unable to lookup hosts for cluster named {}", clusterName,
-          ambariException);
-
-      return affectedHosts;
-    }
-
     String ambariServiceName = RootService.AMBARI.name();
     String agentComponentName = RootComponent.AMBARI_AGENT.name();
 
     // intercept host agent alerts; they affect all hosts
     if (ambariServiceName.equals(definitionServiceName)
         && agentComponentName.equals(definitionComponentName)) {
-      affectedHosts.addAll(hosts.keySet());
+      try {
+        affectedHosts.addAll(m_clusters.get().getHostsForCluster(clusterName).keySet());
+      } catch (AmbariException ambariException) {
+        LOG.error("Unable to lookup hosts for cluster named {}", clusterName,
+            ambariException);
+      }
+
       return affectedHosts;
     }
 
@@ -389,24 +435,6 @@ public class AlertDefinitionHash {
       return Collections.emptySet();
     }
 
-    // find all hosts that have the matching service and component
-    for (String hostName : hosts.keySet()) {
-      List<ServiceComponentHost> hostComponents = cluster.getServiceComponentHosts(hostName);
-      if (null == hostComponents || hostComponents.size() == 0) {
-        continue;
-      }
-
-      // if a host has a matching service/component, invalidate it
-      for (ServiceComponentHost component : hostComponents) {
-        String serviceName = component.getServiceName();
-        String componentName = component.getServiceComponentName();
-        if (serviceName.equals(definitionServiceName)
-            && componentName.equals(definitionComponentName)) {
-          affectedHosts.add(hostName);
-        }
-      }
-    }
-
     // get the service that this alert definition is associated with
     Map<String, Service> services = cluster.getServices();
     Service service = services.get(definitionServiceName);
@@ -417,17 +445,16 @@ public class AlertDefinitionHash {
       return affectedHosts;
     }
 
-    // get all master components of the definition's service; any hosts that
-    // run the master should be invalidated as well
+    // find all hosts that have the matching service and component, and any
+    // hosts that run a master of the definition's service
     Map<String, ServiceComponent> components = service.getServiceComponents();
     if (null != components) {
       for (Entry<String, ServiceComponent> component : components.entrySet()) {
-        if (component.getValue().isMasterComponent()) {
+        if (component.getKey().equals(definitionComponentName)
+            || component.getValue().isMasterComponent()) {
           Map<String, ServiceComponentHost> componentHosts = component.getValue().getServiceComponentHosts();
           if (null != componentHosts) {
-            for (String componentHost : componentHosts.keySet()) {
-              affectedHosts.add(componentHost);
-            }
+            affectedHosts.addAll(componentHosts.keySet());
           }
         }
       }
@@ -436,122 +463,14 @@ public class AlertDefinitionHash {
     return affectedHosts;
   }
 
-  /**
-   * Enqueue {@link AlertDefinitionCommand}s for every host in the cluster so
-   * that they will receive a payload of alert definitions that they should be
-   * running.
-   * <p/>
-   * This method is typically called after {@link #invalidateAll()} has caused a
-   * cache invalidation of all alert definitions.
-   *
-   * @param clusterId
-   *          the ID of the cluster.
-   */
-  public void enqueueAgentCommands(long clusterId) {
-    String clusterName = null;
-    Collection<String> hostNames;
-
-    try {
-      Cluster cluster = m_clusters.get().getClusterById(clusterId);
-      clusterName = cluster.getClusterName();
-      Collection<Host> hosts = cluster.getHosts();
-
-      hostNames = new ArrayList<>(hosts.size());
-      for (Host host : hosts) {
-        hostNames.add(host.getHostName());
-      }
-
-      enqueueAgentCommands(cluster, clusterName, hostNames);
-    } catch (AmbariException ae) {
-      LOG.error("Unable to lookup cluster for alert definition commands", ae);
-    }
-  }
-
-  /**
-   * Enqueue {@link AlertDefinitionCommand}s for every host specified so that
-   * they will receive a payload of alert definitions that they should be
-   * running.
-   * <p/>
-   * This method is typically called after
-   * {@link #invalidateHosts(AlertDefinitionEntity)} has caused a cache
-   * invalidation of the alert definition hash.
-   *
-   * @param clusterId
-   *          the ID of the cluster.
-   * @param hosts
-   *          the hosts to push {@link AlertDefinitionCommand}s for.
-   */
-  public void enqueueAgentCommands(long clusterId, Collection<String> hosts) {
-    String clusterName = null;
-    Cluster cluster = null;
-
-    try {
-      cluster = m_clusters.get().getClusterById(clusterId);
-      clusterName = cluster.getClusterName();
-    } catch (AmbariException ae) {
-      LOG.error("Unable to lookup cluster for alert definition commands", ae);
-    }
-
-    enqueueAgentCommands(cluster, clusterName, hosts);
-  }
-
-  /**
-   * Enqueue {@link AlertDefinitionCommand}s for every host specified so that
-   * they will receive a payload of alert definitions that they should be
-   * running.
-   * <p/>
-   * This method is typically called after
-   * {@link #invalidateHosts(AlertDefinitionEntity)} has caused a cache
-   * invalidation of the alert definition hash.
-   *
-   * @param clusterName
-   *          the name of the cluster (not {@code null}).
-   * @param hosts
-   *          the hosts to push {@link AlertDefinitionCommand}s for.
-   */
-  private void enqueueAgentCommands(Cluster cluster, String clusterName, Collection<String> hosts) {
-    if (null == clusterName) {
-      LOG.warn("Unable to create alert definition agent commands because of a null cluster name");
-      return;
-    }
-
-    if (null == hosts || hosts.size() == 0) {
-      return;
-    }
-
-    try {
-      m_actionQueueLock.lock();
-      for (String hostName : hosts) {
-        List<AlertDefinition> definitions = getAlertDefinitions(clusterName,
-            hostName);
-
-        String hash = getHash(clusterName, hostName);
-
-        Host host = cluster.getHost(hostName);
-        String publicHostName = host == null? hostName : host.getPublicHostName();
-        AlertDefinitionCommand command = new AlertDefinitionCommand(
-            clusterName, hostName, publicHostName, hash, definitions);
-
-        try {
-          command.addConfigs(m_configHelper.get(), cluster);
-        } catch (AmbariException ae) {
-          LOG.warn("Unable to add configurations to alert definition command",
-              ae);
-        }
-
-        // TODO implement alert execution commands logic
-        //m_actionQueue.enqueue(hostName, command);
-      }
-    } finally {
-      m_actionQueueLock.unlock();
-    }
-  }
-
   /**
    * Calculates a unique hash value representing all of the alert definitions
    * that should be scheduled to run on a given host. Alerts of type
    * {@link SourceType#AGGREGATE} are not included in the hash since they are
    * not run on the agents.
+   * <p/>
+   * The hash is a digest of the sorted hashes of the individual definitions,
+   * which are kept with the definitions as their UUIDs.
    *
    * @param clusterName
    *          the cluster name (not {@code null}).
@@ -560,27 +479,19 @@ public class AlertDefinitionHash {
    * @return the unique hash or {@value #NULL_MD5_HASH} if none.
    */
   private String hash(String clusterName, String hostName) {
-    Set<AlertDefinitionEntity> definitions = getAlertDefinitionEntities(
-        clusterName,
-        hostName);
+    List<AlertDefinition> definitions = getAlertDefinitions(clusterName, hostName);
 
-    // no definitions found for this host, don't bother hashing
-    if( null == definitions || definitions.size() == 0 ) {
-      return NULL_MD5_HASH;
-    }
-
-    // strip out all AGGREGATE types
-    Iterator<AlertDefinitionEntity> iterator = definitions.iterator();
-    while (iterator.hasNext()) {
-      if (SourceType.AGGREGATE.equals(iterator.next().getSourceType())) {
-        iterator.remove();
+    // build the UUIDs, stripping out all AGGREGATE types
+    List<String> uuids = new ArrayList<>(definitions.size());
+    for (AlertDefinition definition : definitions) {
+      if (!AlertDefinitionIndex.isAggregate(definition)) {
+        uuids.add(definition.getUuid());
       }
     }
 
-    // build the UUIDs
-    List<String> uuids = new ArrayList<>(definitions.size());
-    for (AlertDefinitionEntity definition : definitions) {
-      uuids.add(definition.getHash());
+    // no definitions found for this host, don't bother hashing
+    if (uuids.isEmpty()) {
+      return NULL_MD5_HASH;
     }
 
     // sort the UUIDs so that the digest is created with bytes in the same order
@@ -601,7 +512,7 @@ public class AlertDefinitionHash {
   }
 
   /**
-   * Gets the alert definition entities for the specified host. This will include the
+   * Gets the alert definitions for the specified host. This will include the
    * following types of alert definitions:
    * <ul>
    * <li>Service/Component alerts</li>
@@ -609,86 +520,73 @@ public class AlertDefinitionHash {
    * <li>Host alerts that are not bound to a service</li>
    * </ul>
    *
-   * @param clusterName
-   *          the cluster name (not {@code null}).
+   * @param cluster
+   *          the cluster (not {@code null}).
    * @param hostName
    *          the host name (not {@code null}).
-   * @return the alert definitions for the host, or an empty set (never
+   * @return the alert definitions for the host by definition ID (never
    *         {@code null}).
    */
-  private Set<AlertDefinitionEntity> getAlertDefinitionEntities(
-      String clusterName, String hostName) {
-
-    Set<AlertDefinitionEntity> definitions = new HashSet<>();
-
-    try {
-      Cluster cluster = m_clusters.get().getCluster(clusterName);
-      if (null == cluster) {
-        return Collections.emptySet();
+  private Map<Long, AlertDefinition> getAlertDefinitions(Cluster cluster, String hostName) {
+    AlertDefinitionIndex index = getIndex(cluster.getClusterId());
+    Map<Long, AlertDefinition> definitions = new HashMap<>();
+
+    // services and components
+    List<ServiceComponentHost> serviceComponents = cluster.getServiceComponentHosts(hostName);
+    if (null != serviceComponents && !serviceComponents.isEmpty()) {
+      Map<String, Service> services = cluster.getServices();
+      Set<String> masterServices = new HashSet<>();
+      for (ServiceComponentHost serviceComponent : serviceComponents) {
+        String serviceName = serviceComponent.getServiceName();
+        String componentName = serviceComponent.getServiceComponentName();
+
+        // add all alerts for this service/component pair
+        index.addComponentDefinitions(serviceName, componentName, definitions);
+
+        // the host is a master of the service if the component is a master
+        Service service = services.get(serviceName);
+        ServiceComponent component = null == service ? null : service.getServiceComponents().get(componentName);
+        if (null != component && component.isMasterComponent()) {
+          masterServices.add(serviceName);
+        }
       }
 
-      long clusterId = cluster.getClusterId();
+      // add all service scoped alerts
+      for (String serviceName : masterServices) {
+        index.addServiceDefinitions(serviceName, definitions);
+      }
+    }
 
-      // services and components
-      List<ServiceComponentHost> serviceComponents = cluster.getServiceComponentHosts(hostName);
-      if (null == serviceComponents || !serviceComponents.isEmpty()) {
-        for (ServiceComponentHost serviceComponent : serviceComponents) {
-          String serviceName = serviceComponent.getServiceName();
-          String componentName = serviceComponent.getServiceComponentName();
+    // add any alerts not bound to a service (host level alerts)
+    index.addComponentDefinitions(RootService.AMBARI.name(), RootComponent.AMBARI_AGENT.name(), definitions);
 
-          // add all alerts for this service/component pair
-          definitions.addAll(m_definitionDao.findByServiceComponent(clusterId, serviceName, componentName));
-        }
+    return definitions;
+  }
 
-        // for every service, get the master components and see if the host
-        // is a master
-        Set<String> services = new HashSet<>();
-        for (Entry<String, Service> entry : cluster.getServices().entrySet()) {
-          Service service = entry.getValue();
-          Map<String, ServiceComponent> components = service.getServiceComponents();
-          for (Entry<String, ServiceComponent> component : components.entrySet()) {
-            if (component.getValue().isMasterComponent()) {
-              Map<String, ServiceComponentHost> hosts = component.getValue().getServiceComponentHosts();
-
-              if (hosts.containsKey(hostName)) {
-                services.add(service.getName());
-              }
-            }
-          }
-        }
+  /**
+   * Gets the definitions of a cluster, loading them if needed.
+   *
+   * @param clusterId
+   *          the cluster ID.
+   * @return the definitions of the cluster (never {@code null}).
+   */
+  private AlertDefinitionIndex getIndex(long clusterId) {
+    AlertDefinitionIndex index = m_indexes.get(clusterId);
+    if (null != index) {
+      return index;
+    }
 
-        // add all service scoped alerts
-        if (services.size() > 0) {
-          definitions.addAll(m_definitionDao.findByServiceMaster(clusterId,
-              services));
-        }
+    index = new AlertDefinitionIndex();
+    for (AlertDefinitionEntity entity : m_definitionDao.findAll(clusterId)) {
+      AlertDefinition definition = m_factory.coerce(entity);
+      if (null != definition) {
+        index.put(definition);
       }
-
-      // add any alerts not bound to a service (host level alerts)
-      definitions.addAll(m_definitionDao.findAgentScoped(clusterId));
-    }
-    catch (ClusterNotFoundException clusterNotFound) {
-      LOG.warn("Unable to get alert definitions for the missing cluster {}",
-        clusterName);
-      return Collections.emptySet();
     }
-    catch (AmbariException ambariException) {
-      LOG.error("Unable to get alert definitions", ambariException);
-      return Collections.emptySet();
-    }
-
-    return definitions;
-  }
 
-  private List<AlertDefinition> coerce(Collection<AlertDefinitionEntity> entities) {
-    return entities.stream()
-      .map(m_factory::coerce)
-      .collect(Collectors.toList());
-  }
+    LOG.debug("Loaded {} alert definitions for cluster with ID {}", index.size(), clusterId);
 
-  private static Map<Long, AlertDefinition> mapById(Collection<AlertDefinition> definitions) {
-    return definitions.stream()
-      .collect(Collectors.toMap(AlertDefinition::getDefinitionId, Function.identity()));
+    AlertDefinitionIndex existing = m_indexes.putIfAbsent(clusterId, index);
+    return null == existing ? index : existing;
   }
-
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.state.alert;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@link AlertDefinitionIndex} keeps the {@link AlertDefinition}s of a
+ * single cluster in memory, indexed by the service and component they are run
+ * for, so that the definitions of a host can be derived from the components
+ * installed on it without querying the database.
+ * <p/>
+ * The index mirrors the lookups of the {@code AlertDefinitionDAO}:
+ * <ul>
+ * <li>component definitions are matched by their service and component
+ * name</li>
+ * <li>service definitions have no component, a {@link Scope#SERVICE} scope and
+ * are not {@link SourceType#AGGREGATE}; they run on the master hosts of their
+ * service</li>
+ * </ul>
+ * This class is thread safe.
+ */
+final class AlertDefinitionIndex {
+
+  private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+
+  /**
+   * All definitions by ID.
+   */
+  private final Map<Long, AlertDefinition> m_definitions = new HashMap<>();
+
+  /**
+   * The IDs of the component definitions by service and component name.
+   */
+  private final Map<String, Map<String, Set<Long>>> m_componentDefinitions = new HashMap<>();
+
+  /**
+   * The IDs of the service definitions by service name.
+   */
+  private final Map<String, Set<Long>> m_serviceDefinitions = new HashMap<>();
+
+  /**
+   * Adds a definition to the index, replacing any definition with the same ID.
+   *
+   * @param definition
+   *          the definition to add (not {@code null}).
+   */
+  void put(AlertDefinition definition) {
+    m_lock.writeLock().lock();
+    try {
+      removeDefinition(definition.getDefinitionId());
+
+      long definitionId = definition.getDefinitionId();
+      String serviceName = definition.getServiceName();
+      String componentName = definition.getComponentName();
+
+      m_definitions.put(definitionId, definition);
+      if (null != componentName) {
+        m_componentDefinitions.computeIfAbsent(serviceName, key -> new HashMap<>())
+          .computeIfAbsent(componentName, key -> new HashSet<>()).add(definitionId);
+      } else if (definition.getScope() == Scope.SERVICE && !isAggregate(definition)) {
+        m_serviceDefinitions.computeIfAbsent(serviceName, key -> new HashSet<>()).add(definitionId);
+      }
+    } finally {
+      m_lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a definition from the index.
+   *
+   * @param definitionId
+   *          the ID of the definition.
+   * @return {@code true} if the definition was indexed
+   */
+  boolean remove(long definitionId) {
+    m_lock.writeLock().lock();
+    try {
+      return removeDefinition(definitionId);
+    } finally {
+      m_lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the definitions of a service component to a map of definitions by ID.
+   *
+   * @param serviceName
+   *          the service name.
+   * @param componentName
+   *          the component name.
+   * @param definitions
+   *          the map to add the definitions to (not {@code null}).
+   */
+  void addComponentDefinitions(String serviceName, String componentName, Map<Long, AlertDefinition> definitions) {
+    m_lock.readLock().lock();
+    try {
+      Map<String, Set<Long>> components = m_componentDefinitions.get(serviceName);
+      if (null != components) {
+        addDefinitions(components.get(componentName), definitions);
+      }
+    } finally {
+      m_lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the definitions run on the master hosts of a service to a map of
+   * definitions by ID.
+   *
+   * @param serviceName
+   *          the service name.
+   * @param definitions
+   *          the map to add the definitions to (not {@code null}).
+   */
+  void addServiceDefinitions(String serviceName, Map<Long, AlertDefinition> definitions) {
+    m_lock.readLock().lock();
+    try {
+      addDefinitions(m_serviceDefinitions.get(serviceName), definitions);
+    } finally {
+      m_lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the number of indexed definitions
+   */
+  int size() {
+    m_lock.readLock().lock();
+    try {
+      return m_definitions.size();
+    } finally {
+      m_lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param definition
+   *          the definition (not {@code null}).
+   * @return {@code true} if the definition is an aggregate of other
+   *         definitions, which does not run on any host
+   */
+  static boolean isAggregate(AlertDefinition definition) {
+    Source source = definition.getSource();
+    return null != source && source.getType() == SourceType.AGGREGATE;
+  }
+
+  private void addDefinitions(Set<Long> definitionIds, Map<Long, AlertDefinition> definitions) {
+    if (null != definitionIds) {
+      for (Long definitionId : definitionIds) {
+        definitions.put(definitionId, m_definitions.get(definitionId));
+      }
+    }
+  }
+
+  private boolean removeDefinition(long definitionId) {
+    AlertDefinition definition = m_definitions.remove(definitionId);
+    if (null == definition) {
+      return false;
+    }
+
+    String serviceName = definition.getServiceName();
+    Map<String, Set<Long>> components = m_componentDefinitions.get(serviceName);
+    if (null != components) {
+      Set<Long> definitionIds = components.get(definition.getComponentName());
+      if (null != definitionIds && definitionIds.remove(definitionId) && definitionIds.isEmpty()) {
+        components.remove(definition.getComponentName());
+      }
+    }
+
+    Set<Long> definitionIds = m_serviceDefinitions.get(serviceName);
+    if (null != definitionIds && definitionIds.remove(definitionId) && definitionIds.isEmpty()) {
+      m_serviceDefinitions.remove(serviceName);
+    }
+
+    return true;
+  }
+}
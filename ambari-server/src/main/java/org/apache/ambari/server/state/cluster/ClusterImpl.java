@@ -36,9 +36,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -127,6 +128,7 @@ import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.ambari.server.state.ServiceComponentHostEvent;
 import org.apache.ambari.server.state.ServiceComponentHostEventType;
+import org.apache.ambari.server.state.ServiceComponentHostTopology;
 import org.apache.ambari.server.state.ServiceFactory;
 import org.apache.ambari.server.state.ServiceInfo;
 import org.apache.ambari.server.state.StackId;
@@ -150,10 +152,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Functions;
-import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -192,9 +192,31 @@ public class ClusterImpl implements Cluster {
 
   /**
    * [ HostName -> [ ... ] ]
+   * <p/>
+   * The lists are immutable and are replaced whenever a host component is
+   * added to or removed from the host, so they can be handed out without being
+   * copied.
    */
   private final ConcurrentMap<String, List<ServiceComponentHost>> serviceComponentHostsByHost = new ConcurrentHashMap<>();
 
+  /**
+   * Serializes changes to {@link #serviceComponentHosts} and
+   * {@link #serviceComponentHostsByHost}, and guards
+   * {@link #serviceComponentHostsVersion}.
+   */
+  private final Lock serviceComponentHostsLock;
+
+  /**
+   * Incremented on every change to the host components of this cluster.
+   */
+  private long serviceComponentHostsVersion;
+
+  /**
+   * The snapshot of the current host components, or {@code null} if it must be
+   * rebuilt since the host components changed after it was taken.
+   */
+  private volatile ServiceComponentHostTopology serviceComponentHostTopology;
+
   /**
    * Map of existing config groups
    */
@@ -333,6 +355,7 @@ public class ClusterImpl implements Cluster {
     injector.injectMembers(this);
 
     clusterGlobalLock = lockFactory.newReadWriteLock("clusterGlobalLock");
+    serviceComponentHostsLock = lockFactory.newLock("serviceComponentHostsLock");
 
     loadStackVersion();
     loadServices();
@@ -395,6 +418,8 @@ public class ClusterImpl implements Cluster {
    * We need this for live status checks.
    */
   private void loadServiceHostComponents() {
+    Map<String, List<ServiceComponentHost>> hostComponentsByHost = new HashMap<>();
+
     for (Entry<String, Service> serviceKV : services.entrySet()) {
       /* get all the service component hosts **/
       Service service = serviceKV.getValue();
@@ -413,12 +438,7 @@ public class ClusterImpl implements Cluster {
         for (Entry<String, ServiceComponentHost> svchost : comp.getServiceComponentHosts().entrySet()) {
           String hostname = svchost.getKey();
           ServiceComponentHost svcHostComponent = svchost.getValue();
-          if (!serviceComponentHostsByHost.containsKey(hostname)) {
-            serviceComponentHostsByHost.put(hostname, new CopyOnWriteArrayList<>());
-          }
-
-          List<ServiceComponentHost> compList = serviceComponentHostsByHost.get(hostname);
-          compList.add(svcHostComponent);
+          hostComponentsByHost.computeIfAbsent(hostname, key -> new ArrayList<>()).add(svcHostComponent);
 
           if (!serviceComponentHosts.get(service.getName()).get(componentName).containsKey(
               hostname)) {
@@ -428,6 +448,11 @@ public class ClusterImpl implements Cluster {
         }
       }
     }
+
+    for (Entry<String, List<ServiceComponentHost>> hostComponents : hostComponentsByHost.entrySet()) {
+      serviceComponentHostsByHost.put(hostComponents.getKey(),
+          Collections.unmodifiableList(hostComponents.getValue()));
+    }
   }
 
   private void loadServices() {
@@ -578,13 +603,77 @@ public class ClusterImpl implements Cluster {
   }
 
   public List<ServiceComponentHost> getServiceComponentHosts() {
-    List<ServiceComponentHost> serviceComponentHosts = new ArrayList<>();
-    if (!serviceComponentHostsByHost.isEmpty()) {
-      for (List<ServiceComponentHost> schList : serviceComponentHostsByHost.values()) {
-        serviceComponentHosts.addAll(schList);
+    return getServiceComponentHostTopology().getServiceComponentHosts();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ServiceComponentHostTopology getServiceComponentHostTopology() {
+    ServiceComponentHostTopology topology = serviceComponentHostTopology;
+    if (null != topology) {
+      return topology;
+    }
+
+    // the host components changed since the last snapshot was taken; only the
+    // first reader after a change pays for building the new one
+    serviceComponentHostsLock.lock();
+    try {
+      topology = serviceComponentHostTopology;
+      if (null == topology) {
+        topology = new ServiceComponentHostTopology(serviceComponentHostsVersion,
+            serviceComponentHostsByHost);
+
+        serviceComponentHostTopology = topology;
       }
+
+      return topology;
+    } finally {
+      serviceComponentHostsLock.unlock();
     }
-    return Collections.unmodifiableList(serviceComponentHosts);
+  }
+
+  /**
+   * Records that the host components of this cluster changed. Must be called
+   * while holding {@link #serviceComponentHostsLock}.
+   */
+  private void serviceComponentHostsChanged() {
+    serviceComponentHostsVersion++;
+    serviceComponentHostTopology = null;
+  }
+
+  /**
+   * Replaces the host component list of the host with one which also contains
+   * the specified host component. Must be called while holding
+   * {@link #serviceComponentHostsLock}.
+   */
+  private void addServiceComponentHostToHost(String hostname, ServiceComponentHost sch) {
+    List<ServiceComponentHost> current = serviceComponentHostsByHost.get(hostname);
+    List<ServiceComponentHost> updated = new ArrayList<>(null == current ? 1 : current.size() + 1);
+    if (null != current) {
+      updated.addAll(current);
+    }
+
+    updated.add(sch);
+    serviceComponentHostsByHost.put(hostname, Collections.unmodifiableList(updated));
+  }
+
+  /**
+   * Replaces the host component list of the host with one which no longer
+   * contains the host components matching the predicate. Must be called while
+   * holding {@link #serviceComponentHostsLock}.
+   */
+  private void removeServiceComponentHostsFromHost(String hostname,
+      Predicate<ServiceComponentHost> predicate) {
+    List<ServiceComponentHost> current = serviceComponentHostsByHost.get(hostname);
+    if (null == current || current.stream().noneMatch(predicate)) {
+      return;
+    }
+
+    List<ServiceComponentHost> updated = new ArrayList<>(current);
+    updated.removeIf(predicate);
+    serviceComponentHostsByHost.put(hostname, Collections.unmodifiableList(updated));
   }
 
   @Override
@@ -666,34 +755,36 @@ public class ClusterImpl implements Cluster {
           + ", clusterId=" + getClusterId());
     }
 
-    if (!serviceComponentHosts.containsKey(serviceName)) {
-      serviceComponentHosts.put(serviceName, new ConcurrentHashMap<>());
-    }
-
-    if (!serviceComponentHosts.get(serviceName).containsKey(componentName)) {
-      serviceComponentHosts.get(serviceName).put(componentName, new ConcurrentHashMap<>());
-    }
+    serviceComponentHostsLock.lock();
+    try {
+      if (!serviceComponentHosts.containsKey(serviceName)) {
+        serviceComponentHosts.put(serviceName, new ConcurrentHashMap<>());
+      }
 
-    if (serviceComponentHosts.get(serviceName).get(componentName).containsKey(
-        hostname)) {
-      throw new AmbariException("Duplicate entry for ServiceComponentHost"
-          + ", serviceName=" + serviceName + ", serviceComponentName"
-          + componentName + ", hostname= " + hostname);
-    }
+      if (!serviceComponentHosts.get(serviceName).containsKey(componentName)) {
+        serviceComponentHosts.get(serviceName).put(componentName, new ConcurrentHashMap<>());
+      }
 
-    if (!serviceComponentHostsByHost.containsKey(hostname)) {
-      serviceComponentHostsByHost.put(hostname, new CopyOnWriteArrayList<>());
-    }
+      if (serviceComponentHosts.get(serviceName).get(componentName).containsKey(
+          hostname)) {
+        throw new AmbariException("Duplicate entry for ServiceComponentHost"
+            + ", serviceName=" + serviceName + ", serviceComponentName"
+            + componentName + ", hostname= " + hostname);
+      }
 
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("Adding a new ServiceComponentHost, clusterName={}, clusterId={}, serviceName={}, serviceComponentName{}, hostname= {}",
-        getClusterName(), getClusterId(), serviceName, componentName, hostname);
-    }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Adding a new ServiceComponentHost, clusterName={}, clusterId={}, serviceName={}, serviceComponentName{}, hostname= {}",
+          getClusterName(), getClusterId(), serviceName, componentName, hostname);
+      }
 
-    serviceComponentHosts.get(serviceName).get(componentName).put(hostname,
-      svcCompHost);
+      serviceComponentHosts.get(serviceName).get(componentName).put(hostname,
+        svcCompHost);
 
-    serviceComponentHostsByHost.get(hostname).add(svcCompHost);
+      addServiceComponentHostToHost(hostname, svcCompHost);
+      serviceComponentHostsChanged();
+    } finally {
+      serviceComponentHostsLock.unlock();
+    }
   }
 
   @Override
@@ -727,46 +818,54 @@ public class ClusterImpl implements Cluster {
           + ", clusterId=" + getClusterId());
     }
 
-    if (!serviceComponentHosts.containsKey(serviceName)
-        || !serviceComponentHosts.get(serviceName).containsKey(componentName)
-        || !serviceComponentHosts.get(serviceName).get(componentName).containsKey(
-            hostname)) {
-      throw new AmbariException("Invalid entry for ServiceComponentHost"
-          + ", serviceName=" + serviceName + ", serviceComponentName"
-          + componentName + ", hostname= " + hostname);
-    }
+    serviceComponentHostsLock.lock();
+    try {
+      if (!serviceComponentHosts.containsKey(serviceName)
+          || !serviceComponentHosts.get(serviceName).containsKey(componentName)
+          || !serviceComponentHosts.get(serviceName).get(componentName).containsKey(
+              hostname)) {
+        throw new AmbariException("Invalid entry for ServiceComponentHost"
+            + ", serviceName=" + serviceName + ", serviceComponentName"
+            + componentName + ", hostname= " + hostname);
+      }
 
-    if (!serviceComponentHostsByHost.containsKey(hostname)) {
-      throw new AmbariException("Invalid host entry for ServiceComponentHost"
-          + ", serviceName=" + serviceName + ", serviceComponentName"
-          + componentName + ", hostname= " + hostname);
-    }
+      if (!serviceComponentHostsByHost.containsKey(hostname)) {
+        throw new AmbariException("Invalid host entry for ServiceComponentHost"
+            + ", serviceName=" + serviceName + ", serviceComponentName"
+            + componentName + ", hostname= " + hostname);
+      }
 
-    ServiceComponentHost schToRemove = null;
-    for (ServiceComponentHost sch : serviceComponentHostsByHost.get(hostname)) {
-      if (sch.getServiceName().equals(serviceName)
-          && sch.getServiceComponentName().equals(componentName)
-          && sch.getHostName().equals(hostname)) {
-        schToRemove = sch;
-        break;
+      ServiceComponentHost schToRemove = null;
+      for (ServiceComponentHost sch : serviceComponentHostsByHost.get(hostname)) {
+        if (sch.getServiceName().equals(serviceName)
+            && sch.getServiceComponentName().equals(componentName)
+            && sch.getHostName().equals(hostname)) {
+          schToRemove = sch;
+          break;
+        }
       }
-    }
 
-    if (schToRemove == null) {
-      LOG.warn("Unavailable in per host cache. ServiceComponentHost"
-        + ", serviceName=" + serviceName
-        + ", serviceComponentName" + componentName
-        + ", hostname= " + hostname);
-    }
+      if (schToRemove == null) {
+        LOG.warn("Unavailable in per host cache. ServiceComponentHost"
+          + ", serviceName=" + serviceName
+          + ", serviceComponentName" + componentName
+          + ", hostname= " + hostname);
+      }
 
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("Removing a ServiceComponentHost, clusterName={}, clusterId={}, serviceName={}, serviceComponentName{}, hostname= {}",
-        getClusterName(), getClusterId(), serviceName, componentName, hostname);
-    }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Removing a ServiceComponentHost, clusterName={}, clusterId={}, serviceName={}, serviceComponentName{}, hostname= {}",
+          getClusterName(), getClusterId(), serviceName, componentName, hostname);
+      }
 
-    serviceComponentHosts.get(serviceName).get(componentName).remove(hostname);
-    if (schToRemove != null) {
-      serviceComponentHostsByHost.get(hostname).remove(schToRemove);
+      serviceComponentHosts.get(serviceName).get(componentName).remove(hostname);
+      if (schToRemove != null) {
+        final ServiceComponentHost removed = schToRemove;
+        removeServiceComponentHostsFromHost(hostname, sch -> sch == removed);
+      }
+
+      serviceComponentHostsChanged();
+    } finally {
+      serviceComponentHostsLock.unlock();
     }
   }
 
@@ -779,12 +878,13 @@ public class ClusterImpl implements Cluster {
 
   @Override
   public List<ServiceComponentHost> getServiceComponentHosts(String hostname) {
+    // the per-host lists are immutable, so they can be returned as-is
     List<ServiceComponentHost> serviceComponentHosts = serviceComponentHostsByHost.get(hostname);
     if (null != serviceComponentHosts) {
-      return new CopyOnWriteArrayList<>(serviceComponentHosts);
+      return serviceComponentHosts;
     }
 
-    return new ArrayList<>();
+    return Collections.emptyList();
   }
 
   @Override
@@ -1324,15 +1424,18 @@ public class ClusterImpl implements Cluster {
       return;
     }
 
-    serviceComponentHosts.remove(serviceName);
+    serviceComponentHostsLock.lock();
+    try {
+      serviceComponentHosts.remove(serviceName);
 
-    for (List<ServiceComponentHost> serviceComponents: serviceComponentHostsByHost.values()){
-      Iterables.removeIf(serviceComponents, new Predicate<ServiceComponentHost>() {
-        @Override
-        public boolean apply(ServiceComponentHost serviceComponentHost) {
-          return serviceComponentHost.getServiceName().equals(serviceName);
-        }
-      });
+      for (String hostname : serviceComponentHostsByHost.keySet()) {
+        removeServiceComponentHostsFromHost(hostname,
+            serviceComponentHost -> serviceComponentHost.getServiceName().equals(serviceName));
+      }
+
+      serviceComponentHostsChanged();
+    } finally {
+      serviceComponentHostsLock.unlock();
     }
   }
 
@@ -21,9 +21,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,9 +33,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -56,6 +63,7 @@ import org.apache.ambari.server.notifications.DispatchRunnable;
 import org.apache.ambari.server.notifications.Notification;
 import org.apache.ambari.server.notifications.NotificationDispatcher;
 import org.apache.ambari.server.notifications.Recipient;
+import org.apache.ambari.server.notifications.dispatchers.AlertScriptDispatcher;
 import org.apache.ambari.server.orm.dao.AlertDispatchDAO;
 import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
 import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
@@ -64,12 +72,20 @@ import org.apache.ambari.server.orm.entities.AlertTargetEntity;
 import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.NotificationState;
 import org.apache.ambari.server.state.alert.AlertNotification;
+import org.apache.ambari.server.state.alert.TargetType;
 import org.apache.commons.io.IOUtils;
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.RuntimeSingleton;
+import org.apache.velocity.runtime.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -111,6 +127,11 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    */
   private static final String VELOCITY_LOG_TAG = "ambari-alerts";
 
+  /**
+   * The prefix of the names of the dispatch metrics.
+   */
+  private static final String METRIC_PREFIX = "alerts.notifications.";
+
   /**
    * The internal Ambari templates that ship.
    */
@@ -188,17 +209,53 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
   private Provider<AmbariMetaInfo> m_metaInfo;
 
   /**
-   * The executor responsible for dispatching.
+   * The executor responsible for dispatching, created on first use with
+   * {@link Configuration#getAlertNotificationDispatchPoolSize()} threads.
    */
   private Executor m_executor;
 
+  /**
+   * The notifications waiting for each alert target, keyed by target ID. They
+   * are handed to the {@link #m_executor} so that no more than
+   * {@link Configuration#getAlertNotificationDispatchTargetConcurrency()}
+   * notifications are dispatched to a single target at a time. This keeps a
+   * slow target from occupying every dispatch thread and bounds the number of
+   * tasks queued in the executor.
+   */
+  private final ConcurrentMap<Long, TargetDispatchQueue> m_targetQueues = new ConcurrentHashMap<>();
+
+  /**
+   * Dispatch statistics, published by the
+   * {@link org.apache.ambari.server.metrics.system.impl.AlertNoticeDispatchMetricsSource}.
+   */
+  private final MetricRegistry m_metricRegistry = new MetricRegistry();
+  private final Timer m_queueTimer;
+  private final Timer m_dispatchTimer;
+  private final Counter m_dispatchedCounter;
+  private final Counter m_deliveredCounter;
+  private final Counter m_failedCounter;
+
+  /**
+   * The number of notifications created but not yet handed to a dispatcher.
+   */
+  private final AtomicInteger m_backlog = new AtomicInteger();
+
+  /**
+   * The number of pending notices found by the last iteration.
+   */
+  private volatile int m_pendingNotices;
+
   /**
    * Constructor.
    */
   public AlertNoticeDispatchService() {
-    m_executor = new ThreadPoolExecutor(0, 2, 5L, TimeUnit.MINUTES,
-      new LinkedBlockingQueue<>(), new AlertDispatchThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy());
+    m_queueTimer = m_metricRegistry.timer(METRIC_PREFIX + "queue");
+    m_dispatchTimer = m_metricRegistry.timer(METRIC_PREFIX + "dispatch");
+    m_dispatchedCounter = m_metricRegistry.counter(METRIC_PREFIX + "dispatched");
+    m_deliveredCounter = m_metricRegistry.counter(METRIC_PREFIX + "delivered");
+    m_failedCounter = m_metricRegistry.counter(METRIC_PREFIX + "failed");
+    m_metricRegistry.register(METRIC_PREFIX + "pending", (Gauge<Integer>) () -> m_pendingNotices);
+    m_metricRegistry.register(METRIC_PREFIX + "backlog", (Gauge<Integer>) m_backlog::get);
 
     GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(AlertTargetProperties.class,
@@ -262,16 +319,63 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    *          the executor to use (not {@code null).
 
    */
-  protected void setExecutor(Executor executor) {
+  protected synchronized void setExecutor(Executor executor) {
     m_executor = executor;
   }
 
+  /**
+   * Gets the {@link Executor} to use when dispatching {@link Notification}s,
+   * creating it if needed.
+   *
+   * @return the executor (never {@code null}).
+   */
+  private synchronized Executor getExecutor() {
+    if (null == m_executor) {
+      int poolSize = Math.max(1, m_configuration.getAlertNotificationDispatchPoolSize());
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 5L,
+          TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new AlertDispatchThreadFactory());
+
+      executor.allowCoreThreadTimeOut(true);
+      m_executor = executor;
+    }
+
+    return m_executor;
+  }
+
+  /**
+   * Gets the statistics of the alert notifications dispatched by this service.
+   *
+   * @return the dispatch metrics (never {@code null}).
+   */
+  public MetricRegistry getMetricRegistry() {
+    return m_metricRegistry;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Stops the dispatch threads once they have sent the notifications which
+   * are already queued, and the alert script workers.
+   */
+  @Override
+  protected synchronized void shutDown() throws Exception {
+    if (m_executor instanceof ExecutorService) {
+      ((ExecutorService) m_executor).shutdown();
+    }
+
+    NotificationDispatcher scriptDispatcher = m_dispatchFactory.getDispatcher(TargetType.ALERT_SCRIPT.name());
+    if (scriptDispatcher instanceof AlertScriptDispatcher) {
+      ((AlertScriptDispatcher) scriptDispatcher).shutdown();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   protected void runOneIteration() throws Exception {
     List<AlertNoticeEntity> pending = m_dao.findPendingNotices();
+    m_pendingNotices = pending.size();
     if (pending.size() == 0) {
       return;
     }
@@ -282,6 +386,8 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     Map<AlertTargetEntity, List<AlertNoticeEntity>> aggregateMap =
       new HashMap<>(pending.size());
 
+    List<Long> noticeIds = new ArrayList<>(pending.size());
+
     // combine all histories by target
     for (AlertNoticeEntity notice : pending) {
       AlertTargetEntity target = notice.getAlertTarget();
@@ -292,13 +398,19 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         aggregateMap.put(target, notices);
       }
 
-      // at this point, notices have been processed but not yet delivered
-      notice.setNotifyState(NotificationState.DISPATCHED);
-      notice = m_dao.merge(notice);
-
+      noticeIds.add(notice.getNotificationId());
       notices.add(notice);
     }
 
+    // at this point, notices have been processed but not yet delivered; move
+    // all of them to DISPATCHED with a bulk update rather than merging each
+    m_dao.updateNotifyState(noticeIds, NotificationState.DISPATCHED);
+    m_dispatchedCounter.inc(noticeIds.size());
+
+    for (AlertNoticeEntity notice : pending) {
+      notice.setNotifyState(NotificationState.DISPATCHED);
+    }
+
     // now that all of the notices are grouped by target, dispatch them
     Set<AlertTargetEntity> targets = aggregateMap.keySet();
     for (AlertTargetEntity target : targets) {
@@ -333,8 +445,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
             renderDigestNotificationContent(dispatcher, notification, histories, target);
 
             // dispatch
-            DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-            m_executor.execute(runnable);
+            dispatch(target, dispatcher, notification);
           } catch (Exception exception) {
             LOG.error("Unable to create notification for alerts", exception);
 
@@ -357,8 +468,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
               renderNotificationContent(dispatcher, notification, history, target);
 
               // dispatch
-              DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-              m_executor.execute(runnable);
+              dispatch(target, dispatcher, notification);
             } catch (Exception exception) {
               LOG.error("Unable to create notification for alert", exception);
 
@@ -384,6 +494,46 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     return Scheduler.newFixedDelaySchedule(2, 2, TimeUnit.MINUTES);
   }
 
+  /**
+   * Queues the {@link Notification} for dispatch to its target.
+   *
+   * @param target
+   *          the target of the {@link Notification}.
+   * @param dispatcher
+   *          the dispatcher for this notification type (not {@code null}).
+   * @param notification
+   *          the notification to dispatch (not {@code null}).
+   */
+  private void dispatch(AlertTargetEntity target, NotificationDispatcher dispatcher,
+      Notification notification) {
+    m_backlog.incrementAndGet();
+    TargetDispatchQueue queue = m_targetQueues.computeIfAbsent(target.getTargetId(),
+        TargetDispatchQueue::new);
+
+    queue.add(new TimedDispatchRunnable(dispatcher, notification));
+  }
+
+  /**
+   * Compiles a Velocity template so that it can be rendered any number of
+   * times without being parsed again.
+   *
+   * @param source
+   *          the template (not {@code null}).
+   * @return the compiled template.
+   * @throws ParseException
+   *           if the template is not valid
+   */
+  private static Template compileTemplate(String source) throws ParseException {
+    RuntimeServices runtimeServices = RuntimeSingleton.getRuntimeServices();
+
+    Template template = new Template();
+    template.setName(VELOCITY_LOG_TAG);
+    template.setRuntimeServices(runtimeServices);
+    template.setData(runtimeServices.parse(new StringReader(source), VELOCITY_LOG_TAG));
+    template.initDocument();
+    return template;
+  }
+
   /**
    * Initializes a {@link Notification} instance from an
    * {@link AlertTargetEntity}. This method does most of the boilerplate work to
@@ -451,7 +601,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    */
   private void renderDigestNotificationContent(NotificationDispatcher dispatcher,
       AlertNotification notification, List<AlertHistoryEntity> histories, AlertTargetEntity target)
-      throws IOException {
+      throws IOException, ParseException {
     String targetType = target.getNotificationType();
 
     // build the velocity objects for template rendering
@@ -472,15 +622,9 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         velocityContext.put(VELOCITY_SUMMARY_KEY, summary);
         velocityContext.put(VELOCITY_DISPATCH_KEY, dispatch);
 
-        // render the template and assign the content to the notification
-        String subjectTemplate = template.getSubject();
-        String bodyTemplate = template.getBody();
-
-        // render the subject
-        Velocity.evaluate(velocityContext, subjectWriter, VELOCITY_LOG_TAG, subjectTemplate);
-
-        // render the body
-        Velocity.evaluate(velocityContext, bodyWriter, VELOCITY_LOG_TAG, bodyTemplate);
+        // render the subject and body with the templates compiled on first use
+        template.getCompiledSubject().merge(velocityContext, subjectWriter);
+        template.getCompiledBody().merge(velocityContext, bodyWriter);
       } else {
         // a null template is possible from parsing incorrectly or not
         // having the correct type defined for the target
@@ -516,7 +660,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
    */
   private void renderNotificationContent(NotificationDispatcher dispatcher,
       AlertNotification notification, AlertHistoryEntity history, AlertTargetEntity target)
-      throws IOException {
+      throws IOException, ParseException {
     String targetType = target.getNotificationType();
 
     // build the velocity objects for template rendering
@@ -541,15 +685,9 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         velocityContext.put(VELOCITY_ALERT_KEY, alert);
         velocityContext.put(VELOCITY_DISPATCH_KEY, dispatch);
 
-        // render the template and assign the content to the notification
-        String subjectTemplate = template.getSubject();
-        String bodyTemplate = template.getBody();
-
-        // render the subject
-        Velocity.evaluate(velocityContext, subjectWriter, VELOCITY_LOG_TAG, subjectTemplate);
-
-        // render the body
-        Velocity.evaluate(velocityContext, bodyWriter, VELOCITY_LOG_TAG, bodyTemplate);
+        // render the subject and body with the templates compiled on first use
+        template.getCompiledSubject().merge(velocityContext, subjectWriter);
+        template.getCompiledBody().merge(velocityContext, bodyWriter);
       } else {
         // a null template is possible from parsing incorrectly or not
         // having the correct type defined for the target
@@ -656,6 +794,134 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     }
   }
 
+  /**
+   * The {@link TargetDispatchQueue} holds the notifications waiting to be
+   * dispatched to a single alert target and hands them to the executor, no
+   * more than
+   * {@link Configuration#getAlertNotificationDispatchTargetConcurrency()} at a
+   * time. The queue removes itself from {@link #m_targetQueues} once it is
+   * empty.
+   */
+  private final class TargetDispatchQueue {
+
+    private final Long m_targetId;
+    private final Queue<TimedDispatchRunnable> m_pending = new ArrayDeque<>();
+    private int m_running = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param targetId
+     *          the ID of the target that the notifications are for.
+     */
+    private TargetDispatchQueue(Long targetId) {
+      m_targetId = targetId;
+    }
+
+    /**
+     * Queues the runnable, dispatching it right away if the target is not
+     * already busy.
+     *
+     * @param runnable
+     *          the dispatch to run (not {@code null}).
+     */
+    private synchronized void add(TimedDispatchRunnable runnable) {
+      m_pending.add(runnable);
+      schedule();
+    }
+
+    /**
+     * Hands queued runnables to the executor until the target's limit is
+     * reached.
+     */
+    private synchronized void schedule() {
+      int concurrency = Math.max(1, m_configuration.getAlertNotificationDispatchTargetConcurrency());
+      while (m_running < concurrency && !m_pending.isEmpty()) {
+        final TimedDispatchRunnable runnable = m_pending.poll();
+        m_running++;
+
+        try {
+          getExecutor().execute(() -> {
+            try {
+              runnable.run();
+            } finally {
+              complete();
+            }
+          });
+        } catch (RejectedExecutionException exception) {
+          m_running--;
+          LOG.error("Unable to dispatch an alert notification to target {}", m_targetId, exception);
+          runnable.reject();
+        }
+      }
+    }
+
+    /**
+     * Invoked when a dispatch finishes in order to start the next one.
+     */
+    private synchronized void complete() {
+      m_running--;
+      if (m_running == 0 && m_pending.isEmpty()) {
+        m_targetQueues.remove(m_targetId, this);
+      } else {
+        schedule();
+      }
+    }
+  }
+
+  /**
+   * The {@link TimedDispatchRunnable} dispatches a {@link Notification} and
+   * records how long it waited to be dispatched and how long the dispatch
+   * took.
+   */
+  private final class TimedDispatchRunnable implements Runnable {
+
+    private final DispatchRunnable m_runnable;
+    private final Notification m_notification;
+    private final long m_queuedTime = System.nanoTime();
+
+    /**
+     * Constructor.
+     *
+     * @param dispatcher
+     *          the dispatcher to dispatch to (not {@code null}).
+     * @param notification
+     *          the notification to dispatch (not {@code null}).
+     */
+    private TimedDispatchRunnable(NotificationDispatcher dispatcher, Notification notification) {
+      m_runnable = new DispatchRunnable(dispatcher, notification);
+      m_notification = notification;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      m_backlog.decrementAndGet();
+      m_queueTimer.update(System.nanoTime() - m_queuedTime, TimeUnit.NANOSECONDS);
+
+      Timer.Context timerContext = m_dispatchTimer.time();
+      try {
+        m_runnable.run();
+      } catch (Exception exception) {
+        LOG.error("Unable to dispatch an alert notification", exception);
+      } finally {
+        timerContext.stop();
+      }
+    }
+
+    /**
+     * Marks the notification as failed without dispatching it.
+     */
+    private void reject() {
+      m_backlog.decrementAndGet();
+      if (null != m_notification.Callback) {
+        m_notification.Callback.onFailure(m_notification.CallbackIds);
+      }
+    }
+  }
+
   /**
    * The {@link AlertNoticeDispatchCallback} is used to receive a callback from
    * the dispatch framework and then update the {@link AlertNoticeEntity}
@@ -668,9 +934,8 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onSuccess(List<String> callbackIds) {
-      for (String callbackId : callbackIds) {
-        updateAlertNotice(callbackId, NotificationState.DELIVERED);
-      }
+      m_deliveredCounter.inc(callbackIds.size());
+      updateAlertNotices(callbackIds, NotificationState.DELIVERED);
     }
 
     /**
@@ -678,32 +943,27 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onFailure(List<String> callbackIds) {
-      for (String callbackId : callbackIds) {
-        updateAlertNotice(callbackId, NotificationState.FAILED);
-      }
+      m_failedCounter.inc(callbackIds.size());
+      updateAlertNotices(callbackIds, NotificationState.FAILED);
     }
 
     /**
-     * Updates the {@link AlertNoticeEntity} matching the given UUID with the
-     * specified state.
+     * Updates the {@link AlertNoticeEntity}s matching the given UUIDs with the
+     * specified state in a single bulk update.
      *
-     * @param uuid
+     * @param uuids
      * @param state
      */
-    private void updateAlertNotice(String uuid, NotificationState state) {
+    private void updateAlertNotices(List<String> uuids, NotificationState state) {
       try {
-        AlertNoticeEntity entity = m_dao.findNoticeByUuid(uuid);
-        if (null == entity) {
-          LOG.warn("Unable to find an alert notice with UUID {}", uuid);
-          return;
+        int updated = m_dao.updateNotifyStateByUuids(uuids, state);
+        if (updated < uuids.size()) {
+          LOG.warn("Only {} of the alert notices with UUIDs {} were found and set to {}",
+              updated, uuids, state);
         }
-
-        entity.setNotifyState(state);
-        m_dao.merge(entity);
       } catch (Exception exception) {
-        LOG.error(
-            "Unable to update the alert notice with UUID {} to {}, notifications will continue to be sent",
-            uuid, state, exception);
+        LOG.error("Unable to update the alert notices with UUIDs {} to {}", uuids, state,
+            exception);
       }
     }
   }
@@ -1206,6 +1466,13 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     @XmlElement(name = "body", required = true)
     private String m_body;
 
+    /**
+     * The parsed subject and body templates, kept so that the templates are
+     * not parsed again for every {@link Notification}.
+     */
+    private volatile Template m_compiledSubject;
+    private volatile Template m_compiledBody;
+
     /**
      * Gets the template type.
      *
@@ -1232,5 +1499,35 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     public String getBody() {
       return m_body;
     }
+
+    /**
+     * Gets the subject template, compiling it on first use.
+     *
+     * @return the compiled subject template.
+     * @throws ParseException
+     *           if the subject template is not valid
+     */
+    Template getCompiledSubject() throws ParseException {
+      if (null == m_compiledSubject) {
+        m_compiledSubject = compileTemplate(m_subject);
+      }
+
+      return m_compiledSubject;
+    }
+
+    /**
+     * Gets the body template, compiling it on first use.
+     *
+     * @return the compiled body template.
+     * @throws ParseException
+     *           if the body template is not valid
+     */
+    Template getCompiledBody() throws ParseException {
+      if (null == m_compiledBody) {
+        m_compiledBody = compileTemplate(m_body);
+      }
+
+      return m_compiledBody;
+    }
   }
 }
@@ -23,12 +23,21 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,16 +45,17 @@ import java.util.concurrent.TimeUnit;
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.jmx.JMXMetricHolder;
+import org.apache.ambari.server.controller.jmx.JMXMetricHolderReader;
 import org.apache.ambari.server.controller.utilities.ScalingThreadPoolExecutor;
 import org.apache.ambari.server.controller.utilities.StreamProvider;
 import org.apache.commons.io.IOUtils;
-import org.codehaus.jackson.JsonParser;
-import org.codehaus.jackson.map.DeserializationConfig;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
@@ -79,7 +89,15 @@ import com.google.inject.Inject;
  * <p/>
  * In order to control throttling requests to the same endpoint,
  * {@link Configuration#isMetricsServiceRequestTTLCacheEnabled()} can be enabled
- * to allow for a fixed interval of time to pass between requests.
+ * to allow for a fixed interval of time to pass between requests. The number of
+ * requests which may be queued or running against any one host is bounded by
+ * {@link Configuration#getMetricsServiceMaxRequestsPerHost()} so that hosts
+ * which stop responding cannot starve requests to healthy hosts. Further
+ * requests for such a host wait, in the order they were submitted, until one
+ * of its outstanding requests completes.
+ * <p/>
+ * Request latency, timeouts, failures and discarded requests are recorded in
+ * the {@link MetricRegistry} returned by {@link #getMetricRegistry()}.
  */
 @AmbariService
 public class MetricsRetrievalService extends AbstractService {
@@ -119,6 +137,18 @@ public class MetricsRetrievalService extends AbstractService {
   private static final Cache<String, Throwable> s_exceptionCache = CacheBuilder.newBuilder().expireAfterWrite(
       EXCEPTION_CACHE_TIMEOUT_MINUTES, TimeUnit.MINUTES).build();
 
+  /**
+   * The names of the metrics kept in {@link #getMetricRegistry()}.
+   */
+  public static final String JMX_LATENCY_METRIC = "metrics.retrieval.jmx.latency";
+  public static final String REST_LATENCY_METRIC = "metrics.retrieval.rest.latency";
+  public static final String QUEUE_TIME_METRIC = "metrics.retrieval.queue.time";
+  public static final String TIMEOUTS_METRIC = "metrics.retrieval.timeouts";
+  public static final String FAILURES_METRIC = "metrics.retrieval.failures";
+  public static final String DISCARDED_METRIC = "metrics.retrieval.discarded";
+  public static final String HOST_QUEUED_METRIC = "metrics.retrieval.host.queued";
+  public static final String HOST_WAITING_METRIC = "metrics.retrieval.host.waiting";
+
   /**
    * Configuration.
    */
@@ -148,9 +178,19 @@ public class MetricsRetrievalService extends AbstractService {
   private ThreadPoolExecutor m_threadPoolExecutor;
 
   /**
-   * Used to parse remote JMX JSON into a {@link Map}.
+   * Used to stream remote JMX JSON into a {@link JMXMetricHolder}.
    */
-  private final ObjectReader m_jmxObjectReader;
+  private final JMXMetricHolderReader m_jmxReader = new JMXMetricHolderReader();
+
+  /**
+   * The bean attributes which callers have asked for, by JMX URL. URLs which
+   * are not in this cache are parsed in their entirety. Attributes are only
+   * ever added so that callers asking for different attributes of the same URL
+   * all find their values in the cached {@link JMXMetricHolder}. Entries of
+   * URLs which are no longer requested expire like those of
+   * {@link #m_jmxCache}.
+   */
+  private Cache<String, Set<String>> m_jmxAttributes;
 
   /**
    * A thread-safe collection of all of the URL endpoints queued for processing.
@@ -158,6 +198,24 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private final Set<String> m_queuedUrls = Sets.newConcurrentHashSet();
 
+  /**
+   * The outstanding and waiting requests by host.
+   */
+  private final ConcurrentMap<String, HostRequests> m_requestsByHost = new ConcurrentHashMap<>();
+
+  /**
+   * Latency, timeout and failure statistics for the requests made by this
+   * service.
+   */
+  private final MetricRegistry m_metricRegistry = new MetricRegistry();
+
+  /**
+   * Keeps the bookkeeping of queued URLs, outstanding requests per host and
+   * request statistics consistent for every request, whether it completes or
+   * gets discarded.
+   */
+  private final RequestTracker m_requestTracker = new RequestTracker();
+
   /**
    * An evicting cache which ensures that multiple requests for the same
    * endpoint are not executed back-to-back. When enabled, a fixed period of
@@ -177,15 +235,10 @@ public class MetricsRetrievalService extends AbstractService {
   private int m_queueMaximumSize;
 
   /**
-   * Constructor.
-   *
+   * The maximum number of outstanding requests per host, or {@code 0} for no
+   * limit.
    */
-  public MetricsRetrievalService() {
-    ObjectMapper jmxObjectMapper = new ObjectMapper();
-    jmxObjectMapper.configure(DeserializationConfig.Feature.USE_ANNOTATIONS, false);
-    jmxObjectMapper.configure(JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS, true);
-    m_jmxObjectReader = jmxObjectMapper.reader(JMXMetricHolder.class);
-  }
+  private int m_maxRequestsPerHost;
 
   /**
    * {@inheritDoc}
@@ -200,6 +253,9 @@ public class MetricsRetrievalService extends AbstractService {
     m_restCache = CacheBuilder.newBuilder().expireAfterWrite(jmxCacheExpirationMinutes,
         TimeUnit.MINUTES).build();
 
+    m_jmxAttributes = CacheBuilder.newBuilder().expireAfterAccess(jmxCacheExpirationMinutes,
+        TimeUnit.MINUTES).build();
+
     // enable the TTL cache if configured; otherwise leave it as null
     int ttlSeconds = m_configuration.getMetricsServiceRequestTTL();
     boolean ttlCacheEnabled = m_configuration.isMetricsServiceRequestTTLCacheEnabled();
@@ -212,12 +268,23 @@ public class MetricsRetrievalService extends AbstractService {
     int corePoolSize = m_configuration.getMetricsServiceThreadPoolCoreSize();
     int maxPoolSize = m_configuration.getMetricsServiceThreadPoolMaxSize();
     m_queueMaximumSize = m_configuration.getMetricsServiceWorkerQueueSize();
+    m_maxRequestsPerHost = m_configuration.getMetricsServiceMaxRequestsPerHost();
+
+    // scoped JMX queries request each MBean of a component separately; allow
+    // all of them to be outstanding at once
+    int maxScopedBeans = m_configuration.getMetricsServiceJMXScopedQueryMaxBeans();
+    if (m_maxRequestsPerHost > 0 && m_maxRequestsPerHost < maxScopedBeans) {
+      LOG.warn("Raising the maximum number of requests per host from {} to {}, the maximum number of MBeans requested with scoped JMX queries",
+          m_maxRequestsPerHost, maxScopedBeans);
+      m_maxRequestsPerHost = maxScopedBeans;
+    }
+
     int threadPriority = m_configuration.getMetricsServiceThreadPriority();
     m_threadPoolExecutor = new ScalingThreadPoolExecutor(corePoolSize, maxPoolSize, 30,
         TimeUnit.SECONDS, m_queueMaximumSize);
 
     m_threadPoolExecutor.allowCoreThreadTimeOut(true);
-    m_threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy());
+    m_threadPoolExecutor.setRejectedExecutionHandler(new DiscardOldestRequestPolicy());
 
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
         "ambari-metrics-retrieval-service-thread-%d").setPriority(
@@ -227,8 +294,8 @@ public class MetricsRetrievalService extends AbstractService {
     m_threadPoolExecutor.setThreadFactory(threadFactory);
 
     LOG.info(
-        "Initializing the Metrics Retrieval Service with core={}, max={}, workerQueue={}, threadPriority={}",
-        corePoolSize, maxPoolSize, m_queueMaximumSize, threadPriority);
+        "Initializing the Metrics Retrieval Service with core={}, max={}, workerQueue={}, threadPriority={}, maxRequestsPerHost={}",
+        corePoolSize, maxPoolSize, m_queueMaximumSize, threadPriority, m_maxRequestsPerHost);
 
     if (ttlCacheEnabled) {
       LOG.info("Metrics Retrieval Service request TTL cache is enabled and set to {} seconds",
@@ -238,14 +305,27 @@ public class MetricsRetrievalService extends AbstractService {
   }
 
   /**
-   * Testing method for setting a synchronous {@link ThreadPoolExecutor}.
+   * Testing method for setting a synchronous {@link ThreadPoolExecutor}. The
+   * executor discards requests like the service's own executor when its queue
+   * is full.
    *
    * @param threadPoolExecutor
    */
   public void setThreadPoolExecutor(ThreadPoolExecutor threadPoolExecutor) {
+    threadPoolExecutor.setRejectedExecutionHandler(new DiscardOldestRequestPolicy());
     m_threadPoolExecutor = threadPoolExecutor;
   }
 
+  /**
+   * Gets the registry containing the latency histograms and the timeout,
+   * failure and discard counters of the requests made by this service.
+   *
+   * @return the metric registry (never {@code null}).
+   */
+  public MetricRegistry getMetricRegistry() {
+    return m_metricRegistry;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -259,6 +339,8 @@ public class MetricsRetrievalService extends AbstractService {
     }
 
     m_queuedUrls.clear();
+    m_requestsByHost.clear();
+    m_jmxAttributes.invalidateAll();
     m_threadPoolExecutor.shutdownNow();
     notifyStopped();
   }
@@ -278,7 +360,9 @@ public class MetricsRetrievalService extends AbstractService {
    * endpoint. A single endpoint will only be enqueued once regardless of how
    * many times this method is called until it has been fully retrieved and
    * parsed. If the last endpoint request was too recent, then this method will
-   * opt to not make another call until the TTL period expires.
+   * opt to not make another call until the TTL period expires. While the
+   * endpoint's host already has the maximum number of outstanding requests,
+   * the request waits until one of them completes.
    *
    * @param type
    *          the type of service hosting the metric (not {@code null}).
@@ -291,13 +375,13 @@ public class MetricsRetrievalService extends AbstractService {
    * @see #getCachedJMXMetric(String)
    */
   public void submitRequest(MetricSourceType type, StreamProvider streamProvider, String url) {
-    // check to ensure that the request isn't already queued
-    if (m_queuedUrls.contains(url)) {
+    // check to ensure that the request wasn't made too recently
+    if (null != m_ttlUrlCache && null != m_ttlUrlCache.getIfPresent(url)) {
       return;
     }
 
-    // check to ensure that the request wasn't made too recently
-    if (null != m_ttlUrlCache && null != m_ttlUrlCache.getIfPresent(url)) {
+    // enqueue this URL, unless it is already queued
+    if (!m_queuedUrls.add(url)) {
       return;
     }
 
@@ -309,27 +393,53 @@ public class MetricsRetrievalService extends AbstractService {
           ((float) queueSize / m_queueMaximumSize) * 100);
     }
 
-    // enqueue this URL
-    m_queuedUrls.add(url);
-
-    Runnable runnable = null;
+    MetricRunnable runnable = null;
     switch (type) {
       case JMX:
-        runnable = new JMXRunnable(m_jmxCache, m_queuedUrls, m_ttlUrlCache, m_jmxObjectReader,
-            streamProvider, url);
+        runnable = new JMXRunnable(m_jmxCache, m_requestTracker, m_ttlUrlCache, m_jmxReader,
+            m_jmxAttributes, streamProvider, url);
         break;
       case REST:
-        runnable = new RESTRunnable(m_restCache, m_queuedUrls, m_ttlUrlCache, m_gson,
+        runnable = new RESTRunnable(m_restCache, m_requestTracker, m_ttlUrlCache, m_gson,
             streamProvider, url);
         break;
       default:
         LOG.warn("Unable to retrieve metrics for the unknown type {}", type);
+        m_queuedUrls.remove(url);
         break;
     }
 
     if (null != runnable) {
-      m_threadPoolExecutor.execute(runnable);
+      m_requestTracker.dispatch(runnable);
+    }
+  }
+
+  /**
+   * Submits a request for JMX metrics which only retains the specified bean
+   * attributes when the response is parsed. This is typically used with
+   * {@code /jmx?qry=} URLs which are scoped to the beans a caller needs. The
+   * attributes are merged with those of any earlier request for the same URL.
+   *
+   * @param streamProvider
+   *          the {@link StreamProvider} to use to read from the remote
+   *          endpoint.
+   * @param url
+   *          the URL to read from
+   * @param attributes
+   *          the bean attributes to retain, or {@code null} to retain all of
+   *          them.
+   *
+   * @see #submitRequest(MetricSourceType, StreamProvider, String)
+   */
+  public void submitJMXRequest(StreamProvider streamProvider, String url, Set<String> attributes) {
+    if (null != attributes) {
+      Set<String> requestedAttributes = m_jmxAttributes.asMap().computeIfAbsent(url,
+          key -> Sets.newConcurrentHashSet());
+
+      requestedAttributes.addAll(attributes);
     }
+
+    submitRequest(MetricSourceType.JMX, streamProvider, url);
   }
 
   /**
@@ -382,9 +492,25 @@ public class MetricsRetrievalService extends AbstractService {
     protected final String m_url;
 
     /**
-     * The URLs which have been requested but not yet read.
+     * The host of {@link #m_url}, used to bound the outstanding requests per
+     * host.
+     */
+    private final String m_host;
+
+    /**
+     * Tracks the URLs which have been requested but not yet read.
+     */
+    private final RequestTracker m_requestTracker;
+
+    /**
+     * Records how long it takes to read and parse the URL.
      */
-    private final Set<String> m_queuedUrls;
+    private final Timer m_latencyTimer;
+
+    /**
+     * The time, in nanoseconds, at which this request was created.
+     */
+    private final long m_createdNanos = System.nanoTime();
 
     /**
      * An evicting cache used to control whether a request for a metric can be
@@ -399,20 +525,24 @@ public class MetricsRetrievalService extends AbstractService {
      *          the stream provider to read the URL with
      * @param url
      *          the URL endpoint to read data from (JMX or REST)
-     * @param queuedUrls
-     *          the URLs which are currently waiting to be processed. This
-     *          method will remove the specified URL from this {@link Set} when
-     *          it completes (successful or not).
+     * @param type
+     *          the type of endpoint, used to pick the latency histogram
+     * @param requestTracker
+     *          tracks the URLs which are currently waiting to be processed.
+     *          The specified URL is released when this request completes
+     *          (successful or not) or is discarded.
      * @param ttlUrlCache
      *          an evicting cache which is used to determine if a request for a
      *          metric is too soon after the last request, or {@code null} if
      *          requests can be made sequentially without any separation.
      */
-    private MetricRunnable(StreamProvider streamProvider, String url, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache) {
+    private MetricRunnable(StreamProvider streamProvider, String url, MetricSourceType type,
+        RequestTracker requestTracker, Cache<String, String> ttlUrlCache) {
       m_streamProvider = streamProvider;
       m_url = url;
-      m_queuedUrls = queuedUrls;
+      m_host = getHost(url);
+      m_requestTracker = requestTracker;
+      m_latencyTimer = requestTracker.getLatencyTimer(type);
       m_ttlUrlCache = ttlUrlCache;
     }
 
@@ -423,43 +553,42 @@ public class MetricsRetrievalService extends AbstractService {
     public final void run() {
 
       // provide some profiling
-      long startTime = 0;
-      long endTime = 0;
-      boolean isDebugEnabled = LOG.isDebugEnabled();
-      if (isDebugEnabled) {
-        startTime = System.currentTimeMillis();
-      }
+      long startTime = System.nanoTime();
+      m_requestTracker.recordQueueTime(startTime - m_createdNanos);
 
       InputStream inputStream = null;
 
       try {
-        if (isDebugEnabled) {
-          endTime = System.currentTimeMillis();
-          LOG.debug("Loading metric JSON from {} took {}ms", m_url, (endTime - startTime));
-        }
-
         // read the stream and process it
         inputStream = m_streamProvider.readFrom(m_url);
         processInputStreamAndCacheResult(inputStream);
 
+        long elapsed = System.nanoTime() - startTime;
+        m_latencyTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        LOG.debug("Loading metric JSON from {} took {}ms", m_url,
+            TimeUnit.NANOSECONDS.toMillis(elapsed));
+
         // cache the URL, but only after successful parsing of the response
         if (null != m_ttlUrlCache) {
           m_ttlUrlCache.put(m_url, m_url);
         }
       } catch (IOException exception)
       {
+        m_requestTracker.recordFailure(exception);
+
         LOG.debug("Removing cached values for url {}", m_url);
         // need to ensure old values are removed because they could be not valid if the state have changed.
         removeCachedMetricsForCurrentURL();
         logException(exception, m_url);
       } catch (Exception exception) {
+        m_requestTracker.recordFailure(exception);
         logException(exception, m_url);
       } finally {
         IOUtils.closeQuietly(inputStream);
 
         // remove this URL from the list of queued URLs to ensure it will be
-        // requested again
-        m_queuedUrls.remove(m_url);
+        // requested again, and let the next request of the host run
+        m_requestTracker.complete(this);
       }
     }
 
@@ -526,25 +655,30 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private static final class JMXRunnable extends MetricRunnable {
 
-    private final ObjectReader m_jmxObjectReader;
+    private final JMXMetricHolderReader m_jmxReader;
+    private final Cache<String, Set<String>> m_jmxAttributes;
     private final Cache<String, JMXMetricHolder> m_cache;
 
     /**
      * Constructor.
      *
      * @param cache
-     * @param queuedUrls
+     * @param requestTracker
      * @param ttlUrlCache
-     * @param jmxObjectReader
+     * @param jmxReader
+     * @param jmxAttributes
+     *          the attributes to retain by URL; URLs not present are retained
+     *          in full
      * @param streamProvider
      * @param jmxUrl
      */
-    private JMXRunnable(Cache<String, JMXMetricHolder> cache, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache, ObjectReader jmxObjectReader,
-        StreamProvider streamProvider, String jmxUrl) {
-      super(streamProvider, jmxUrl, queuedUrls, ttlUrlCache);
+    private JMXRunnable(Cache<String, JMXMetricHolder> cache, RequestTracker requestTracker,
+        Cache<String, String> ttlUrlCache, JMXMetricHolderReader jmxReader,
+        Cache<String, Set<String>> jmxAttributes, StreamProvider streamProvider, String jmxUrl) {
+      super(streamProvider, jmxUrl, MetricSourceType.JMX, requestTracker, ttlUrlCache);
       m_cache = cache;
-      m_jmxObjectReader = jmxObjectReader;
+      m_jmxReader = jmxReader;
+      m_jmxAttributes = jmxAttributes;
     }
 
     /**
@@ -560,7 +694,7 @@ public class MetricsRetrievalService extends AbstractService {
      */
     @Override
     protected void processInputStreamAndCacheResult(InputStream inputStream) throws Exception {
-      JMXMetricHolder jmxMetricHolder = m_jmxObjectReader.readValue(inputStream);
+      JMXMetricHolder jmxMetricHolder = m_jmxReader.read(inputStream, m_jmxAttributes.getIfPresent(m_url));
       m_cache.put(m_url, jmxMetricHolder);
     }
   }
@@ -580,16 +714,16 @@ public class MetricsRetrievalService extends AbstractService {
      * Constructor.
      *
      * @param cache
-     * @param queuedUrls
+     * @param requestTracker
      * @param ttlUrlCache
      * @param gson
      * @param streamProvider
      * @param restUrl
      */
-    private RESTRunnable(Cache<String, Map<String, String>> cache, Set<String> queuedUrls,
+    private RESTRunnable(Cache<String, Map<String, String>> cache, RequestTracker requestTracker,
         Cache<String, String> ttlUrlCache, Gson gson, StreamProvider streamProvider,
         String restUrl) {
-      super(streamProvider, restUrl, queuedUrls, ttlUrlCache);
+      super(streamProvider, restUrl, MetricSourceType.REST, requestTracker, ttlUrlCache);
       m_cache = cache;
       m_gson = gson;
     }
@@ -617,6 +751,205 @@ public class MetricsRetrievalService extends AbstractService {
     }
   }
 
+  /**
+   * Keeps track of the URLs which are queued or running, and of the requests
+   * of each host, and records the request statistics into the
+   * {@link #m_metricRegistry}.
+   */
+  private final class RequestTracker {
+
+    private final Timer m_jmxLatency = m_metricRegistry.timer(JMX_LATENCY_METRIC);
+    private final Timer m_restLatency = m_metricRegistry.timer(REST_LATENCY_METRIC);
+    private final Timer m_queueTime = m_metricRegistry.timer(QUEUE_TIME_METRIC);
+    private final Counter m_timeouts = m_metricRegistry.counter(TIMEOUTS_METRIC);
+    private final Counter m_failures = m_metricRegistry.counter(FAILURES_METRIC);
+    private final Counter m_discarded = m_metricRegistry.counter(DISCARDED_METRIC);
+    private final Counter m_hostQueued = m_metricRegistry.counter(HOST_QUEUED_METRIC);
+
+    private RequestTracker() {
+      m_metricRegistry.register(HOST_WAITING_METRIC, (Gauge<Integer>) this::getWaitingRequests);
+    }
+
+    /**
+     * Hands the request to the executor, or makes it wait if its host already
+     * has the maximum number of outstanding requests.
+     *
+     * @param runnable
+     *          the request for an URL which was just marked as queued
+     */
+    void dispatch(MetricRunnable runnable) {
+      if (m_maxRequestsPerHost > 0) {
+        HostRequests hostRequests = m_requestsByHost.computeIfAbsent(runnable.m_host,
+            key -> new HostRequests());
+
+        synchronized (hostRequests) {
+          if (hostRequests.m_outstanding >= m_maxRequestsPerHost) {
+            hostRequests.m_waiting.add(runnable);
+            m_hostQueued.inc();
+
+            LOG.debug("Queueing the metric request for {} since its host already has {} outstanding requests",
+                runnable.m_url, m_maxRequestsPerHost);
+
+            return;
+          }
+
+          hostRequests.m_outstanding++;
+        }
+      }
+
+      m_threadPoolExecutor.execute(runnable);
+    }
+
+    /**
+     * Releases the URL of a request which completed, successful or not, and
+     * hands its place to the next request waiting for the same host.
+     *
+     * @param runnable
+     *          the request which completed
+     */
+    void complete(MetricRunnable runnable) {
+      m_queuedUrls.remove(runnable.m_url);
+
+      HostRequests hostRequests = m_requestsByHost.get(runnable.m_host);
+      if (null == hostRequests) {
+        return;
+      }
+
+      MetricRunnable next;
+      synchronized (hostRequests) {
+        next = hostRequests.m_waiting.poll();
+        if (null == next) {
+          hostRequests.m_outstanding--;
+        }
+      }
+
+      if (null != next) {
+        m_threadPoolExecutor.execute(next);
+      }
+    }
+
+    /**
+     * Releases the URL of a request which was dropped from the full worker
+     * queue, along with those of the requests waiting for the same host. The
+     * waiting requests are newer than the dropped one and would only take its
+     * place in the full queue. All of the URLs can be requested again.
+     *
+     * @param runnable
+     *          the request which was dropped
+     */
+    void discard(MetricRunnable runnable) {
+      LOG.debug("Discarding the queued metric request for {}", runnable.m_url);
+      m_queuedUrls.remove(runnable.m_url);
+      m_discarded.inc();
+
+      HostRequests hostRequests = m_requestsByHost.get(runnable.m_host);
+      if (null == hostRequests) {
+        return;
+      }
+
+      List<MetricRunnable> waiting;
+      synchronized (hostRequests) {
+        hostRequests.m_outstanding--;
+        waiting = new ArrayList<>(hostRequests.m_waiting);
+        hostRequests.m_waiting.clear();
+      }
+
+      for (MetricRunnable discarded : waiting) {
+        LOG.debug("Discarding the waiting metric request for {}", discarded.m_url);
+        m_queuedUrls.remove(discarded.m_url);
+        m_discarded.inc();
+      }
+    }
+
+    Timer getLatencyTimer(MetricSourceType type) {
+      return type == MetricSourceType.JMX ? m_jmxLatency : m_restLatency;
+    }
+
+    void recordQueueTime(long nanos) {
+      m_queueTime.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordFailure(Exception exception) {
+      if (exception instanceof SocketTimeoutException) {
+        m_timeouts.inc();
+      } else {
+        m_failures.inc();
+      }
+    }
+
+    /**
+     * Gets the number of requests waiting for their host.
+     */
+    private int getWaitingRequests() {
+      int waiting = 0;
+      for (HostRequests hostRequests : m_requestsByHost.values()) {
+        synchronized (hostRequests) {
+          waiting += hostRequests.m_waiting.size();
+        }
+      }
+
+      return waiting;
+    }
+  }
+
+  /**
+   * The number of queued or running requests of a host, and the requests
+   * waiting for one of them to complete. Guarded by its own monitor.
+   */
+  private static final class HostRequests {
+    private int m_outstanding;
+    private final Queue<MetricRunnable> m_waiting = new ArrayDeque<>();
+  }
+
+  /**
+   * Gets the host of the URL, or the URL itself if it cannot be parsed.
+   */
+  private static String getHost(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      if (null != host) {
+        return host;
+      }
+    } catch (IllegalArgumentException exception) {
+      LOG.trace("Unable to determine the host of {}", url, exception);
+    }
+
+    return url;
+  }
+
+  /**
+   * Discards the oldest queued request when the worker queue is full, like
+   * {@link ThreadPoolExecutor.DiscardOldestPolicy}, but makes sure that the
+   * discarded request's URL is released so that it can be requested again,
+   * and counts the discarded request.
+   */
+  private final class DiscardOldestRequestPolicy implements RejectedExecutionHandler {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        discard(runnable);
+        return;
+      }
+
+      Runnable oldest = executor.getQueue().poll();
+      if (null != oldest) {
+        discard(oldest);
+      }
+
+      executor.execute(runnable);
+    }
+
+    private void discard(Runnable runnable) {
+      if (runnable instanceof MetricRunnable) {
+        m_requestTracker.discard((MetricRunnable) runnable);
+      }
+    }
+  }
+
   /**
    * A default exception handler.
    */
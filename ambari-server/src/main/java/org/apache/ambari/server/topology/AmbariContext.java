@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.topology;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -25,12 +26,15 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -148,6 +152,18 @@ public class AmbariContext {
    */
   private Striped<Lock> configGroupCreateLock = Striped.lazyWeakLock(1);
 
+  /**
+   * Hosts whose resources are waiting to be created by {@link #createAmbariHostResources}.
+   * Topology tasks of many hosts run in parallel, so the resources of all hosts which queue up while
+   * a batch is being created are created together in the next batch.
+   */
+  private final Queue<PendingHostResources> pendingHostResources = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Held while creating a batch of host resources.
+   */
+  private final Lock hostResourceCreationLock = new ReentrantLock();
+
   public boolean isClusterKerberosEnabled(long clusterId) {
     Cluster cluster;
     try {
@@ -364,68 +380,139 @@ public class AmbariContext {
     }
   }
 
-  public void createAmbariHostResources(long  clusterId, String hostName, Map<String, Collection<String>> components)  {
-    Host host;
+  /**
+   * Creates the host resource and the host components of a host which has been matched to a host request.
+   * <p/>
+   * Concurrent callers queue their host, and the caller which obtains {@link #hostResourceCreationLock}
+   * creates the resources of all queued hosts with a single host creation and a single host component
+   * creation request. When a batch cannot be created, the hosts of the batch are created one by one so
+   * that failures are reported for the hosts which caused them.
+   *
+   * @param clusterId  the id of the cluster the host is added to
+   * @param hostName   the name of the host
+   * @param components the components to add to the host, keyed by service name
+   */
+  public void createAmbariHostResources(long clusterId, String hostName, Map<String, Collection<String>> components) {
+    PendingHostResources hostResources = new PendingHostResources(clusterId, hostName, components);
+    pendingHostResources.add(hostResources);
+
+    hostResourceCreationLock.lock();
     try {
-      host = getController().getClusters().getHost(hostName);
-    } catch (AmbariException e) {
-      // system exception, shouldn't occur
-      throw new RuntimeException(String.format(
-          "Unable to obtain host instance '%s' when persisting host resources", hostName));
+      // the resources may have been created in the batch of another caller while waiting for the lock;
+      // otherwise they are still queued, as a batch is always completed before the lock is released
+      if (!hostResources.processed) {
+        List<PendingHostResources> batch = new ArrayList<>();
+        for (PendingHostResources pending = pendingHostResources.poll(); pending != null; pending = pendingHostResources.poll()) {
+          batch.add(pending);
+        }
+        try {
+          createHosts(batch);
+          createHostComponents(batch);
+        } finally {
+          // the callers waiting for the hosts of the batch must not take them for created if
+          // something unexpected was thrown
+          for (PendingHostResources pending : batch) {
+            if (!pending.processed) {
+              pending.fail(new RuntimeException(String.format(
+                  "Unable to create host resources for host '%s'", pending.hostName)));
+            }
+          }
+        }
+      }
+    } finally {
+      hostResourceCreationLock.unlock();
     }
 
-    Cluster cluster = null;
-    try {
-      cluster = getController().getClusters().getClusterById(clusterId);
-    } catch (AmbariException e) {
-      LOG.error("Cannot get cluster for clusterId = " + clusterId, e);
-      throw new RuntimeException(e);
+    if (hostResources.failure != null) {
+      throw hostResources.failure;
     }
-    String clusterName = cluster.getClusterName();
+  }
 
-    Map<String, Object> properties = new HashMap<>();
-    properties.put(HostResourceProvider.HOST_CLUSTER_NAME_PROPERTY_ID, clusterName);
-    properties.put(HostResourceProvider.HOST_HOST_NAME_PROPERTY_ID, hostName);
-    properties.put(HostResourceProvider.HOST_RACK_INFO_PROPERTY_ID, host.getRackInfo());
+  /**
+   * Creates the host resources of a batch of hosts, falling back to one request per host if the batch fails.
+   */
+  private void createHosts(List<PendingHostResources> batch) {
+    if (batch.size() > 1) {
+      Set<Map<String, Object>> propertySet = new HashSet<>();
+      for (PendingHostResources hostResources : batch) {
+        propertySet.add(hostResources.hostProperties);
+      }
 
-    try {
-      getHostResourceProvider().createHosts(new RequestImpl(null, Collections.singleton(properties), null, null));
-    } catch (AmbariException | AuthorizationException e) {
-      LOG.error("Unable to create host component resource for host {}", hostName, e);
-      throw new RuntimeException(String.format("Unable to create host resource for host '%s': %s",
-          hostName, e.toString()), e);
+      try {
+        getHostResourceProvider().createHosts(new RequestImpl(null, propertySet, null, null));
+        LOG.info("Created host resources for {} hosts", batch.size());
+        return;
+      } catch (Exception e) {
+        LOG.warn("Unable to create host resources for {} hosts, creating them host by host", batch.size(), e);
+      }
     }
 
+    for (PendingHostResources hostResources : batch) {
+      try {
+        getHostResourceProvider().createHosts(
+            new RequestImpl(null, Collections.singleton(hostResources.hostProperties), null, null));
+      } catch (AmbariException | AuthorizationException e) {
+        LOG.error("Unable to create host component resource for host {}", hostResources.hostName, e);
+        hostResources.fail(new RuntimeException(String.format("Unable to create host resource for host '%s': %s",
+            hostResources.hostName, e.toString()), e));
+      } catch (RuntimeException e) {
+        hostResources.fail(e);
+      }
+    }
+  }
+
+  /**
+   * Creates the host components of the hosts of a batch which have been created, falling back to one
+   * request per host if the batch fails.
+   */
+  private void createHostComponents(List<PendingHostResources> batch) {
+    List<PendingHostResources> createdHosts = new ArrayList<>();
     final Set<ServiceComponentHostRequest> requests = new HashSet<>();
+    for (PendingHostResources hostResources : batch) {
+      if (!hostResources.processed) {
+        createdHosts.add(hostResources);
+        requests.addAll(hostResources.hostComponentRequests);
+      }
+    }
 
-    for (Map.Entry<String, Collection<String>> entry : components.entrySet()) {
-      String service = entry.getKey();
-      for (String component : entry.getValue()) {
-        //todo: handle this in a generic manner.  These checks are all over the code
-        try {
-          if (cluster.getService(service) != null && !component.equals(RootComponent.AMBARI_SERVER.name())) {
-            requests.add(new ServiceComponentHostRequest(clusterName, service, component, hostName, null));
-          }
-        } catch(AmbariException se) {
-          LOG.warn("Service already deleted from cluster: {}", service);
+    if (createdHosts.size() > 1) {
+      try {
+        createHostComponents(requests);
+        LOG.info("Created {} host components for {} hosts", requests.size(), createdHosts.size());
+        for (PendingHostResources hostResources : createdHosts) {
+          hostResources.processed = true;
         }
+        return;
+      } catch (AmbariException | RuntimeException e) {
+        LOG.warn("Unable to create host components for {} hosts, creating them host by host", createdHosts.size(), e);
       }
     }
-    try {
-      RetryHelper.executeWithRetry(new Callable<Object>() {
-        @Override
-        public Object call() throws Exception {
-          getController().createHostComponents(requests);
-          return null;
-        }
-      });
-    } catch (AmbariException e) {
-      LOG.error("Unable to create host component resource for host {}", hostName, e);
-      throw new RuntimeException(String.format("Unable to create host component resource for host '%s': %s",
-          hostName, e.toString()), e);
+
+    for (PendingHostResources hostResources : createdHosts) {
+      try {
+        createHostComponents(hostResources.hostComponentRequests);
+        hostResources.processed = true;
+      } catch (AmbariException e) {
+        LOG.error("Unable to create host component resource for host {}", hostResources.hostName, e);
+        hostResources.fail(new RuntimeException(String.format("Unable to create host component resource for host '%s': %s",
+            hostResources.hostName, e.toString()), e));
+      } catch (RuntimeException e) {
+        LOG.error("Unable to create host component resource for host {}", hostResources.hostName, e);
+        hostResources.fail(e);
+      }
     }
   }
 
+  private void createHostComponents(final Set<ServiceComponentHostRequest> requests) throws AmbariException {
+    RetryHelper.executeWithRetry(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        getController().createHostComponents(requests);
+        return null;
+      }
+    });
+  }
+
   public Long getNextRequestId() {
     return getController().getActionManager().getNextRequestId();
   }
@@ -856,4 +943,64 @@ public class AmbariContext {
 
   }
 
+  /**
+   * The resources of a host to be created by {@link #createAmbariHostResources}.
+   */
+  private final class PendingHostResources {
+    private final String hostName;
+    private final Map<String, Object> hostProperties = new HashMap<>();
+    private final Set<ServiceComponentHostRequest> hostComponentRequests = new HashSet<>();
+
+    /**
+     * Whether the resources have been created or have failed to be created; guarded by
+     * {@link #hostResourceCreationLock}.
+     */
+    private boolean processed;
+    private RuntimeException failure;
+
+    private PendingHostResources(long clusterId, String hostName, Map<String, Collection<String>> components) {
+      this.hostName = hostName;
+
+      Host host;
+      try {
+        host = getController().getClusters().getHost(hostName);
+      } catch (AmbariException e) {
+        // system exception, shouldn't occur
+        throw new RuntimeException(String.format(
+            "Unable to obtain host instance '%s' when persisting host resources", hostName));
+      }
+
+      Cluster cluster = null;
+      try {
+        cluster = getController().getClusters().getClusterById(clusterId);
+      } catch (AmbariException e) {
+        LOG.error("Cannot get cluster for clusterId = " + clusterId, e);
+        throw new RuntimeException(e);
+      }
+      String clusterName = cluster.getClusterName();
+
+      hostProperties.put(HostResourceProvider.HOST_CLUSTER_NAME_PROPERTY_ID, clusterName);
+      hostProperties.put(HostResourceProvider.HOST_HOST_NAME_PROPERTY_ID, hostName);
+      hostProperties.put(HostResourceProvider.HOST_RACK_INFO_PROPERTY_ID, host.getRackInfo());
+
+      for (Map.Entry<String, Collection<String>> entry : components.entrySet()) {
+        String service = entry.getKey();
+        for (String component : entry.getValue()) {
+          //todo: handle this in a generic manner.  These checks are all over the code
+          try {
+            if (cluster.getService(service) != null && !component.equals(RootComponent.AMBARI_SERVER.name())) {
+              hostComponentRequests.add(new ServiceComponentHostRequest(clusterName, service, component, hostName, null));
+            }
+          } catch(AmbariException se) {
+            LOG.warn("Service already deleted from cluster: {}", service);
+          }
+        }
+      }
+    }
+
+    private void fail(RuntimeException e) {
+      processed = true;
+      failure = e;
+    }
+  }
 }
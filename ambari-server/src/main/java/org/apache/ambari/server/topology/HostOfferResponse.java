@@ -72,7 +72,8 @@ final class HostOfferResponse {
     return hostGroupName;
   }
 
-  void executeTasks(Executor executor, final String hostName, final ClusterTopology topology, final AmbariContext ambariContext) {
+  void executeTasks(Executor executor, final String hostName, final ClusterTopology topology, final AmbariContext ambariContext,
+                    final TopologyTaskStatistics taskStatistics) {
     if (answer != Answer.ACCEPTED) {
       LOG.warn("Attempted to execute tasks for declined host offer", answer);
     } else {
@@ -80,16 +81,20 @@ final class HostOfferResponse {
         @Override
         public void run() {
           for (TopologyHostTask task : tasks) {
+            long startTime = taskStatistics.taskStarted(task.getType());
             try {
               LOG.info("Running task for accepted host offer for hostname = {}, task = {}", hostName, task.getType());
               task.run();
+              taskStatistics.taskFinished(task.getType(), startTime, true);
             } catch (Exception e) {
+              taskStatistics.taskFinished(task.getType(), startTime, false);
               HostRequest hostRequest = task.getHostRequest();
               LOG.error("{} task for host {} failed due to", task.getType(), hostRequest.getHostName(), e);
               hostRequest.markHostRequestFailed(HostRoleStatus.ABORTED, e, ambariContext.getPersistedTopologyState());
               break;
             }
           }
+          LOG.info("Finished tasks for accepted host offer for hostname = {}, task statistics = {}", hostName, taskStatistics);
         }
       });
     }
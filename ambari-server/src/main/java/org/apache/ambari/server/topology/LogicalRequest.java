@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ambari.server.AmbariException;
@@ -61,11 +60,13 @@ public class LogicalRequest extends Request {
 
   private final Collection<HostRequest> allHostRequests = new ArrayList<>();
   // sorted set with master host requests given priority
-  private final Collection<HostRequest> outstandingHostRequests = new TreeSet<>();
+  private final OutstandingHostRequests outstandingHostRequests = new OutstandingHostRequests();
   private final Map<String, HostRequest> requestsWithReservedHosts = new HashMap<>();
 
   private final ClusterTopology topology;
 
+  private final TopologyTaskStatistics taskStatistics = new TopologyTaskStatistics();
+
   private static AmbariManagementController controller;
 
   private static final AtomicLong hostIdCounter = new AtomicLong(1);
@@ -119,36 +120,19 @@ public class LogicalRequest extends Request {
     }
 
     // not explicitly reserved, at least not in this request, so attempt to match to outstanding host requests
-    boolean predicateRejected = false;
+    HostOfferResponse response;
     synchronized (outstandingHostRequests) {
-      //todo: prioritization of master host requests
-      Iterator<HostRequest> hostRequestIterator = outstandingHostRequests.iterator();
-      while (hostRequestIterator.hasNext()) {
-        LOG.info("LogicalRequest.offer: attempting to match a request to a request for a non-reserved host to hostname = {}", host.getHostName());
-        HostOfferResponse response = hostRequestIterator.next().offer(host);
-        switch (response.getAnswer()) {
-          case ACCEPTED:
-            hostRequestIterator.remove();
-            LOG.info("LogicalRequest.offer: host request matched to non-reserved host, hostname = {}, host request has been removed from list", host.getHostName());
-            return response;
-          case DECLINED_DONE:
-            //todo: should have been done on ACCEPT
-            hostRequestIterator.remove();
-            LOG.info("LogicalRequest.offer: host request returned DECLINED_DONE for hostname = {}, host request has been removed from list", host.getHostName());
-            break;
-          case DECLINED_PREDICATE:
-            LOG.info("LogicalRequest.offer: host request returned DECLINED_PREDICATE for hostname = {}", host.getHostName());
-            predicateRejected = true;
-            break;
-        }
-      }
-
+      response = outstandingHostRequests.offer(host);
       LOG.info("LogicalRequest.offer: outstandingHost request list size = " + outstandingHostRequests.size());
     }
 
+    if (response.getAnswer() == HostOfferResponse.Answer.ACCEPTED) {
+      return response;
+    }
+
     // if at least one outstanding host request rejected for predicate or we have an outstanding request
     // with a reserved host decline due to predicate, otherwise decline due to all hosts being resolved
-    return predicateRejected || ! requestsWithReservedHosts.isEmpty() ?
+    return response.getAnswer() == HostOfferResponse.Answer.DECLINED_PREDICATE || ! requestsWithReservedHosts.isEmpty() ?
             HostOfferResponse.DECLINED_DUE_TO_PREDICATE :
             HostOfferResponse.DECLINED_DUE_TO_DONE;
   }
@@ -182,6 +166,13 @@ public class LogicalRequest extends Request {
     return outstandingHostRequests.size() + requestsWithReservedHosts.size();
   }
 
+  /**
+   * @return the progress and throughput of the topology host tasks of this request
+   */
+  public TopologyTaskStatistics getTaskStatistics() {
+    return taskStatistics;
+  }
+
   //todo: this is only here for toEntity() functionality
   public Collection<HostRequest> getHostRequests() {
     return new ArrayList<>(allHostRequests);
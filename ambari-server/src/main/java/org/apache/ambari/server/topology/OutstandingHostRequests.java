@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.state.Host;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The outstanding (not yet matched) host requests of a {@link LogicalRequest}, in priority order.
+ * <p/>
+ * Host requests of the same host group with the same host name and predicate accept exactly the
+ * same hosts, so they are also kept in buckets. A host is offered to the first request of each
+ * bucket only, which evaluates the predicate of the bucket once per host instead of once per
+ * outstanding host request. When a large number of hosts are requested by count, matching a
+ * registering host no longer depends on the number of outstanding host requests.
+ * <p/>
+ * This class is not thread safe; access is guarded by the owning {@link LogicalRequest}.
+ */
+final class OutstandingHostRequests extends AbstractCollection<HostRequest> {
+
+  private final static Logger LOG = LoggerFactory.getLogger(OutstandingHostRequests.class);
+
+  private final NavigableSet<HostRequest> hostRequests = new TreeSet<>();
+
+  private final Map<MatchKey, NavigableSet<HostRequest>> hostRequestsByMatchKey = new HashMap<>();
+
+  /**
+   * The bucket keys of the host requests, as the host name of a request is set once it accepted a host.
+   */
+  private final Map<HostRequest, MatchKey> matchKeys = new IdentityHashMap<>();
+
+  /**
+   * Offers a host to the outstanding host requests. The host is accepted by the first request (in
+   * priority order) that matches it.
+   *
+   * @param host the host to offer
+   * @return the response of the request which accepted the host; {@link HostOfferResponse#DECLINED_DUE_TO_PREDICATE}
+   *         if a request declined the host due to its predicate; otherwise {@link HostOfferResponse#DECLINED_DUE_TO_DONE}
+   */
+  HostOfferResponse offer(Host host) {
+    // offer the host to the buckets in the priority order of their first request
+    List<NavigableSet<HostRequest>> buckets = new ArrayList<>(hostRequestsByMatchKey.values());
+    Collections.sort(buckets, (left, right) -> left.first().compareTo(right.first()));
+
+    boolean predicateRejected = false;
+    for (NavigableSet<HostRequest> bucket : buckets) {
+      HostOfferResponse response = offer(bucket, host);
+      if (response.getAnswer() == HostOfferResponse.Answer.ACCEPTED) {
+        return response;
+      } else if (response.getAnswer() == HostOfferResponse.Answer.DECLINED_PREDICATE) {
+        predicateRejected = true;
+      }
+    }
+
+    return predicateRejected ? HostOfferResponse.DECLINED_DUE_TO_PREDICATE : HostOfferResponse.DECLINED_DUE_TO_DONE;
+  }
+
+  /**
+   * Offers a host to the first outstanding request of a bucket, which answers for the whole bucket.
+   */
+  private HostOfferResponse offer(NavigableSet<HostRequest> bucket, Host host) {
+    while (!bucket.isEmpty()) {
+      HostRequest hostRequest = bucket.first();
+      HostOfferResponse response = hostRequest.offer(host);
+      switch (response.getAnswer()) {
+        case ACCEPTED:
+          remove(hostRequest);
+          LOG.info("OutstandingHostRequests.offer: host request matched to non-reserved host, hostname = {}, host request has been removed from list", host.getHostName());
+          return response;
+        case DECLINED_DONE:
+          remove(hostRequest);
+          LOG.info("OutstandingHostRequests.offer: host request returned DECLINED_DONE for hostname = {}, host request has been removed from list", host.getHostName());
+          break;
+        case DECLINED_PREDICATE:
+          LOG.info("OutstandingHostRequests.offer: {} host requests of host group {} returned DECLINED_PREDICATE for hostname = {}",
+              bucket.size(), hostRequest.getHostgroupName(), host.getHostName());
+          return response;
+      }
+    }
+
+    return HostOfferResponse.DECLINED_DUE_TO_DONE;
+  }
+
+  @Override
+  public boolean add(HostRequest hostRequest) {
+    if (!hostRequests.add(hostRequest)) {
+      return false;
+    }
+
+    MatchKey matchKey = new MatchKey(hostRequest);
+    matchKeys.put(hostRequest, matchKey);
+    hostRequestsByMatchKey.computeIfAbsent(matchKey, key -> new TreeSet<>()).add(hostRequest);
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!hostRequests.remove(o)) {
+      return false;
+    }
+
+    removeFromBucket((HostRequest) o);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    hostRequests.clear();
+    hostRequestsByMatchKey.clear();
+    matchKeys.clear();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return hostRequests.contains(o);
+  }
+
+  @Override
+  public int size() {
+    return hostRequests.size();
+  }
+
+  @Override
+  public Iterator<HostRequest> iterator() {
+    final Iterator<HostRequest> iterator = hostRequests.iterator();
+
+    return new Iterator<HostRequest>() {
+      private HostRequest current;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public HostRequest next() {
+        current = iterator.next();
+        return current;
+      }
+
+      @Override
+      public void remove() {
+        iterator.remove();
+        removeFromBucket(current);
+      }
+    };
+  }
+
+  private void removeFromBucket(HostRequest hostRequest) {
+    MatchKey key = matchKeys.remove(hostRequest);
+    NavigableSet<HostRequest> bucket = (key == null) ? null : hostRequestsByMatchKey.get(key);
+    if (bucket != null) {
+      bucket.remove(hostRequest);
+      if (bucket.isEmpty()) {
+        hostRequestsByMatchKey.remove(key);
+      }
+    }
+  }
+
+  /**
+   * The properties of a host request which determine the hosts it accepts.
+   */
+  private static final class MatchKey {
+    private final String hostGroupName;
+    private final String hostName;
+    private final Predicate predicate;
+
+    private MatchKey(HostRequest hostRequest) {
+      hostGroupName = hostRequest.getHostgroupName();
+      hostName = hostRequest.getHostName();
+      predicate = hostRequest.getPredicate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      MatchKey that = (MatchKey) o;
+      return Objects.equals(hostGroupName, that.hostGroupName) &&
+          Objects.equals(hostName, that.hostName) &&
+          Objects.equals(predicate, that.predicate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(hostGroupName, hostName, predicate);
+    }
+  }
+}
@@ -24,7 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -120,7 +120,8 @@ public class TopologyManager {
   private final Map<Long, ManagedThreadPoolExecutor> topologyTaskExecutorServiceMap = new HashMap<>();
 
   private Collection<String> hostsToIgnore = new HashSet<>();
-  private final List<HostImpl> availableHosts = new LinkedList<>();
+  // registered hosts which have not been matched to a request yet, by host name in order of registration
+  private final Map<String, HostImpl> availableHosts = new LinkedHashMap<>();
   private final Map<String, LogicalRequest> reservedHosts = new HashMap<>();
   private final Map<Long, LogicalRequest> allRequests = new HashMap<>();
   // priority is given to oldest outstanding requests
@@ -658,7 +659,7 @@ public class TopologyManager {
           }
 
           LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for reserved host = {}", hostName);
-          processAcceptedHostOffer(getClusterTopology(request.getClusterId()), response, host);
+          processAcceptedHostOffer(getClusterTopology(request.getClusterId()), request, response, host);
           matchedToRequest = true;
         }
       }
@@ -674,7 +675,7 @@ public class TopologyManager {
               case ACCEPTED:
                 matchedToRequest = true;
                 LOG.info("TopologyManager.onHostRegistered: processing accepted host offer for matched host = {}", hostName);
-                processAcceptedHostOffer(getClusterTopology(request.getClusterId()), hostOfferResponse, host);
+                processAcceptedHostOffer(getClusterTopology(request.getClusterId()), request, hostOfferResponse, host);
                 break;
               case DECLINED_DONE:
                 LOG.info("TopologyManager.onHostRegistered: DECLINED_DONE received for host = {}", hostName);
@@ -689,18 +690,11 @@ public class TopologyManager {
       }
 
       if (!matchedToRequest) {
-        boolean addToAvailableList = true;
-        for (HostImpl registered : availableHosts) {
-          if (registered.getHostId() == host.getHostId()) {
-            LOG.info("Host {} re-registered, will not be added to the available hosts list", hostName);
-            addToAvailableList = false;
-            break;
-          }
-        }
-
-        if (addToAvailableList) {
+        if (availableHosts.containsKey(hostName)) {
+          LOG.info("Host {} re-registered, will not be added to the available hosts list", hostName);
+        } else {
           LOG.info("TopologyManager: Queueing available host {}", hostName);
-          availableHosts.add(host);
+          availableHosts.put(hostName, host);
         }
       }
     }
@@ -718,7 +712,7 @@ public class TopologyManager {
     ensureInitialized();
     synchronized (availableHosts) {
       LOG.info("Hearbeat for host {} lost thus removing it from available hosts.", host.getHostName());
-      availableHosts.remove(host);
+      availableHosts.remove(host.getHostName());
     }
   }
 
@@ -856,7 +850,7 @@ public class TopologyManager {
     // The lock ordering in this method must always be the same ordering as TopologyManager.onHostRegistered
     // TODO: Locking strategies for TopologyManager should be reviewed and possibly rewritten in a future release
     synchronized (availableHosts) {
-      Iterator<HostImpl> hostIterator = availableHosts.iterator();
+      Iterator<HostImpl> hostIterator = availableHosts.values().iterator();
       while (!requestHostComplete && hostIterator.hasNext()) {
         HostImpl host = hostIterator.next();
         synchronized (reservedHosts) {
@@ -889,7 +883,7 @@ public class TopologyManager {
             hostIterator.remove();
             LOG.info("TopologyManager.processRequest: host name = {} was ACCEPTED by LogicalRequest ID = {} , host has been removed from available hosts.",
                 host.getHostName(), logicalRequest.getRequestId());
-            processAcceptedHostOffer(getClusterTopology(logicalRequest.getClusterId()), response, host);
+            processAcceptedHostOffer(getClusterTopology(logicalRequest.getClusterId()), logicalRequest, response, host);
             break;
           case DECLINED_DONE:
             requestHostComplete = true;
@@ -934,7 +928,8 @@ public class TopologyManager {
     return logicalRequest;
   }
 
-  private void processAcceptedHostOffer(final ClusterTopology topology, final HostOfferResponse response, final HostImpl host) {
+  private void processAcceptedHostOffer(final ClusterTopology topology, final LogicalRequest logicalRequest,
+                                        final HostOfferResponse response, final HostImpl host) {
     final String hostName = host.getHostName();
     try {
       topology.addHostToTopology(response.getHostGroupName(), hostName);
@@ -962,7 +957,7 @@ public class TopologyManager {
     }
 
     LOG.info("TopologyManager.processAcceptedHostOffer: queue tasks for host = {} which responded {}", hostName, response.getAnswer());
-    queueHostTasks(topology, response, hostName);
+    queueHostTasks(topology, logicalRequest, response, hostName);
 
   }
 
@@ -985,10 +980,10 @@ public class TopologyManager {
     return topologyTaskExecutor;
   }
 
-  private void queueHostTasks(ClusterTopology topology, HostOfferResponse response, String hostName) {
+  private void queueHostTasks(ClusterTopology topology, LogicalRequest logicalRequest, HostOfferResponse response, String hostName) {
     LOG.info("TopologyManager.processAcceptedHostOffer: queueing tasks for host = {}", hostName);
     ExecutorService executorService = getOrCreateTopologyTaskExecutor(topology.getClusterId());
-    response.executeTasks(executorService, hostName, topology, ambariContext);
+    response.executeTasks(executorService, hostName, topology, ambariContext, logicalRequest.getTaskStatistics());
   }
 
   private void updateHostWithRackInfo(ClusterTopology topology, HostOfferResponse response, HostImpl host) {
@@ -1133,25 +1128,17 @@ public class TopologyManager {
     }
 
     LOG.info("Removing hosts [{}] from available hosts on hosts removed event.", hostsRemovedEvent.getHostNames());
-    Set<HostImpl> toBeRemoved = new HashSet<>();
-
-    // synchronization is required here as the list may be modified concurrently. See comments in this whole class.
+    // synchronization is required here as the map may be modified concurrently. See comments in this whole class.
     synchronized (availableHosts) {
-      for (HostImpl hostImpl : availableHosts) {
-        for (String hostName : hostsRemovedEvent.getHostNames()) {
-          if (hostName.equals(hostImpl.getHostName())) {
-            toBeRemoved.add(hostImpl);
-            break;
-          }
+      boolean removed = false;
+      for (String hostName : hostsRemovedEvent.getHostNames()) {
+        if (availableHosts.remove(hostName) != null) {
+          LOG.info("Removed host: [{}] from available hosts", hostName);
+          removed = true;
         }
       }
 
-      if (!toBeRemoved.isEmpty()) {
-        for (HostImpl host : toBeRemoved) {
-          availableHosts.remove(host);
-          LOG.info("Removed host: [{}] from available hosts", host.getHostName());
-        }
-      } else {
+      if (!removed) {
         LOG.debug("No any host [{}] found in available hosts", hostsRemovedEvent.getHostNames());
       }
     }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.server.topology.tasks.TopologyTask;
+
+/**
+ * Progress and throughput of the topology host tasks of a {@link LogicalRequest}, per task type.
+ * <p/>
+ * Besides the number of completed and failed tasks, the parallelism the tasks actually ran with is
+ * measured: the peak number of tasks running at the same time, and the average number of tasks
+ * running at the same time between the start of the first and the end of the last task.
+ * <p/>
+ * This class is thread safe.
+ */
+public final class TopologyTaskStatistics {
+
+  public static final String COMPLETED = "completed";
+  public static final String FAILED = "failed";
+  public static final String IN_PROGRESS = "in_progress";
+  public static final String AVERAGE_DURATION_MS = "average_duration_ms";
+  public static final String TASKS_PER_SECOND = "tasks_per_second";
+  public static final String PEAK_PARALLELISM = "peak_parallelism";
+  public static final String AVERAGE_PARALLELISM = "average_parallelism";
+
+  private final Map<TopologyTask.Type, TaskTypeStatistics> statistics = new EnumMap<>(TopologyTask.Type.class);
+
+  public TopologyTaskStatistics() {
+    for (TopologyTask.Type type : TopologyTask.Type.values()) {
+      statistics.put(type, new TaskTypeStatistics());
+    }
+  }
+
+  /**
+   * Records the start of a task.
+   *
+   * @param type the type of the task
+   * @return the start time of the task, to be passed to {@link #taskFinished(TopologyTask.Type, long, boolean)}
+   */
+  public long taskStarted(TopologyTask.Type type) {
+    return statistics.get(type).started();
+  }
+
+  /**
+   * Records the end of a task.
+   *
+   * @param type      the type of the task
+   * @param startTime the start time returned by {@link #taskStarted(TopologyTask.Type)}
+   * @param succeeded whether the task succeeded
+   */
+  public void taskFinished(TopologyTask.Type type, long startTime, boolean succeeded) {
+    statistics.get(type).finished(startTime, succeeded);
+  }
+
+  /**
+   * @return the statistics of each task type which has been started at least once, keyed by the
+   *         task type name
+   */
+  public Map<String, Map<String, Object>> getSummary() {
+    Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+    for (Map.Entry<TopologyTask.Type, TaskTypeStatistics> entry : statistics.entrySet()) {
+      if (entry.getValue().started.get() > 0) {
+        summary.put(entry.getKey().name(), entry.getValue().getSummary());
+      }
+    }
+    return summary;
+  }
+
+  @Override
+  public String toString() {
+    return getSummary().toString();
+  }
+
+  /**
+   * The statistics of a single task type.
+   */
+  private static final class TaskTypeStatistics {
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private final AtomicLong totalDuration = new AtomicLong();
+    private final AtomicLong firstStartTime = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastFinishTime = new AtomicLong(Long.MIN_VALUE);
+
+    private long started() {
+      long startTime = System.nanoTime();
+      started.incrementAndGet();
+      firstStartTime.accumulateAndGet(startTime, Math::min);
+      peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      return startTime;
+    }
+
+    private void finished(long startTime, boolean succeeded) {
+      long finishTime = System.nanoTime();
+      running.decrementAndGet();
+      totalDuration.addAndGet(finishTime - startTime);
+      lastFinishTime.accumulateAndGet(finishTime, Math::max);
+      (succeeded ? completed : failed).incrementAndGet();
+    }
+
+    private Map<String, Object> getSummary() {
+      int finishedCount = completed.get() + failed.get();
+      long duration = totalDuration.get();
+      long elapsed = finishedCount == 0 ? 0 : lastFinishTime.get() - firstStartTime.get();
+
+      Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put(COMPLETED, completed.get());
+      summary.put(FAILED, failed.get());
+      summary.put(IN_PROGRESS, running.get());
+      summary.put(AVERAGE_DURATION_MS, finishedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(duration / finishedCount));
+      summary.put(TASKS_PER_SECOND, elapsed <= 0 ? 0.0 : round(finishedCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsed));
+      summary.put(PEAK_PARALLELISM, peakRunning.get());
+      summary.put(AVERAGE_PARALLELISM, elapsed <= 0 ? 0.0 : round((double) duration / elapsed));
+      return summary;
+    }
+
+    private static double round(double value) {
+      return Math.round(value * 100) / 100.0;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.jar.JarInputStream;
 
 import javax.xml.XMLConstants;
@@ -37,6 +38,8 @@ import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
 import org.apache.ambari.server.view.configuration.ViewConfig;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.xml.sax.SAXException;
 
 /**
@@ -50,6 +53,7 @@ public class ViewArchiveUtility {
   private static final String VIEW_XML = "view.xml";
   private static final String WEB_INF_VIEW_XML = "WEB-INF/classes/" + VIEW_XML;
   private static final String VIEW_XSD = "view.xsd";
+  private static final String ARCHIVE_CHECKSUM_FILE = ".archive-checksum";
 
 
   // ----- ViewArchiveUtility ------------------------------------------------
@@ -156,6 +160,53 @@ public class ViewArchiveUtility {
     return new JarInputStream(new FileInputStream(file));
   }
 
+  /**
+   * Get the checksum of the content of the given archive file.
+   *
+   * @param archiveFile  the archive file
+   *
+   * @return the checksum of the archive
+   *
+   * @throws IOException if the archive can not be read
+   */
+  public String getArchiveChecksum(File archiveFile) throws IOException {
+    InputStream archiveStream = new FileInputStream(archiveFile);
+    try {
+      return DigestUtils.sha256Hex(archiveStream);
+    } finally {
+      archiveStream.close();
+    }
+  }
+
+  /**
+   * Get the checksum of the archive which was extracted to the given directory.
+   *
+   * @param archiveDir  the extracted archive directory
+   *
+   * @return the checksum of the extracted archive; {@code null} if the
+   *         directory does not hold a completely extracted archive
+   *
+   * @throws IOException if the checksum can not be read
+   */
+  public String getExtractedArchiveChecksum(File archiveDir) throws IOException {
+    File checksumFile = new File(archiveDir, ARCHIVE_CHECKSUM_FILE);
+
+    return checksumFile.exists() ? FileUtils.readFileToString(checksumFile, StandardCharsets.UTF_8).trim() : null;
+  }
+
+  /**
+   * Mark the given directory as holding the completely extracted archive with
+   * the given checksum.
+   *
+   * @param archiveDir  the extracted archive directory
+   * @param checksum    the checksum of the archive
+   *
+   * @throws IOException if the checksum can not be written
+   */
+  public void setExtractedArchiveChecksum(File archiveDir, String checksum) throws IOException {
+    FileUtils.writeStringToFile(new File(archiveDir, ARCHIVE_CHECKSUM_FILE), checksum, StandardCharsets.UTF_8);
+  }
+
 
   // ----- helper methods ----------------------------------------------------
 
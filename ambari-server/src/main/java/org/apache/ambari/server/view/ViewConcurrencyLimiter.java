@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.view;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@link ViewConcurrencyLimiter} limits the number of concurrent requests
+ * to a single view instance. The limit adapts to the latency of the requests
+ * which complete:
+ * <ul>
+ * <li>The latency is averaged over a short window of the last few requests
+ * and over a long window of about the last {@link #LONG_WINDOW} requests. Both
+ * averages mix the fast and slow requests of a view instance alike, so that a
+ * view instance serving both is not mistaken for an overloaded one.</li>
+ * <li>When the short-window latency grows past {@link #LATENCY_TOLERANCE}
+ * times the long-window latency, the view instance is considered overloaded
+ * and the limit is decreased multiplicatively, at most once per round of the
+ * requests which were in flight when it was last decreased.</li>
+ * <li>Otherwise the limit grows by one whenever requests had to wait for it
+ * or were rejected.</li>
+ * </ul>
+ * Requests over the limit wait in a bounded queue until either the limit
+ * admits them or their deadline passes. Requests which find the queue full are
+ * rejected right away.
+ * <p/>
+ * This class is thread safe.
+ */
+final class ViewConcurrencyLimiter {
+
+  /**
+   * The result of trying to admit a request.
+   */
+  enum Admission {
+    /**
+     * The request may proceed and must be released when it completes.
+     */
+    ACQUIRED,
+
+    /**
+     * The request was rejected since too many requests are waiting already.
+     */
+    QUEUE_FULL,
+
+    /**
+     * The request was not admitted before its deadline.
+     */
+    TIMED_OUT
+  }
+
+  /**
+   * The ratio of the short-window latency to the long-window latency over
+   * which the view instance is considered overloaded.
+   */
+  static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * The factor the limit is multiplied with when the view instance is
+   * overloaded.
+   */
+  private static final double DECREASE_FACTOR = 0.9;
+
+  /**
+   * The weight of a new sample in the short-window latency, which averages
+   * about the last 10 requests.
+   */
+  private static final double SHORT_SMOOTHING = 0.2;
+
+  /**
+   * The number of recent requests the long-window latency averages. The
+   * window lets the long-window latency follow a view instance whose requests
+   * became slower for good, so that it is not throttled forever.
+   */
+  static final int LONG_WINDOW = 100;
+
+  /**
+   * The weight of a new sample in the long-window latency.
+   */
+  private static final double LONG_SMOOTHING = 2.0 / (LONG_WINDOW + 1);
+
+  /**
+   * The factor the long-window latency is multiplied with while the requests
+   * are much faster than it, so that it recovers quickly from an overload
+   * which slowed the requests down.
+   */
+  private static final double LONG_RECOVERY_FACTOR = 0.95;
+
+  private final int m_minLimit;
+  private final int m_maxLimit;
+  private final int m_maxQueueSize;
+
+  private final ReentrantLock m_lock = new ReentrantLock(true);
+  private final Condition m_released = m_lock.newCondition();
+
+  private double m_limit;
+  private int m_inFlight;
+  private int m_queued;
+
+  /**
+   * The short-window latency, in nanoseconds; 0 until the first request
+   * completes.
+   */
+  private double m_shortLatency;
+
+  /**
+   * The long-window latency, in nanoseconds; 0 until the first request
+   * completes.
+   */
+  private double m_longLatency;
+
+  /**
+   * The number of requests to release before the limit can be decreased
+   * again, so that the requests admitted under a higher limit do not decrease
+   * it over and over.
+   */
+  private int m_decreaseHoldoff;
+
+  /**
+   * Whether a request had to wait or was rejected since the limit was last
+   * changed.
+   */
+  private boolean m_saturated;
+
+  /**
+   * Constructor.
+   *
+   * @param initialLimit
+   *          the number of concurrent requests admitted before any latency is
+   *          known.
+   * @param minLimit
+   *          the lowest the limit can drop to.
+   * @param maxLimit
+   *          the highest the limit can grow to.
+   * @param maxQueueSize
+   *          the number of requests which can wait for the limit.
+   */
+  ViewConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize) {
+    m_minLimit = Math.max(1, minLimit);
+    m_maxLimit = Math.max(m_minLimit, maxLimit);
+    m_maxQueueSize = Math.max(0, maxQueueSize);
+    m_limit = Math.min(m_maxLimit, Math.max(m_minLimit, initialLimit));
+  }
+
+  /**
+   * Admits a request, waiting until the specified deadline if the limit is
+   * reached.
+   *
+   * @param timeout
+   *          the longest time to wait.
+   * @param unit
+   *          the unit of the timeout.
+   * @return whether the request was admitted, and if not, why
+   * @throws InterruptedException
+   *           if interrupted while waiting.
+   */
+  Admission acquire(long timeout, TimeUnit unit) throws InterruptedException {
+    m_lock.lock();
+    try {
+      if (m_inFlight < getLimit()) {
+        m_inFlight++;
+        return Admission.ACQUIRED;
+      }
+
+      m_saturated = true;
+      if (m_queued >= m_maxQueueSize) {
+        return Admission.QUEUE_FULL;
+      }
+
+      m_queued++;
+      try {
+        long remaining = unit.toNanos(timeout);
+        while (m_inFlight >= getLimit()) {
+          if (remaining <= 0) {
+            return Admission.TIMED_OUT;
+          }
+          remaining = m_released.awaitNanos(remaining);
+        }
+        m_inFlight++;
+        return Admission.ACQUIRED;
+      } finally {
+        m_queued--;
+      }
+    } finally {
+      m_lock.unlock();
+    }
+  }
+
+  /**
+   * Releases an admitted request and adapts the limit to its latency.
+   *
+   * @param latency
+   *          the time it took to handle the request, in nanoseconds.
+   */
+  void release(long latency) {
+    m_lock.lock();
+    try {
+      m_inFlight--;
+
+      if (m_shortLatency == 0) {
+        m_shortLatency = latency;
+        m_longLatency = latency;
+      } else {
+        m_shortLatency += (latency - m_shortLatency) * SHORT_SMOOTHING;
+        m_longLatency += (latency - m_longLatency) * LONG_SMOOTHING;
+        if (m_shortLatency * LATENCY_TOLERANCE < m_longLatency) {
+          m_longLatency *= LONG_RECOVERY_FACTOR;
+        }
+      }
+
+      if (m_decreaseHoldoff > 0) {
+        m_decreaseHoldoff--;
+      }
+
+      if (m_shortLatency > m_longLatency * LATENCY_TOLERANCE) {
+        // requests which wait keep the view instance saturated, so that the
+        // limit grows again once the latency recovered
+        if (m_decreaseHoldoff == 0) {
+          m_limit = Math.max(m_minLimit, m_limit * DECREASE_FACTOR);
+          m_decreaseHoldoff = m_inFlight;
+        }
+      } else if (m_saturated) {
+        m_limit = Math.min(m_maxLimit, m_limit + 1);
+        m_saturated = false;
+      }
+
+      m_released.signalAll();
+    } finally {
+      m_lock.unlock();
+    }
+  }
+
+  /**
+   * Releases an admitted request which was not handled, without adapting the
+   * limit.
+   */
+  void cancel() {
+    m_lock.lock();
+    try {
+      m_inFlight--;
+      m_released.signalAll();
+    } finally {
+      m_lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of concurrent requests currently admitted
+   */
+  int getLimit() {
+    m_lock.lock();
+    try {
+      return (int) m_limit;
+    } finally {
+      m_lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of requests being handled
+   */
+  int getInFlight() {
+    m_lock.lock();
+    try {
+      return m_inFlight;
+    } finally {
+      m_lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of requests waiting to be admitted
+   */
+  int getQueueSize() {
+    m_lock.lock();
+    try {
+      return m_queued;
+    } finally {
+      m_lock.unlock();
+    }
+  }
+}
@@ -44,7 +44,7 @@ public class ViewExtractor {
    */
   private static final String ARCHIVE_CLASSES_DIR = "WEB-INF/classes";
   private static final String ARCHIVE_LIB_DIR     = "WEB-INF/lib";
-  private static final int    BUFFER_SIZE         = 1024;
+  private static final int    BUFFER_SIZE         = 64 * 1024;
 
   @Inject
   ViewArchiveUtility archiveUtility;
@@ -74,9 +74,15 @@ public class ViewExtractor {
     String archivePath = archiveDir.getAbsolutePath();
 
     try {
-      // Remove directory if jar was updated since last extracting
-      if (archiveDir.exists() && viewArchive != null && viewArchive.lastModified() > archiveDir.lastModified()) {
-        FileUtils.deleteDirectory(archiveDir);
+      // Remove directory if it does not hold a complete extraction of the current archive content
+      String checksum = null;
+      if (viewArchive != null) {
+        checksum = archiveUtility.getArchiveChecksum(viewArchive);
+
+        if (archiveDir.exists() && !checksum.equals(archiveUtility.getExtractedArchiveChecksum(archiveDir))) {
+          LOG.info("View archive {} changed or was not completely extracted, removing {}.", viewArchive.getName(), archivePath);
+          FileUtils.deleteDirectory(archiveDir);
+        }
       }
 
       // Skip if the archive has already been extracted
@@ -103,6 +109,7 @@ public class ViewExtractor {
               throw new ExtractionException(msg);
             }
 
+            byte[] buffer = new byte[BUFFER_SIZE];
             JarEntry jarEntry;
             while ((jarEntry = jarInputStream.getNextJarEntry())!= null){
               try {
@@ -129,7 +136,6 @@ public class ViewExtractor {
                   try {
                     LOG.debug("Begin copying from {} to {}", jarEntry.getName(), entryPath);
 
-                    byte[] buffer = new byte[BUFFER_SIZE];
                     int n;
                     while((n = jarInputStream.read(buffer)) > -1) {
                       fos.write(buffer, 0, n);
@@ -148,6 +154,9 @@ public class ViewExtractor {
           } finally {
             jarInputStream.close();
           }
+
+          // mark the extraction as complete
+          archiveUtility.setExtractedArchiveChecksum(archiveDir, checksum);
         } else {
           msg = "Could not create archive directory " + archivePath + ".";
 
@@ -331,6 +331,13 @@ public class ViewRegistry {
 
   @Inject
   ViewInstanceOperationHandler viewInstanceOperationHandler;
+
+  /**
+   * The filter which limits the concurrent requests to each view instance.
+   */
+  @Inject
+  ViewThrottleFilter viewThrottleFilter;
+
   // ----- Constructors -----------------------------------------------------
 
   /**
@@ -487,6 +494,10 @@ public class ViewRegistry {
           view.onDestroy(instanceDefinition);
         }
         instanceDefinitions.remove(instanceName);
+
+        if (viewThrottleFilter != null) {
+          viewThrottleFilter.removeInstance(definition.getCommonName(), definition.getVersion(), instanceName);
+        }
       }
     }
   }
@@ -526,12 +537,14 @@ public class ViewRegistry {
   }
 
   /**
-   * Read all view archives.
+   * Read all view archives. System views are loaded right away, other views
+   * are extracted and loaded in parallel and become available as each of them
+   * is deployed.
    */
   public void readViewArchives() {
     boolean systemViewsOnly = configuration.extractViewsAfterClusterConfig() && clustersProvider.get().getClusters().isEmpty();
     LOG.info("Triggering loading of [{}] views", systemViewsOnly ? "SYSTEM" : "ALL");
-    readViewArchives(systemViewsOnly, false, ALL_VIEWS_REG_EXP);
+    readViewArchives(systemViewsOnly, true, ALL_VIEWS_REG_EXP);
   }
 
   /**
@@ -1745,11 +1758,10 @@ public class ViewRegistry {
                   addDefinition(viewDefinition);
 
                   // always load system views up front
-                  if (systemView || !useExecutor || extractedArchiveDirFile.exists()) {
-                    // if the archive is already extracted then load the view now
+                  if (systemView || !useExecutor) {
                     readViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile, serverVersion);
                   } else {
-                    // if the archive needs to be extracted then create a runnable to do it
+                    // otherwise create a runnable to extract and load the view in parallel with the others
                     extractionRunnables.add(new Runnable() {
                       @Override
                       public void run() {
@@ -1795,7 +1807,7 @@ public class ViewRegistry {
   }
 
   // read a view archive
-  private synchronized void readViewArchive(ViewEntity viewDefinition,
+  private void readViewArchive(ViewEntity viewDefinition,
                                File archiveFile,
                                File extractedArchiveDirFile,
                                String serverVersion) {
@@ -1807,44 +1819,54 @@ public class ViewRegistry {
     LOG.info("Reading view archive " + archiveFile + ".");
 
     try {
-      // extract the archive and get the class loader
+      // extract the archive, get the class loader and read the view configuration
+      // without holding the registry lock so that views can be extracted in parallel
       ClassLoader cl = extractor.extractViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile);
 
-      configureViewLogging(viewDefinition, cl);
-
       ViewConfig viewConfig = archiveUtility.getViewConfigFromExtractedArchive(extractedArchiveDirPath,
           configuration.isViewValidationEnabled());
 
-      viewDefinition.setConfiguration(viewConfig);
+      deployViewArchive(viewDefinition, viewConfig, cl, extractedArchiveDirPath, serverVersion);
+    } catch (Throwable e) {
+      String msg = "Caught exception loading view " + viewDefinition.getName();
 
-      if (checkViewVersions(viewDefinition, serverVersion)) {
-        setupViewDefinition(viewDefinition, cl);
+      setViewStatus(viewDefinition, ViewEntity.ViewStatus.ERROR, msg + " : " + e.getMessage());
+      LOG.error(msg, e);
+    }
+  }
 
-        Set<ViewInstanceEntity> instanceDefinitions = new HashSet<>();
+  // deploy an extracted view archive
+  private synchronized void deployViewArchive(ViewEntity viewDefinition,
+                                              ViewConfig viewConfig,
+                                              ClassLoader cl,
+                                              String extractedArchiveDirPath,
+                                              String serverVersion) throws Exception {
+    configureViewLogging(viewDefinition, cl);
 
-        for (InstanceConfig instanceConfig : viewConfig.getInstances()) {
-          ViewInstanceEntity instanceEntity = createViewInstanceDefinition(viewConfig, viewDefinition, instanceConfig);
-          instanceEntity.setXmlDriven(true);
-          instanceDefinitions.add(instanceEntity);
-        }
+    viewDefinition.setConfiguration(viewConfig);
 
-        persistView(viewDefinition, instanceDefinitions);
+    if (checkViewVersions(viewDefinition, serverVersion)) {
+      setupViewDefinition(viewDefinition, cl);
 
-        // auto instances of loaded old views for doing data migration can not be installed
-        if (getDefinition(viewDefinition.getViewName(), viewDefinition.getVersion()) != null) {
-          // add auto instance configurations if required
-          addAutoInstanceDefinition(viewDefinition);
-        }
+      Set<ViewInstanceEntity> instanceDefinitions = new HashSet<>();
+
+      for (InstanceConfig instanceConfig : viewConfig.getInstances()) {
+        ViewInstanceEntity instanceEntity = createViewInstanceDefinition(viewConfig, viewDefinition, instanceConfig);
+        instanceEntity.setXmlDriven(true);
+        instanceDefinitions.add(instanceEntity);
+      }
 
-        setViewStatus(viewDefinition, ViewEntity.ViewStatus.DEPLOYED, "Deployed " + extractedArchiveDirPath + ".");
+      persistView(viewDefinition, instanceDefinitions);
 
-        LOG.info("View deployed: " + viewDefinition.getName() + ".");
+      // auto instances of loaded old views for doing data migration can not be installed
+      if (getDefinition(viewDefinition.getViewName(), viewDefinition.getVersion()) != null) {
+        // add auto instance configurations if required
+        addAutoInstanceDefinition(viewDefinition);
       }
-    } catch (Throwable e) {
-      String msg = "Caught exception loading view " + viewDefinition.getName();
 
-      setViewStatus(viewDefinition, ViewEntity.ViewStatus.ERROR, msg + " : " + e.getMessage());
-      LOG.error(msg, e);
+      setViewStatus(viewDefinition, ViewEntity.ViewStatus.DEPLOYED, "Deployed " + extractedArchiveDirPath + ".");
+
+      LOG.info("View deployed: " + viewDefinition.getName() + ".");
     }
   }
 
@@ -18,8 +18,12 @@
 package org.apache.ambari.server.view;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -31,10 +35,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.view.ViewConcurrencyLimiter.Admission;
 import org.eclipse.jetty.continuation.Continuation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -65,6 +72,12 @@ import com.google.inject.Singleton;
  * request. We would need the ability for views to signal that they have
  * completed their work in order to proceed with the suspended request.
  * </ul>
+ * <p/>
+ * Since a single slow view instance could still hold every one of those
+ * threads, each view instance is also given its own
+ * {@link ViewConcurrencyLimiter} which shrinks the number of its concurrent
+ * requests as their latency grows. Requests over a view instance's limit wait
+ * in a bounded queue and are rejected right away once the queue is full.
  */
 @Singleton
 public class ViewThrottleFilter implements Filter {
@@ -74,6 +87,21 @@ public class ViewThrottleFilter implements Filter {
    */
   private static final Logger LOG = LoggerFactory.getLogger(ViewThrottleFilter.class);
 
+  /**
+   * Matches the view name, version and instance name of a view request.
+   */
+  private static final Pattern VIEW_INSTANCE_PATTERN = Pattern.compile(
+      "/api/v1/views/([^/]+)/versions/([^/]+)/instances/([^/]+)");
+
+  /**
+   * The names of the metrics kept for each view instance.
+   */
+  static final String METRIC_QUEUE_SIZE = "queue.size";
+  static final String METRIC_LIMIT = "limit";
+  static final String METRIC_IN_FLIGHT = "inflight";
+  static final String METRIC_REJECTED = "rejected";
+  static final String METRIC_LATENCY = "latency";
+
   /**
    * Used to determine the correct number of threads to allocate to view
    * requests.
@@ -93,12 +121,36 @@ public class ViewThrottleFilter implements Filter {
    */
   private int m_timeout;
 
+  /**
+   * The number of requests which can wait for a view instance's limit, or
+   * {@code 0} if view instances are not limited individually.
+   */
+  private int m_queueSize;
+
+  /**
+   * The number of permits of {@link #m_semaphore}, which is the most any single
+   * view instance can use.
+   */
+  private int m_permits;
+
+  /**
+   * The limiters of the view instances by view name, version and instance
+   * name.
+   */
+  private final ConcurrentMap<String, ViewConcurrencyLimiter> m_limiters = new ConcurrentHashMap<>();
+
+  /**
+   * The queue sizes, limits, rejections and latencies of the view instances.
+   */
+  private final MetricRegistry m_metricRegistry = new MetricRegistry();
+
   /**
    * {@inheritDoc}
    */
   @Override
   public void init(FilterConfig filterConfig) throws ServletException {
     m_timeout = m_configuration.getViewRequestThreadPoolTimeout();
+    m_queueSize = m_configuration.getViewRequestQueueSize();
 
     int clientThreadPoolSize = m_configuration.getClientThreadPoolSize();
     int viewThreadPoolSize = m_configuration.getViewRequestThreadPoolMaxSize();
@@ -123,6 +175,7 @@ public class ViewThrottleFilter implements Filter {
     LOG.info("Ambari Views will be able to utilize {} concurrent REST API threads",
         viewSemaphoreCount);
 
+    m_permits = viewSemaphoreCount;
     m_semaphore = new Semaphore(viewSemaphoreCount);
   }
 
@@ -140,15 +193,50 @@ public class ViewThrottleFilter implements Filter {
     }
 
     HttpServletResponse httpResponse = (HttpServletResponse) response;
+    long timeout = m_timeout;
+
+    // first wait for the view instance's own limit so that a slow view
+    // instance queues up against itself rather than against every view
+    String instanceKey = getInstanceKey((HttpServletRequest) request);
+    ViewConcurrencyLimiter limiter = null == instanceKey ? null : m_limiters.get(instanceKey);
+    if (null != limiter) {
+      long start = System.nanoTime();
+      Admission admission = Admission.TIMED_OUT;
+
+      try {
+        admission = limiter.acquire(m_timeout, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException interruptedException) {
+        LOG.warn("While waiting for the view instance {}, the view request was interrupted", instanceKey);
+      }
+
+      if (admission != Admission.ACQUIRED) {
+        m_metricRegistry.counter(MetricRegistry.name(instanceKey, METRIC_REJECTED)).inc();
+        httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+            admission == Admission.QUEUE_FULL
+                ? "There are too many requests waiting for the view instance " + instanceKey
+                : "The view instance " + instanceKey + " did not become available in time");
+
+        return;
+      }
+
+      // wait for a thread only as long as the request has left
+      timeout = Math.max(0, m_timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
     boolean acquired = false;
 
     try {
-      acquired = m_semaphore.tryAcquire(m_timeout, TimeUnit.MILLISECONDS);
+      acquired = m_semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS);
     } catch (InterruptedException interruptedException) {
       LOG.warn("While waiting for an available thread, the view request was interrupted");
     }
 
     if (!acquired) {
+      if (null != limiter) {
+        limiter.cancel();
+        m_metricRegistry.counter(MetricRegistry.name(instanceKey, METRIC_REJECTED)).inc();
+      }
+
       httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
           "There are no available threads to handle view requests");
 
@@ -157,13 +245,103 @@ public class ViewThrottleFilter implements Filter {
     }
 
     // let the request go through
+    long start = System.nanoTime();
     try {
       chain.doFilter(request, response);
     } finally {
       m_semaphore.release();
+
+      if (null != limiter) {
+        long latency = System.nanoTime() - start;
+        limiter.release(latency);
+
+        // the view instance may have been removed while its request was handled
+        if (m_limiters.get(instanceKey) == limiter) {
+          m_metricRegistry.timer(MetricRegistry.name(instanceKey, METRIC_LATENCY)).update(latency,
+              TimeUnit.NANOSECONDS);
+        }
+      }
     }
   }
 
+  /**
+   * Gets the registry of the per view instance metrics. The metrics of a view
+   * instance are named after its view name, version and instance name.
+   *
+   * @return the metric registry
+   */
+  public MetricRegistry getMetricRegistry() {
+    return m_metricRegistry;
+  }
+
+  /**
+   * Removes the limiter and the metrics of a view instance which is deleted or
+   * undeployed. A view instance which is deployed again starts out with a new
+   * limiter.
+   *
+   * @param viewName
+   *          the view name.
+   * @param version
+   *          the view version.
+   * @param instanceName
+   *          the view instance name.
+   */
+  public void removeInstance(String viewName, String version, String instanceName) {
+    final String instanceKey = MetricRegistry.name("view", viewName, version, instanceName);
+    if (null != m_limiters.remove(instanceKey)) {
+      m_metricRegistry.removeMatching((name, metric) -> name.startsWith(instanceKey + "."));
+    }
+  }
+
+  /**
+   * Gets the key of the view instance a request is for, creating the view
+   * instance's limiter on its first request. Only instances known to the
+   * {@link ViewRegistry} are limited so that the limiters can not grow with
+   * arbitrary request URIs.
+   *
+   * @param request
+   *          the request.
+   * @return the key of the view instance, or {@code null} if the request is
+   *         not for a known view instance or the per view instance limits are
+   *         disabled
+   */
+  private String getInstanceKey(HttpServletRequest request) {
+    String uri = request.getRequestURI();
+    if (m_queueSize <= 0 || null == uri) {
+      return null;
+    }
+
+    Matcher matcher = VIEW_INSTANCE_PATTERN.matcher(uri);
+    if (!matcher.find()) {
+      return null;
+    }
+
+    String viewName = matcher.group(1);
+    String version = matcher.group(2);
+    String instanceName = matcher.group(3);
+    String instanceKey = MetricRegistry.name("view", viewName, version, instanceName);
+
+    if (!m_limiters.containsKey(instanceKey)) {
+      ViewRegistry viewRegistry = ViewRegistry.getInstance();
+      if (null == viewRegistry || null == viewRegistry.getInstanceDefinition(viewName, version, instanceName)) {
+        return null;
+      }
+
+      ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(m_permits / 2, 1, m_permits, m_queueSize);
+      if (null == m_limiters.putIfAbsent(instanceKey, limiter)) {
+        registerGauges(instanceKey, limiter);
+      }
+    }
+
+    return instanceKey;
+  }
+
+  private void registerGauges(String instanceKey, ViewConcurrencyLimiter limiter) {
+    m_metricRegistry.register(MetricRegistry.name(instanceKey, METRIC_QUEUE_SIZE), (Gauge<Integer>) limiter::getQueueSize);
+    m_metricRegistry.register(MetricRegistry.name(instanceKey, METRIC_LIMIT), (Gauge<Integer>) limiter::getLimit);
+    m_metricRegistry.register(MetricRegistry.name(instanceKey, METRIC_IN_FLIGHT), (Gauge<Integer>) limiter::getInFlight);
+  }
+
   /**
    * {@inheritDoc}
    */
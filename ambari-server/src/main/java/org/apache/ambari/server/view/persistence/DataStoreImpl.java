@@ -27,13 +27,16 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
@@ -111,6 +114,16 @@ public class DataStoreImpl implements DataStore {
    */
   private final Map<String, JPADynamicTypeBuilder> typeBuilderMap = new LinkedHashMap<>();
 
+  /**
+   * Cached bean property descriptors keyed by view entity class.
+   */
+  private final Map<Class<?>, PropertyDescriptor[]> propertyDescriptorMap = new ConcurrentHashMap<>();
+
+  /**
+   * Cached element types of collection fields keyed by view entity class and field name.
+   */
+  private final Map<Class<?>, Map<String, Class<?>>> parameterizedTypeMap = new ConcurrentHashMap<>();
+
   /**
    * Indicates whether or not the data store has been initialized.
    */
@@ -141,26 +154,31 @@ public class DataStoreImpl implements DataStore {
 
   @Override
   public void store(Object entity) throws PersistenceException {
+    storeAll(Collections.singletonList(entity));
+  }
+
+  @Override
+  public void storeAll(Collection<?> entities) throws PersistenceException {
     checkInitialize();
 
     EntityManager em = getEntityManager();
     try {
       em.getTransaction().begin();
+      Object entity = null;
       try {
-        DynamicEntity dynamicEntity = persistEntity(entity, em, new HashSet<>());
+        Set<DynamicEntity>  persistSet     = new HashSet<>();
+        List<DynamicEntity> dynamicEntities = new ArrayList<>(entities.size());
+        for (Object e : entities) {
+          entity = e;
+          dynamicEntities.add(persistEntity(entity, em, persistSet));
+        }
         em.getTransaction().commit();
-        Map<String, Object> props = getEntityProperties(entity);
-        List<String> keys = new ArrayList<>(props.keySet());
-        for( String key : keys){
-          String attribute = getAttributeName(key);
-          try {
-            props.put(key, dynamicEntity.get(attribute));
-          }catch(DynamicException de){
-            LOG.debug("Error occurred while copying entity property : {} : {}", key, de);
-            // ignore - the property was not found in Dynamic entity.
-          }
+
+        Iterator<DynamicEntity> iterator = dynamicEntities.iterator();
+        for (Object e : entities) {
+          entity = e;
+          copyEntityProperties(iterator.next(), entity);
         }
-        setEntityProperties(entity,props);
       } catch (Exception e) {
         rollbackTransaction(em.getTransaction());
         throwPersistenceException("Caught exception trying to store view entity " + entity, e);
@@ -172,33 +190,37 @@ public class DataStoreImpl implements DataStore {
 
   @Override
   public void remove(Object entity) throws PersistenceException {
+    removeAll(Collections.singletonList(entity));
+  }
+
+  @Override
+  public void removeAll(Collection<?> entities) throws PersistenceException {
     checkInitialize();
 
     EntityManager em = getEntityManager();
     try {
-      Class       clazz = entity.getClass();
-      String      id    = getIdFieldName(clazz);
-      DynamicType type  = getDynamicEntityType(clazz);
+      em.getTransaction().begin();
+      Object entity = null;
+      try {
+        for (Object e : entities) {
+          entity = e;
 
-      if (type != null) {
-        try {
-          Map<String, Object> properties    = getEntityProperties(entity);
-          DynamicEntity       dynamicEntity = em.getReference(type.getJavaClass(), properties.get(id));
+          Class<?>    clazz = entity.getClass();
+          String      id    = getIdFieldName(clazz);
+          DynamicType type  = getDynamicEntityType(clazz);
+
+          if (type != null) {
+            DynamicEntity dynamicEntity = em.getReference(type.getJavaClass(), getEntityProperty(entity, id));
 
-          if (dynamicEntity != null) {
-            em.getTransaction().begin();
-            try {
+            if (dynamicEntity != null) {
               em.remove(dynamicEntity);
-              em.getTransaction().commit();
-            } catch (Exception e) {
-              rollbackTransaction(em.getTransaction());
-              throwPersistenceException("Caught exception trying to remove view entity " + entity, e);
             }
           }
-
-        } catch (Exception e) {
-          throwPersistenceException("Caught exception trying to remove view entity " + entity, e);
         }
+        em.getTransaction().commit();
+      } catch (Exception e) {
+        rollbackTransaction(em.getTransaction());
+        throwPersistenceException("Caught exception trying to remove view entity " + entity, e);
       }
     } finally {
       em.close();
@@ -229,31 +251,13 @@ public class DataStoreImpl implements DataStore {
 
   @Override
   public <T> Collection<T> findAll(Class<T> clazz, String whereClause) throws PersistenceException {
-    checkInitialize();
-
-    EntityManager em = getEntityManager();
-    try {
-      Collection<T> resources = new HashSet<>();
-      DynamicType   type      = getDynamicEntityType(clazz);
-
-      if (type != null) {
-        try {
-          Query query = em.createQuery(getSelectStatement(clazz, whereClause));
-
-          List dynamicEntities = query.getResultList();
+    return findAll(clazz, whereClause, new HashSet<T>(), null, null);
+  }
 
-          for (Object dynamicEntity : dynamicEntities) {
-            resources.add(toEntity(clazz, type, (DynamicEntity) dynamicEntity));
-          }
-        } catch (Exception e) {
-          throwPersistenceException("Caught exception trying to find " +
-              clazz.getName() + " where " + whereClause, e);
-        }
-      }
-      return resources;
-    } finally {
-      em.close();
-    }
+  @Override
+  public <T> Collection<T> findAll(Class<T> clazz, String whereClause, int firstResult, int maxResults)
+      throws PersistenceException {
+    return findAll(clazz, whereClause, new ArrayList<T>(), firstResult, maxResults);
   }
 
 
@@ -496,6 +500,63 @@ public class DataStoreImpl implements DataStore {
     return resource;
   }
 
+  // find the entities for the given where clause; all of them unless a page is given
+  private <T> Collection<T> findAll(Class<T> clazz, String whereClause, Collection<T> resources,
+                                    Integer firstResult, Integer maxResults) throws PersistenceException {
+    checkInitialize();
+
+    EntityManager em = getEntityManager();
+    try {
+      DynamicType type = getDynamicEntityType(clazz);
+
+      if (type != null) {
+        try {
+          String statement = getSelectStatement(clazz, whereClause);
+          if (firstResult != null) {
+            // order the pages by primary key so that they are stable
+            statement += " ORDER BY e." + getAttributeName(getIdFieldName(clazz));
+          }
+
+          Query query = em.createQuery(statement);
+          if (firstResult != null) {
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResults);
+          }
+
+          List<?> dynamicEntities = query.getResultList();
+
+          for (Object dynamicEntity : dynamicEntities) {
+            resources.add(toEntity(clazz, type, (DynamicEntity) dynamicEntity));
+          }
+        } catch (Exception e) {
+          throwPersistenceException("Caught exception trying to find " +
+              clazz.getName() + " where " + whereClause, e);
+        }
+      }
+      return resources;
+    } finally {
+      em.close();
+    }
+  }
+
+  // copy the property values of the given stored dynamic entity (i.e. generated ids) back to the view entity
+  private void copyEntityProperties(DynamicEntity dynamicEntity, Object entity)
+      throws IntrospectionException, InvocationTargetException, IllegalAccessException,
+      InstantiationException, NoSuchFieldException {
+    Map<String, Object> props = getEntityProperties(entity);
+    List<String> keys = new ArrayList<>(props.keySet());
+    for( String key : keys){
+      String attribute = getAttributeName(key);
+      try {
+        props.put(key, dynamicEntity.get(attribute));
+      }catch(DynamicException de){
+        LOG.debug("Error occurred while copying entity property : {} : {}", key, de);
+        // ignore - the property was not found in Dynamic entity.
+      }
+    }
+    setEntityProperties(entity,props);
+  }
+
   // build a JPA select statement from the given view entity class and where clause
   private <T> String getSelectStatement(Class<T> clazz, String whereClause)
       throws IntrospectionException {
@@ -530,7 +591,7 @@ public class DataStoreImpl implements DataStore {
       throws IntrospectionException, InvocationTargetException, IllegalAccessException {
     Map<String, Object> properties = new HashMap<>();
 
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
+    for (PropertyDescriptor pd : getPropertyDescriptors(entity.getClass())) {
       String name       = pd.getName();
       Method readMethod = pd.getReadMethod();
       if (readMethod != null) {
@@ -540,12 +601,35 @@ public class DataStoreImpl implements DataStore {
     return properties;
   }
 
+  // get the value of a single property from the given view entity
+  private Object getEntityProperty(Object entity, String name)
+      throws IntrospectionException, InvocationTargetException, IllegalAccessException {
+    for (PropertyDescriptor pd : getPropertyDescriptors(entity.getClass())) {
+      if (pd.getName().equals(name)) {
+        Method readMethod = pd.getReadMethod();
+        return readMethod == null ? null : readMethod.invoke(entity);
+      }
+    }
+    return null;
+  }
+
+  // get the bean property descriptors of the given view entity class; the introspection
+  // is done once per class rather than for every entity that is stored or read
+  private PropertyDescriptor[] getPropertyDescriptors(Class<?> clazz) throws IntrospectionException {
+    PropertyDescriptor[] descriptors = propertyDescriptorMap.get(clazz);
+    if (descriptors == null) {
+      descriptors = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
+      propertyDescriptorMap.put(clazz, descriptors);
+    }
+    return descriptors;
+  }
+
   // set the properties on the given view entity from the given map of properties; convert all
   // DynamicEntity values to their associated view entity types
   private void setEntityProperties(Object entity, Map<String, Object> properties)
       throws IntrospectionException, InvocationTargetException, IllegalAccessException,
       InstantiationException, NoSuchFieldException {
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(entity.getClass()).getPropertyDescriptors()) {
+    for (PropertyDescriptor pd : getPropertyDescriptors(entity.getClass())) {
       String name = pd.getName();
       if (properties.containsKey(name)) {
 
@@ -625,19 +709,30 @@ public class DataStoreImpl implements DataStore {
   }
 
   // get the property names for the given view entity class
-  private static Set<String> getPropertyNames(Class clazz) throws IntrospectionException {
+  private Set<String> getPropertyNames(Class<?> clazz) throws IntrospectionException {
     Set<String> propertyNames = new HashSet<>();
-    for (PropertyDescriptor pd : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+    for (PropertyDescriptor pd : getPropertyDescriptors(clazz)) {
       propertyNames.add(pd.getName());
     }
     return propertyNames;
   }
 
   // get the parameterized type class for the given field of the given class
-  private static Class<?> getParameterizedTypeClass(Class clazz, String fieldName) throws NoSuchFieldException {
-    Field field = clazz.getDeclaredField(fieldName);
-    ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
-    return (Class<?>) parameterizedType.getActualTypeArguments()[0];
+  private Class<?> getParameterizedTypeClass(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+    Map<String, Class<?>> typeMap = parameterizedTypeMap.get(clazz);
+    if (typeMap == null) {
+      typeMap = new ConcurrentHashMap<>();
+      parameterizedTypeMap.put(clazz, typeMap);
+    }
+
+    Class<?> typeClass = typeMap.get(fieldName);
+    if (typeClass == null) {
+      Field field = clazz.getDeclaredField(fieldName);
+      ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
+      typeClass = (Class<?>) parameterizedType.getActualTypeArguments()[0];
+      typeMap.put(fieldName, typeClass);
+    }
+    return typeClass;
   }
 
   // make sure that a string field value doesn't exceed MAX_STRING_LENGTH
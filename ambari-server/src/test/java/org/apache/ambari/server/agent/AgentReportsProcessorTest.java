@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.agent.stomp.dto.HostStatusReport;
+import org.apache.ambari.server.configuration.Configuration;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.persist.UnitOfWork;
+
+public class AgentReportsProcessorTest {
+
+  private static final String HOST = "host1";
+  private static final int QUEUE_SIZE = 4;
+
+  private HeartBeatHandler heartBeatHandler;
+  private AgentReportsProcessor underTest;
+
+  @Before
+  public void setUp() {
+    final Configuration configuration = EasyMock.createNiceMock(Configuration.class);
+    expect(configuration.getAgentsReportThreadPoolSize()).andReturn(2).anyTimes();
+    expect(configuration.getAgentsReportQueueSize()).andReturn(QUEUE_SIZE).anyTimes();
+    // keep the shards from being processed in the background
+    expect(configuration.getAgentsReportProcessingStartTimeout()).andReturn(3600).anyTimes();
+    expect(configuration.getAgentsReportProcessingPeriod()).andReturn(1).anyTimes();
+
+    heartBeatHandler = EasyMock.createStrictMock(HeartBeatHandler.class);
+    final UnitOfWork unitOfWork = EasyMock.createNiceMock(UnitOfWork.class);
+    replay(configuration, unitOfWork);
+
+    underTest = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        // bound to providers so that Guice does not inject the members of the mocks
+        bind(Configuration.class).toProvider(() -> configuration);
+        bind(HeartBeatHandler.class).toProvider(() -> heartBeatHandler);
+        bind(UnitOfWork.class).toProvider(() -> unitOfWork);
+      }
+    }).getInstance(AgentReportsProcessor.class);
+  }
+
+  /**
+   * Tests that the reports of a host are processed in order, and that
+   * component status reports are only merged while no command report was
+   * received after them.
+   */
+  @Test
+  public void reportsAreOrderedAndCoalesced() throws Exception {
+    List<CommandReport> commandReports = Collections.singletonList(new CommandReport());
+    HostStatusReport hostStatusReport = new HostStatusReport();
+
+    Capture<List<ComponentStatus>> mergedStatuses = EasyMock.newCapture();
+    heartBeatHandler.handleComponentReportStatus(EasyMock.capture(mergedStatuses), EasyMock.eq(HOST));
+    heartBeatHandler.handleCommandReportStatus(commandReports, HOST);
+    heartBeatHandler.handleComponentReportStatus(EasyMock.anyObject(), EasyMock.eq(HOST));
+    heartBeatHandler.handleHostReportStatus(hostStatusReport, HOST);
+    replay(heartBeatHandler);
+
+    underTest.addAgentReport(createComponentStatusReport(createComponentStatus("DATANODE", "STARTED")));
+    underTest.addAgentReport(createComponentStatusReport(createComponentStatus("DATANODE", "INSTALLED"),
+        createComponentStatus("NAMENODE", "STARTED")));
+    underTest.addAgentReport(new AgentReport(HOST, null, commandReports, null));
+    underTest.addAgentReport(createComponentStatusReport(createComponentStatus("DATANODE", "STARTED")));
+    underTest.addAgentReport(new AgentReport(HOST, null, null, hostStatusReport));
+
+    AgentReportsProcessor.Shard shard = underTest.getShard(HOST);
+    assertEquals(4, shard.size());
+    assertEquals(1, underTest.getMetricRegistry().counter(AgentReportsProcessor.METRIC_COALESCED).getCount());
+
+    shard.run();
+
+    verify(heartBeatHandler);
+    assertEquals(0, shard.size());
+
+    List<ComponentStatus> statuses = mergedStatuses.getValue();
+    assertEquals(2, statuses.size());
+    assertEquals("DATANODE", statuses.get(0).getComponentName());
+    assertEquals("INSTALLED", statuses.get(0).getStatus());
+    assertEquals("NAMENODE", statuses.get(1).getComponentName());
+  }
+
+  /**
+   * Tests that a host status report replaces the waiting host status report of
+   * its host.
+   */
+  @Test
+  public void hostStatusReportsAreCoalesced() throws Exception {
+    HostStatusReport hostStatusReport = new HostStatusReport();
+    for (int i = 0; i <= QUEUE_SIZE; i++) {
+      underTest.addAgentReport(new AgentReport(HOST, null, null, new HostStatusReport()));
+    }
+    underTest.addAgentReport(new AgentReport(HOST, null, null, hostStatusReport));
+
+    AgentReportsProcessor.Shard shard = underTest.getShard(HOST);
+    assertEquals(1, shard.size());
+    assertEquals(QUEUE_SIZE + 1, underTest.getMetricRegistry().counter(AgentReportsProcessor.METRIC_COALESCED).getCount());
+    assertSame(hostStatusReport, shard.poll().get(0).getHostStatusReport());
+  }
+
+  /**
+   * Tests that status reports are queued into a full shard, while command
+   * reports wait for room for a bounded time.
+   */
+  @Test
+  public void fullShardKeepsReports() throws Exception {
+    final AgentReportsProcessor.Shard shard = underTest.getShard(HOST);
+    for (int i = 0; i < QUEUE_SIZE; i++) {
+      underTest.addAgentReport(createCommandReport());
+    }
+
+    underTest.addAgentReport(createComponentStatusReport(createComponentStatus("DATANODE", "STARTED")));
+    underTest.addAgentReport(new AgentReport(HOST, null, null, new HostStatusReport()));
+    assertEquals(QUEUE_SIZE + 2, shard.size());
+    assertEquals(2, underTest.getMetricRegistry().counter(AgentReportsProcessor.METRIC_OVERFLOWED).getCount());
+
+    // a command report is queued once there is room
+    final AgentReport commandReport = createCommandReport();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> added = executor.submit(() -> underTest.addAgentReport(commandReport));
+      Thread.sleep(100);
+      assertFalse(added.isDone());
+
+      assertEquals(QUEUE_SIZE + 2, shard.poll().size());
+      added.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    List<AgentReport> reports = shard.poll();
+    assertEquals(1, reports.size());
+    assertSame(commandReport, reports.get(0));
+
+    // or after waiting for a bounded time
+    for (int i = 0; i < QUEUE_SIZE; i++) {
+      underTest.addAgentReport(createCommandReport());
+    }
+    long start = System.nanoTime();
+    underTest.addAgentReport(createCommandReport());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    assertEquals(QUEUE_SIZE + 1, shard.size());
+
+    // and right away if interrupted, leaving the interrupt to the caller
+    Thread.currentThread().interrupt();
+    underTest.addAgentReport(createCommandReport());
+    assertTrue(Thread.interrupted());
+    assertEquals(QUEUE_SIZE + 2, shard.size());
+  }
+
+  private static AgentReport createCommandReport() {
+    return new AgentReport(HOST, null, Collections.singletonList(new CommandReport()), null);
+  }
+
+  private static AgentReport createComponentStatusReport(ComponentStatus... statuses) {
+    return new AgentReport(HOST, new ArrayList<>(Arrays.asList(statuses)), null, null);
+  }
+
+  private static ComponentStatus createComponentStatus(String componentName, String status) {
+    ComponentStatus componentStatus = new ComponentStatus();
+    componentStatus.setClusterId(1L);
+    componentStatus.setServiceName("HDFS");
+    componentStatus.setComponentName(componentName);
+    componentStatus.setStatus(status);
+    return componentStatus;
+  }
+}
@@ -29,10 +29,13 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -54,8 +57,10 @@ import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequest.StackAdvisorRequestBuilder;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRequestException;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResponse;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResultCache;
 import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorRunner;
 import org.apache.ambari.server.api.services.stackadvisor.commands.StackAdvisorCommand.StackAdvisorData;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.AmbariServerConfigurationHandler;
 import org.apache.ambari.server.state.ServiceInfo;
 import org.apache.commons.io.FileUtils;
@@ -210,6 +215,64 @@ public class StackAdvisorCommandTest {
     assertEquals(requestId, result.getId());
   }
 
+  @Test
+  public void testInvoke_cachedResultSkipsRunner() throws Exception {
+    String expected = "success";
+    final String testResourceString = String.format("{\"type\": \"%s\"}", expected);
+    final File recommendationsDir = temp.newFolder("recommendationDir");
+    String recommendationsArtifactsLifetime = "1w";
+    final int requestId = 2;
+    StackAdvisorRunner saRunner = mock(StackAdvisorRunner.class);
+    AmbariMetaInfo metaInfo = mock(AmbariMetaInfo.class);
+    Configuration configuration = mock(Configuration.class);
+    when(configuration.getStackAdvisorResultCacheSize()).thenReturn(10);
+    when(configuration.getStackAdvisorResultCacheTtlMinutes()).thenReturn(10);
+    StackAdvisorResultCache resultCache = new StackAdvisorResultCache(configuration);
+
+    final StackAdvisorCommand<TestResource> command = spy(new TestStackAdvisorCommand(
+        recommendationsDir, recommendationsArtifactsLifetime, ServiceInfo.ServiceAdvisorType.PYTHON, requestId, saRunner, metaInfo));
+    command.setResultCache(resultCache);
+
+    StackAdvisorRequest request = StackAdvisorRequestBuilder.forStack("stackName", "stackVersion")
+        .build();
+
+    String hostsJSON = "{\"items\" : [{\"Hosts\" : {\"host_name\" : \"c6401\", \"last_heartbeat_time\" : 1}}]}";
+    String servicesJSON = "{\"services\" : \"HDFS\"}";
+    doReturn(hostsJSON).when(command).getHostsInformation(request);
+    doReturn(servicesJSON).when(command).getServicesInformation(request);
+    doAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return invocation.getArguments()[0];
+      }
+    }).when(command).adjust(any(StackAdvisorData.class), any(StackAdvisorRequest.class));
+
+    doAnswer(new Answer<Void>() {
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        String resultFilePath = String.format("%s/%s", requestId, command.getResultFileName());
+        File resultFile = new File(recommendationsDir, resultFilePath);
+        resultFile.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(resultFile, testResourceString, StandardCharsets.UTF_8);
+        return null;
+      }
+    }).when(saRunner).runScript(any(ServiceInfo.ServiceAdvisorType.class), any(StackAdvisorCommandType.class), any(File.class));
+
+    assertEquals(expected, command.invoke(request, ServiceInfo.ServiceAdvisorType.PYTHON).getType());
+
+    // only the heartbeat time changed, so the cached result must be used
+    doReturn(hostsJSON.replace("\"last_heartbeat_time\" : 1", "\"last_heartbeat_time\" : 2")).when(command).getHostsInformation(request);
+    TestResource result = command.invoke(request, ServiceInfo.ServiceAdvisorType.PYTHON);
+    assertEquals(expected, result.getType());
+    assertEquals(requestId, result.getId());
+
+    verify(saRunner, times(1)).runScript(any(ServiceInfo.ServiceAdvisorType.class), any(StackAdvisorCommandType.class), any(File.class));
+
+    // a different host set must run the advisor again
+    doReturn(hostsJSON.replace("c6401", "c6402")).when(command).getHostsInformation(request);
+    command.invoke(request, ServiceInfo.ServiceAdvisorType.PYTHON);
+
+    verify(saRunner, times(2)).runScript(any(ServiceInfo.ServiceAdvisorType.class), any(StackAdvisorCommandType.class), any(File.class));
+  }
+
   @Test
   public void testPopulateStackHierarchy() throws Exception {
     File file = mock(File.class);
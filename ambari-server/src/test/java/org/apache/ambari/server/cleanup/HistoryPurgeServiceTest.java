@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.cleanup;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
+import org.apache.ambari.server.orm.dao.Cleanable;
+import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.state.Clusters;
+import org.easymock.Capture;
+import org.easymock.EasyMockSupport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests {@link HistoryPurgeService}.
+ */
+public class HistoryPurgeServiceTest extends EasyMockSupport {
+
+  private static final String CLUSTER_NAME = "c1";
+
+  private final List<Long> m_sleeps = new ArrayList<>();
+  private final Properties m_properties = new Properties();
+  private HistoryPurgeService m_service;
+
+  @Before
+  public void setUp() throws Exception {
+    m_properties.setProperty(Configuration.SERVER_PURGE_RETENTION_DAYS.getKey(), "30");
+
+    m_service = new HistoryPurgeService() {
+      @Override
+      void sleep(long millis) {
+        m_sleeps.add(millis);
+      }
+    };
+  }
+
+  /**
+   * Tests that chunks are purged until nothing is left and that the service
+   * sleeps between chunks to stay within the rows per second budget.
+   */
+  @Test
+  public void testPurgeIsThrottled() throws Exception {
+    m_properties.setProperty(Configuration.SERVER_PURGE_ROWS_PER_SECOND.getKey(), "100");
+    m_properties.setProperty(Configuration.SERVER_PURGE_LATENCY_THRESHOLD.getKey(), "60000");
+    injectMembers();
+
+    Cleanable cleanable = createStrictMock(Cleanable.class);
+    Capture<TimeBasedCleanupPolicy> policyCapture = newCapture();
+    expect(cleanable.cleanup(capture(policyCapture))).andReturn(100L);
+    expect(cleanable.cleanup(anyObject(TimeBasedCleanupPolicy.class))).andReturn(50L);
+    expect(cleanable.cleanup(anyObject(TimeBasedCleanupPolicy.class))).andReturn(0L);
+    replayAll();
+
+    m_service.purge(cleanable, new TimeBasedCleanupPolicy(CLUSTER_NAME, 10L, 25));
+
+    verifyAll();
+    Assert.assertEquals(Integer.valueOf(25), policyCapture.getValue().getMaxRecords());
+
+    // 100 rows at 100 rows/s, then 50 rows, less the time spent deleting
+    Assert.assertEquals(2, m_sleeps.size());
+    Assert.assertTrue(m_sleeps.get(0) > 900 && m_sleeps.get(0) <= 1000);
+    Assert.assertTrue(m_sleeps.get(1) > 400 && m_sleeps.get(1) <= 500);
+
+    Map<String, Object> status = m_service.getStatus();
+    Assert.assertEquals(150L, status.get("total_rows_deleted"));
+    Assert.assertEquals(3L, status.get("chunks"));
+    Assert.assertEquals(0L, status.get("backoffs"));
+    Assert.assertEquals(0L, status.get("errors"));
+  }
+
+  /**
+   * Tests that slow chunks cause the service to back off.
+   */
+  @Test
+  public void testSlowChunksBackOff() throws Exception {
+    m_properties.setProperty(Configuration.SERVER_PURGE_ROWS_PER_SECOND.getKey(), "0");
+    m_properties.setProperty(Configuration.SERVER_PURGE_LATENCY_THRESHOLD.getKey(), "5");
+    injectMembers();
+
+    Cleanable cleanable = createStrictMock(Cleanable.class);
+    expect(cleanable.cleanup(anyObject(TimeBasedCleanupPolicy.class))).andAnswer(() -> {
+      Thread.sleep(20);
+      return 10L;
+    });
+    expect(cleanable.cleanup(anyObject(TimeBasedCleanupPolicy.class))).andReturn(0L);
+    replayAll();
+
+    m_service.purge(cleanable, new TimeBasedCleanupPolicy(CLUSTER_NAME, 10L, 25));
+
+    verifyAll();
+    Assert.assertEquals(1, m_sleeps.size());
+    Assert.assertTrue(m_sleeps.get(0) >= 200);
+    Assert.assertEquals(1L, m_service.getStatus().get("backoffs"));
+  }
+
+  /**
+   * Tests that a failing purge is reported and stops the purge of that DAO.
+   */
+  @Test
+  public void testPurgeFailureIsReported() throws Exception {
+    injectMembers();
+
+    Cleanable cleanable = createStrictMock(Cleanable.class);
+    expect(cleanable.cleanup(anyObject(TimeBasedCleanupPolicy.class))).andThrow(
+        new IllegalStateException("boom"));
+    replayAll();
+
+    m_service.purge(cleanable, new TimeBasedCleanupPolicy(CLUSTER_NAME, 10L, 25));
+
+    verifyAll();
+    Map<String, Object> status = m_service.getStatus();
+    Assert.assertEquals(1L, status.get("errors"));
+    Assert.assertTrue(status.get("last_error").toString().contains("boom"));
+  }
+
+  private void injectMembers() {
+    final Configuration configuration = new Configuration(m_properties);
+    final Clusters clusters = createNiceMock(Clusters.class);
+    final AlertsDAO alertsDAO = createNiceMock(AlertsDAO.class);
+    final RequestDAO requestDAO = createNiceMock(RequestDAO.class);
+
+    Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        // providers keep Guice from injecting the members of the instances
+        bind(Configuration.class).toProvider(Providers.of(configuration));
+        bind(Clusters.class).toProvider(Providers.of(clusters));
+        bind(AlertsDAO.class).toProvider(Providers.of(alertsDAO));
+        bind(RequestDAO.class).toProvider(Providers.of(requestDAO));
+      }
+    }).injectMembers(m_service);
+  }
+}
@@ -2225,6 +2225,9 @@ public class AmbariManagementControllerImplTest {
     users.processLdapSync(capture(ldapBatchDtoCapture));
     expectLastCall().anyTimes();
 
+    ldapDataPopulator.storeGroupsChangeMarker(capture(ldapBatchDtoCapture));
+    expectLastCall().times(3);
+
     //replay
     replay(ldapDataPopulator, clusters, actionDBAccessor, ambariMetaInfo, users, ldapBatchDto);
 
@@ -73,6 +73,7 @@ import org.apache.ambari.server.actionmanager.StageFactory;
 import org.apache.ambari.server.actionmanager.TargetHostType;
 import org.apache.ambari.server.agent.ExecutionCommand;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.api.services.stackadvisor.StackAdvisorResultCache;
 import org.apache.ambari.server.audit.AuditLogger;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.ClusterStackVersionResourceProviderTest;
@@ -7846,6 +7847,9 @@ public class AmbariManagementControllerTest {
       assertTrue(INCORRECT_BASE_URL.equals(repositoryInfo.getBaseUrl()));
     }
 
+    StackAdvisorResultCache stackAdvisorResultCache = injector.getInstance(StackAdvisorResultCache.class);
+    stackAdvisorResultCache.putResult("key", "{}");
+
     stackManagerMock.invalidateCurrentPaths();
     controller.updateStacks();
 
@@ -7854,6 +7858,9 @@ public class AmbariManagementControllerTest {
     for (RepositoryInfo repositoryInfo: stackInfo.getRepositories()) {
       assertFalse(INCORRECT_BASE_URL.equals(repositoryInfo.getBaseUrl()));
     }
+
+    // advisor results of the previous stack definitions are dropped
+    assertNull(stackAdvisorResultCache.getResult("key"));
   }
 
   @Test
@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +45,7 @@ import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariServer;
 import org.apache.ambari.server.controller.KerberosHelper;
 import org.apache.ambari.server.controller.StackConfigurationResponse;
+import org.apache.ambari.server.controller.internal.BlueprintConfigurationProcessor.PropertyUpdater;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ConfigHelper;
@@ -76,6 +78,7 @@ import org.easymock.MockType;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -586,6 +589,56 @@ public class BlueprintConfigurationProcessorTest extends EasyMockSupport {
     assertEquals("%HOSTGROUP::group1%,%HOSTGROUP::group2%", updatedVal);
   }
 
+  /**
+   * Measures a blueprint export of a large cluster, whose multi host properties reference every host.
+   */
+  @Ignore
+  @Test
+  public void testDoUpdateForBlueprintExport_LargeTopologyPerformance() throws Exception {
+    final int hostGroupCount = 50;
+    final int hostsPerGroup = 30;
+
+    Collection<TestHostGroup> hostGroups = new HashSet<>();
+    List<String> allHosts = new ArrayList<>();
+    for (int group = 0; group < hostGroupCount; group++) {
+      Collection<String> hgComponents = new HashSet<>(Arrays.asList("DATANODE", "NODEMANAGER", "ZOOKEEPER_SERVER"));
+      if (group == 0) {
+        hgComponents.addAll(Arrays.asList("NAMENODE", "RESOURCEMANAGER"));
+      }
+
+      Set<String> hosts = new HashSet<>();
+      for (int host = 0; host < hostsPerGroup; host++) {
+        hosts.add("host" + group + "-" + host + ".example.com");
+      }
+      allHosts.addAll(hosts);
+      hostGroups.add(new TestHostGroup("group" + group, hgComponents, hosts));
+    }
+
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    Map<String, String> hbaseSiteProps = new HashMap<>();
+    hbaseSiteProps.put("hbase.zookeeper.quorum", StringUtils.join(allHosts, ","));
+    properties.put("hbase-site", hbaseSiteProps);
+    Map<String, String> coreSiteProps = new HashMap<>();
+    coreSiteProps.put("ha.zookeeper.quorum", StringUtils.join(allHosts, ":2181,") + ":2181");
+    properties.put("core-site", coreSiteProps);
+    Map<String, String> yarnSiteProps = new HashMap<>();
+    yarnSiteProps.put("yarn.resourcemanager.hostname", "host0-0.example.com");
+    properties.put("yarn-site", yarnSiteProps);
+
+    Configuration clusterConfig = new Configuration(properties, Collections.emptyMap());
+    ClusterTopology topology = createClusterTopology(bp, clusterConfig, hostGroups);
+    BlueprintConfigurationProcessor configProcessor = new BlueprintConfigurationProcessor(topology);
+
+    long time = System.nanoTime();
+    configProcessor.doUpdateForBlueprintExport();
+    System.out.println("Exported the configuration of " + allHosts.size() + " hosts in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+
+    String updatedVal = properties.get("hbase-site").get("hbase.zookeeper.quorum");
+    assertEquals(hostGroupCount, updatedVal.split(",").length);
+    assertEquals("%HOSTGROUP::group0%", properties.get("yarn-site").get("yarn.resourcemanager.hostname"));
+  }
+
   @Test
   public void testDoUpdateForBlueprintExport_MultiHostProperty__WithPorts() throws Exception {
     Map<String, Map<String, String>> properties = new HashMap<>();
@@ -2257,6 +2310,80 @@ public class BlueprintConfigurationProcessorTest extends EasyMockSupport {
     assertEquals("testhost", group2Config.getProperties().get("yarn-site").get("yarn.resourcemanager.resource-tracker.address"));
   }
 
+  @Test
+  public void testDoUpdateForClusterCreate_dependentUpdaters() throws Exception {
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    Map<String, String> yarnSiteProps = new HashMap<>();
+    yarnSiteProps.put("test.first", "cluster");
+    yarnSiteProps.put("test.second", "unset");
+    properties.put("yarn-site", yarnSiteProps);
+
+    Configuration clusterConfig = new Configuration(properties,
+      Collections.emptyMap());
+
+    Collection<String> group1Components = new HashSet<>();
+    group1Components.add("RESOURCEMANAGER");
+    TestHostGroup group1 = new TestHostGroup("group1", group1Components, Collections.singleton("testhost"));
+
+    Map<String, Map<String, String>> group2Properties = new HashMap<>();
+    Map<String, String> group2YarnSiteProperties = new HashMap<>();
+    group2YarnSiteProperties.put("test.first", "group2");
+    group2YarnSiteProperties.put("test.second", "unset");
+    group2Properties.put("yarn-site", group2YarnSiteProperties);
+    Configuration group2Config = new Configuration(group2Properties,
+      Collections.emptyMap());
+    TestHostGroup group2 = new TestHostGroup("group2", Collections.singleton("NODEMANAGER"),
+      Collections.singleton("testhost2"), group2Config);
+
+    Collection<TestHostGroup> hostGroups = new HashSet<>();
+    hostGroups.add(group1);
+    hostGroups.add(group2);
+
+    ClusterTopology topology = createClusterTopology(bp, clusterConfig, hostGroups);
+
+    // the second updater copies the value the first updater produced
+    Map<String, PropertyUpdater> yarnSiteUpdaters = new LinkedHashMap<>();
+    yarnSiteUpdaters.put("test.first", new PropertyUpdater() {
+      @Override
+      public String updateForClusterCreate(String propertyName, String origValue,
+                                           Map<String, Map<String, String>> properties, ClusterTopology topology) {
+        return origValue + "-updated";
+      }
+
+      @Override
+      public Collection<String> getRequiredHostGroups(String propertyName, String origValue,
+                                                      Map<String, Map<String, String>> properties, ClusterTopology topology) {
+        return Collections.emptySet();
+      }
+    });
+    yarnSiteUpdaters.put("test.second", new PropertyUpdater() {
+      @Override
+      public String updateForClusterCreate(String propertyName, String origValue,
+                                           Map<String, Map<String, String>> properties, ClusterTopology topology) {
+        return properties.get("yarn-site").get("test.first");
+      }
+
+      @Override
+      public Collection<String> getRequiredHostGroups(String propertyName, String origValue,
+                                                      Map<String, Map<String, String>> properties, ClusterTopology topology) {
+        return Collections.emptySet();
+      }
+    });
+
+    BlueprintConfigurationProcessor updater = new BlueprintConfigurationProcessor(topology) {
+      @Override
+      Collection<Map<String, Map<String, PropertyUpdater>>> createCollectionOfUpdaters() {
+        return Collections.singleton(Collections.singletonMap("yarn-site", yarnSiteUpdaters));
+      }
+    };
+
+    updater.doUpdateForClusterCreate();
+
+    assertEquals("cluster-updated", clusterConfig.getPropertyValue("yarn-site", "test.first"));
+    assertEquals("group2-updated", group2Config.getPropertyValue("yarn-site", "test.first"));
+    assertEquals("group2-updated", group2Config.getPropertyValue("yarn-site", "test.second"));
+  }
+
   @Test
   public void testDoUpdateForClusterCreate_SingleHostProperty__defaultValue_BPHostGroupConfig() throws Exception {
     Map<String, Map<String, String>> properties = new HashMap<>();
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ClientConfigCache}.
+ */
+public class ClientConfigCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDirectory = new File(temporaryFolder.getRoot(), ClientConfigCache.CACHE_DIRECTORY);
+  }
+
+  @Test
+  public void testGetKey() throws Exception {
+    Assert.assertEquals(ClientConfigCache.getKey("script", "{\"role\":\"PIG\"}"),
+        ClientConfigCache.getKey("script", "{\"role\":\"PIG\"}"));
+    Assert.assertFalse(ClientConfigCache.getKey("script", "{\"role\":\"PIG\"}").equals(
+        ClientConfigCache.getKey("script", "{\"role\":\"HIVE\"}")));
+    Assert.assertFalse(ClientConfigCache.getKey("ab", "c").equals(ClientConfigCache.getKey("a", "bc")));
+  }
+
+  /**
+   * Tests that concurrent requests for an archive share a single generation
+   * and that the archive is reused afterwards.
+   */
+  @Test
+  public void testSharedGeneration() throws Exception {
+    ClientConfigCache cache = new ClientConfigCache(cacheDirectory, 10);
+
+    Assert.assertNull(cache.startGeneration("key"));
+    CompletableFuture<Void> generation = cache.startGeneration("key");
+    Assert.assertNotNull(generation);
+    Assert.assertFalse(generation.isDone());
+
+    File target = temporaryFolder.newFile("PIG-configs.tar.gz");
+    Assert.assertFalse(cache.copyTo("key", target));
+
+    File generated = createArchive("generated", "archive");
+    cache.finishGeneration("key", generated);
+    Assert.assertTrue(generation.isDone());
+    Assert.assertFalse(generated.exists());
+    Assert.assertTrue(cache.startGeneration("key").isDone());
+
+    Assert.assertTrue(cache.copyTo("key", target));
+    Assert.assertEquals("archive", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+    Assert.assertEquals(1, cache.size());
+  }
+
+  /**
+   * Tests that a failed generation fails the requests waiting for it and can
+   * be retried.
+   */
+  @Test
+  public void testFailedGeneration() throws Exception {
+    ClientConfigCache cache = new ClientConfigCache(cacheDirectory, 10);
+
+    Assert.assertNull(cache.startGeneration("key"));
+    CompletableFuture<Void> generation = cache.startGeneration("key");
+    cache.failGeneration("key", new IllegalStateException("failed"));
+
+    try {
+      generation.get();
+      Assert.fail("Expected the generation to fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    Assert.assertNull(cache.startGeneration("key"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  /**
+   * Tests that the least recently used archives are removed once the cache is
+   * full, and that archives left from a previous run are removed.
+   */
+  @Test
+  public void testEviction() throws Exception {
+    Assert.assertTrue(cacheDirectory.mkdirs());
+    File stale = new File(cacheDirectory, "stale.tar.gz");
+    Assert.assertTrue(stale.createNewFile());
+
+    ClientConfigCache cache = new ClientConfigCache(cacheDirectory, 2);
+    Assert.assertFalse(stale.exists());
+
+    File target = temporaryFolder.newFile("target");
+    for (String key : new String[] { "key1", "key2" }) {
+      Assert.assertNull(cache.startGeneration(key));
+      cache.finishGeneration(key, createArchive(key, key));
+    }
+
+    // use the first archive so that the second is the least recently used
+    Assert.assertTrue(cache.copyTo("key1", target));
+
+    Assert.assertNull(cache.startGeneration("key3"));
+    cache.finishGeneration("key3", createArchive("key3", "key3"));
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertTrue(cache.copyTo("key1", target));
+    Assert.assertFalse(cache.copyTo("key2", target));
+    Assert.assertTrue(cache.copyTo("key3", target));
+    Assert.assertEquals(2, cacheDirectory.list().length);
+  }
+
+  /**
+   * Tests that a cache size of {@code 0} disables the cache.
+   */
+  @Test
+  public void testDisabled() throws Exception {
+    Assert.assertTrue(new ClientConfigCache(cacheDirectory, 10).isEnabled());
+    Assert.assertFalse(new ClientConfigCache(cacheDirectory, 0).isEnabled());
+  }
+
+  private File createArchive(String name, String content) throws Exception {
+    File archive = temporaryFolder.newFile(name + "-generated");
+    Files.write(archive.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return archive;
+  }
+}
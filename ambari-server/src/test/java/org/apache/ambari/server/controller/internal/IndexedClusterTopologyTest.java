@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import static org.easymock.EasyMock.expect;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.easymock.EasyMockSupport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests {@link IndexedClusterTopology}.
+ */
+public class IndexedClusterTopologyTest extends EasyMockSupport {
+
+  private ClusterTopology topology;
+
+  @Before
+  public void setUp() throws Exception {
+    Map<String, HostGroupInfo> hostGroupInfo = new LinkedHashMap<>();
+    hostGroupInfo.put("group1", createHostGroupInfo("group1", "host1", "host10"));
+    hostGroupInfo.put("group2", createHostGroupInfo("group2", "host2", "myhost1"));
+
+    topology = createNiceMock(ClusterTopology.class);
+    expect(topology.getHostGroupInfo()).andReturn(hostGroupInfo).anyTimes();
+  }
+
+  /**
+   * Tests that the host groups of a component are resolved once.
+   */
+  @Test
+  public void testHostAssignmentsForComponent() throws Exception {
+    expect(topology.getHostGroupsForComponent("ZOOKEEPER_SERVER")).andReturn(Arrays.asList("group1", "group2")).once();
+    expect(topology.getHostGroupsForComponent("NAMENODE")).andReturn(Collections.singletonList("group2")).once();
+    replayAll();
+
+    IndexedClusterTopology indexedTopology = new IndexedClusterTopology(topology);
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(Sets.newHashSet("host1", "host10", "host2", "myhost1"),
+          Sets.newHashSet(indexedTopology.getHostAssignmentsForComponent("ZOOKEEPER_SERVER")));
+      Assert.assertEquals(Sets.newHashSet("group1", "group2"),
+          Sets.newHashSet(indexedTopology.getHostGroupsForComponent("ZOOKEEPER_SERVER")));
+      Assert.assertEquals(Sets.newHashSet("host2", "myhost1"),
+          Sets.newHashSet(indexedTopology.getHostAssignmentsForComponent("NAMENODE")));
+    }
+    Assert.assertEquals("group2", indexedTopology.getHostGroupForHost("myhost1"));
+    Assert.assertNull(indexedTopology.getHostGroupForHost("host3"));
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that host names are replaced by the token of their host group, preferring longer host names.
+   */
+  @Test
+  public void testReplaceHostNamesWithHostGroupTokens() throws Exception {
+    replayAll();
+
+    IndexedClusterTopology indexedTopology = new IndexedClusterTopology(topology);
+    Assert.assertEquals("%HOSTGROUP::group1%:2181,%HOSTGROUP::group1%:2181,%HOSTGROUP::group2%,%HOSTGROUP::group2%,host3",
+        indexedTopology.replaceHostNamesWithHostGroupTokens("host1:2181,host10:2181,host2,myhost1,host3"));
+    Assert.assertEquals("host100", indexedTopology.replaceHostNamesWithHostGroupTokens("host100"));
+  }
+
+  private HostGroupInfo createHostGroupInfo(String name, String... hosts) {
+    HostGroupInfo groupInfo = new HostGroupInfo(name);
+    groupInfo.addHosts(Arrays.asList(hosts));
+    return groupInfo;
+  }
+}
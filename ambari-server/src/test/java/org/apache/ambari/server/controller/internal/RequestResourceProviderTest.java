@@ -69,6 +69,7 @@ import org.apache.ambari.server.controller.utilities.PredicateBuilder;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.customactions.ActionDefinition;
+import org.apache.ambari.server.events.listeners.tasks.TaskStatusListener;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
@@ -87,6 +88,7 @@ import org.apache.ambari.server.topology.HostRequest;
 import org.apache.ambari.server.topology.LogicalRequest;
 import org.apache.ambari.server.topology.TopologyManager;
 import org.apache.ambari.server.topology.TopologyRequest;
+import org.apache.ambari.server.topology.TopologyTaskStatistics;
 import org.apache.ambari.server.utils.SecretReference;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -153,6 +155,12 @@ public class RequestResourceProviderTest {
     field.setAccessible(true);
     field.set(null, topologyManager);
 
+    field = RequestResourceProvider.class.getDeclaredField("s_taskStatusListener");
+    field.setAccessible(true);
+    TaskStatusListener taskStatusListener = EasyMock.createNiceMock(TaskStatusListener.class);
+    EasyMock.replay(taskStatusListener);
+    field.set(null, taskStatusListener);
+
     field = SecretReference.class.getDeclaredField("gson");
     field.setAccessible(true);
     field.set(null, new Gson());
@@ -1693,6 +1701,7 @@ public class RequestResourceProviderTest {
         ? Optional.of("some reason")
         : Optional.<String>absent();
       expect(logicalRequest.getFailureReason()).andReturn(failureReason).anyTimes();
+      expect(logicalRequest.getTaskStatistics()).andReturn(new TopologyTaskStatistics()).anyTimes();
 
       replayAll();
 
@@ -1706,7 +1715,8 @@ public class RequestResourceProviderTest {
         RequestResourceProvider.REQUEST_ID_PROPERTY_ID,
         RequestResourceProvider.REQUEST_STATUS_PROPERTY_ID,
         RequestResourceProvider.REQUEST_PROGRESS_PERCENT_ID,
-        RequestResourceProvider.REQUEST_CONTEXT_ID
+        RequestResourceProvider.REQUEST_CONTEXT_ID,
+        RequestResourceProvider.REQUEST_TOPOLOGY_TASK_STATISTICS_ID
       );
 
       Predicate predicate = new PredicateBuilder().
@@ -1730,6 +1740,7 @@ public class RequestResourceProviderTest {
       Object requestContext = resource.getPropertyValue(RequestResourceProvider.REQUEST_CONTEXT_ID);
       Assert.assertNotNull(requestContext);
       Assert.assertTrue(!failureReason.isPresent() || requestContext.toString().contains(failureReason.get()));
+      Assert.assertEquals(Collections.emptyMap(), resource.getPropertyValue(RequestResourceProvider.REQUEST_TOPOLOGY_TASK_STATISTICS_ID));
     }
   }
 }
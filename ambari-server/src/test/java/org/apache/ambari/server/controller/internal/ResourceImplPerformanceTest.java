@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures the memory allocated and the time taken to populate and read the
+ * host resources of a large cluster, comparing {@link ResourceImpl} with the
+ * synchronized tree maps it used to store its properties in.
+ */
+@Ignore
+public class ResourceImplPerformanceTest {
+
+  private static final int HOSTS = 10000;
+  private static final int ITERATIONS = 10;
+
+  private static final String[] PROPERTY_IDS = createPropertyIds();
+
+  @Test
+  public void testPopulateHosts() {
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      measure("TreeMap", false);
+      measure("ResourceImpl", true);
+    }
+  }
+
+  private void measure(String name, boolean compact) {
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+    long time = System.nanoTime();
+
+    List<Resource> hosts = new ArrayList<>(HOSTS);
+    for (int host = 0; host < HOSTS; host++) {
+      Resource resource = compact ? new ResourceImpl(Resource.Type.Host) : new TreeMapResource();
+      for (int i = 0; i < PROPERTY_IDS.length; i++) {
+        resource.setProperty(PROPERTY_IDS[i], i);
+      }
+      if (compact) {
+        ((ResourceImpl) resource).freeze();
+      }
+      hosts.add(resource);
+    }
+
+    long populated = System.nanoTime();
+    long sum = 0;
+    for (Resource resource : hosts) {
+      for (String propertyId : PROPERTY_IDS) {
+        sum += (Integer) resource.getPropertyValue(propertyId);
+      }
+    }
+
+    long read = System.nanoTime();
+    allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+    System.out.println(String.format("%-12s populated %d hosts in %dms, read them in %dms, allocated %dMB",
+        name, HOSTS, (populated - time) / 1000000, (read - populated) / 1000000, allocated / (1024 * 1024)));
+    Assert.assertEquals((long) HOSTS * PROPERTY_IDS.length * (PROPERTY_IDS.length - 1) / 2, sum);
+  }
+
+  /**
+   * The properties of a host resource with its metrics.
+   */
+  private static String[] createPropertyIds() {
+    List<String> propertyIds = new ArrayList<>();
+    for (String name : new String[] { "cluster_name", "host_name", "public_host_name", "ip", "cpu_count",
+        "ph_cpu_count", "os_arch", "os_family", "os_type", "rack_info", "total_mem", "host_state",
+        "host_status", "maintenance_state", "last_heartbeat_time", "last_registration_time",
+        "last_agent_env", "host_health_report", "recovery_report", "recovery_summary",
+        "desired_configs", "disk_info" }) {
+      propertyIds.add("Hosts/" + name);
+    }
+    for (String name : new String[] { "cpu_idle", "cpu_nice", "cpu_system", "cpu_user", "cpu_wio" }) {
+      propertyIds.add("metrics/cpu/" + name);
+    }
+    for (String name : new String[] { "mem_buffers", "mem_cached", "mem_free", "mem_shared", "mem_total" }) {
+      propertyIds.add("metrics/memory/" + name);
+    }
+    for (String name : new String[] { "disk_free", "disk_total", "read_bytes", "write_bytes" }) {
+      propertyIds.add("metrics/disk/" + name);
+    }
+    for (String name : new String[] { "load_fifteen", "load_five", "load_one" }) {
+      propertyIds.add("metrics/load/" + name);
+    }
+    return propertyIds.toArray(new String[propertyIds.size()]);
+  }
+
+  /**
+   * The property storage {@link ResourceImpl} used to have.
+   */
+  private static class TreeMapResource implements Resource {
+    private final Map<String, Map<String, Object>> propertiesMap =
+        Collections.synchronizedMap(new TreeMap<String, Map<String, Object>>());
+
+    @Override
+    public Type getType() {
+      return Type.Host;
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getPropertiesMap() {
+      return propertiesMap;
+    }
+
+    @Override
+    public void setProperty(String id, Object value) {
+      String categoryKey = getCategoryKey(getPropertyCategory(id));
+
+      Map<String, Object> properties = propertiesMap.get(categoryKey);
+      if (properties == null) {
+        properties = Collections.synchronizedMap(new TreeMap<String, Object>());
+        propertiesMap.put(categoryKey, properties);
+      }
+      properties.put(getPropertyName(id), value);
+    }
+
+    @Override
+    public void addCategory(String id) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object getPropertyValue(String id) {
+      Map<String, Object> properties = propertiesMap.get(getCategoryKey(getPropertyCategory(id)));
+      return properties == null ? null : properties.get(getPropertyName(id));
+    }
+
+    private static String getCategoryKey(String category) {
+      return category == null ? "" : category;
+    }
+
+    private static String getPropertyCategory(String property) {
+      if (PropertyHelper.containsArguments(property)) {
+        throw new UnsupportedOperationException();
+      }
+      int lastPathSep = property.lastIndexOf(PropertyHelper.EXTERNAL_PATH_SEP);
+      return lastPathSep == -1 ? null : property.substring(0, lastPathSep);
+    }
+
+    private static String getPropertyName(String property) {
+      int lastPathSep = property.lastIndexOf(PropertyHelper.EXTERNAL_PATH_SEP);
+      return lastPathSep == -1 ? property : property.substring(lastPathSep + 1);
+    }
+  }
+}
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.controller.internal;
 
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.ambari.server.controller.spi.Resource;
@@ -184,5 +185,59 @@ public class ResourceImplTest {
     Assert.assertTrue(resource1.equals(resource2));
     Assert.assertTrue(resource2.equals(resource1));
   }
-}
 
+  @Test
+  public void testFreeze() {
+    ResourceImpl resource = new ResourceImpl(Resource.Type.Host);
+    resource.setProperty("Hosts/host_name", "host1");
+    resource.setProperty("Hosts/cpu_count", 4);
+    resource.setProperty("metrics/cpu/cpu_idle", 90.0);
+    Map<String, Object> hosts = resource.getPropertiesMap().get("Hosts");
+
+    resource.freeze();
+    Assert.assertTrue(resource.isFrozen());
+    Assert.assertEquals("host1", resource.getPropertyValue("Hosts/host_name"));
+
+    // a frozen resource can still be changed, without affecting the entries already read
+    Map.Entry<String, Object> entry = hosts.entrySet().iterator().next();
+    resource.setProperty("Hosts/cpu_count", 8);
+    resource.setProperty("Hosts/os_type", "centos7");
+    Assert.assertEquals("cpu_count", entry.getKey());
+    Assert.assertEquals(4, entry.getValue());
+    Assert.assertEquals(8, resource.getPropertyValue("Hosts/cpu_count"));
+    Assert.assertEquals(3, hosts.size());
+
+    hosts.remove("os_type");
+    Assert.assertNull(resource.getPropertyValue("Hosts/os_type"));
+    Assert.assertEquals(2, hosts.size());
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    Resource resource = new ResourceImpl(Resource.Type.Host);
+    for (int i = 0; i < 20; i++) {
+      resource.setProperty("Hosts/p" + i, i);
+    }
+    resource.setProperty("metrics/load/load_one", 1.0);
+
+    Map<String, Map<String, Object>> propertiesMap = resource.getPropertiesMap();
+    Iterator<Map.Entry<String, Object>> iterator = propertiesMap.get("Hosts").entrySet().iterator();
+    while (iterator.hasNext()) {
+      if ((Integer) iterator.next().getValue() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    Assert.assertEquals(10, propertiesMap.get("Hosts").size());
+    Assert.assertNull(resource.getPropertyValue("Hosts/p4"));
+    Assert.assertEquals(5, resource.getPropertyValue("Hosts/p5"));
+
+    ((ResourceImpl) resource).freeze();
+    Iterator<Map.Entry<String, Map<String, Object>>> categories = propertiesMap.entrySet().iterator();
+    Assert.assertEquals("Hosts", categories.next().getKey());
+    categories.remove();
+    Assert.assertEquals("metrics/load", categories.next().getKey());
+    Assert.assertFalse(categories.hasNext());
+    Assert.assertEquals(1, propertiesMap.size());
+    Assert.assertNull(resource.getPropertyValue("Hosts/p5"));
+  }
+}
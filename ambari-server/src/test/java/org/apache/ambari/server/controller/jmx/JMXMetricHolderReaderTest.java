@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.controller.jmx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link JMXMetricHolderReader}.
+ */
+public class JMXMetricHolderReaderTest {
+
+  private static final String JMX = "{ \"beans\" : [ {"
+      + "\"name\" : \"Hadoop:service=NameNode,name=FSNamesystem\", \"modelerType\" : \"FSNamesystem\","
+      + "\"CapacityTotal\" : 887717691390, \"tag.HAState\" : \"active\", \"Ratio\" : NaN,"
+      + "\"Nested\" : { \"a\" : [ 1, 2, { \"b\" : 3 } ] } }, {"
+      + "\"name\" : \"Hadoop:service=NameNode,name=NameNodeInfo\", \"LiveNodes\" : \"{...}\" } ] }";
+
+  private final JMXMetricHolderReader m_reader = new JMXMetricHolderReader();
+
+  @Test
+  public void testReadAllAttributes() throws Exception {
+    JMXMetricHolder holder = m_reader.read(IOUtils.toInputStream(JMX, StandardCharsets.UTF_8), null);
+
+    assertEquals(2, holder.getBeans().size());
+    Map<String, Object> bean = holder.getBeans().get(0);
+    assertEquals(887717691390L, bean.get("CapacityTotal"));
+    assertEquals("active", bean.get("tag.HAState"));
+    assertTrue(((Double) bean.get("Ratio")).isNaN());
+    assertTrue(bean.get("Nested") instanceof Map);
+    assertEquals("{...}", holder.getBeans().get(1).get("LiveNodes"));
+  }
+
+  @Test
+  public void testReadRequestedAttributesOnly() throws Exception {
+    try (InputStream inputStream = IOUtils.toInputStream(JMX, StandardCharsets.UTF_8)) {
+      JMXMetricHolder holder = m_reader.read(inputStream, Collections.singleton("CapacityTotal"));
+
+      assertEquals(2, holder.getBeans().size());
+
+      Map<String, Object> bean = holder.getBeans().get(0);
+      assertEquals(3, bean.size());
+      assertEquals("Hadoop:service=NameNode,name=FSNamesystem", bean.get("name"));
+      assertEquals("FSNamesystem", bean.get("modelerType"));
+      assertEquals(887717691390L, bean.get("CapacityTotal"));
+
+      bean = holder.getBeans().get(1);
+      assertEquals("Hadoop:service=NameNode,name=NameNodeInfo", bean.get("name"));
+      assertFalse(bean.containsKey("LiveNodes"));
+    }
+  }
+}
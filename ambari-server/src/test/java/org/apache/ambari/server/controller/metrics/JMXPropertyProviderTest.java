@@ -90,16 +90,21 @@ public class JMXPropertyProviderTest {
 
   private static MetricPropertyProviderFactory metricPropertyProviderFactory;
   private static MetricsRetrievalService metricsRetrievalService;
+  private static Configuration configuration;
 
   @BeforeClass
   public static void setupClass() throws TimeoutException {
     Injector injector = Guice.createInjector(new InMemoryDefaultTestModule());
 
     // disable request TTL for these tests
-    Configuration configuration = injector.getInstance(Configuration.class);
+    configuration = injector.getInstance(Configuration.class);
     configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(),
         "false");
 
+    // most tests verify the full /jmx URLs
+    configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(),
+        "0");
+
     JMXPropertyProvider.init(configuration);
 
     metricPropertyProviderFactory = injector.getInstance(MetricPropertyProviderFactory.class);
@@ -205,6 +210,58 @@ public class JMXPropertyProviderTest {
     testPopulateResources_HAState_request();
   }
 
+  @Test
+  public void testPopulateResources_scopedQuery() throws Exception {
+    SecurityContextHolder.getContext().setAuthentication(TestAuthenticationFactory.createClusterAdministrator("ClusterAdmin", 2L));
+    configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(),
+        "8");
+
+    try {
+      TestStreamProvider streamProvider = new TestStreamProvider();
+      TestJMXHostProvider hostProvider = new TestJMXHostProvider(false);
+      TestMetricHostProvider metricsHostProvider = new TestMetricHostProvider();
+
+      JMXPropertyProvider propertyProvider = metricPropertyProviderFactory.createJMXPropertyProvider(
+        PropertyHelper.getJMXPropertyIds(Resource.Type.HostComponent),
+        streamProvider,
+        hostProvider,
+        metricsHostProvider,
+        PropertyHelper.getPropertyId("HostRoles", "cluster_name"),
+        PropertyHelper.getPropertyId("HostRoles", "host_name"),
+        PropertyHelper.getPropertyId("HostRoles", "component_name"),
+        PropertyHelper.getPropertyId("HostRoles", "state"));
+
+      // datanode
+      Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+      resource.setProperty(CLUSTER_NAME_PROPERTY_ID, "c1");
+      resource.setProperty(HOST_COMPONENT_HOST_NAME_PROPERTY_ID, "domu-12-31-39-14-ee-b3.compute-1.internal");
+      resource.setProperty(HOST_COMPONENT_COMPONENT_NAME_PROPERTY_ID, "DATANODE");
+
+      Set<String> properties = new HashSet<>();
+      properties.add(PropertyHelper.getPropertyId("metrics/rpc", "ReceivedBytes"));
+      properties.add(PropertyHelper.getPropertyId("metrics/jvm", "HeapMemoryMax"));
+      Request request = PropertyHelper.getReadRequest(properties);
+
+      Assert.assertEquals(1, propertyProvider.populateResources(Collections.singleton(resource), request, null).size());
+
+      // one scoped query per MBean instead of the full /jmx output
+      Set<String> expectedSpecs = new HashSet<>();
+      expectedSpecs.add(propertyProvider.getSpec("http", "domu-12-31-39-14-ee-b3.compute-1.internal", "50075",
+          "/jmx?qry=Hadoop%3Aservice%3DDataNode%2Cname%3DRpcActivity*"));
+      expectedSpecs.add(propertyProvider.getSpec("http", "domu-12-31-39-14-ee-b3.compute-1.internal", "50075",
+          "/jmx?qry=java.lang%3Atype%3DMemory*"));
+      Assert.assertEquals(expectedSpecs, new HashSet<>(streamProvider.getSpecs()));
+
+      // see test/resources/hdfs_datanode_jmx.json for values
+      Assert.assertEquals(856, resource.getPropertyValue(PropertyHelper.getPropertyId("metrics/rpc", "ReceivedBytes")));
+      Assert.assertEquals(954466304, resource.getPropertyValue(PropertyHelper.getPropertyId("metrics/jvm", "HeapMemoryMax")));
+      Assert.assertNull(resource.getPropertyValue(PropertyHelper.getPropertyId("metrics/jvm", "HeapMemoryUsed")));
+    } finally {
+      configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(),
+          "0");
+    }
+  }
+
   public void testPopulateResources() throws Exception {
     TestStreamProvider streamProvider = new TestStreamProvider();
     TestJMXHostProvider hostProvider = new TestJMXHostProvider(false);
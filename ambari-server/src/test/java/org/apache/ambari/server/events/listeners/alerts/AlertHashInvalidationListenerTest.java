@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events.listeners.alerts;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.agent.stomp.AlertDefinitionsHolder;
+import org.apache.ambari.server.agent.stomp.dto.AlertCluster;
+import org.apache.ambari.server.events.AlertDefinitionChangedEvent;
+import org.apache.ambari.server.events.AlertDefinitionEventType;
+import org.apache.ambari.server.events.AlertDefinitionsAgentUpdateEvent;
+import org.apache.ambari.server.events.AlertHashInvalidationEvent;
+import org.apache.ambari.server.events.AmbariUpdateEvent;
+import org.apache.ambari.server.events.ServiceComponentUninstalledEvent;
+import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
+import org.apache.ambari.server.events.publishers.StateUpdateEventPublisher;
+import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
+import org.apache.ambari.server.state.Clusters;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.alert.AlertDefinition;
+import org.apache.ambari.server.state.alert.AlertDefinitionFactory;
+import org.apache.ambari.server.state.alert.AlertDefinitionHash;
+import org.apache.ambari.server.state.alert.AlertHelper;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests that the alert definition changes are sent to the agents by
+ * {@link AlertHashInvalidationListener} and {@link AlertDefinitionsUIUpdateListener}
+ * exactly once.
+ */
+public class AlertHashInvalidationListenerTest {
+
+  private static final long CLUSTER_ID = 1L;
+  private static final long HOST_ID = 2L;
+  private static final String HOST_NAME = "c6401.ambari.apache.org";
+
+  private AlertDefinitionHash m_alertDefinitionHash;
+  private Capture<AmbariUpdateEvent> m_published;
+
+  private AlertDefinitionsHolder m_alertDefinitionsHolder;
+  private AlertHashInvalidationListener m_invalidationListener;
+  private AlertDefinitionsUIUpdateListener m_uiUpdateListener;
+
+  private AlertDefinition m_componentDefinition;
+  private AlertDefinition m_serviceDefinition;
+
+  @Before
+  public void before() throws Exception {
+    m_alertDefinitionHash = createNiceMock(AlertDefinitionHash.class);
+
+    Host host = createNiceMock(Host.class);
+    expect(host.getHostId()).andReturn(HOST_ID).anyTimes();
+
+    Clusters clusters = createNiceMock(Clusters.class);
+    expect(clusters.getHost(HOST_NAME)).andReturn(host).anyTimes();
+
+    m_published = newCapture(CaptureType.ALL);
+    StateUpdateEventPublisher stateUpdateEventPublisher = createNiceMock(StateUpdateEventPublisher.class);
+    stateUpdateEventPublisher.publish(capture(m_published));
+    expectLastCall().anyTimes();
+
+    replay(host, clusters, stateUpdateEventPublisher);
+
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        // the mocks are bound to providers so that their fields are not injected
+        bind(AmbariEventPublisher.class).toProvider(Providers.of(createNiceMock(AmbariEventPublisher.class)));
+        bind(StateUpdateEventPublisher.class).toProvider(Providers.of(stateUpdateEventPublisher));
+        bind(Clusters.class).toProvider(Providers.of(clusters));
+        bind(AlertDefinitionHash.class).toProvider(Providers.of(m_alertDefinitionHash));
+        bind(AlertHelper.class).toProvider(Providers.of(createNiceMock(AlertHelper.class)));
+        bind(AlertDefinitionDAO.class).toProvider(Providers.of(createNiceMock(AlertDefinitionDAO.class)));
+        bind(AlertDefinitionFactory.class).toProvider(Providers.of(createNiceMock(AlertDefinitionFactory.class)));
+      }
+    });
+
+    m_alertDefinitionsHolder = injector.getInstance(AlertDefinitionsHolder.class);
+    AmbariEventPublisher ambariEventPublisher = injector.getInstance(AmbariEventPublisher.class);
+    m_invalidationListener = new AlertHashInvalidationListener(ambariEventPublisher);
+    injector.injectMembers(m_invalidationListener);
+    m_uiUpdateListener = new AlertDefinitionsUIUpdateListener(ambariEventPublisher);
+    injector.injectMembers(m_uiUpdateListener);
+
+    m_componentDefinition = createDefinition(10L, "namenode_webui", "NAMENODE");
+    m_serviceDefinition = createDefinition(11L, "hdfs_capacity_utilization", null);
+
+    // the agent was sent both definitions when it registered
+    Map<Long, AlertDefinition> definitions = new HashMap<>();
+    definitions.put(m_componentDefinition.getDefinitionId(), m_componentDefinition);
+    definitions.put(m_serviceDefinition.getDefinitionId(), m_serviceDefinition);
+    m_alertDefinitionsHolder.setData(new AlertDefinitionsAgentUpdateEvent(AlertDefinitionEventType.CREATE,
+        new HashMap<>(Collections.singletonMap(CLUSTER_ID, new AlertCluster(definitions, HOST_NAME))),
+        HOST_NAME, HOST_ID), HOST_ID);
+  }
+
+  /**
+   * Tests that a changed definition is sent to the agent once.
+   */
+  @Test
+  public void testDefinitionChanged() throws Exception {
+    AlertDefinition changed = createDefinition(10L, "namenode_webui", "NAMENODE");
+    changed.setInterval(5);
+
+    Map<Long, AlertDefinition> definitions = new HashMap<>();
+    definitions.put(changed.getDefinitionId(), changed);
+    definitions.put(m_serviceDefinition.getDefinitionId(), m_serviceDefinition);
+    expect(m_alertDefinitionHash.getAlertDefinitions(CLUSTER_ID, HOST_NAME)).andReturn(definitions).anyTimes();
+    expect(m_alertDefinitionHash.invalidateHosts(changed)).andReturn(Collections.singleton(HOST_NAME)).anyTimes();
+    replay(m_alertDefinitionHash);
+
+    // the events published when a definition changes
+    m_uiUpdateListener.onAlertDefinitionChanged(new AlertDefinitionChangedEvent(CLUSTER_ID, changed));
+    m_invalidationListener.onAmbariEvent(new AlertHashInvalidationEvent(CLUSTER_ID,
+        Collections.singletonList(HOST_NAME)));
+
+    List<AlertDefinitionsAgentUpdateEvent> agentUpdates = getAgentUpdates();
+    Assert.assertEquals(1, agentUpdates.size());
+    Assert.assertEquals(AlertDefinitionEventType.UPDATE, agentUpdates.get(0).getEventType());
+    Assert.assertEquals(Collections.singletonList(changed),
+        new ArrayList<>(agentUpdates.get(0).getClusters().get(CLUSTER_ID).getAlertDefinitions()));
+  }
+
+  /**
+   * Tests that only the definitions which no longer apply to the host of an
+   * uninstalled master component are removed from the agent, once.
+   */
+  @Test
+  public void testMasterComponentUninstalled() throws Exception {
+    // the service master definition still applies to the other master on the host
+    expect(m_alertDefinitionHash.getAlertDefinitions(CLUSTER_ID, HOST_NAME)).andReturn(
+        Collections.singletonMap(m_serviceDefinition.getDefinitionId(), m_serviceDefinition)).anyTimes();
+    expect(m_alertDefinitionHash.findByServiceComponent(anyLong(), eq("HDFS"), eq("NAMENODE"))).andReturn(
+        new HashMap<>(Collections.singletonMap(m_componentDefinition.getDefinitionId(), m_componentDefinition))).anyTimes();
+    expect(m_alertDefinitionHash.findByServiceMaster(anyLong(), eq("HDFS"))).andReturn(
+        new HashMap<>(Collections.singletonMap(m_serviceDefinition.getDefinitionId(), m_serviceDefinition))).anyTimes();
+    replay(m_alertDefinitionHash);
+
+    ServiceComponentUninstalledEvent event = new ServiceComponentUninstalledEvent(CLUSTER_ID, "HDP", "2.6",
+        "HDFS", "NAMENODE", HOST_NAME, false, true, HOST_ID);
+    m_uiUpdateListener.onServiceComponentUninstalled(event);
+    m_invalidationListener.onEvent(event);
+
+    List<AlertDefinitionsAgentUpdateEvent> agentUpdates = getAgentUpdates();
+    Assert.assertEquals(1, agentUpdates.size());
+    Assert.assertEquals(AlertDefinitionEventType.DELETE, agentUpdates.get(0).getEventType());
+    Assert.assertEquals(Collections.singletonList(m_componentDefinition),
+        new ArrayList<>(agentUpdates.get(0).getClusters().get(CLUSTER_ID).getAlertDefinitions()));
+    Assert.assertEquals(Collections.singletonList(m_serviceDefinition),
+        new ArrayList<>(m_alertDefinitionsHolder.getData(HOST_ID).getClusters().get(CLUSTER_ID).getAlertDefinitions()));
+  }
+
+  private List<AlertDefinitionsAgentUpdateEvent> getAgentUpdates() {
+    List<AlertDefinitionsAgentUpdateEvent> agentUpdates = new ArrayList<>();
+    for (AmbariUpdateEvent event : m_published.getValues()) {
+      if (event instanceof AlertDefinitionsAgentUpdateEvent) {
+        agentUpdates.add((AlertDefinitionsAgentUpdateEvent) event);
+      }
+    }
+    return agentUpdates;
+  }
+
+  private static AlertDefinition createDefinition(long definitionId, String name, String componentName) {
+    AlertDefinition definition = new AlertDefinition();
+    definition.setClusterId(CLUSTER_ID);
+    definition.setDefinitionId(definitionId);
+    definition.setName(name);
+    definition.setServiceName("HDFS");
+    definition.setComponentName(componentName);
+    definition.setInterval(1);
+    definition.setEnabled(true);
+    return definition;
+  }
+}
@@ -25,6 +25,7 @@ import static org.easymock.EasyMock.eq;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.ClusterNotFoundException;
 import org.apache.ambari.server.Role;
@@ -38,6 +39,7 @@ import org.apache.ambari.server.events.publishers.StateUpdateEventPublisher;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
 import org.apache.ambari.server.orm.dao.ExecutionCommandDAO;
 import org.apache.ambari.server.orm.dao.HostDAO;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
 import org.apache.ambari.server.orm.dao.StageDAO;
 import org.apache.ambari.server.orm.entities.RequestEntity;
@@ -165,4 +167,79 @@ public class TaskStatusListenerTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that the tasks of a running request are counted per stage as their
+   * status changes.
+   */
+  @Test
+  public void testStageSummaries() throws ClusterNotFoundException {
+    ServiceComponentHostEvent serviceComponentHostEvent = createNiceMock(ServiceComponentHostEvent.class);
+    HostDAO hostDAO = createNiceMock(HostDAO.class);
+    StageDAO stageDAO = createNiceMock(StageDAO.class);
+    RequestDAO requestDAO = createNiceMock(RequestDAO.class);
+    StageEntity stageEntity = createNiceMock(StageEntity.class);
+    RequestEntity requestEntity = createNiceMock(RequestEntity.class);
+    StateUpdateEventPublisher statePublisher = createNiceMock(StateUpdateEventPublisher.class);
+    EasyMock.expect(stageEntity.getStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(stageEntity.getDisplayStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(stageEntity.isSkippable()).andReturn(Boolean.TRUE).anyTimes();
+    EasyMock.expect(stageEntity.getRoleSuccessCriterias()).andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(stageDAO.findByPK(anyObject(StageEntityPK.class))).andReturn(stageEntity).anyTimes();
+    EasyMock.expect(requestEntity.getStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(requestEntity.getDisplayStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(requestDAO.findByPK(anyLong())).andReturn(requestEntity).anyTimes();
+    replayAll();
+
+    List<HostRoleCommand> hostRoleCommands = new ArrayList<>();
+    for (int taskId = 1; taskId <= 6; taskId++) {
+      hostRoleCommands.add(createHostRoleCommand(serviceComponentHostEvent, hostDAO, taskId, (taskId - 1) / 3,
+          HostRoleStatus.PENDING));
+    }
+
+    TaskStatusListener listener = new TaskStatusListener(publisher, stageDAO, requestDAO, statePublisher);
+    Assert.assertNull(listener.getStageSummaries(1L));
+
+    listener.onTaskCreateEvent(new TaskCreateEvent(hostRoleCommands));
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = listener.getStageSummaries(1L);
+    Assert.assertEquals(2, summaries.size());
+    Assert.assertEquals(3, summaries.get(0L).getTaskTotal());
+    Assert.assertEquals(3, summaries.get(0L).getCounts().get(HostRoleStatus.PENDING).intValue());
+    Assert.assertTrue(summaries.get(0L).isStageSkippable());
+
+    List<HostRoleCommand> updates = new ArrayList<>();
+    updates.add(createHostRoleCommand(serviceComponentHostEvent, hostDAO, 1, 0, HostRoleStatus.COMPLETED));
+    updates.add(createHostRoleCommand(serviceComponentHostEvent, hostDAO, 2, 0, HostRoleStatus.IN_PROGRESS));
+    listener.onTaskUpdateEvent(new TaskUpdateEvent(updates));
+
+    // a repeated update must not be counted twice
+    listener.onTaskUpdateEvent(new TaskUpdateEvent(updates.subList(0, 1)));
+
+    summaries = listener.getStageSummaries(1L);
+    Map<HostRoleStatus, Integer> counts = summaries.get(0L).getCounts();
+    Assert.assertEquals(3, summaries.get(0L).getTaskTotal());
+    Assert.assertEquals(1, counts.get(HostRoleStatus.PENDING).intValue());
+    Assert.assertEquals(1, counts.get(HostRoleStatus.IN_PROGRESS).intValue());
+    Assert.assertEquals(1, counts.get(HostRoleStatus.COMPLETED).intValue());
+    Assert.assertEquals(3, summaries.get(1L).getCounts().get(HostRoleStatus.PENDING).intValue());
+
+    // completed requests are no longer tracked
+    updates.clear();
+    for (int taskId = 1; taskId <= 6; taskId++) {
+      updates.add(createHostRoleCommand(serviceComponentHostEvent, hostDAO, taskId, (taskId - 1) / 3,
+          HostRoleStatus.COMPLETED));
+    }
+    listener.onTaskUpdateEvent(new TaskUpdateEvent(updates));
+    Assert.assertNull(listener.getStageSummaries(1L));
+  }
+
+  private HostRoleCommand createHostRoleCommand(ServiceComponentHostEvent serviceComponentHostEvent,
+      HostDAO hostDAO, long taskId, long stageId, HostRoleStatus status) {
+    HostRoleCommand hostRoleCommand = new HostRoleCommand("hostname-" + taskId, Role.DATANODE,
+        serviceComponentHostEvent, RoleCommand.EXECUTE, hostDAO, executionCommandDAO, ecwFactory);
+    hostRoleCommand.setStatus(status);
+    hostRoleCommand.setRequestId(1L);
+    hostRoleCommand.setStageId(stageId);
+    hostRoleCommand.setTaskId(taskId);
+    return hostRoleCommand;
+  }
 }
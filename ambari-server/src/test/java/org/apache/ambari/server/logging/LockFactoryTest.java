@@ -92,4 +92,23 @@ public class LockFactoryTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void createsProfiledLockIfContentionSamplingIsEnabled() {
+    Configuration config = createNiceMock(Configuration.class);
+    expect(config.isServerLocksProfilingEnabled()).andReturn(false);
+    expect(config.getServerLocksContentionSamplingRate()).andReturn(100);
+    replayAll();
+
+    LockFactory factory = new LockFactory(config);
+    Lock lock = factory.newLock("sampledLock");
+    ReadWriteLock readWriteLock = factory.newReadWriteLock("sampledReadWriteLock");
+
+    Assert.assertTrue(lock instanceof ProfiledReentrantLock);
+    Assert.assertTrue(readWriteLock instanceof ProfiledReentrantReadWriteLock);
+    Assert.assertTrue(factory.getContentionRecorder().isEnabled());
+    Assert.assertEquals(3, factory.getContentionRecorder().getAllStatistics().size());
+
+    verifyAll();
+  }
+
 }
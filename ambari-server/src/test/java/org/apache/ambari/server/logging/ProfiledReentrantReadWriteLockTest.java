@@ -155,4 +155,32 @@ public class ProfiledReentrantReadWriteLockTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void sampledWaitAndHoldTimesAreRecordedWithoutProfiling() {
+    Ticker ticker = createMock(Ticker.class);
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(0L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(3L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(3L));
+    expect(ticker.read()).andReturn(TimeUnit.MILLISECONDS.toNanos(10L));
+    replayAll();
+
+    LockContentionRecorder recorder = new LockContentionRecorder(1, 5L);
+    ProfiledReentrantReadWriteLock testSubject = new ProfiledReentrantReadWriteLock(new ReentrantReadWriteLock(), ticker, LABEL, false, recorder);
+
+    testSubject.writeLock().lock();
+    testSubject.writeLock().lock();
+    testSubject.writeLock().unlock();
+    testSubject.writeLock().unlock();
+
+    LockContentionRecorder.LockStatistics statistics = recorder.getAllStatistics().get(LABEL + " (write)");
+    Assert.assertEquals(1, statistics.getWaitTimes().getCount());
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toMicros(3L), statistics.getWaitTimes().getSnapshot().getMax());
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toMicros(7L), statistics.getHoldTimes().getSnapshot().getMax());
+    Assert.assertEquals(1, statistics.getLongHoldCount());
+    Assert.assertEquals(1, statistics.getTopWaitingCallSites(10).size());
+    Assert.assertEquals(0, recorder.getAllStatistics().get(LABEL + " (read)").getWaitTimes().getCount());
+    Assert.assertTrue(testSubject.writeLock().getLockCount().isEmpty());
+    verifyAll();
+  }
+
 }
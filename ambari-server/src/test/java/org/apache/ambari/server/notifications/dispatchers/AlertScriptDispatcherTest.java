@@ -392,8 +392,8 @@ public class AlertScriptDispatcherTest {
         bind(OsFamily.class).toInstance(EasyMock.createNiceMock(OsFamily.class));
 
         // mock the dispatcher to return our doctored ProcessBuilder
-        AlertScriptDispatcher dispatcher = EasyMock.createMockBuilder(AlertScriptDispatcher.class).addMockedMethods(
-            "getProcessBuilder").createNiceMock();
+        AlertScriptDispatcher dispatcher = EasyMock.createMockBuilder(AlertScriptDispatcher.class).withConstructor()
+            .addMockedMethods("getProcessBuilder").createNiceMock();
 
         // make the executor synchronized for testing
         SynchronizedExecutor synchronizedExecutor = new SynchronizedExecutor();
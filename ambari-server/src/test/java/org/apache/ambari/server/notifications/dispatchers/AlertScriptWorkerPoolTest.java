@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.notifications.dispatchers;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.notifications.DispatchCallback;
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.alert.AlertNotification;
+import org.apache.ambari.server.state.services.AlertNoticeDispatchService.AlertInfo;
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Tests {@link AlertScriptWorkerPool}.
+ */
+public class AlertScriptWorkerPoolTest {
+
+  @Rule
+  public TemporaryFolder m_temporaryFolder = new TemporaryFolder();
+
+  private MetricRegistry m_metricRegistry;
+
+  @Before
+  public void before() throws Exception {
+    Assume.assumeTrue(!SystemUtils.IS_OS_WINDOWS);
+    m_metricRegistry = new MetricRegistry();
+  }
+
+  /**
+   * Tests that notifications are written to a single long-lived process as
+   * JSON lines and completed with the answers of the process.
+   */
+  @Test
+  public void testDispatchToWorker() throws Exception {
+    File output = m_temporaryFolder.newFile("output");
+    String script = createScript(
+        "[ \"$AMBARI_ALERT_SCRIPT_WORKER\" = true ] || exit 1",
+        "while read -r line; do",
+        "  printf '%s\\n' \"$line\" >> " + output.getAbsolutePath(),
+        "  case \"$line\" in",
+        "    *CRITICAL*) echo FAILED ;;",
+        "    *) echo OK ;;",
+        "  esac",
+        "done");
+
+    AtomicInteger fallbacks = new AtomicInteger();
+    AlertScriptWorkerPool workerPool = new AlertScriptWorkerPool(script, 1, 10, 5000L, 0, 60000L,
+        m_metricRegistry, notification -> fallbacks.incrementAndGet());
+
+    int notificationCount = 50;
+    CountDownLatch latch = new CountDownLatch(notificationCount);
+    RecordingCallback callback = new RecordingCallback(latch);
+    try {
+      for (int i = 0; i < notificationCount; i++) {
+        workerPool.dispatch(createNotification(i % 10 == 0 ? AlertState.CRITICAL : AlertState.OK,
+            "Text \"" + i + "\"\nsecond line", callback));
+      }
+
+      Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+    } finally {
+      workerPool.close();
+    }
+
+    Assert.assertEquals(45, callback.m_successes.get());
+    Assert.assertEquals(5, callback.m_failures.get());
+    Assert.assertEquals(0, fallbacks.get());
+    Assert.assertEquals(1, m_metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS).getCount());
+    Assert.assertEquals(notificationCount, m_metricRegistry.timer(AlertScriptDispatcher.METRIC_LATENCY).getCount());
+
+    List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+    Assert.assertEquals(notificationCount, lines.size());
+    Assert.assertEquals(AlertScriptWorkerPool.toJson(createNotification(AlertState.CRITICAL,
+        "Text \"0\"\nsecond line", callback)), lines.get(0));
+    Assert.assertTrue(lines.get(0).contains("\"definitionName\":\"mock_definition\""));
+    Assert.assertTrue(lines.get(0).contains("\"alertText\":\"Text \\\"0\\\"\\nsecond line\""));
+  }
+
+  /**
+   * Tests that a failed process is restarted, that the notifications it did
+   * not answer fall back to invoking the script, and that the pool stops
+   * starting processes after too many consecutive failures.
+   */
+  @Test
+  public void testRestartAndFallback() throws Exception {
+    String script = createScript("read line", "exit 1");
+
+    AtomicInteger fallbacks = new AtomicInteger();
+    AlertScriptWorkerPool workerPool = new AlertScriptWorkerPool(script, 1, 1, 5000L, 1, 60000L,
+        m_metricRegistry, notification -> fallbacks.incrementAndGet());
+
+    RecordingCallback callback = new RecordingCallback(new CountDownLatch(0));
+    try {
+      for (int i = 1; i <= 2; i++) {
+        workerPool.dispatch(createNotification(AlertState.OK, "text", callback));
+        waitFor(fallbacks, i);
+      }
+
+      Assert.assertTrue(workerPool.isDisabled());
+
+      workerPool.dispatch(createNotification(AlertState.OK, "text", callback));
+      Assert.assertEquals(3, fallbacks.get());
+    } finally {
+      workerPool.close();
+    }
+
+    Assert.assertEquals(0, callback.m_successes.get() + callback.m_failures.get());
+    Assert.assertEquals(2, m_metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS).getCount());
+    Assert.assertEquals(2, m_metricRegistry.counter(AlertScriptWorkerPool.METRIC_WORKER_FAILURES).getCount());
+    Assert.assertEquals(3, m_metricRegistry.counter(AlertScriptWorkerPool.METRIC_WORKER_FALLBACKS).getCount());
+  }
+
+  /**
+   * Tests that a process which does not answer in time is destroyed and its
+   * notifications fall back to invoking the script.
+   */
+  @Test
+  public void testTimeout() throws Exception {
+    String script = createScript("read line", "sleep 30");
+
+    AtomicInteger fallbacks = new AtomicInteger();
+    AlertScriptWorkerPool workerPool = new AlertScriptWorkerPool(script, 1, 10, 200L, 3, 60000L,
+        m_metricRegistry, notification -> fallbacks.incrementAndGet());
+
+    RecordingCallback callback = new RecordingCallback(new CountDownLatch(0));
+    try {
+      workerPool.dispatch(createNotification(AlertState.OK, "text", callback));
+      waitFor(fallbacks, 1);
+    } finally {
+      workerPool.close();
+    }
+
+    Assert.assertEquals(1, fallbacks.get());
+    Assert.assertEquals(1, m_metricRegistry.counter(AlertScriptWorkerPool.METRIC_WORKER_FAILURES).getCount());
+  }
+
+  /**
+   * Tests that the processes of a pool which failed too often are started
+   * again once the recovery interval has passed.
+   */
+  @Test
+  public void testRecovery() throws Exception {
+    String script = createScript("read line", "exit 1");
+
+    AtomicInteger fallbacks = new AtomicInteger();
+    AlertScriptWorkerPool workerPool = new AlertScriptWorkerPool(script, 1, 1, 5000L, 0, 200L,
+        m_metricRegistry, notification -> fallbacks.incrementAndGet());
+
+    RecordingCallback callback = new RecordingCallback(new CountDownLatch(0));
+    try {
+      workerPool.dispatch(createNotification(AlertState.OK, "text", callback));
+      waitFor(fallbacks, 1);
+      Assert.assertTrue(workerPool.isDisabled());
+
+      Thread.sleep(300);
+      Assert.assertFalse(workerPool.isDisabled());
+
+      workerPool.dispatch(createNotification(AlertState.OK, "text", callback));
+      waitFor(fallbacks, 2);
+    } finally {
+      workerPool.close();
+    }
+
+    Assert.assertEquals(2, m_metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS).getCount());
+  }
+
+  /**
+   * Tests that the dispatcher replaces the worker pool of a script which was
+   * modified, and closes its pools on shutdown.
+   */
+  @Test
+  public void testScriptModified() throws Exception {
+    File script = m_temporaryFolder.newFile(UUID.randomUUID() + ".sh");
+    Files.write(script.toPath(), "while read -r line; do echo OK; done\n".getBytes(StandardCharsets.UTF_8));
+    Assert.assertTrue(script.setExecutable(true));
+
+    Configuration configuration = new Configuration();
+    configuration.setProperty(AlertScriptDispatcher.SCRIPT_CONFIG_DEFAULT_KEY, script.getAbsolutePath());
+    configuration.setProperty(Configuration.DISPATCH_PROPERTY_SCRIPT_WORKER_ENABLED.getKey(), "true");
+
+    AlertScriptDispatcher dispatcher = new AlertScriptDispatcher();
+    dispatcher.m_configuration = configuration;
+    MetricRegistry metricRegistry = dispatcher.getMetricRegistry();
+
+    RecordingCallback callback = new RecordingCallback(new CountDownLatch(2));
+    RecordingCallback modifiedCallback = new RecordingCallback(new CountDownLatch(1));
+    try {
+      dispatcher.dispatch(createNotification(AlertState.OK, "text", callback));
+      dispatcher.dispatch(createNotification(AlertState.OK, "text", callback));
+      Assert.assertTrue(callback.m_latch.await(30, TimeUnit.SECONDS));
+      Assert.assertEquals(1, metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS).getCount());
+
+      Thread.sleep(10);
+      Assert.assertTrue(script.setLastModified(System.currentTimeMillis()));
+      dispatcher.dispatch(createNotification(AlertState.OK, "text", modifiedCallback));
+      Assert.assertTrue(modifiedCallback.m_latch.await(30, TimeUnit.SECONDS));
+    } finally {
+      dispatcher.shutdown();
+    }
+
+    Assert.assertEquals(2, callback.m_successes.get());
+    Assert.assertEquals(1, modifiedCallback.m_successes.get());
+    Assert.assertEquals(2, metricRegistry.meter(AlertScriptDispatcher.METRIC_FORKS).getCount());
+    Assert.assertEquals(0, metricRegistry.counter(AlertScriptWorkerPool.METRIC_WORKER_FALLBACKS).getCount());
+  }
+
+  private String createScript(String... lines) throws Exception {
+    File script = m_temporaryFolder.newFile(UUID.randomUUID() + ".sh");
+    Files.write(script.toPath(), (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    return "sh " + script.getAbsolutePath();
+  }
+
+  private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (counter.get() < value && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals(value, counter.get());
+  }
+
+  private static AlertNotification createNotification(AlertState state, String text, DispatchCallback callback) {
+    AlertDefinitionEntity definition = new AlertDefinitionEntity();
+    definition.setDefinitionName("mock_definition");
+    definition.setLabel("Mock Definition");
+
+    AlertHistoryEntity history = new AlertHistoryEntity();
+    history.setAlertDefinition(definition);
+    history.setAlertText(text);
+    history.setAlertState(state);
+    history.setServiceName("FOO_SERVICE");
+    history.setHostName("mock_host");
+    history.setAlertTimestamp(1111111L);
+
+    AlertNotification notification = new AlertNotification();
+    notification.setAlertInfo(new AlertInfo(history));
+    notification.Callback = callback;
+    notification.CallbackIds = Collections.singletonList(UUID.randomUUID().toString());
+    return notification;
+  }
+
+  /**
+   * Counts the notifications which were delivered and which failed.
+   */
+  private static final class RecordingCallback implements DispatchCallback {
+    private final AtomicInteger m_successes = new AtomicInteger();
+    private final AtomicInteger m_failures = new AtomicInteger();
+    private final CountDownLatch m_latch;
+
+    private RecordingCallback(CountDownLatch latch) {
+      m_latch = latch;
+    }
+
+    @Override
+    public void onSuccess(List<String> callbackIds) {
+      m_successes.incrementAndGet();
+      m_latch.countDown();
+    }
+
+    @Override
+    public void onFailure(List<String> callbackIds) {
+      m_failures.incrementAndGet();
+      m_latch.countDown();
+    }
+  }
+}
@@ -17,11 +17,23 @@
  */
 package org.apache.ambari.server.notifications.dispatchers;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.mail.AuthenticationFailedException;
 import javax.mail.MessagingException;
@@ -168,6 +180,188 @@ public class EmailDispatcherTest {
     Assert.assertEquals(TargetConfigurationResult.Status.VALID, configValidationResult.getStatus());
   }
 
+  /**
+   * Tests that emails are sent through an in-process SMTP server and that the
+   * connection is kept open and reused by the next email to the same server.
+   */
+  @Test
+  public void testTransportIsReused() throws Exception {
+    SmtpServerStub server = new SmtpServerStub();
+    server.start();
+
+    try {
+      Map<String, String> properties = new HashMap<>();
+      properties.put("mail.smtp.host", InetAddress.getLoopbackAddress().getHostAddress());
+      properties.put("mail.smtp.port", String.valueOf(server.getPort()));
+      properties.put(EmailDispatcher.JAVAMAIL_FROM_PROPERTY, "ambari@example.com");
+
+      List<String> callbackIds = new ArrayList<>();
+      callbackIds.add(UUID.randomUUID().toString());
+
+      DispatchCallback callback = EasyMock.createStrictMock(DispatchCallback.class);
+      callback.onSuccess(callbackIds);
+      EasyMock.expectLastCall().times(2);
+      EasyMock.replay(callback);
+
+      EmailDispatcher dispatcher = new EmailDispatcher();
+      for (int i = 0; i < 2; i++) {
+        Recipient recipient = new Recipient();
+        recipient.Identifier = "admin@example.com";
+
+        Notification notification = new Notification();
+        notification.Callback = callback;
+        notification.CallbackIds = callbackIds;
+        notification.DispatchProperties = properties;
+        notification.Recipients = Collections.singletonList(recipient);
+        notification.Subject = "Subject " + i;
+        notification.Body = "Body " + i;
+
+        dispatcher.dispatch(notification);
+      }
+
+      EasyMock.verify(callback);
+      Assert.assertEquals(1, server.getConnectionCount());
+      Assert.assertEquals(2, server.getMessages().size());
+      Assert.assertTrue(server.getMessages().get(1).contains("Subject: Subject 1"));
+      Assert.assertEquals(1, dispatcher.getIdleTransportCount());
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Tests that sessions which are no longer used are discarded along with
+   * their idle transports.
+   */
+  @Test
+  public void testIdleSessionIsDiscarded() throws Exception {
+    SmtpServerStub server = new SmtpServerStub();
+    server.start();
+
+    try {
+      Map<String, String> properties = new HashMap<>();
+      properties.put("mail.smtp.host", InetAddress.getLoopbackAddress().getHostAddress());
+      properties.put("mail.smtp.port", String.valueOf(server.getPort()));
+
+      Recipient recipient = new Recipient();
+      recipient.Identifier = "admin@example.com";
+
+      Notification notification = new Notification();
+      notification.DispatchProperties = properties;
+      notification.Recipients = Collections.singletonList(recipient);
+      notification.Subject = "Subject";
+      notification.Body = "Body";
+
+      EmailDispatcher dispatcher = new EmailDispatcher();
+      dispatcher.dispatch(notification);
+      Assert.assertEquals(1, server.getMessages().size());
+
+      dispatcher.closeIdleTransports(System.currentTimeMillis());
+      Assert.assertEquals(1, dispatcher.getSessionCount());
+      Assert.assertEquals(1, dispatcher.getIdleTransportCount());
+
+      dispatcher.closeIdleTransports(System.currentTimeMillis() + 2 * EmailDispatcher.IDLE_TRANSPORT_TIMEOUT_MS);
+      Assert.assertEquals(0, dispatcher.getSessionCount());
+      Assert.assertEquals(0, dispatcher.getIdleTransportCount());
+
+      // a new session is created for the next notification
+      dispatcher.dispatch(notification);
+      Assert.assertEquals(2, server.getMessages().size());
+      Assert.assertEquals(1, dispatcher.getSessionCount());
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * A minimal SMTP server which accepts every message and keeps the message
+   * content.
+   */
+  private static final class SmtpServerStub implements Runnable {
+
+    private final ServerSocket m_serverSocket;
+    private final AtomicInteger m_connections = new AtomicInteger();
+    private final List<String> m_messages = new CopyOnWriteArrayList<>();
+
+    private SmtpServerStub() throws IOException {
+      m_serverSocket = new ServerSocket(0, 5, InetAddress.getLoopbackAddress());
+    }
+
+    private void start() {
+      Thread thread = new Thread(this, "smtp-server-stub");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private void stop() throws IOException {
+      m_serverSocket.close();
+    }
+
+    private int getPort() {
+      return m_serverSocket.getLocalPort();
+    }
+
+    private int getConnectionCount() {
+      return m_connections.get();
+    }
+
+    private List<String> getMessages() {
+      return m_messages;
+    }
+
+    @Override
+    public void run() {
+      while (!m_serverSocket.isClosed()) {
+        try {
+          final Socket socket = m_serverSocket.accept();
+          m_connections.incrementAndGet();
+
+          Thread thread = new Thread(() -> handle(socket), "smtp-server-stub-connection");
+          thread.setDaemon(true);
+          thread.start();
+        } catch (IOException e) {
+          // closed
+        }
+      }
+    }
+
+    private void handle(Socket socket) {
+      try (Socket s = socket;
+           BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+           Writer writer = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII)) {
+        reply(writer, "220 localhost ESMTP");
+
+        String line;
+        while (null != (line = reader.readLine())) {
+          String command = line.toUpperCase();
+          if (command.startsWith("DATA")) {
+            reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+
+            StringBuilder message = new StringBuilder();
+            while (null != (line = reader.readLine()) && !line.equals(".")) {
+              message.append(line).append('\n');
+            }
+
+            m_messages.add(message.toString());
+            reply(writer, "250 OK");
+          } else if (command.startsWith("QUIT")) {
+            reply(writer, "221 Bye");
+            return;
+          } else {
+            reply(writer, "250 OK");
+          }
+        }
+      } catch (IOException e) {
+        // connection closed by the client
+      }
+    }
+
+    private static void reply(Writer writer, String reply) throws IOException {
+      writer.write(reply + "\r\n");
+      writer.flush();
+    }
+  }
+
   /**
    *
    */
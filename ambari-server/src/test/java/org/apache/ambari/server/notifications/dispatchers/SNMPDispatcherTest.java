@@ -19,7 +19,10 @@ package org.apache.ambari.server.notifications.dispatchers;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -35,6 +38,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.notifications.DispatchCallback;
 import org.apache.ambari.server.notifications.Notification;
@@ -335,6 +340,57 @@ public class SNMPDispatcherTest {
     assertEquals(SnmpConstants.version1, argument.getValue().getVersion());
   }
 
+  /**
+   * Tests that a dispatch which fails to send does not close the SNMP session
+   * while another dispatch is still sending with it.
+   */
+  @Test
+  public void testSendTraps_failureWhileSessionInUse() throws Exception {
+    final SNMPDispatcher.SnmpVersion snmpVersion = SNMPDispatcher.SnmpVersion.SNMPv1;
+    Snmp snmp = mock(Snmp.class);
+    final SNMPDispatcher dispatcher = spy(new SNMPDispatcher(snmp));
+    final Notification notification = new Notification();
+    Map<String, String> properties = new HashMap<>();
+    properties.put(SNMPDispatcher.COMMUNITY_PROPERTY, "public");
+    properties.put(SNMPDispatcher.PORT_PROPERTY, "162");
+    notification.DispatchProperties = properties;
+    Recipient rec1 = new Recipient();
+    rec1.Identifier = "192.168.0.2";
+    notification.Recipients = Arrays.asList(rec1);
+    doReturn(mock(PDU.class)).when(dispatcher).prepareTrap(notification, snmpVersion);
+
+    final CountDownLatch sending = new CountDownLatch(1);
+    final CountDownLatch failed = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      sending.countDown();
+      failed.await(10, TimeUnit.SECONDS);
+      return null;
+    }).doThrow(new IOException()).when(snmp).send(any(PDU.class), any(Target.class));
+
+    Thread slowDispatch = new Thread(() -> {
+      try {
+        dispatcher.sendTraps(notification, snmpVersion);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    slowDispatch.start();
+    assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+    try {
+      dispatcher.sendTraps(notification, snmpVersion);
+      fail("Expected the second send to fail");
+    } catch (IOException e) {
+      // expected
+    }
+
+    verify(snmp, never()).close();
+
+    failed.countDown();
+    slowDispatch.join(10000);
+    verify(snmp, times(1)).close();
+  }
+
   @Test
   public void testSendTraps_v2() throws Exception {
     SNMPDispatcher.SnmpVersion snmpVersion = SNMPDispatcher.SnmpVersion.SNMPv2c;
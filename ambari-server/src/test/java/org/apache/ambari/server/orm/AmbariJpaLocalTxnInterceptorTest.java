@@ -22,13 +22,17 @@ import static org.easymock.EasyMock.expect;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityTransaction;
 
+import org.apache.ambari.server.H2DatabaseCleaner;
 import org.easymock.EasyMockSupport;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.inject.Guice;
+import com.google.inject.Injector;
 import com.google.inject.persist.Transactional;
 
 public class AmbariJpaLocalTxnInterceptorTest extends EasyMockSupport {
@@ -151,6 +155,49 @@ public class AmbariJpaLocalTxnInterceptorTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void tasksRunAfterCommit() throws Exception {
+    Injector injector = Guice.createInjector(new InMemoryDefaultTestModule());
+    injector.getInstance(GuiceJpaInitializer.class);
+    try {
+      TransactionalTasks transactionalTasks = injector.getInstance(TransactionalTasks.class);
+      AtomicInteger runs = new AtomicInteger();
+
+      Assert.assertEquals("Should not run before the commit", 0, transactionalTasks.register(runs));
+      Assert.assertEquals(1, runs.get());
+
+      try {
+        transactionalTasks.registerAndFail(runs);
+        Assert.fail("Expected the transaction to be rolled back");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      Assert.assertEquals("Should be discarded on rollback", 1, runs.get());
+
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(runs::incrementAndGet);
+      Assert.assertEquals("Should run right away outside of a transaction", 2, runs.get());
+    } finally {
+      H2DatabaseCleaner.clearDatabaseAndStopPersistenceService(injector);
+    }
+  }
+
+  /**
+   * Registers tasks to run after the commit from within transactions.
+   */
+  public static class TransactionalTasks {
+    @Transactional
+    public int register(AtomicInteger runs) {
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(runs::incrementAndGet);
+      return runs.get();
+    }
+
+    @Transactional
+    public void registerAndFail(AtomicInteger runs) {
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(runs::incrementAndGet);
+      throw new IllegalStateException("rolling back");
+    }
+  }
+
   @SafeVarargs
   private static Class<? extends Exception>[] asArray(Class<? extends Exception>... exceptions) {
     return exceptions;
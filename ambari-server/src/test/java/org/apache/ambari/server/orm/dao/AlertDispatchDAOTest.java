@@ -25,6 +25,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -554,6 +555,58 @@ public class AlertDispatchDAOTest {
     assertNull(m_dao.findNoticeByUuid("DEADBEEF"));
   }
 
+  /**
+   * Tests that the state of notices is set in bulk by ID and by UUID.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testUpdateNotifyState() throws Exception {
+    List<AlertDefinitionEntity> definitions = createDefinitions();
+    AlertDefinitionEntity definition = definitions.get(0);
+    AlertTargetEntity target = m_helper.createAlertTarget();
+
+    List<AlertNoticeEntity> notices = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      AlertHistoryEntity history = new AlertHistoryEntity();
+      history.setServiceName(definition.getServiceName());
+      history.setClusterId(m_cluster.getClusterId());
+      history.setAlertDefinition(definition);
+      history.setAlertLabel("Label");
+      history.setAlertState(AlertState.OK);
+      history.setAlertText("Alert Text");
+      history.setAlertTimestamp(System.currentTimeMillis());
+      m_alertsDao.create(history);
+
+      AlertNoticeEntity notice = new AlertNoticeEntity();
+      notice.setUuid(UUID.randomUUID().toString());
+      notice.setAlertTarget(target);
+      notice.setAlertHistory(history);
+      notice.setNotifyState(NotificationState.PENDING);
+      m_dao.create(notice);
+      notices.add(notice);
+    }
+
+    assertEquals(3, m_dao.findPendingNotices().size());
+
+    List<Long> noticeIds = new ArrayList<>();
+    for (AlertNoticeEntity notice : notices) {
+      noticeIds.add(notice.getNotificationId());
+    }
+
+    assertEquals(3, m_dao.updateNotifyState(noticeIds, NotificationState.DISPATCHED));
+    assertEquals(0, m_dao.findPendingNotices().size());
+
+    List<String> uuids = Arrays.asList(notices.get(0).getUuid(), notices.get(1).getUuid());
+    assertEquals(2, m_dao.updateNotifyStateByUuids(uuids, NotificationState.DELIVERED));
+    assertEquals(NotificationState.DELIVERED,
+        m_dao.findNoticeByUuid(notices.get(0).getUuid()).getNotifyState());
+    assertEquals(NotificationState.DELIVERED,
+        m_dao.findNoticeByUuid(notices.get(1).getUuid()).getNotifyState());
+    assertEquals(NotificationState.DISPATCHED,
+        m_dao.findNoticeByUuid(notices.get(2).getUuid()).getNotifyState());
+  }
+
 
   /**
    * Tests that the Ambari {@link Predicate} can be converted and submitted to
@@ -28,14 +28,17 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
 import org.apache.ambari.server.controller.AlertCurrentRequest;
 import org.apache.ambari.server.controller.AlertHistoryRequest;
 import org.apache.ambari.server.controller.internal.AlertHistoryResourceProvider;
@@ -216,6 +219,68 @@ public class AlertsDAOTest {
     assertEquals(50, alerts.size());
   }
 
+  /**
+   * Tests that a cleanup policy with a record limit purges the oldest alert
+   * history one chunk at a time.
+   */
+  @Test
+  public void testCleanupInChunks() throws Exception {
+    TimeBasedCleanupPolicy policy = new TimeBasedCleanupPolicy(m_cluster.getClusterName(),
+        System.currentTimeMillis(), 20);
+
+    long oldest = Long.MAX_VALUE;
+    for (AlertHistoryEntity history : m_dao.findAll(m_cluster.getClusterId())) {
+      oldest = Math.min(oldest, history.getAlertTimestamp());
+    }
+
+    assertTrue(m_dao.cleanup(policy) >= 20);
+
+    List<AlertHistoryEntity> remaining = m_dao.findAll(m_cluster.getClusterId());
+    assertEquals(30, remaining.size());
+    for (AlertHistoryEntity history : remaining) {
+      assertTrue(history.getAlertTimestamp() > oldest);
+    }
+
+    assertTrue(m_dao.cleanup(policy) > 0);
+    assertTrue(m_dao.cleanup(policy) > 0);
+    assertEquals(0, m_dao.cleanup(policy));
+
+    // only the history of the current alerts is left
+    assertEquals(5, m_dao.findAll(m_cluster.getClusterId()).size());
+  }
+
+  /**
+   * Tests that a cleanup policy with a record limit keeps the current alerts,
+   * and their history, whose state has not changed since before the cleanup
+   * date.
+   */
+  @Test
+  public void testCleanupInChunksKeepsCurrentAlerts() throws Exception {
+    Set<Long> historyIds = new HashSet<>();
+    for (AlertCurrentEntity current : m_dao.findCurrent()) {
+      historyIds.add(current.getHistoryId());
+    }
+    assertEquals(5, historyIds.size());
+
+    // the current alerts have not changed since 2014
+    TimeBasedCleanupPolicy policy = new TimeBasedCleanupPolicy(m_cluster.getClusterName(),
+        System.currentTimeMillis(), 100);
+    assertTrue(m_dao.cleanup(policy) > 0);
+    assertEquals(0, m_dao.cleanup(policy));
+
+    Set<Long> remainingHistoryIds = new HashSet<>();
+    for (AlertCurrentEntity current : m_dao.findCurrent()) {
+      remainingHistoryIds.add(current.getHistoryId());
+    }
+    assertEquals(historyIds, remainingHistoryIds);
+
+    remainingHistoryIds.clear();
+    for (AlertHistoryEntity history : m_dao.findAll(m_cluster.getClusterId())) {
+      remainingHistoryIds.add(history.getAlertId());
+    }
+    assertEquals(historyIds, remainingHistoryIds);
+  }
+
   /**
    *
    */
@@ -155,6 +155,29 @@ public class RequestDAOTest {
     Assert.assertEquals(calc3.getStatus(), calc4.getStatus());
   }
 
+  @Test
+  public void testFindCompletedRequestIdsInClusterBeforeDate() throws Exception {
+    createGraph();
+
+    RequestEntity requestEntity = requestDAO.findByPK(100L);
+    long clusterId = requestEntity.getClusterId();
+    long now = System.currentTimeMillis();
+
+    // requests which are still running are never purged
+    Assert.assertTrue(requestDAO.findCompletedRequestIdsInClusterBeforeDate(clusterId, now, 10).isEmpty());
+
+    requestEntity.setStatus(HostRoleStatus.COMPLETED);
+    requestDAO.merge(requestEntity);
+
+    Assert.assertEquals(Collections.singletonList(100L),
+        requestDAO.findCompletedRequestIdsInClusterBeforeDate(clusterId, now, 10));
+    Assert.assertTrue(requestDAO.findCompletedRequestIdsInClusterBeforeDate(clusterId, 0L, 10).isEmpty());
+
+    List<RequestDAO.StageEntityPK> stageIds = requestDAO.findRequestAndStageIdsByRequestIds(
+        Collections.singleton(100L));
+    Assert.assertEquals(8, stageIds.size());
+  }
+
   private void createGraph() {
     OrmTestHelper helper = injector.getInstance(OrmTestHelper.class);
     helper.createDefaultData();
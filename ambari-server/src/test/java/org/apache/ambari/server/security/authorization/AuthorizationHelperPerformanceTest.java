@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.authorization;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ambari.server.security.TestAuthenticationFactory;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Measures the authorization checks a resource provider performs when listing the hosts of a
+ * large cluster.
+ */
+@Ignore
+public class AuthorizationHelperPerformanceTest {
+
+  private static final int HOSTS = 5000;
+  private static final int VIEW_PRIVILEGES = 200;
+  private static final int ITERATIONS = 20;
+
+  @Test
+  public void testIsAuthorizedPerHost() {
+    // a cluster user which can also use a number of views
+    List<GrantedAuthority> authorities = new ArrayList<>();
+    authorities.addAll(TestAuthenticationFactory.createClusterUser("user", 4L).getAuthorities());
+    for (long viewResourceId = 100; viewResourceId < 100 + VIEW_PRIVILEGES; viewResourceId++) {
+      authorities.addAll(TestAuthenticationFactory.createViewUser("user", viewResourceId).getAuthorities());
+    }
+    Authentication authentication = new UsernamePasswordAuthenticationToken("user", null, authorities);
+
+    Set<RoleAuthorization> requiredAuthorizations = EnumSet.of(RoleAuthorization.HOST_VIEW_METRICS,
+        RoleAuthorization.HOST_VIEW_STATUS_INFO, RoleAuthorization.HOST_VIEW_CONFIGS);
+
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long time = System.nanoTime();
+      int authorized = 0;
+      for (int host = 0; host < HOSTS; host++) {
+        if (AuthorizationHelper.isAuthorized(authentication, ResourceType.CLUSTER, 4L, requiredAuthorizations)) {
+          authorized++;
+        }
+      }
+      System.out.println("Checked " + HOSTS + " hosts in " + (System.nanoTime() - time) / 1000 + "us");
+      Assert.assertEquals(HOSTS, authorized);
+    }
+  }
+}
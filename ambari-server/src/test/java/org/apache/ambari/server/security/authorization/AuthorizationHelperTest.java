@@ -420,6 +420,52 @@ public class AuthorizationHelperTest  extends EasyMockSupport {
     assertTrue(AuthorizationHelper.isAuthorized(ResourceType.VIEW, 50L, permissionsViewUse));
   }
 
+  @Test
+  public void testIsAuthorizedAfterPrivilegesChange() {
+    RoleAuthorizationEntity readOnlyRoleAuthorizationEntity = new RoleAuthorizationEntity();
+    readOnlyRoleAuthorizationEntity.setAuthorizationId(RoleAuthorization.CLUSTER_VIEW_METRICS.getId());
+
+    RoleAuthorizationEntity privilegedRoleAuthorizationEntity = new RoleAuthorizationEntity();
+    privilegedRoleAuthorizationEntity.setAuthorizationId(RoleAuthorization.CLUSTER_TOGGLE_KERBEROS.getId());
+
+    ResourceTypeEntity clusterResourceTypeEntity = new ResourceTypeEntity();
+    clusterResourceTypeEntity.setId(1);
+    clusterResourceTypeEntity.setName(ResourceType.CLUSTER.name());
+
+    ResourceEntity clusterResourceEntity = new ResourceEntity();
+    clusterResourceEntity.setResourceType(clusterResourceTypeEntity);
+    clusterResourceEntity.setId(1L);
+
+    PermissionEntity permissionEntity = new PermissionEntity();
+    permissionEntity.addAuthorization(readOnlyRoleAuthorizationEntity);
+
+    PrivilegeEntity privilegeEntity = new PrivilegeEntity();
+    privilegeEntity.setPermission(permissionEntity);
+    privilegeEntity.setResource(clusterResourceEntity);
+
+    Authentication user = new TestAuthentication(Collections.singleton(new AmbariGrantedAuthority(privilegeEntity)));
+    Set<RoleAuthorization> permissionsViewMetrics = EnumSet.of(RoleAuthorization.CLUSTER_VIEW_METRICS);
+    Set<RoleAuthorization> permissionsToggleKerberos = EnumSet.of(RoleAuthorization.CLUSTER_TOGGLE_KERBEROS);
+
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, permissionsViewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, null, permissionsViewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, null, 1L, permissionsViewMetrics));
+    assertTrue(AuthorizationHelper.isAuthorized(user, null, null, permissionsViewMetrics));
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.VIEW, 1L, permissionsViewMetrics));
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, permissionsToggleKerberos));
+
+    // The index of the authentication is reused until the privileges are changed
+    AuthorizationIndex authorizationIndex = AuthorizationHelper.getAuthorizationIndex(user);
+    assertTrue(authorizationIndex == AuthorizationHelper.getAuthorizationIndex(user));
+
+    permissionEntity.addAuthorization(privilegedRoleAuthorizationEntity);
+    AuthorizationHelper.invalidateAuthorizationIndexes();
+
+    assertTrue(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 1L, permissionsToggleKerberos));
+    assertFalse(AuthorizationHelper.isAuthorized(user, ResourceType.CLUSTER, 2L, permissionsToggleKerberos));
+    assertFalse(authorizationIndex == AuthorizationHelper.getAuthorizationIndex(user));
+  }
+
   public void testAddLoginNameAlias() throws Exception {
     // Given
     reset(servletRequestAttributes);
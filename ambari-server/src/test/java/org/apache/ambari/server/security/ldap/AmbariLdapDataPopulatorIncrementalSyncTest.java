@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.configuration.AmbariServerConfigurationKey;
+import org.apache.ambari.server.ldap.domain.AmbariLdapConfiguration;
+import org.apache.ambari.server.orm.dao.MetainfoDAO;
+import org.apache.ambari.server.orm.entities.MetainfoEntity;
+import org.apache.ambari.server.security.authorization.AmbariLdapAuthenticationProviderBaseTest;
+import org.apache.ambari.server.security.authorization.Group;
+import org.apache.ambari.server.security.authorization.User;
+import org.apache.ambari.server.security.authorization.Users;
+import org.apache.directory.api.ldap.model.entry.DefaultModification;
+import org.apache.directory.api.ldap.model.entry.ModificationOperation;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.apache.directory.server.core.annotations.ContextEntry;
+import org.apache.directory.server.core.annotations.CreateDS;
+import org.apache.directory.server.core.annotations.CreatePartition;
+import org.apache.directory.server.core.integ.FrameworkRunner;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Sets;
+import com.google.inject.Guice;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests incremental synchronization of all LDAP groups against an embedded LDAP server.
+ */
+@RunWith(FrameworkRunner.class)
+@CreateDS(allowAnonAccess = true,
+    name = "AmbariLdapDataPopulatorIncrementalSyncTest",
+    partitions = {
+        @CreatePartition(name = "Root",
+            suffix = "dc=apache,dc=org",
+            contextEntry = @ContextEntry(
+                entryLdif =
+                    "dn: dc=apache,dc=org\n" +
+                        "dc: apache\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n" +
+                        "dn: dc=ambari,dc=apache,dc=org\n" +
+                        "dc: ambari\n" +
+                        "objectClass: top\n" +
+                        "objectClass: domain\n\n"))
+    })
+@CreateLdapServer(allowAnonymousAccess = true,
+    transports = {@CreateTransport(protocol = "LDAP")})
+@ApplyLdifFiles("users.ldif")
+public class AmbariLdapDataPopulatorIncrementalSyncTest extends AmbariLdapAuthenticationProviderBaseTest {
+
+  private static final String ADMIN_GROUP_DN = "cn=admin,ou=groups,dc=ambari,dc=apache,dc=org";
+  private static final String DENIED_USER_DN = "uid=deniedUser,ou=people,dc=ambari,dc=apache,dc=org";
+
+  private final AtomicReference<MetainfoEntity> storedChangeMarker = new AtomicReference<>();
+  private final Set<String> refreshedGroups = new HashSet<>();
+
+  private final List<User> internalUsers = new ArrayList<>();
+  private final List<Group> internalGroups = new ArrayList<>();
+  private final Map<String, Collection<User>> internalMembers = new HashMap<>();
+
+  private AmbariLdapDataPopulator populator;
+
+  @Before
+  public void setUp() throws Exception {
+    AmbariLdapConfiguration ldapConfiguration = new AmbariLdapConfiguration();
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SERVER_HOST, "localhost");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SERVER_PORT, String.valueOf(getLdapServer().getPort()));
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.USER_OBJECT_CLASS, "person");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.GROUP_OBJECT_CLASS, "groupOfNames");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.INCREMENTAL_SYNC_ENABLED, "true");
+    // ApacheDS only sets modifyTimestamp once an entry is modified, but sets entryCSN on every change
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SYNC_CHANGE_MARKER_ATTRIBUTE, "entryCSN");
+    ldapConfiguration.setValueFor(AmbariServerConfigurationKey.SYNC_MEMBER_RESOLUTION_THREADS, "2");
+
+    MetainfoDAO metainfoDAO = createNiceMock(MetainfoDAO.class);
+    expect(metainfoDAO.findByKey(AmbariLdapDataPopulator.GROUPS_CHANGE_MARKER_KEY_PREFIX + "entrycsn"))
+        .andAnswer(storedChangeMarker::get).anyTimes();
+    metainfoDAO.create(anyObject(MetainfoEntity.class));
+    expectLastCall().andAnswer(() -> {
+      storedChangeMarker.set((MetainfoEntity) EasyMock.getCurrentArguments()[0]);
+      return null;
+    }).anyTimes();
+
+    Users users = createNiceMock(Users.class);
+    expect(users.getAllUsers()).andAnswer(() -> new ArrayList<>(internalUsers)).anyTimes();
+    expect(users.getAllGroups()).andAnswer(() -> new ArrayList<>(internalGroups)).anyTimes();
+    expect(users.getGroupMembers(anyString())).andAnswer(
+        () -> internalMembers.get((String) EasyMock.getCurrentArguments()[0])).anyTimes();
+    replayAll();
+
+    populator = new AmbariLdapDataPopulator(() -> ldapConfiguration, users) {
+      @Override
+      protected void refreshGroupMembers(LdapBatchDto batchInfo, LdapGroupDto group, Map<String, User> internalUsers,
+                                         Map<String, Group> internalGroupsMap, Set<String> groupMemberAttributes,
+                                         boolean recursive) throws AmbariException {
+        refreshedGroups.add(group.getGroupName());
+        super.refreshGroupMembers(batchInfo, group, internalUsers, internalGroupsMap, groupMemberAttributes, recursive);
+      }
+    };
+    Guice.createInjector(binder -> binder.bind(MetainfoDAO.class).toProvider(Providers.of(metainfoDAO)))
+        .injectMembers(populator);
+  }
+
+  /**
+   * Tests that only the groups changed since the previous synchronization are refreshed, and that
+   * groups which are not refreshed are not removed.
+   */
+  @Test
+  public void testOnlyChangedGroupsAreRefreshed() throws Exception {
+    // the first synchronization refreshes every group
+    LdapBatchDto batchInfo = synchronizeAllLdapGroups();
+    Assert.assertEquals(Sets.newHashSet("admin", "ambari administrators"), refreshedGroups);
+    Assert.assertEquals(Sets.newHashSet(
+        new LdapUserGroupMemberDto("admin", "alloweduser"),
+        new LdapUserGroupMemberDto("ambari administrators", "allowedadmin")), batchInfo.getMembershipToAdd());
+    Assert.assertNotNull(storedChangeMarker.get());
+    Assert.assertEquals(batchInfo.getGroupsChangeMarker(), storedChangeMarker.get().getMetainfoValue());
+    Assert.assertTrue(batchInfo.getPhaseDurations().containsKey(AmbariLdapDataPopulator.LDAP_GROUPS_PHASE));
+    Assert.assertTrue(batchInfo.getPhaseDurations().containsKey(AmbariLdapDataPopulator.LDAP_MEMBERS_PHASE));
+
+    User allowedUser = addInternalUser("alloweduser");
+    User allowedAdmin = addInternalUser("allowedadmin");
+    addInternalGroup("admin", allowedUser);
+    addInternalGroup("ambari administrators", allowedAdmin);
+
+    // nothing changed; only the group holding the stored change marker is refreshed again
+    batchInfo = synchronizeAllLdapGroups();
+    Assert.assertEquals(1, refreshedGroups.size());
+    Assert.assertFalse(refreshedGroups.contains("admin"));
+    Assert.assertTrue(batchInfo.getGroupsToBeRemoved().isEmpty());
+    Assert.assertTrue(batchInfo.getGroupsToBeCreated().isEmpty());
+    Assert.assertTrue(batchInfo.getMembershipToAdd().isEmpty());
+    Assert.assertTrue(batchInfo.getMembershipToRemove().isEmpty());
+
+    // adding a member changes the group
+    getService().getAdminSession().modify(new Dn(ADMIN_GROUP_DN),
+        new DefaultModification(ModificationOperation.ADD_ATTRIBUTE, "member", DENIED_USER_DN));
+
+    batchInfo = synchronizeAllLdapGroups();
+    Assert.assertTrue(refreshedGroups.contains("admin"));
+    Assert.assertTrue(batchInfo.getGroupsToBeRemoved().isEmpty());
+    Assert.assertEquals(Collections.singleton(new LdapUserGroupMemberDto("admin", "denieduser")),
+        batchInfo.getMembershipToAdd());
+  }
+
+  private LdapBatchDto synchronizeAllLdapGroups() throws AmbariException {
+    refreshedGroups.clear();
+    LdapBatchDto batchInfo = populator.synchronizeAllLdapGroups(new LdapBatchDto());
+    populator.storeGroupsChangeMarker(batchInfo);
+    return batchInfo;
+  }
+
+  private User addInternalUser(String userName) {
+    User user = EasyMock.createNiceMock(User.class);
+    expect(user.getUserName()).andReturn(userName).anyTimes();
+    expect(user.isLdapUser()).andReturn(true).anyTimes();
+    EasyMock.replay(user);
+    internalUsers.add(user);
+    return user;
+  }
+
+  private void addInternalGroup(String groupName, User member) {
+    Group group = EasyMock.createNiceMock(Group.class);
+    expect(group.getGroupName()).andReturn(groupName).anyTimes();
+    expect(group.isLdapGroup()).andReturn(true).anyTimes();
+    EasyMock.replay(group);
+    internalGroups.add(group);
+    internalMembers.put(groupName, new ArrayList<>(Collections.singleton(member)));
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.serveraction.kerberos;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.utils.ShellCommandUtil;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link KAdminSessionPool} against a scripted fake kadmin.
+ */
+public class KAdminSessionPoolTest {
+
+  /**
+   * Answers like an interactive kadmin: prints a prompt before reading each request and reports
+   * unknown requests on STDERR. Every start is recorded in the file given as the first argument.
+   */
+  private static final String FAKE_KADMIN = "" +
+      "echo started >> \"$1\"\n" +
+      "if [ -n \"$2\" ]; then echo \"kadmin: $2 while initializing kadmin interface\" >&2; exit 1; fi\n" +
+      "echo \"Authenticating as principal admin/admin with password.\"\n" +
+      "while printf 'kadmin:  ' && read -r request principal; do\n" +
+      "  case \"$request\" in\n" +
+      "    add_principal) echo \"WARNING: no policy specified for $principal; defaulting to no policy\" >&2; echo \"Principal \\\"$principal\\\" created.\" ;;\n" +
+      "    get_principal) echo \"Principal: $principal\"; echo \"Key: vno 1\" ;;\n" +
+      "    delete_principal) echo \"delete_principal: Principal does not exist while deleting principal \\\"$principal\\\"\" >&2 ;;\n" +
+      "    crash) exit 3 ;;\n" +
+      "    quit) exit 0 ;;\n" +
+      "    *) echo \"kadmin: Unknown request \\\"$request\\\".  Type \\\"?\\\" for a request list.\" >&2 ;;\n" +
+      "  esac\n" +
+      "done\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File script;
+  private File starts;
+
+  @Before
+  public void setUp() throws Exception {
+    script = temporaryFolder.newFile("kadmin");
+    starts = temporaryFolder.newFile("starts");
+    FileUtils.writeStringToFile(script, FAKE_KADMIN, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Tests that queries are pipelined through a single kadmin process and that the output of each
+   * query, including what kadmin reported on STDERR, is returned.
+   */
+  @Test
+  public void testQueriesArePipelined() throws Exception {
+    try (KAdminSessionPool pool = createPool(1)) {
+      ShellCommandUtil.Result result = pool.execute("add_principal user1@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertTrue(result.getStdout().contains("Principal \"user1@EXAMPLE.COM\" created."));
+
+      result = pool.execute("get_principal user2@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals("Principal: user2@EXAMPLE.COM\nKey: vno 1\n", result.getStdout());
+
+      result = pool.execute("delete_principal user3@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertTrue(result.getStderr().contains("Principal does not exist"));
+      Assert.assertFalse(result.getStderr().contains(KAdminSessionPool.END_OF_QUERY_MARKER_PREFIX));
+
+      Assert.assertEquals(1, getStartCount());
+      Assert.assertEquals(1, pool.getIdleSessionCount());
+    }
+  }
+
+  /**
+   * Tests that what kadmin wrote to STDOUT and STDERR is returned apart, as it is when a query is
+   * sent to a new kadmin process, so that the messages callers look for are where they expect them.
+   */
+  @Test
+  public void testOutputStreamsAreKeptApart() throws Exception {
+    try (KAdminSessionPool pool = createPool(1)) {
+      ShellCommandUtil.Result result = pool.execute("add_principal user1@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals("Authenticating as principal admin/admin with password.\nPrincipal \"user1@EXAMPLE.COM\" created.\n",
+          result.getStdout());
+      Assert.assertEquals("WARNING: no policy specified for user1@EXAMPLE.COM; defaulting to no policy\n", result.getStderr());
+
+      result = pool.execute("delete_principal user2@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals("", result.getStdout());
+      Assert.assertEquals("delete_principal: Principal does not exist while deleting principal \"user2@EXAMPLE.COM\"\n",
+          result.getStderr());
+
+      result = pool.execute("get_principal user3@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals("Principal: user3@EXAMPLE.COM\nKey: vno 1\n", result.getStdout());
+      Assert.assertEquals("", result.getStderr());
+    }
+  }
+
+  /**
+   * Tests that a kadmin process which exits fails the query with its exit code and is replaced
+   * for the next query.
+   */
+  @Test
+  public void testExitedSessionIsReplaced() throws Exception {
+    try (KAdminSessionPool pool = createPool(1)) {
+      ShellCommandUtil.Result result = pool.execute("crash");
+      Assert.assertFalse(result.isSuccessful());
+      Assert.assertEquals(3, result.getExitCode());
+      Assert.assertEquals(0, pool.getIdleSessionCount());
+
+      result = pool.execute("get_principal user1@EXAMPLE.COM");
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals(2, getStartCount());
+    }
+  }
+
+  /**
+   * Tests that the error reported by a kadmin process failing to start is returned so that it
+   * can be translated to the relevant exception.
+   */
+  @Test
+  public void testInitializationFailure() throws Exception {
+    try (KAdminSessionPool pool = createPool(1, "Client not found in Kerberos database")) {
+      ShellCommandUtil.Result result = pool.execute("get_principal user1@EXAMPLE.COM");
+      Assert.assertFalse(result.isSuccessful());
+      Assert.assertEquals(1, result.getExitCode());
+      Assert.assertTrue(result.getStderr().contains("Client not found in Kerberos database while initializing kadmin interface"));
+    }
+  }
+
+  /**
+   * Tests that concurrent queries do not start more kadmin processes than the size of the pool.
+   */
+  @Test
+  public void testConcurrentQueries() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (KAdminSessionPool pool = createPool(2)) {
+      List<Future<ShellCommandUtil.Result>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        String principal = "user" + i + "@EXAMPLE.COM";
+        futures.add(executor.submit(() -> pool.execute("get_principal " + principal)));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        ShellCommandUtil.Result result = futures.get(i).get(30, TimeUnit.SECONDS);
+        // the first query of each kadmin process also carries its authentication banner
+        Assert.assertTrue(result.getStdout().endsWith("Principal: user" + i + "@EXAMPLE.COM\nKey: vno 1\n"));
+      }
+
+      Assert.assertTrue(getStartCount() <= 2);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private KAdminSessionPool createPool(int size, String... arguments) {
+    List<String> command = new ArrayList<>(Arrays.asList("/bin/sh", script.getAbsolutePath(), starts.getAbsolutePath()));
+    command.addAll(Arrays.asList(arguments));
+    return new KAdminSessionPool(command, Collections.singletonMap("KRB5CCNAME", "/tmp/ambari_test_cache"), size,
+        TimeUnit.SECONDS.toMillis(30));
+  }
+
+  private int getStartCount() throws Exception {
+    return FileUtils.readLines(starts, StandardCharsets.UTF_8).size();
+  }
+}
@@ -24,8 +24,10 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -55,6 +57,7 @@ import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.persist.UnitOfWork;
 
 import junit.framework.Assert;
 
@@ -130,6 +133,7 @@ public class KerberosServerActionTest extends EasyMockSupport {
         bind(AuditLogger.class).toInstance(createNiceMock(AuditLogger.class));
         bind(KerberosOperationHandlerFactory.class).toInstance(createMock(KerberosOperationHandlerFactory.class));
         bind(KerberosKeytabController.class).toInstance(kerberosKeytabController);
+        bind(UnitOfWork.class).toInstance(createNiceMock(UnitOfWork.class));
       }
     });
 
@@ -277,4 +281,32 @@ public class KerberosServerActionTest extends EasyMockSupport {
 
     verifyAll();
   }
+
+  @Test
+  public void testProcessIdentitiesConcurrently() throws Exception {
+    KerberosOperationHandler kerberosOperationHandler = createMock(KerberosOperationHandler.class);
+    replayAll();
+
+    List<ResolvedKerberosPrincipal> principals = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      principals.add(new ResolvedKerberosPrincipal(1L, "host" + i, "principal" + (i % 5), true, "/tmp", "SERVICE", "COMPONENT", "/tmp"));
+    }
+
+    ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<>();
+    Assert.assertNull(action.processIdentitiesConcurrently(principals, 4, kerberosOperationHandler,
+        Collections.emptyMap(), sharedMap));
+
+    Assert.assertEquals(5, sharedMap.size());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals("principal" + i, sharedMap.get("principal" + i));
+    }
+
+    sharedMap.put("FAIL", "true");
+    CommandReport report = action.processIdentitiesConcurrently(principals, 4, kerberosOperationHandler,
+        Collections.emptyMap(), sharedMap);
+    Assert.assertNotNull(report);
+    Assert.assertEquals(HostRoleStatus.FAILED.toString(), report.getStatus());
+
+    verifyAll();
+  }
 }
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.dao.AlertDefinitionDAO;
@@ -42,7 +43,9 @@ import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.ambari.server.state.alert.AlertDefinition;
 import org.apache.ambari.server.state.alert.AlertDefinitionHash;
+import org.apache.ambari.server.state.alert.PortSource;
 import org.apache.ambari.server.state.alert.Scope;
+import org.apache.ambari.server.state.alert.Source;
 import org.apache.ambari.server.state.alert.SourceType;
 import org.apache.commons.codec.binary.Hex;
 import org.easymock.EasyMock;
@@ -51,6 +54,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import com.google.common.collect.Sets;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -78,6 +82,7 @@ public class AlertDefinitionHashTest extends TestCase {
   private AlertDefinitionEntity m_hdfsService;
   AlertDefinitionEntity m_hdfsHost;
   private ConfigHelper m_configHelper;
+  private AtomicInteger m_findAllCount;
 
   /**
    *
@@ -182,20 +187,18 @@ public class AlertDefinitionHashTest extends TestCase {
     agentScoped.setScope(Scope.HOST);
     agentScoped.setScheduleInterval(1);
 
-    EasyMock.expect(
-        m_mockDao.findByServiceMaster(EasyMock.anyInt(),
-            (Set<String>) EasyMock.anyObject())).andReturn(
-        Collections.singletonList(m_hdfsService)).anyTimes();
-
-    EasyMock.expect(
-        m_mockDao.findByServiceComponent(EasyMock.anyInt(),
-            EasyMock.anyObject(String.class), EasyMock.anyObject(String.class))).andReturn(
-        Collections.singletonList(m_hdfsHost)).anyTimes();
-
     m_agentDefinitions = new ArrayList<>();
     m_agentDefinitions.add(agentScoped);
-    EasyMock.expect(m_mockDao.findAgentScoped(EasyMock.anyInt())).andReturn(
-        m_agentDefinitions).anyTimes();
+
+    m_findAllCount = new AtomicInteger();
+    EasyMock.expect(m_mockDao.findAll(EasyMock.anyLong())).andAnswer(() -> {
+      m_findAllCount.incrementAndGet();
+      List<AlertDefinitionEntity> definitions = new ArrayList<>();
+      definitions.add(m_hdfsService);
+      definitions.add(m_hdfsHost);
+      definitions.addAll(m_agentDefinitions);
+      return definitions;
+    }).anyTimes();
 
     EasyMock.replay(m_mockClusters, m_mockCluster, m_mockDao);
     m_hash = m_injector.getInstance(AlertDefinitionHash.class);
@@ -369,6 +372,59 @@ public class AlertDefinitionHashTest extends TestCase {
     assertEquals(expected, m_hash.getHash(CLUSTERNAME, HOSTNAME));
   }
 
+  /**
+   * Tests that registered and removed definitions change the definitions and
+   * hashes of the hosts without reloading the definitions of the cluster.
+   */
+  @Test
+  public void testRegisterAndRemoveDefinition() throws Exception {
+    String hash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+    assertEquals(3, m_hash.getAlertDefinitions(1L, HOSTNAME).size());
+    assertTrue(m_hash.findByServiceMaster(1L, "HDFS").isEmpty());
+
+    // service alerts run on the masters of the service
+    AlertDefinition hdfsMaster = createDefinition(4L, "HDFS", null, Scope.SERVICE, SourceType.PORT);
+    m_hash.registerDefinition(hdfsMaster);
+
+    // aggregates do not run on any host
+    m_hash.registerDefinition(createDefinition(5L, "HDFS", null, Scope.SERVICE, SourceType.AGGREGATE));
+
+    // the definitions of the new component
+    m_hash.registerDefinition(createDefinition(6L, "HDFS", "ZKFC", Scope.HOST, SourceType.PORT));
+
+    assertEquals(Collections.singleton(4L), m_hash.findByServiceMaster(1L, "HDFS").keySet());
+    assertEquals(Collections.singleton(6L), m_hash.findByServiceComponent(1L, "HDFS", "ZKFC").keySet());
+
+    m_hash.invalidateHosts(hdfsMaster);
+    String newHash = m_hash.getHash(CLUSTERNAME, HOSTNAME);
+    assertFalse(hash.equals(newHash));
+    assertEquals(Sets.newHashSet(1L, 2L, 3L, 4L), m_hash.getAlertDefinitions(1L, HOSTNAME).keySet());
+
+    m_hash.removeDefinition(hdfsMaster);
+    m_hash.invalidateHosts(hdfsMaster);
+    assertEquals(hash, m_hash.getHash(CLUSTERNAME, HOSTNAME));
+    assertTrue(m_hash.findByServiceMaster(1L, "HDFS").isEmpty());
+
+    assertEquals(1, m_findAllCount.get());
+  }
+
+  private AlertDefinition createDefinition(long definitionId, String serviceName, String componentName,
+      Scope scope, SourceType sourceType) {
+    Source source = new PortSource();
+    source.setType(sourceType);
+
+    AlertDefinition definition = new AlertDefinition();
+    definition.setDefinitionId(definitionId);
+    definition.setClusterId(1L);
+    definition.setName("definition_" + definitionId);
+    definition.setServiceName(serviceName);
+    definition.setComponentName(componentName);
+    definition.setScope(scope);
+    definition.setSource(source);
+    definition.setUuid(UUID.randomUUID().toString());
+    return definition;
+  }
+
   /**
    *
    */
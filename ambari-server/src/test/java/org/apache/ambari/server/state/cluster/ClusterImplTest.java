@@ -26,6 +26,8 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -49,6 +51,7 @@ import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.ServiceComponentHostTopology;
 import org.apache.ambari.server.state.StackId;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -268,6 +271,64 @@ public class ClusterImplTest {
 
   }
 
+  @Test
+  public void testServiceComponentHostTopology() throws Exception {
+    // Given
+    String clusterName = "TEST_CLUSTER_TOPOLOGY";
+    String hostName1 = "TOPOLOGY_HOST1", hostName2 = "TOPOLOGY_HOST2";
+
+    StackId stackId = new StackId("HDP-2.1.1");
+    ormTestHelper.createStack(stackId);
+
+    clusters.addCluster(clusterName, stackId);
+    Cluster cluster = clusters.getCluster(clusterName);
+
+    RepositoryVersionEntity repositoryVersion = ormTestHelper.getOrCreateRepositoryVersion(
+        stackId, "2.1.1-1234");
+
+    clusters.addHost(hostName1);
+    clusters.addHost(hostName2);
+
+    Host host1 = clusters.getHost(hostName1);
+    host1.setHostAttributes(ImmutableMap.of("os_family", "centos", "os_release_version", "6.0"));
+
+    Host host2 = clusters.getHost(hostName2);
+    host2.setHostAttributes(ImmutableMap.of("os_family", "centos", "os_release_version", "6.0"));
+
+    clusters.mapAndPublishHostsToCluster(Sets.newHashSet(hostName1, hostName2), clusterName);
+
+    Service hdfs = cluster.addService("HDFS", repositoryVersion);
+    ServiceComponent dataNode = hdfs.addServiceComponent("DATANODE");
+    dataNode.addServiceComponentHost(hostName1);
+
+    ServiceComponentHostTopology before = cluster.getServiceComponentHostTopology();
+
+    // Then: the snapshot is reused until the topology changes
+    assertSame(before, cluster.getServiceComponentHostTopology());
+    assertEquals(Collections.singleton(hostName1), before.getHostNames("HDFS", "DATANODE"));
+
+    // When
+    ServiceComponentHost dataNodeHost2 = dataNode.addServiceComponentHost(hostName2);
+
+    // Then
+    ServiceComponentHostTopology after = cluster.getServiceComponentHostTopology();
+    assertNotSame(before, after);
+    assertTrue(after.getVersion() > before.getVersion());
+    assertEquals(Sets.newHashSet(hostName1, hostName2), after.getHostNames("HDFS", "DATANODE"));
+    assertEquals(Collections.singletonList(dataNodeHost2), cluster.getServiceComponentHosts(hostName2));
+
+    // the earlier snapshot is unaffected by the change
+    assertEquals(Collections.singleton(hostName1), before.getHostNames("HDFS", "DATANODE"));
+    assertTrue(before.getServiceComponentHosts(hostName2).isEmpty());
+
+    // When
+    cluster.deleteService("HDFS", new DeleteHostComponentStatusMetaData());
+
+    // Then
+    assertTrue(cluster.getServiceComponentHostTopology().getServiceComponentHosts().isEmpty());
+    assertTrue(cluster.getServiceComponentHosts(hostName1).isEmpty());
+  }
+
   @Test
   public void testDeleteHost() throws Exception {
     // Given
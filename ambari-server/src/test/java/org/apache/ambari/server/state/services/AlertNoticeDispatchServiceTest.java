@@ -31,6 +31,7 @@ import java.lang.management.RuntimeMXBean;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -83,6 +84,7 @@ import org.snmp4j.smi.TimeTicks;
 import org.snmp4j.smi.VariableBinding;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -249,11 +251,10 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
   public void testDigestDispatch() throws Exception {
     MockEmailDispatcher dispatcher = new MockEmailDispatcher();
     List<AlertNoticeEntity> notices = getSingleMockNotice(dispatcher.getType());
-    AlertNoticeEntity notice = notices.get(0);
 
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("EMAIL")).andReturn(dispatcher).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).atLeastOnce();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(1).once();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
 
@@ -273,16 +274,20 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     assertTrue(notification.Subject.contains("OK[1]"));
     assertTrue(notification.Subject.contains("Critical[0]"));
     assertTrue(notification.Body.contains(ALERT_UNIQUE_TEXT));
+
+    MetricRegistry metrics = service.getMetricRegistry();
+    assertEquals(1, metrics.getTimers().get("alerts.notifications.dispatch").getCount());
+    assertEquals(1, metrics.getCounters().get("alerts.notifications.dispatched").getCount());
+    assertEquals(0, metrics.getGauges().get("alerts.notifications.backlog").getValue());
   }
 
   @Test
   public void testExceptionHandling() throws Exception {
     List<AlertNoticeEntity> notices = getSingleMockNotice("EMAIL");
-    AlertNoticeEntity notice = notices.get(0);
 
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("EMAIL")).andReturn(null).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).atLeastOnce();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(1).once();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
 
@@ -308,12 +313,9 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
 
     List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
-    AlertNoticeEntity notice1 = notices.get(0);
-    AlertNoticeEntity notice2 = notices.get(1);
 
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
-    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(2).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
@@ -342,12 +344,9 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     MockAmbariSnmpDispatcher dispatcher = new MockAmbariSnmpDispatcher();
 
     List<AlertNoticeEntity> notices = getSnmpMockNotices("AMBARI_SNMP");
-    AlertNoticeEntity notice1 = notices.get(0);
-    AlertNoticeEntity notice2 = notices.get(1);
 
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
-    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(2).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("AMBARI_SNMP")).andReturn(dispatcher).atLeastOnce();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
@@ -376,17 +375,14 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     AmbariSNMPDispatcher dispatcher = new AmbariSNMPDispatcher(8081);
 
     List<AlertNoticeEntity> notices = getSnmpMockNotices("AMBARI_SNMP");
-    AlertNoticeEntity notice1 = notices.get(0);
-    AlertNoticeEntity notice2 = notices.get(1);
 
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
-    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(2).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher("AMBARI_SNMP")).andReturn(dispatcher).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_2)).andReturn(notice2).once();
-    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dao.updateNotifyStateByUuids(Collections.singletonList(ALERT_NOTICE_UUID_1),
+        NotificationState.DELIVERED)).andReturn(1).once();
+    EasyMock.expect(m_dao.updateNotifyStateByUuids(Collections.singletonList(ALERT_NOTICE_UUID_2),
+        NotificationState.DELIVERED)).andReturn(1).once();
     EasyMock.replay(m_dao, m_dispatchFactory);
 
     // "startup" the service so that its initialization is done
@@ -446,9 +442,9 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
 
     // these expectations happen b/c we need to mark the notice as FAILED
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).once();
-    EasyMock.expect(m_dao.findNoticeByUuid(ALERT_NOTICE_UUID_1)).andReturn(notice).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).once();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(1).once();
+    EasyMock.expect(m_dao.updateNotifyStateByUuids(Collections.singletonList(ALERT_NOTICE_UUID_1),
+        NotificationState.FAILED)).andReturn(1).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher(dispatcher.getType())).andReturn(dispatcher).once();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
@@ -464,6 +460,7 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
 
     Notification notification = dispatcher.getNotification();
     assertNull(notification);
+    assertEquals(1, service.getMetricRegistry().getCounters().get("alerts.notifications.failed").getCount());
   }
 
   /**
@@ -481,7 +478,7 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
 
     // these expectations happen b/c we need to mark the notice as FAILED
     EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
-    EasyMock.expect(m_dao.merge(notice)).andReturn(notice).atLeastOnce();
+    EasyMock.expect(m_dao.updateNotifyState(EasyMock.anyObject(), EasyMock.eq(NotificationState.DISPATCHED))).andReturn(1).once();
     EasyMock.expect(m_dispatchFactory.getDispatcher(dispatcher.getType())).andReturn(dispatcher).once();
 
     EasyMock.replay(m_dao, m_dispatchFactory);
@@ -19,7 +19,13 @@ package org.apache.ambari.server.state.services;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -41,6 +47,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -291,6 +298,209 @@ public class MetricsRetrievalServiceTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that requests for a host which already has the maximum number of
+   * outstanding requests wait until one of them completes.
+   */
+  @Test
+  public void testMaxRequestsPerHost() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY_MAX.getKey(), "1");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(), "1");
+
+    String otherUrl = JMX_URL + "/jmx?qry=java.lang:type=Memory";
+
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }", StandardCharsets.UTF_8)).once();
+    EasyMock.expect(streamProvider.readFrom(otherUrl)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }", StandardCharsets.UTF_8)).once();
+
+    replayAll();
+
+    m_service.startAsync();
+    m_service.awaitRunning(METRICS_SERVICE_TIMEOUT, TimeUnit.SECONDS);
+
+    final List<Runnable> submitted = holdSubmittedRequests();
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, otherUrl);
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, otherUrl);
+    Assert.assertEquals(1, submitted.size());
+
+    MetricRegistry registry = m_service.getMetricRegistry();
+    Assert.assertEquals(1,
+        registry.counter(MetricsRetrievalService.HOST_QUEUED_METRIC).getCount());
+    Assert.assertEquals(1,
+        registry.getGauges().get(MetricsRetrievalService.HOST_WAITING_METRIC).getValue());
+
+    // completing the outstanding request hands its place to the waiting one
+    submitted.remove(0).run();
+    Assert.assertNotNull(m_service.getCachedJMXMetric(JMX_URL));
+    Assert.assertEquals(1, submitted.size());
+    Assert.assertEquals(0,
+        registry.getGauges().get(MetricsRetrievalService.HOST_WAITING_METRIC).getValue());
+
+    submitted.remove(0).run();
+    Assert.assertNotNull(m_service.getCachedJMXMetric(otherUrl));
+    Assert.assertEquals(2, registry.timer(MetricsRetrievalService.JMX_LATENCY_METRIC).getCount());
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that the maximum number of requests per host is raised so that all
+   * scoped JMX queries of a component can be outstanding at once.
+   */
+  @Test
+  public void testMaxRequestsPerHostCoversScopedBeans() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY_MAX.getKey(), "2");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(), "4");
+
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    replayAll();
+
+    m_service.startAsync();
+    m_service.awaitRunning(METRICS_SERVICE_TIMEOUT, TimeUnit.SECONDS);
+
+    List<Runnable> submitted = holdSubmittedRequests();
+    for (int i = 0; i < 5; i++) {
+      m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL + "/jmx?qry=bean" + i);
+    }
+
+    Assert.assertEquals(4, submitted.size());
+    Assert.assertEquals(1, m_service.getMetricRegistry().counter(
+        MetricsRetrievalService.HOST_QUEUED_METRIC).getCount());
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that dropping a request from the full worker queue also drops the
+   * requests waiting for its host, and that all of them can be requested
+   * again.
+   */
+  @Test
+  public void testDiscardReleasesWaitingRequests() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY_MAX.getKey(), "1");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_JMX_SCOPED_QUERY_MAX_BEANS.getKey(), "1");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(), "false");
+
+    String otherUrl = JMX_URL + "/jmx?qry=java.lang:type=Memory";
+    String otherHostUrl = "http://otherhost:50070/jmx";
+
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(otherHostUrl)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }", StandardCharsets.UTF_8)).once();
+    EasyMock.expect(streamProvider.readFrom(otherUrl)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }", StandardCharsets.UTF_8)).once();
+
+    replayAll();
+
+    m_service.startAsync();
+    m_service.awaitRunning(METRICS_SERVICE_TIMEOUT, TimeUnit.SECONDS);
+
+    // a worker queue with room for a single request and no threads to run it
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(1)) {
+      @Override
+      public void execute(Runnable command) {
+        if (!getQueue().offer(command)) {
+          getRejectedExecutionHandler().rejectedExecution(command, this);
+        }
+      }
+    };
+    m_service.setThreadPoolExecutor(executor);
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, otherUrl);
+
+    // the oldest request is dropped for the other host's, along with the
+    // request waiting for its host
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, otherHostUrl);
+
+    MetricRegistry registry = m_service.getMetricRegistry();
+    Assert.assertEquals(2, registry.counter(MetricsRetrievalService.DISCARDED_METRIC).getCount());
+    Assert.assertEquals(0,
+        registry.getGauges().get(MetricsRetrievalService.HOST_WAITING_METRIC).getValue());
+    Assert.assertEquals(1, executor.getQueue().size());
+
+    executor.getQueue().poll().run();
+    Assert.assertNotNull(m_service.getCachedJMXMetric(otherHostUrl));
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, otherUrl);
+    Assert.assertEquals(1, executor.getQueue().size());
+    executor.getQueue().poll().run();
+    Assert.assertNotNull(m_service.getCachedJMXMetric(otherUrl));
+
+    verifyAll();
+  }
+
+  /**
+   * Replaces the service's executor with one which holds on to the submitted
+   * requests instead of running them.
+   *
+   * @return the submitted requests
+   */
+  private List<Runnable> holdSubmittedRequests() {
+    final List<Runnable> submitted = new ArrayList<>();
+    m_service.setThreadPoolExecutor(
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) {
+          @Override
+          public void execute(Runnable command) {
+            submitted.add(command);
+          }
+        });
+
+    return submitted;
+  }
+
+  /**
+   * Tests that timeouts are counted separately from other failures and that a
+   * URL which timed out can be requested again.
+   */
+  @Test
+  public void testTimeoutStatistics() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(), "false");
+
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(REST_URL)).andThrow(
+        new SocketTimeoutException("Read timed out")).once();
+    EasyMock.expect(streamProvider.readFrom(REST_URL)).andThrow(new IOException()).once();
+    EasyMock.expect(streamProvider.readFrom(REST_URL)).andReturn(IOUtils.toInputStream("{}", StandardCharsets.UTF_8)).once();
+
+    replayAll();
+
+    m_service.startAsync();
+    m_service.awaitRunning(METRICS_SERVICE_TIMEOUT, TimeUnit.SECONDS);
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    for (int i = 0; i < 3; i++) {
+      m_service.submitRequest(MetricSourceType.REST, streamProvider, REST_URL);
+    }
+
+    MetricRegistry registry = m_service.getMetricRegistry();
+    Assert.assertEquals(1, registry.counter(MetricsRetrievalService.TIMEOUTS_METRIC).getCount());
+    Assert.assertEquals(1, registry.counter(MetricsRetrievalService.FAILURES_METRIC).getCount());
+    Assert.assertEquals(1, registry.timer(MetricsRetrievalService.REST_LATENCY_METRIC).getCount());
+    Assert.assertNotNull(m_service.getCachedRESTMetric(REST_URL));
+
+    verifyAll();
+  }
+
   /**
    *
    */
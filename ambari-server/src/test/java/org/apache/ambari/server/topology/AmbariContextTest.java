@@ -43,6 +43,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.ClusterRequest;
@@ -77,6 +80,7 @@ import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.configgroup.ConfigGroup;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -436,6 +440,138 @@ public class AmbariContextTest {
     assertEquals(requestsCapture.getValue().size(), 2);
   }
 
+  /**
+   * Tests that the resources of hosts which queue up while host resources are being created are
+   * created together in a single batch.
+   */
+  @Test
+  public void testCreateAmbariHostResourcesInBatches() throws Exception {
+    final String host3 = "host3";
+    expect(clusters.getHost(host3)).andReturn(host2).anyTimes();
+    expect(cluster.getService("service1")).andReturn(mockService1).anyTimes();
+
+    Field pendingHostResourcesField = AmbariContext.class.getDeclaredField("pendingHostResources");
+    pendingHostResourcesField.setAccessible(true);
+    final Collection<?> pendingHostResources = (Collection<?>) pendingHostResourcesField.get(context);
+
+    Capture<Request> hostRequestsCapture = EasyMock.newCapture(CaptureType.ALL);
+    hostResourceProvider.createHosts(capture(hostRequestsCapture));
+    // the first host is created alone; wait for the other two hosts to queue up behind it
+    expectLastCall().andAnswer(() -> {
+      while (pendingHostResources.size() < 2) {
+        Thread.sleep(10);
+      }
+      return null;
+    }).once();
+    hostResourceProvider.createHosts(capture(hostRequestsCapture));
+    expectLastCall().once();
+
+    Capture<Set<ServiceComponentHostRequest>> requestsCapture = EasyMock.newCapture(CaptureType.ALL);
+    controller.createHostComponents(capture(requestsCapture));
+    expectLastCall().times(2);
+
+    replayAll();
+
+    // test
+    final Map<String, Collection<String>> componentsMap = new HashMap<>();
+    componentsMap.put("service1", Arrays.asList("component1", "component2"));
+
+    Thread firstHost = new Thread(() -> context.createAmbariHostResources(CLUSTER_ID, HOST1, componentsMap));
+    firstHost.start();
+    while (pendingHostResources.isEmpty() && hostRequestsCapture.getValues().isEmpty()) {
+      Thread.sleep(10);
+    }
+
+    Thread secondHost = new Thread(() -> context.createAmbariHostResources(CLUSTER_ID, HOST2, componentsMap));
+    Thread thirdHost = new Thread(() -> context.createAmbariHostResources(CLUSTER_ID, host3, componentsMap));
+    secondHost.start();
+    thirdHost.start();
+    firstHost.join();
+    secondHost.join();
+    thirdHost.join();
+
+    verify(hostResourceProvider);
+    assertEquals(1, hostRequestsCapture.getValues().get(0).getProperties().size());
+    assertEquals(2, hostRequestsCapture.getValues().get(1).getProperties().size());
+    assertEquals(2, requestsCapture.getValues().get(0).size());
+    assertEquals(4, requestsCapture.getValues().get(1).size());
+    assertTrue(pendingHostResources.isEmpty());
+  }
+
+  /**
+   * Tests that the hosts of a batch are reported as failed when creating their host components
+   * throws something unchecked, rather than being taken for created by the callers waiting for them.
+   */
+  @Test
+  public void testCreateAmbariHostResourcesInBatchesUncheckedFailure() throws Exception {
+    final String host3 = "host3";
+    expect(clusters.getHost(host3)).andReturn(host2).anyTimes();
+    expect(cluster.getService("service1")).andReturn(mockService1).anyTimes();
+
+    Field pendingHostResourcesField = AmbariContext.class.getDeclaredField("pendingHostResources");
+    pendingHostResourcesField.setAccessible(true);
+    final Collection<?> pendingHostResources = (Collection<?>) pendingHostResourcesField.get(context);
+    final CountDownLatch firstHostCreating = new CountDownLatch(1);
+
+    hostResourceProvider.createHosts(anyObject(Request.class));
+    // the first host is created alone; wait for the other two hosts to queue up behind it
+    expectLastCall().andAnswer(() -> {
+      firstHostCreating.countDown();
+      while (pendingHostResources.size() < 2) {
+        Thread.sleep(10);
+      }
+      return null;
+    }).once();
+    hostResourceProvider.createHosts(anyObject(Request.class));
+    expectLastCall().once();
+
+    controller.createHostComponents(anyObject());
+    expectLastCall().once();
+    controller.createHostComponents(anyObject());
+    expectLastCall().andThrow(new NoClassDefFoundError("org/example/Missing")).once();
+
+    replayAll();
+
+    // test
+    final Map<String, Collection<String>> componentsMap = new HashMap<>();
+    componentsMap.put("service1", Arrays.asList("component1", "component2"));
+    final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+    Thread firstHost = createHostResourcesThread(HOST1, componentsMap, failures);
+    firstHost.start();
+    assertTrue(firstHostCreating.await(30, TimeUnit.SECONDS));
+
+    Thread secondHost = createHostResourcesThread(HOST2, componentsMap, failures);
+    Thread thirdHost = createHostResourcesThread(host3, componentsMap, failures);
+    secondHost.start();
+    thirdHost.start();
+    firstHost.join();
+    secondHost.join();
+    thirdHost.join();
+
+    verify(controller);
+    assertFalse(failures.containsKey(HOST1));
+    assertEquals(new HashSet<>(Arrays.asList(HOST2, host3)), failures.keySet());
+
+    // the error surfaces on the thread which created the batch, the other host is failed
+    Throwable secondFailure = failures.get(HOST2);
+    Throwable thirdFailure = failures.get(host3);
+    assertTrue(secondFailure instanceof NoClassDefFoundError ^ thirdFailure instanceof NoClassDefFoundError);
+    assertTrue(secondFailure instanceof RuntimeException ^ thirdFailure instanceof RuntimeException);
+    assertTrue(pendingHostResources.isEmpty());
+  }
+
+  private Thread createHostResourcesThread(final String hostName, final Map<String, Collection<String>> componentsMap,
+                                           final Map<String, Throwable> failures) {
+    return new Thread(() -> {
+      try {
+        context.createAmbariHostResources(CLUSTER_ID, hostName, componentsMap);
+      } catch (Throwable t) {
+        failures.put(hostName, t);
+      }
+    });
+  }
+
   @Test
   public void testRegisterHostWithConfigGroup_createNewConfigGroup() throws Exception {
     // test specific expectations
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.server.controller.internal.HostResourceProvider;
+import org.apache.ambari.server.controller.internal.ProvisionAction;
+import org.apache.ambari.server.controller.spi.Predicate;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostHealthStatus;
+import org.easymock.EasyMockSupport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link OutstandingHostRequests}.
+ */
+public class OutstandingHostRequestsTest extends EasyMockSupport {
+
+  private static final int HOST_COUNT = 500;
+
+  private final AtomicInteger evaluations = new AtomicInteger();
+
+  /**
+   * Accepts hosts in rack r1 and counts its evaluations.
+   */
+  private final Predicate rackPredicate = resource -> {
+    evaluations.incrementAndGet();
+    return "/r1".equals(resource.getPropertyValue(HostResourceProvider.HOST_RACK_INFO_PROPERTY_ID));
+  };
+
+  private ClusterTopology topology;
+  private HostGroup rackGroup;
+  private HostGroup anyGroup;
+  private HostGroup masterGroup;
+
+  @Before
+  public void setUp() throws Exception {
+    topology = createNiceMock(ClusterTopology.class);
+    expect(topology.getProvisionAction()).andReturn(ProvisionAction.INSTALL_ONLY).anyTimes();
+
+    rackGroup = createHostGroup("rack_group", false);
+    anyGroup = createHostGroup("any_group", false);
+    masterGroup = createHostGroup("master_group", true);
+    replayAll();
+  }
+
+  /**
+   * Tests that the predicate of host requests sharing a host group and predicate is evaluated
+   * once per host offer rather than once per host request.
+   */
+  @Test
+  public void testPredicateIsEvaluatedOncePerHostGroup() throws Exception {
+    OutstandingHostRequests hostRequests = new OutstandingHostRequests();
+    for (int i = 0; i < HOST_COUNT; i++) {
+      hostRequests.add(createHostRequest(i, rackGroup, rackPredicate));
+    }
+    hostRequests.add(createHostRequest(HOST_COUNT, anyGroup, null));
+
+    // declined by every request of the rack group, accepted by the request of the other group
+    HostOfferResponse response = hostRequests.offer(createHost("host1", "/r2"));
+    Assert.assertEquals(HostOfferResponse.Answer.ACCEPTED, response.getAnswer());
+    Assert.assertEquals("any_group", response.getHostGroupName());
+    Assert.assertEquals(1, evaluations.get());
+    Assert.assertEquals(HOST_COUNT, hostRequests.size());
+
+    response = hostRequests.offer(createHost("host2", "/r2"));
+    Assert.assertEquals(HostOfferResponse.Answer.DECLINED_PREDICATE, response.getAnswer());
+    Assert.assertEquals(2, evaluations.get());
+
+    for (int i = 0; i < HOST_COUNT; i++) {
+      response = hostRequests.offer(createHost("rack_host" + i, "/r1"));
+      Assert.assertEquals(HostOfferResponse.Answer.ACCEPTED, response.getAnswer());
+    }
+    Assert.assertEquals(2 + HOST_COUNT, evaluations.get());
+    Assert.assertTrue(hostRequests.isEmpty());
+
+    response = hostRequests.offer(createHost("host3", "/r1"));
+    Assert.assertEquals(HostOfferResponse.Answer.DECLINED_DONE, response.getAnswer());
+  }
+
+  /**
+   * Tests that host requests of host groups containing a master component are offered hosts first.
+   */
+  @Test
+  public void testMasterHostRequestsArePreferred() throws Exception {
+    OutstandingHostRequests hostRequests = new OutstandingHostRequests();
+    hostRequests.add(createHostRequest(1, anyGroup, null));
+    hostRequests.add(createHostRequest(2, masterGroup, null));
+
+    HostOfferResponse response = hostRequests.offer(createHost("host1", "/r1"));
+    Assert.assertEquals("master_group", response.getHostGroupName());
+
+    response = hostRequests.offer(createHost("host2", "/r1"));
+    Assert.assertEquals("any_group", response.getHostGroupName());
+  }
+
+  /**
+   * Tests that host requests removed through the iterator are no longer offered hosts.
+   */
+  @Test
+  public void testRemovedHostRequestsAreNotOffered() throws Exception {
+    OutstandingHostRequests hostRequests = new OutstandingHostRequests();
+    hostRequests.add(createHostRequest(1, anyGroup, null));
+    hostRequests.add(createHostRequest(2, rackGroup, rackPredicate));
+
+    Iterator<HostRequest> iterator = hostRequests.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getHostgroupName().equals("any_group")) {
+        iterator.remove();
+      }
+    }
+
+    Assert.assertEquals(1, hostRequests.size());
+    HostOfferResponse response = hostRequests.offer(createHost("host1", "/r2"));
+    Assert.assertEquals(HostOfferResponse.Answer.DECLINED_PREDICATE, response.getAnswer());
+
+    hostRequests.clear();
+    response = hostRequests.offer(createHost("host1", "/r1"));
+    Assert.assertEquals(HostOfferResponse.Answer.DECLINED_DONE, response.getAnswer());
+  }
+
+  private HostGroup createHostGroup(String name, boolean containsMaster) {
+    HostGroup hostGroup = createNiceMock(HostGroup.class);
+    expect(hostGroup.getName()).andReturn(name).anyTimes();
+    expect(hostGroup.containsMasterComponent()).andReturn(containsMaster).anyTimes();
+    expect(hostGroup.getComponentNames()).andReturn(Collections.emptySet()).anyTimes();
+    expect(hostGroup.getComponentNames(anyObject(ProvisionAction.class))).andReturn(Collections.emptySet()).anyTimes();
+    return hostGroup;
+  }
+
+  private HostRequest createHostRequest(long id, HostGroup hostGroup, Predicate predicate) {
+    return new HostRequest(1L, id, 1L, null, "blueprint", hostGroup, predicate, topology, false);
+  }
+
+  private Host createHost(String hostName, String rack) {
+    Host host = createNiceMock(Host.class);
+    expect(host.getHostName()).andReturn(hostName).anyTimes();
+    expect(host.getRackInfo()).andReturn(rack).anyTimes();
+    expect(host.getHealthStatus()).andReturn(new HostHealthStatus(HostHealthStatus.HealthStatus.HEALTHY, "")).anyTimes();
+    replay(host);
+    return host;
+  }
+}
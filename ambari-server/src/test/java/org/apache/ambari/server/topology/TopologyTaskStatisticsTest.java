@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import java.util.Map;
+
+import org.apache.ambari.server.topology.tasks.TopologyTask;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link TopologyTaskStatistics}.
+ */
+public class TopologyTaskStatisticsTest {
+
+  @Test
+  public void testSummary() throws Exception {
+    TopologyTaskStatistics statistics = new TopologyTaskStatistics();
+    Assert.assertTrue(statistics.getSummary().isEmpty());
+
+    // two overlapping install tasks, one of which fails
+    long firstStart = statistics.taskStarted(TopologyTask.Type.INSTALL);
+    long secondStart = statistics.taskStarted(TopologyTask.Type.INSTALL);
+    Thread.sleep(10);
+    statistics.taskFinished(TopologyTask.Type.INSTALL, firstStart, true);
+    statistics.taskFinished(TopologyTask.Type.INSTALL, secondStart, false);
+
+    // a start task which is still running
+    statistics.taskStarted(TopologyTask.Type.START);
+
+    Map<String, Map<String, Object>> summary = statistics.getSummary();
+    Assert.assertEquals(2, summary.size());
+
+    Map<String, Object> install = summary.get(TopologyTask.Type.INSTALL.name());
+    Assert.assertEquals(1, install.get(TopologyTaskStatistics.COMPLETED));
+    Assert.assertEquals(1, install.get(TopologyTaskStatistics.FAILED));
+    Assert.assertEquals(0, install.get(TopologyTaskStatistics.IN_PROGRESS));
+    Assert.assertEquals(2, install.get(TopologyTaskStatistics.PEAK_PARALLELISM));
+    Assert.assertTrue((Long) install.get(TopologyTaskStatistics.AVERAGE_DURATION_MS) >= 10);
+    Assert.assertTrue((Double) install.get(TopologyTaskStatistics.TASKS_PER_SECOND) > 0);
+    Assert.assertTrue((Double) install.get(TopologyTaskStatistics.AVERAGE_PARALLELISM) > 1.0);
+
+    Map<String, Object> start = summary.get(TopologyTask.Type.START.name());
+    Assert.assertEquals(0, start.get(TopologyTaskStatistics.COMPLETED));
+    Assert.assertEquals(1, start.get(TopologyTaskStatistics.IN_PROGRESS));
+    Assert.assertEquals(0.0, start.get(TopologyTaskStatistics.TASKS_PER_SECOND));
+  }
+}
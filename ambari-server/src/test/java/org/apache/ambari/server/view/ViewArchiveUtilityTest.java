@@ -18,15 +18,24 @@
 
 package org.apache.ambari.server.view;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * ViewArchiveUtility tests.
  */
 public class ViewArchiveUtilityTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void testValidateConfig() throws Exception {
     ViewArchiveUtility utility = new ViewArchiveUtility();
@@ -35,4 +44,26 @@ public class ViewArchiveUtilityTest {
 
     utility.validateConfig(configStream);
   }
+
+  @Test
+  public void testArchiveChecksum() throws Exception {
+    ViewArchiveUtility utility = new ViewArchiveUtility();
+
+    File archive = temporaryFolder.newFile("view.jar");
+    Files.write(archive.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+    String checksum = utility.getArchiveChecksum(archive);
+
+    File archiveDir = temporaryFolder.newFolder("MY_VIEW{1.0.0}");
+    Assert.assertNull(utility.getExtractedArchiveChecksum(archiveDir));
+
+    utility.setExtractedArchiveChecksum(archiveDir, checksum);
+    Assert.assertEquals(checksum, utility.getExtractedArchiveChecksum(archiveDir));
+
+    // the checksum only depends on the archive content
+    Assert.assertTrue(archive.setLastModified(archive.lastModified() + 10000L));
+    Assert.assertEquals(checksum, utility.getArchiveChecksum(archive));
+
+    Files.write(archive.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+    Assert.assertFalse(checksum.equals(utility.getArchiveChecksum(archive)));
+  }
 }
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.view;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.view.ViewConcurrencyLimiter.Admission;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link ViewConcurrencyLimiter}.
+ */
+public class ViewConcurrencyLimiterTest {
+
+  private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * Tests that requests over the limit wait in the queue until their deadline,
+   * and that requests which find the queue full are rejected right away.
+   */
+  @Test
+  public void testQueue() throws Exception {
+    final ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(1, 1, 10, 1);
+    Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(Admission.TIMED_OUT, limiter.acquire(10, TimeUnit.MILLISECONDS));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Admission> waiting = executor.submit(() -> limiter.acquire(30, TimeUnit.SECONDS));
+      while (limiter.getQueueSize() == 0) {
+        Thread.sleep(10);
+      }
+
+      Assert.assertEquals(Admission.QUEUE_FULL, limiter.acquire(30, TimeUnit.SECONDS));
+
+      limiter.release(MILLISECOND);
+      Assert.assertEquals(Admission.ACQUIRED, waiting.get(30, TimeUnit.SECONDS));
+      Assert.assertEquals(0, limiter.getQueueSize());
+      Assert.assertEquals(1, limiter.getInFlight());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that the limit grows while requests are healthy and had to wait, and
+   * shrinks once their latency grows.
+   */
+  @Test
+  public void testAdaptiveLimit() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(2, 1, 4, 0);
+
+    // healthy requests which are not limited leave the limit alone
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(10 * MILLISECOND);
+    }
+    Assert.assertEquals(2, limiter.getLimit());
+
+    // healthy requests which hit the limit grow it up to the maximum
+    for (int i = 0; i < 5; i++) {
+      int acquired = 0;
+      while (limiter.acquire(0, TimeUnit.MILLISECONDS) == Admission.ACQUIRED) {
+        acquired++;
+      }
+
+      for (int j = 0; j < acquired; j++) {
+        limiter.release(10 * MILLISECOND);
+      }
+    }
+    Assert.assertEquals(4, limiter.getLimit());
+
+    // slow requests shrink the limit down to the minimum
+    for (int i = 0; i < 50; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(100 * MILLISECOND);
+    }
+    Assert.assertEquals(1, limiter.getLimit());
+  }
+
+  /**
+   * Tests that a single unusually fast request does not make the requests
+   * after it shrink the limit.
+   */
+  @Test
+  public void testFastOutlier() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(4, 1, 4, 0);
+
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(i == 10 ? MILLISECOND / 10 : 10 * MILLISECOND);
+    }
+    Assert.assertEquals(4, limiter.getLimit());
+  }
+
+  /**
+   * Tests that the long-window latency follows a view instance whose requests
+   * became slower for good, so that its limit can grow again.
+   */
+  @Test
+  public void testLongWindowFollowsSlowerRequests() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(4, 1, 4, 0);
+
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(10 * MILLISECOND);
+    }
+
+    // the requests become slower and shrink the limit
+    for (int i = 0; i < ViewConcurrencyLimiter.LONG_WINDOW; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(100 * MILLISECOND);
+    }
+    Assert.assertEquals(1, limiter.getLimit());
+
+    // once the long window caught up, requests which hit the limit grow it again
+    for (int i = 0; i < 5; i++) {
+      int acquired = 0;
+      while (limiter.acquire(0, TimeUnit.MILLISECONDS) == Admission.ACQUIRED) {
+        acquired++;
+      }
+
+      for (int j = 0; j < acquired; j++) {
+        limiter.release(100 * MILLISECOND);
+      }
+    }
+    Assert.assertEquals(4, limiter.getLimit());
+  }
+
+  /**
+   * Tests that a healthy view instance serving both fast and slow requests is
+   * not considered overloaded, so that its limit grows while requests wait.
+   */
+  @Test
+  public void testMixedFastAndSlowRequests() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(4, 1, 8, 0);
+
+    // every fourth request is a slow one, like a download among listings
+    int released = 0;
+    int lowestLimit = Integer.MAX_VALUE;
+    for (int i = 0; i < 300; i++) {
+      int acquired = 0;
+      while (limiter.acquire(0, TimeUnit.MILLISECONDS) == Admission.ACQUIRED) {
+        acquired++;
+      }
+
+      for (int j = 0; j < acquired; j++) {
+        limiter.release(released++ % 4 == 0 ? 200 * MILLISECOND : 2 * MILLISECOND);
+      }
+
+      if (released > ViewConcurrencyLimiter.LONG_WINDOW) {
+        lowestLimit = Math.min(lowestLimit, limiter.getLimit());
+      }
+    }
+
+    Assert.assertEquals(8, limiter.getLimit());
+    Assert.assertEquals(8, lowestLimit);
+  }
+
+  /**
+   * Tests that the requests which were in flight when the limit was decreased
+   * do not decrease it again.
+   */
+  @Test
+  public void testDecreaseOncePerRound() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(4, 1, 4, 0);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+      limiter.release(10 * MILLISECOND);
+    }
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+    }
+    for (int i = 0; i < 4; i++) {
+      limiter.release(1000 * MILLISECOND);
+    }
+    Assert.assertEquals(3, limiter.getLimit());
+  }
+
+  /**
+   * Tests that a cancelled request frees its slot without changing the limit.
+   */
+  @Test
+  public void testCancel() throws Exception {
+    ViewConcurrencyLimiter limiter = new ViewConcurrencyLimiter(1, 1, 10, 0);
+    Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(Admission.QUEUE_FULL, limiter.acquire(0, TimeUnit.MILLISECONDS));
+
+    limiter.cancel();
+    Assert.assertEquals(0, limiter.getInFlight());
+    Assert.assertEquals(1, limiter.getLimit());
+    Assert.assertEquals(Admission.ACQUIRED, limiter.acquire(0, TimeUnit.MILLISECONDS));
+  }
+}
@@ -138,6 +138,49 @@ public class ViewExtractorTest {
     ViewExtractor viewExtractor = getViewExtractor(viewDefinition);
     viewExtractor.extractViewArchive(viewDefinition, viewArchive, archiveDir);
 
+    verify(extractedArchiveDir, viewArchive, archiveDir, entryFile, classesDir, libDir, metaInfDir, viewJarFile,
+        jarEntry, fos, configuration, viewDir, fileEntry, viewDAO);
+
+    Assert.assertEquals("checksum", viewExtractor.archiveUtility.getExtractedArchiveChecksum(archiveDir));
+  }
+
+  @Test
+  public void testExtractViewArchive_unchanged() throws Exception {
+
+    ResourceTypeEntity resourceTypeEntity = new ResourceTypeEntity();
+    resourceTypeEntity.setId(10);
+    resourceTypeEntity.setName("MY_VIEW{1.0.0}");
+
+    ViewEntity viewDefinition = ViewEntityTest.getViewEntity();
+    viewDefinition.setResourceType(resourceTypeEntity);
+
+    // set expectations
+    if (System.getProperty("os.name").contains("Windows")) {
+      expect(viewArchive.getAbsolutePath()).andReturn("\\var\\lib\\ambari-server\\resources\\views\\work\\MY_VIEW{1.0.0}").anyTimes();
+      expect(archiveDir.getAbsolutePath()).andReturn("\\var\\lib\\ambari-server\\resources\\views\\work\\MY_VIEW{1.0.0}").anyTimes();
+    }
+    else {
+      expect(viewArchive.getAbsolutePath()).andReturn("/var/lib/ambari-server/resources/views/work/MY_VIEW{1.0.0}").anyTimes();
+      expect(archiveDir.getAbsolutePath()).andReturn("/var/lib/ambari-server/resources/views/work/MY_VIEW{1.0.0}").anyTimes();
+    }
+
+    // the archive was completely extracted before, so it is not extracted again
+    expect(archiveDir.exists()).andReturn(true).anyTimes();
+    expect(archiveDir.toURI()).andReturn(new URI("file:./"));
+
+    expect(classesDir.exists()).andReturn(true);
+    expect(classesDir.toURI()).andReturn(new URI("file:./"));
+
+    expect(libDir.exists()).andReturn(false);
+
+    replay(extractedArchiveDir, viewArchive, archiveDir, entryFile, classesDir, libDir, metaInfDir, viewJarFile,
+        jarEntry, fos, configuration, viewDir, fileEntry, viewDAO);
+
+    ViewExtractor viewExtractor = getViewExtractor(viewDefinition);
+    viewExtractor.archiveUtility.setExtractedArchiveChecksum(archiveDir, "checksum");
+
+    Assert.assertNotNull(viewExtractor.extractViewArchive(viewDefinition, viewArchive, archiveDir));
+
     verify(extractedArchiveDir, viewArchive, archiveDir, entryFile, classesDir, libDir, metaInfDir, viewJarFile,
         jarEntry, fos, configuration, viewDir, fileEntry, viewDAO);
   }
@@ -250,6 +293,7 @@ public class ViewExtractorTest {
     private final Map<String, File> files;
     private final Map<File, FileOutputStream> outputStreams;
     private final Map<File, JarInputStream> jarFiles;
+    private final Map<File, String> extractedArchiveChecksums = new HashMap<>();
 
     public TestViewArchiveUtility(Map<File, ViewConfig> viewConfigs, Map<String, File> files, Map<File,
         FileOutputStream> outputStreams, Map<File, JarInputStream> jarFiles) {
@@ -289,5 +333,20 @@ public class ViewExtractorTest {
     public JarInputStream getJarFileStream(File file) throws IOException {
       return jarFiles.get(file);
     }
+
+    @Override
+    public String getArchiveChecksum(File archiveFile) {
+      return "checksum";
+    }
+
+    @Override
+    public String getExtractedArchiveChecksum(File archiveDir) {
+      return extractedArchiveChecksums.get(archiveDir);
+    }
+
+    @Override
+    public void setExtractedArchiveChecksum(File archiveDir, String checksum) {
+      extractedArchiveChecksums.put(archiveDir, checksum);
+    }
   }
 }
@@ -1709,6 +1709,7 @@ public class ViewRegistryTest {
     private final Map<String, File> files;
     private final Map<File, FileOutputStream> outputStreams;
     private final Map<File, JarInputStream> jarFiles;
+    private final Map<File, String> extractedArchiveChecksums = new HashMap<>();
     private final boolean badArchive;
     private boolean deploymentFailed = false;
 
@@ -1761,6 +1762,21 @@ public class ViewRegistryTest {
       return jarFiles.get(file);
     }
 
+    @Override
+    public String getArchiveChecksum(File archiveFile) {
+      return "checksum";
+    }
+
+    @Override
+    public String getExtractedArchiveChecksum(File archiveDir) {
+      return extractedArchiveChecksums.get(archiveDir);
+    }
+
+    @Override
+    public void setExtractedArchiveChecksum(File archiveDir, String checksum) {
+      extractedArchiveChecksums.put(archiveDir, checksum);
+    }
+
     public boolean isDeploymentFailed() {
       return deploymentFailed;
     }
@@ -25,9 +25,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.entities.ViewInstanceEntity;
 import org.apache.ambari.server.state.stack.OsFamily;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockSupport;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -134,6 +136,59 @@ public class ViewThrottleFilterTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that the limiter and the metrics of a view instance are removed with
+   * the view instance.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testRemoveInstance() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    EasyMock.expect(configuration.getViewRequestThreadPoolMaxSize()).andReturn(4).atLeastOnce();
+    EasyMock.expect(configuration.getViewRequestThreadPoolTimeout()).andReturn(2000).atLeastOnce();
+    EasyMock.expect(configuration.getClientThreadPoolSize()).andReturn(25).atLeastOnce();
+    EasyMock.expect(configuration.getViewRequestQueueSize()).andReturn(10).atLeastOnce();
+
+    // servlet mocks
+    HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getRequestURI()).andReturn(
+        "/api/v1/views/FILES/versions/1.0.0/instances/files1/resources/files/fileops/listdir").anyTimes();
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    FilterChain filterChain = createNiceMock(FilterChain.class);
+
+    // semaphore
+    EasyMock.expect(m_mockSemaphore.tryAcquire(EasyMock.anyLong(), EasyMock.eq(TimeUnit.MILLISECONDS))).andReturn(true);
+    m_mockSemaphore.release();
+    EasyMock.expectLastCall().once();
+
+    // only the view instances known to the registry are limited
+    ViewRegistry viewRegistry = createNiceMock(ViewRegistry.class);
+    EasyMock.expect(viewRegistry.getInstanceDefinition("FILES", "1.0.0", "files1")).andReturn(
+        createNiceMock(ViewInstanceEntity.class)).anyTimes();
+
+    replayAll();
+
+    ViewRegistry previousViewRegistry = ViewRegistry.getInstance();
+    ViewRegistry.initInstance(viewRegistry);
+    try {
+      ViewThrottleFilter filter = new ViewThrottleFilter();
+      m_injector.injectMembers(filter);
+      filter.init(null);
+      filter.doFilter(request, response, filterChain);
+
+      Assert.assertTrue(filter.getMetricRegistry().getNames().contains(
+          "view.FILES.1.0.0.files1." + ViewThrottleFilter.METRIC_LIMIT));
+
+      filter.removeInstance("FILES", "1.0.0", "files1");
+      Assert.assertTrue(filter.getMetricRegistry().getNames().isEmpty());
+    } finally {
+      ViewRegistry.initInstance(previousViewRegistry);
+    }
+
+    verifyAll();
+  }
+
   /**
    *
    */
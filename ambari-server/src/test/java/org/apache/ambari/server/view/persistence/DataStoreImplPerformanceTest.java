@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.view.persistence;
+
+import static org.eclipse.persistence.config.PersistenceUnitProperties.DDL_GENERATION;
+import static org.eclipse.persistence.config.PersistenceUnitProperties.JDBC_DRIVER;
+import static org.eclipse.persistence.config.PersistenceUnitProperties.JDBC_PASSWORD;
+import static org.eclipse.persistence.config.PersistenceUnitProperties.JDBC_URL;
+import static org.eclipse.persistence.config.PersistenceUnitProperties.JDBC_USER;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.orm.entities.ViewEntity;
+import org.apache.ambari.server.orm.entities.ViewEntityEntity;
+import org.apache.ambari.server.orm.entities.ViewEntityTest;
+import org.apache.ambari.server.orm.entities.ViewInstanceEntity;
+import org.apache.ambari.server.view.configuration.InstanceConfigTest;
+import org.apache.ambari.server.view.configuration.ViewConfig;
+import org.apache.ambari.server.view.configuration.ViewConfigTest;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.jpa.dynamic.JPADynamicHelper;
+import org.eclipse.persistence.sessions.DatabaseSession;
+import org.eclipse.persistence.tools.schemaframework.SchemaManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Module;
+
+/**
+ * Measures storing, paging through and removing a large number of view entities
+ * with a {@link DataStoreImpl} backed by an in-memory database.
+ */
+@Ignore
+public class DataStoreImplPerformanceTest {
+
+  private static final int ENTITIES = 100000;
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String XML = "<view>\n" +
+      "    <name>MY_VIEW</name>\n" +
+      "    <label>My View!</label>\n" +
+      "    <version>1.0.0</version>\n" +
+      "    <instance>\n" +
+      "        <name>INSTANCE1</name>\n" +
+      "    </instance>\n" +
+      "    <persistence>\n" +
+      "      <entity>\n" +
+      "        <class>org.apache.ambari.server.view.persistence.DataStoreImplPerformanceTest$JobEntity</class>\n" +
+      "        <id-property>id</id-property>\n" +
+      "      </entity>\n" +
+      "    </persistence>" +
+      "</view>";
+
+  private EntityManagerFactory entityManagerFactory;
+
+  @Before
+  public void before() {
+    Map<Object, Object> properties = new HashMap<>();
+    properties.put(JDBC_URL, Configuration.JDBC_IN_MEMORY_URL);
+    properties.put(JDBC_DRIVER, Configuration.JDBC_IN_MEMORY_DRIVER);
+    properties.put(JDBC_USER, Configuration.JDBC_IN_MEMORY_USER);
+    properties.put(JDBC_PASSWORD, Configuration.JDBC_IN_MEMORY_PASSWORD);
+    properties.put(DDL_GENERATION, PersistenceUnitProperties.CREATE_ONLY);
+    entityManagerFactory = Persistence.createEntityManagerFactory("ambari-views", properties);
+  }
+
+  @After
+  public void after() {
+    entityManagerFactory.close();
+  }
+
+  @Test
+  public void testStoreFindAndRemove() throws Exception {
+    DataStoreImpl dataStore = getDataStore();
+
+    List<JobEntity> entities = new ArrayList<>(ENTITIES);
+    for (int i = 0; i < ENTITIES; i++) {
+      entities.add(new JobEntity("job" + i, "SUCCEEDED", "SELECT * FROM table" + i));
+    }
+
+    long time = System.nanoTime();
+    for (int i = 0; i < ENTITIES; i += BATCH_SIZE) {
+      dataStore.storeAll(entities.subList(i, i + BATCH_SIZE));
+    }
+    System.out.println("Stored " + ENTITIES + " entities in batches of " + BATCH_SIZE + " in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+
+    time = System.nanoTime();
+    Collection<Integer> ids = new HashSet<>();
+    for (int i = 0; i < ENTITIES; i += BATCH_SIZE) {
+      for (JobEntity entity : dataStore.findAll(JobEntity.class, "status='SUCCEEDED'", i, BATCH_SIZE)) {
+        ids.add(entity.getId());
+      }
+    }
+    System.out.println("Read " + ENTITIES + " entities in pages of " + BATCH_SIZE + " in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+    Assert.assertEquals(ENTITIES, ids.size());
+
+    time = System.nanoTime();
+    for (int i = 0; i < ENTITIES; i += BATCH_SIZE) {
+      dataStore.removeAll(entities.subList(i, i + BATCH_SIZE));
+    }
+    System.out.println("Removed " + ENTITIES + " entities in batches of " + BATCH_SIZE + " in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+
+    // the same work one entity at a time, as views did before the batch operations
+    time = System.nanoTime();
+    for (JobEntity entity : entities) {
+      entity.setId(null);
+      dataStore.store(entity);
+    }
+    System.out.println("Stored " + ENTITIES + " entities one at a time in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+
+    time = System.nanoTime();
+    for (JobEntity entity : entities) {
+      dataStore.remove(entity);
+    }
+    System.out.println("Removed " + ENTITIES + " entities one at a time in " +
+        (System.nanoTime() - time) / 1000000 + "ms");
+    Assert.assertTrue(dataStore.findAll(JobEntity.class, null).isEmpty());
+  }
+
+  private DataStoreImpl getDataStore() throws Exception {
+    ViewConfig viewConfig = ViewConfigTest.getConfig(XML);
+    ViewEntity viewDefinition = ViewEntityTest.getViewEntity(viewConfig);
+
+    final ViewInstanceEntity viewInstanceEntity =
+        new ViewInstanceEntity(viewDefinition, InstanceConfigTest.getInstanceConfigs().get(0));
+
+    ViewEntityEntity viewEntityEntity = new ViewEntityEntity();
+    viewEntityEntity.setId(1L);
+    viewEntityEntity.setViewName(viewDefinition.getName());
+    viewEntityEntity.setViewInstanceName(viewInstanceEntity.getName());
+    viewEntityEntity.setClassName(JobEntity.class.getName());
+    viewEntityEntity.setIdProperty("id");
+    viewEntityEntity.setViewInstance(viewInstanceEntity);
+    viewInstanceEntity.setEntities(Collections.singleton(viewEntityEntity));
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    final JPADynamicHelper jpaDynamicHelper = new JPADynamicHelper(entityManager);
+    final DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplPerformanceTest.class.getClassLoader());
+
+    return Guice.createInjector(new Module() {
+      @Override
+      public void configure(Binder binder) {
+        binder.bind(ViewInstanceEntity.class).toInstance(viewInstanceEntity);
+        binder.bind(EntityManagerFactory.class).toInstance(entityManagerFactory);
+        binder.bind(JPADynamicHelper.class).toInstance(jpaDynamicHelper);
+        binder.bind(DynamicClassLoader.class).toInstance(classLoader);
+        binder.bind(SchemaManagerFactory.class).toInstance(new SchemaManagerFactory() {
+          @Override
+          public SchemaManager getSchemaManager(DatabaseSession session) {
+            return new SchemaManager(session);
+          }
+        });
+      }
+    }).getInstance(DataStoreImpl.class);
+  }
+
+  /**
+   * A view entity similar to the job history saved by the Hive and Files views.
+   */
+  public static class JobEntity {
+    private Integer id;
+    private String name;
+    private String status;
+    private String query;
+
+    public JobEntity() {
+    }
+
+    JobEntity(String name, String status, String query) {
+      this.name = name;
+      this.status = status;
+      this.query = query;
+    }
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getStatus() {
+      return status;
+    }
+
+    public void setStatus(String status) {
+      this.status = status;
+    }
+
+    public String getQuery() {
+      return query;
+    }
+
+    public void setQuery(String query) {
+      this.query = query;
+    }
+  }
+}
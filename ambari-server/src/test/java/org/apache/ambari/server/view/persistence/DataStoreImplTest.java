@@ -26,11 +26,14 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -48,6 +51,7 @@ import org.apache.ambari.server.view.configuration.ViewConfig;
 import org.apache.ambari.server.view.configuration.ViewConfigTest;
 import org.apache.ambari.view.PersistenceException;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.eclipse.persistence.dynamic.DynamicClassLoader;
@@ -485,6 +489,132 @@ public class DataStoreImplTest {
     verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, dynamicEntity, jpaEntityManager, session, databaseLogin);
   }
 
+  @Test
+  public void testStoreAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+
+    // each entity and sub entity gets the next id when persisted
+    final AtomicInteger nextId = new AtomicInteger(100);
+    Capture<DynamicEntity> entityCapture = EasyMock.newCapture(CaptureType.ALL);
+    entityManager.persist(capture(entityCapture));
+    EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        ((DynamicEntity) EasyMock.getCurrentArguments()[0]).set("DS_id", nextId.getAndIncrement());
+        return null;
+      }
+    }).times(4);
+
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+
+    entityManager.close();
+
+    // all of the entities are stored in a single transaction
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    TestEntity entity1 = new TestEntity("foo", new TestSubEntity("bar"));
+    TestEntity entity2 = new TestEntity("baz", new TestSubEntity("qux"));
+    dataStore.storeAll(Arrays.asList(entity1, entity2));
+
+    Assert.assertEquals(4, entityCapture.getValues().size());
+
+    // the generated ids are copied back to the view entities
+    Assert.assertEquals(Integer.valueOf(101), entity1.getId());
+    Assert.assertEquals(Integer.valueOf(100), entity1.getSubEntity().getId());
+    Assert.assertEquals(Integer.valueOf(103), entity2.getId());
+    Assert.assertEquals(Integer.valueOf(102), entity2.getSubEntity().getId());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager, jpaEntityManager, session, databaseLogin);
+  }
+
+  @Test
+  public void testRemoveAll() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    EntityTransaction transaction = createMock(EntityTransaction.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.getTransaction()).andReturn(transaction).anyTimes();
+    expect(entityManager.getReference(EasyMock.<Class<DynamicEntity>>anyObject(), eq(99))).andReturn(dynamicEntity1);
+    expect(entityManager.getReference(EasyMock.<Class<DynamicEntity>>anyObject(), eq(100))).andReturn(dynamicEntity2);
+    entityManager.remove(dynamicEntity1);
+    entityManager.remove(dynamicEntity2);
+    entityManager.close();
+
+    // all of the entities are removed in a single transaction
+    transaction.begin();
+    transaction.commit();
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager,
+        dynamicEntity1, dynamicEntity2, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    dataStore.removeAll(Arrays.asList(new TestEntity(99, "foo", new TestSubEntity("bar")),
+        new TestEntity(100, "baz", new TestSubEntity("qux"))));
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper, transaction, schemaManager,
+        dynamicEntity1, dynamicEntity2, jpaEntityManager, session, databaseLogin);
+  }
+
   @Test
   public void testFind() throws Exception {
     DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
@@ -676,6 +806,71 @@ public class DataStoreImplTest {
         dynamicEntity1, dynamicEntity2, dynamicEntity3, query, schemaManager, jpaEntityManager, session, databaseLogin);
   }
 
+  @Test
+  public void testFindAll_paged() throws Exception {
+    DynamicClassLoader classLoader = new DynamicClassLoader(DataStoreImplTest.class.getClassLoader());
+
+    // create mocks
+    JpaEntityManager jpaEntityManager = createMock(JpaEntityManager.class);
+    ServerSession session = createMock(ServerSession.class);
+    DatabaseLogin databaseLogin = createMock(DatabaseLogin.class);
+    EntityManagerFactory entityManagerFactory = createMock(EntityManagerFactory.class);
+    EntityManager entityManager = createMock(EntityManager.class);
+    JPADynamicHelper jpaDynamicHelper = createNiceMock(JPADynamicHelper.class);
+    SchemaManager schemaManager = createNiceMock(SchemaManager.class);
+    DynamicEntity dynamicEntity1 = createMock(DynamicEntity.class);
+    DynamicEntity dynamicEntity2 = createMock(DynamicEntity.class);
+    Query query = createMock(Query.class);
+
+    // set expectations
+    PowerMock.mockStatic(JpaHelper.class);
+    expect(JpaHelper.getEntityManager(entityManager)).andReturn(jpaEntityManager).anyTimes();
+    PowerMock.replay(JpaHelper.class);
+    expect(jpaEntityManager.getServerSession()).andReturn(session).anyTimes();
+    expect(session.getLogin()).andReturn(databaseLogin).anyTimes();
+    Capture<Sequence> sequenceCapture = EasyMock.newCapture();
+    databaseLogin.addSequence(capture(sequenceCapture));
+    EasyMock.expectLastCall().anyTimes();
+    Capture<DynamicType> typeCapture = EasyMock.newCapture();
+    Capture<DynamicType> typeCapture2 = EasyMock.newCapture();
+    jpaDynamicHelper.addTypes(eq(true), eq(true), capture(typeCapture), capture(typeCapture2));
+
+    expect(entityManagerFactory.createEntityManager()).andReturn(entityManager).anyTimes();
+    expect(entityManager.createQuery(
+        "SELECT e FROM DS_DataStoreImplTest$TestEntity_1 e WHERE e.DS_name='foo' ORDER BY e.DS_id")).andReturn(query);
+    entityManager.close();
+
+    expect(query.setFirstResult(10)).andReturn(query);
+    expect(query.setMaxResults(2)).andReturn(query);
+    expect(query.getResultList()).andReturn(Arrays.asList(dynamicEntity1, dynamicEntity2));
+
+    expect(dynamicEntity1.get("DS_id")).andReturn(110);
+    expect(dynamicEntity1.get("DS_name")).andReturn("foo");
+    expect(dynamicEntity1.get("DS_subEntity")).andReturn(new TestSubEntity("bar"));
+
+    expect(dynamicEntity2.get("DS_id")).andReturn(111);
+    expect(dynamicEntity2.get("DS_name")).andReturn("foo");
+    expect(dynamicEntity2.get("DS_subEntity")).andReturn(new TestSubEntity("bar"));
+
+    // replay mocks
+    replay(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager, jpaEntityManager, session, databaseLogin);
+
+    DataStoreImpl dataStore = getDataStore(entityManagerFactory, jpaDynamicHelper, classLoader, schemaManager);
+
+    Collection<TestEntity> entities = dataStore.findAll(TestEntity.class, "name='foo'", 10, 2);
+
+    // the page keeps the order of the query
+    Iterator<TestEntity> iterator = entities.iterator();
+    Assert.assertEquals(110, (int) iterator.next().getId());
+    Assert.assertEquals(111, (int) iterator.next().getId());
+    Assert.assertFalse(iterator.hasNext());
+
+    // verify mocks
+    verify(entityManagerFactory, entityManager, jpaDynamicHelper,
+        dynamicEntity1, dynamicEntity2, query, schemaManager, jpaEntityManager, session, databaseLogin);
+  }
+
   private DataStoreImpl getDataStore(EntityManagerFactory entityManagerFactory,
                                      JPADynamicHelper jpaDynamicHelper,
                                      DynamicClassLoader classLoader,
@@ -18,7 +18,9 @@
 
 package org.apache.ambari.view;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * View data store.
@@ -35,6 +37,25 @@ public interface DataStore {
    */
   public void store(Object entity) throws PersistenceException;
 
+  /**
+   * Save the given entities to persistent storage.  Each entity must be declared as an
+   * {@code <entity>} in the {@code <persistence>} element of the view.xml.
+   * <p/>
+   * The default implementation stores the entities one at a time and is not atomic; if an
+   * entity can not be persisted, the entities stored before it remain persisted.  The data
+   * store provided to views by Ambari overrides it to persist all of the entities or none of
+   * them in a single transaction.
+   *
+   * @param entities  the entities to be persisted.
+   *
+   * @throws PersistenceException thrown if any of the given entities can not be persisted
+   */
+  public default void storeAll(Collection<?> entities) throws PersistenceException {
+    for (Object entity : entities) {
+      store(entity);
+    }
+  }
+
   /**
    * Remove the given entity from persistent storage.
    *
@@ -44,6 +65,24 @@ public interface DataStore {
    */
   public void remove(Object entity) throws PersistenceException;
 
+  /**
+   * Remove the given entities from persistent storage.
+   * <p/>
+   * The default implementation removes the entities one at a time and is not atomic; if an
+   * entity can not be removed, the entities removed before it remain removed.  The data
+   * store provided to views by Ambari overrides it to remove all of the entities or none of
+   * them in a single transaction.
+   *
+   * @param entities  the entities to be removed.
+   *
+   * @throws PersistenceException thrown if any of the given entities can not be removed
+   */
+  public default void removeAll(Collection<?> entities) throws PersistenceException {
+    for (Object entity : entities) {
+      remove(entity);
+    }
+  }
+
   /**
    * Find the entity of the given class type that is uniquely identified by the
    * given primary key.
@@ -72,4 +111,36 @@ public interface DataStore {
    * @throws PersistenceException
    */
   public <T> Collection<T> findAll(Class<T> clazz, String whereClause) throws PersistenceException;
+
+  /**
+   * Find a page of the entities for the given where clause.  The entities are ordered by
+   * their primary key so that consecutive pages neither overlap nor skip entities.
+   * Specifying null for the where clause pages through all entities of the given class type.
+   * <p/>
+   * The default implementation pages through the entities returned by
+   * {@link #findAll(Class, String)} in their iteration order, and should be overridden by
+   * data stores which can order and limit their queries.
+   *
+   * @param clazz        the entity class
+   * @param whereClause  the where clause; may be null
+   * @param firstResult  the position of the first entity of the page, starting at 0
+   * @param maxResults   the maximum number of entities of the page
+   * @param <T>          the entity type
+   *
+   * @return the entities of the page; empty collection if no entities can be found
+   *
+   * @throws PersistenceException thrown if an error occurs trying to find the entities
+   */
+  public default <T> Collection<T> findAll(Class<T> clazz, String whereClause, int firstResult, int maxResults)
+      throws PersistenceException {
+    Collection<T> page = new ArrayList<T>();
+    Iterator<T> iterator = findAll(clazz, whereClause).iterator();
+    for (int i = 0; i < firstResult && iterator.hasNext(); i++) {
+      iterator.next();
+    }
+    while (page.size() < maxResults && iterator.hasNext()) {
+      page.add(iterator.next());
+    }
+    return page;
+  }
 }
@@ -0,0 +1,760 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import com.google.common.util.concurrent.Futures;
+import org.apache.ambari.view.utils.hdfs.HdfsApi;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.security.AccessControlException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams zip archives and concatenations of HDFS files while the directory
+ * listings and the file contents are fetched ahead of the writer on the
+ * {@link Pool} shared by the downloads of a view instance.
+ * <p/>
+ * A download is planned before anything is written: the entries are walked
+ * breadth first, with the listings of pending directories fetched
+ * concurrently, and the walk fails with a {@link LimitExceededException} as
+ * soon as the download grows over its limits. Every file is then opened once
+ * and read sequentially in chunks by a single reader, with several files read
+ * at a time. At most {@code maxChunksAhead} chunks wait for the writer, which
+ * writes them in the order of the plan.
+ * <p/>
+ * A prefetcher serves a single download and must be closed afterwards.
+ */
+public class DownloadPrefetcher implements Closeable {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(DownloadPrefetcher.class);
+
+  public static final int DEFAULT_THREADS = 4;
+  public static final int DEFAULT_MAX_ENTRIES = 50000;
+  public static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024 * 1024;
+  public static final long DEFAULT_BUFFER_BYTES = 64L * 1024 * 1024;
+
+  static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+  static final int DEFAULT_MAX_CHUNKS_AHEAD = 16;
+
+  /**
+   * Number of directory listings fetched ahead of the walk.
+   */
+  static final int MAX_LISTINGS_AHEAD = 64;
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  private final HdfsApi api;
+  private final Pool pool;
+  private final int maxEntries;
+  private final long maxBytes;
+  private final int chunkSize;
+  private final int maxChunksAhead;
+
+  /**
+   * Readers of the writes in progress, closed with the prefetcher
+   */
+  private final Set<ChunkReader> chunkReaders = new LinkedHashSet<ChunkReader>();
+
+  /**
+   * Constructor
+   * @param api HdfsApi to read the entries with
+   * @param pool threads and read ahead buffer shared with the other downloads
+   * @param maxEntries maximum number of files and directories in a download
+   * @param maxBytes maximum total size of the files in a download
+   */
+  public DownloadPrefetcher(HdfsApi api, Pool pool, int maxEntries, long maxBytes) {
+    this(api, pool, maxEntries, maxBytes, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS_AHEAD);
+  }
+
+  DownloadPrefetcher(HdfsApi api, Pool pool, int maxEntries, long maxBytes, int chunkSize, int maxChunksAhead) {
+    this.api = api;
+    this.pool = pool;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.chunkSize = chunkSize;
+    this.maxChunksAhead = Math.max(1, maxChunksAhead);
+  }
+
+  /**
+   * Walks the entries breadth first, in the same order as they are zipped.
+   * Directories which can not be listed are left out.
+   * @param paths paths of the files and directories to download
+   * @return files and directories to zip
+   * @throws LimitExceededException if the entries are over the limits
+   */
+  public List<Entry> walk(String[] paths) throws IOException, InterruptedException {
+    List<Entry> entries = new ArrayList<Entry>();
+    Queue<PendingEntry> queue = new LinkedList<PendingEntry>();
+
+    for (String path : paths) {
+      queue.add(new PendingEntry(path, getFileStatus(path)));
+    }
+
+    try {
+      walk(queue, entries);
+    } finally {
+      // the listings fetched ahead of a failed walk are not needed any more
+      for (PendingEntry pending : queue) {
+        pending.status.cancel(true);
+        if (pending.listing != null) {
+          pending.listing.cancel(true);
+        }
+      }
+    }
+    return entries;
+  }
+
+  private void walk(Queue<PendingEntry> queue, List<Entry> entries) throws IOException, InterruptedException {
+    long bytes = 0;
+    int listingsAhead = 0;
+
+    while (!queue.isEmpty()) {
+      PendingEntry pending = queue.poll();
+      FileStatus status = await(pending.status);
+      if (status.isDirectory()) {
+        Future<FileStatus[]> listing = pending.listing;
+        if (listing == null) {
+          listing = listdir(pending.path);
+        } else {
+          listingsAhead--;
+        }
+
+        FileStatus[] children;
+        try {
+          children = await(listing);
+        } catch (AccessControlException ex) {
+          LOG.error("Error zipping directory {}/ (directory ignored) : ", pending.path.substring(1), ex);
+          continue;
+        }
+
+        for (FileStatus child : children) {
+          PendingEntry childEntry = new PendingEntry(getPath(child), child);
+          if (child.isDirectory() && listingsAhead < MAX_LISTINGS_AHEAD) {
+            childEntry.listing = listdir(childEntry.path);
+            listingsAhead++;
+          }
+          queue.add(childEntry);
+        }
+      } else {
+        bytes += status.getLen();
+      }
+
+      entries.add(new Entry(pending.path, status));
+      checkLimits(entries.size(), bytes);
+    }
+  }
+
+  /**
+   * Gets the files to concatenate. Files which can not be read are left out.
+   * @param paths paths of the files
+   * @return files to concatenate
+   * @throws LimitExceededException if the files are over the limits
+   */
+  public List<Entry> getFiles(String[] paths) throws IOException, InterruptedException {
+    checkLimits(paths.length, 0);
+
+    List<Future<FileStatus>> statuses = new ArrayList<Future<FileStatus>>(paths.length);
+    for (final String path : paths) {
+      statuses.add(pool.executor.submit(new Callable<FileStatus>() {
+        @Override
+        public FileStatus call() throws Exception {
+          FileStatus status = api.getFileStatus(path);
+          if (status.isDirectory()) {
+            throw new IOException(path + " is a directory");
+          }
+          // opening the file checks that it can be read
+          api.open(path).close();
+          return status;
+        }
+      }));
+    }
+
+    List<Entry> files = new ArrayList<Entry>(paths.length);
+    long bytes = 0;
+    try {
+      for (int i = 0; i < paths.length; i++) {
+        FileStatus status;
+        try {
+          status = await(statuses.get(i));
+        } catch (AccessControlException ex) {
+          LOG.error("Error in opening file {}. Ignoring concat of this files.", paths[i].substring(1), ex);
+          continue;
+        }
+
+        bytes += status.getLen();
+        files.add(new Entry(paths[i], status));
+        checkLimits(files.size(), bytes);
+      }
+    } finally {
+      for (Future<FileStatus> status : statuses) {
+        status.cancel(true);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Writes a zip archive of the entries. Files which fail to be read are left
+   * out, or truncated if they fail after part of them was written.
+   * @param entries entries returned by {@link #walk(String[])}
+   * @param output stream to write the archive to
+   */
+  public void writeZip(List<Entry> entries, OutputStream output) throws IOException, InterruptedException {
+    List<Segment> segments = new ArrayList<Segment>();
+    for (Entry entry : entries) {
+      if (!entry.isDirectory()) {
+        segments.add(new Segment(entry.getPath(), 0, entry.getLength()));
+      }
+    }
+
+    ChunkReader chunks = openChunkReader(segments);
+    try {
+      ZipOutputStream zip = new ZipOutputStream(output);
+      for (Entry entry : entries) {
+        String name = entry.getPath().substring(1);
+        if (entry.isDirectory()) {
+          zip.putNextEntry(new ZipEntry(name + "/"));
+          zip.closeEntry();
+          continue;
+        }
+
+        boolean started = false;
+        Chunk chunk;
+        do {
+          chunk = chunks.next();
+          if (chunk.error != null) {
+            LOG.error("Error zipping file {} (file ignored): ", entry.getPath(), chunk.error);
+          } else {
+            if (!started) {
+              zip.putNextEntry(new ZipEntry(name));
+              started = true;
+            }
+            zip.write(chunk.data);
+          }
+        } while (!chunk.last);
+
+        if (started) {
+          zip.closeEntry();
+        }
+      }
+      zip.finish();
+    } finally {
+      chunks.close();
+    }
+  }
+
+  /**
+   * Writes a range of the concatenation of the files. Unlike zip archives,
+   * the output fails if a file can not be read, since the length of the
+   * output was already announced.
+   * @param files files returned by {@link #getFiles(String[])}
+   * @param offset offset of the range in the concatenation
+   * @param length length of the range
+   * @param output stream to write the range to
+   */
+  public void writeConcat(List<Entry> files, long offset, long length, OutputStream output)
+      throws IOException, InterruptedException {
+    List<Segment> segments = new ArrayList<Segment>();
+    long start = 0;
+    long end = offset + length;
+    for (Entry file : files) {
+      long fileEnd = start + file.getLength();
+      if (fileEnd > offset && start < end) {
+        long segmentStart = Math.max(start, offset);
+        long segmentEnd = Math.min(fileEnd, end);
+        segments.add(new Segment(file.getPath(), segmentStart - start, segmentEnd - segmentStart));
+      }
+      start = fileEnd;
+    }
+
+    ChunkReader chunks = openChunkReader(segments);
+    try {
+      for (Segment segment : segments) {
+        Chunk chunk;
+        do {
+          chunk = chunks.next();
+          if (chunk.error != null) {
+            throw chunk.error;
+          }
+          output.write(chunk.data);
+        } while (!chunk.last);
+        LOG.debug("concated file : {}, total bytes added = {}", segment.path, segment.length);
+      }
+    } finally {
+      chunks.close();
+    }
+  }
+
+  /**
+   * Stops reading ahead of the writes in progress
+   */
+  @Override
+  public void close() {
+    List<ChunkReader> readers;
+    synchronized (chunkReaders) {
+      readers = new ArrayList<ChunkReader>(chunkReaders);
+    }
+    for (ChunkReader reader : readers) {
+      reader.close();
+    }
+  }
+
+  private void checkLimits(int entries, long bytes) throws LimitExceededException {
+    if (entries > maxEntries) {
+      throw new LimitExceededException("Download contains more than " + maxEntries + " entries");
+    }
+    if (bytes > maxBytes) {
+      throw new LimitExceededException("Download is larger than " + maxBytes + " bytes");
+    }
+  }
+
+  private ChunkReader openChunkReader(List<Segment> segments) {
+    ChunkReader reader = new ChunkReader(segments);
+    synchronized (chunkReaders) {
+      chunkReaders.add(reader);
+    }
+    return reader;
+  }
+
+  private Future<FileStatus> getFileStatus(final String path) {
+    return pool.executor.submit(new Callable<FileStatus>() {
+      @Override
+      public FileStatus call() throws Exception {
+        return api.getFileStatus(path);
+      }
+    });
+  }
+
+  private Future<FileStatus[]> listdir(final String path) {
+    return pool.executor.submit(new Callable<FileStatus[]>() {
+      @Override
+      public FileStatus[] call() throws Exception {
+        return api.listdir(path);
+      }
+    });
+  }
+
+  private static String getPath(FileStatus status) {
+    return org.apache.hadoop.fs.Path.getPathWithoutSchemeAndAuthority(status.getPath()).toString();
+  }
+
+  private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof InterruptedException) {
+        throw (InterruptedException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Reads the segments of a write in chunks on the pool. Every segment is read
+   * by a single {@link FileReader}, and up to {@code maxChunksAhead} segments
+   * are read at a time. A reader stops once {@code maxChunksAhead} chunks wait
+   * for the writer or the read ahead buffer of the pool is used up, and is
+   * scheduled again when the writer takes a chunk or the buffer is released.
+   * The chunk the writer waits for is read regardless of both.
+   */
+  private class ChunkReader {
+    private final List<Segment> segments;
+
+    /**
+     * Readers of the segments being read or written, the first one is written
+     */
+    private final Deque<FileReader> readers = new ArrayDeque<FileReader>();
+    private int segmentIndex;
+    private int chunkCount;
+    private boolean closed;
+
+    ChunkReader(List<Segment> segments) {
+      this.segments = segments;
+    }
+
+    /**
+     * Waits for the next chunk of the segment being written
+     * @return the chunk, the last chunk of a segment which fails to be read holds the error
+     */
+    Chunk next() throws IOException, InterruptedException {
+      Chunk chunk;
+      synchronized (this) {
+        schedule();
+        FileReader reader = readers.peekFirst();
+        while (!closed && reader.chunks.isEmpty()) {
+          wait();
+        }
+        if (closed) {
+          throw new InterruptedIOException("Download was closed");
+        }
+
+        chunk = reader.chunks.poll();
+        chunkCount--;
+        if (chunk.last) {
+          readers.pollFirst();
+        }
+        schedule();
+      }
+      // released without holding the lock, the pool resumes the readers of other downloads
+      pool.release(chunk.reserved);
+      return chunk;
+    }
+
+    /**
+     * Resumes the readers which wait for the read ahead buffer
+     */
+    synchronized void resume() {
+      schedule();
+    }
+
+    void close() {
+      int reserved = 0;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        for (FileReader reader : readers) {
+          for (Chunk chunk : reader.chunks) {
+            reserved += chunk.reserved;
+          }
+          reader.chunks.clear();
+          // a scheduled reader closes its file itself once it sees the download closed
+          if (!reader.scheduled) {
+            reader.closeStream();
+          }
+        }
+        readers.clear();
+        notifyAll();
+      }
+      synchronized (chunkReaders) {
+        chunkReaders.remove(this);
+      }
+      pool.forget(this);
+      pool.release(reserved);
+    }
+
+    /**
+     * Starts readers for the next segments and schedules the readers which may read
+     */
+    private void schedule() {
+      while (!closed && segmentIndex < segments.size() && readers.size() < maxChunksAhead
+          && chunkCount < maxChunksAhead) {
+        readers.add(new FileReader(segments.get(segmentIndex++)));
+      }
+      for (FileReader reader : readers) {
+        if (!closed && !reader.scheduled && !reader.done && reader.mayRead()) {
+          reader.scheduled = true;
+          pool.executor.execute(reader);
+        }
+      }
+    }
+
+    /**
+     * Opens a segment once and reads it sequentially, as long as it may read ahead
+     */
+    private class FileReader implements Runnable {
+      private final Segment segment;
+      private final Deque<Chunk> chunks = new ArrayDeque<Chunk>();
+      private FSDataInputStream in;
+      private long position;
+      private boolean scheduled;
+      private boolean done;
+
+      FileReader(Segment segment) {
+        this.segment = segment;
+      }
+
+      @Override
+      public void run() {
+        boolean finished = false;
+        while (!finished) {
+          int length;
+          int reserved;
+          synchronized (ChunkReader.this) {
+            if (closed || !mayRead()) {
+              stop();
+              return;
+            }
+            length = (int) Math.min(chunkSize, segment.length - position);
+            reserved = isAwaited() ? 0 : Math.min(length, pool.bufferBytes);
+            if (reserved > 0 && !pool.reserve(ChunkReader.this, reserved)) {
+              stop();
+              return;
+            }
+          }
+
+          Chunk chunk = read(length, reserved);
+          int released = 0;
+          synchronized (ChunkReader.this) {
+            if (closed) {
+              released = chunk.reserved;
+              finished = true;
+            } else {
+              chunks.add(chunk);
+              chunkCount++;
+              done = chunk.last;
+              finished = chunk.last;
+              ChunkReader.this.notifyAll();
+            }
+            if (finished) {
+              stop();
+              schedule();
+            }
+          }
+          pool.release(released);
+        }
+      }
+
+      /**
+       * @return whether the writer waits for the next chunk of this reader
+       */
+      private boolean isAwaited() {
+        return readers.peekFirst() == this && chunks.isEmpty();
+      }
+
+      private boolean mayRead() {
+        return isAwaited() || chunkCount < maxChunksAhead;
+      }
+
+      private Chunk read(int length, int reserved) {
+        try {
+          if (in == null) {
+            in = api.open(segment.path);
+            if (segment.offset > 0) {
+              in.seek(segment.offset);
+            }
+          }
+          byte[] data = new byte[length];
+          in.readFully(data);
+          position += length;
+          return new Chunk(data, reserved, position >= segment.length, null);
+        } catch (IOException ex) {
+          return new Chunk(null, reserved, true, ex);
+        } catch (InterruptedException ex) {
+          return new Chunk(null, reserved, true, new InterruptedIOException(ex.getMessage()));
+        }
+      }
+
+      private void stop() {
+        scheduled = false;
+        if (closed || done) {
+          closeStream();
+        }
+      }
+
+      private void closeStream() {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (IOException ex) {
+            LOG.debug("Error closing file {}", segment.path, ex);
+          }
+          in = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Part of a file read for a writer
+   */
+  private static class Chunk {
+    private final byte[] data;
+    private final int reserved;
+    private final boolean last;
+    private final IOException error;
+
+    Chunk(byte[] data, int reserved, boolean last, IOException error) {
+      this.data = data;
+      this.reserved = reserved;
+      this.last = last;
+      this.error = error;
+    }
+  }
+
+  private static class Segment {
+    private final String path;
+    private final long offset;
+    private final long length;
+
+    Segment(String path, long offset, long length) {
+      this.path = path;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static class PendingEntry {
+    private final String path;
+    private final Future<FileStatus> status;
+    private Future<FileStatus[]> listing;
+
+    PendingEntry(String path, Future<FileStatus> status) {
+      this.path = path;
+      this.status = status;
+    }
+
+    PendingEntry(String path, FileStatus status) {
+      this(path, Futures.immediateFuture(status));
+    }
+  }
+
+  /**
+   * Threads and read ahead buffer shared by the downloads of a view instance.
+   * The chunks read ahead of the writers take at most {@code bufferBytes} of
+   * memory, only the chunk a writer waits for is read beyond that.
+   */
+  public static class Pool {
+    private final ThreadPoolExecutor executor;
+    private final Semaphore buffer;
+    private final int bufferBytes;
+
+    /**
+     * Readers which wait for the buffer to be released
+     */
+    private final Set<ChunkReader> waitingReaders = new LinkedHashSet<ChunkReader>();
+
+    /**
+     * Constructor
+     * @param threads number of threads fetching listings and file contents
+     * @param bufferBytes number of bytes the chunks read ahead of the writers may take
+     */
+    public Pool(int threads, long bufferBytes) {
+      this.bufferBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(0, bufferBytes));
+      this.buffer = new Semaphore(this.bufferBytes);
+      this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "files-view-download-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return number of bytes taken by the chunks read ahead of the writers
+     */
+    int getBufferedBytes() {
+      return bufferBytes - buffer.availablePermits();
+    }
+
+    public void shutdown() {
+      executor.shutdownNow();
+    }
+
+    /**
+     * Reserves buffer for a chunk, the reader is resumed once buffer is released otherwise
+     */
+    private boolean reserve(ChunkReader reader, int bytes) {
+      synchronized (waitingReaders) {
+        waitingReaders.add(reader);
+      }
+      // registered before trying, so that a release in between resumes the reader
+      return buffer.tryAcquire(bytes);
+    }
+
+    private void release(int bytes) {
+      if (bytes == 0) {
+        return;
+      }
+      buffer.release(bytes);
+      List<ChunkReader> readers;
+      synchronized (waitingReaders) {
+        readers = new ArrayList<ChunkReader>(waitingReaders);
+        waitingReaders.clear();
+      }
+      for (ChunkReader reader : readers) {
+        reader.resume();
+      }
+    }
+
+    private void forget(ChunkReader reader) {
+      synchronized (waitingReaders) {
+        waitingReaders.remove(reader);
+      }
+    }
+  }
+
+  /**
+   * File or directory of a download
+   */
+  public static class Entry {
+    private final String path;
+    private final FileStatus status;
+
+    Entry(String path, FileStatus status) {
+      this.path = path;
+      this.status = status;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public boolean isDirectory() {
+      return status.isDirectory();
+    }
+
+    public long getLength() {
+      return status.isDirectory() ? 0 : status.getLen();
+    }
+  }
+
+  /**
+   * Thrown when a download contains too many entries or bytes
+   */
+  public static class LimitExceededException extends IOException {
+    public LimitExceededException(String message) {
+      super(message);
+    }
+  }
+}
@@ -18,6 +18,8 @@
 
 package org.apache.ambari.view.filebrowser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import org.apache.ambari.view.ViewContext;
 import org.apache.ambari.view.commons.exceptions.MisconfigurationFormattedException;
@@ -27,16 +29,15 @@ import org.apache.ambari.view.commons.hdfs.HdfsService;
 import org.apache.ambari.view.utils.hdfs.HdfsApi;
 import org.apache.ambari.view.utils.hdfs.HdfsApiException;
 import org.apache.ambari.view.utils.hdfs.HdfsUtil;
-import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileStatus;
-import org.apache.hadoop.security.AccessControlException;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -56,12 +57,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.FileNameMap;
 import java.net.URLConnection;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for download and aggregate files
@@ -70,6 +71,31 @@ public class DownloadService extends HdfsService {
 
   protected static final Logger LOG = LoggerFactory.getLogger(DownloadService.class);
 
+  public static final String DOWNLOAD_PREFETCH_THREADS = "download.prefetch.threads";
+  public static final String DOWNLOAD_PREFETCH_BUFFER_MB = "download.prefetch.buffer.mb";
+  public static final String DOWNLOAD_MAX_ENTRIES = "download.max.entries";
+  public static final String DOWNLOAD_MAX_SIZE_MB = "download.max.size.mb";
+
+  private static final long MEGABYTE = 1024 * 1024;
+  private static final int PARTIAL_CONTENT = 206;
+  private static final int REQUEST_ENTITY_TOO_LARGE = 413;
+  private static final int RANGE_NOT_SATISFIABLE = 416;
+
+  /**
+   * Requests of concat links, kept after the first download so that it can
+   * be resumed through the same link.
+   */
+  private static final Cache<String, DownloadRequest> concatRequests = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .maximumSize(1000)
+      .build();
+
+  /**
+   * Threads and read ahead buffers shared by the downloads of each view instance
+   */
+  private static final ConcurrentMap<String, DownloadPrefetcher.Pool> prefetchPools =
+      new ConcurrentHashMap<String, DownloadPrefetcher.Pool>();
+
   public DownloadService(ViewContext context) {
     super(context);
   }
@@ -133,44 +159,6 @@ public class DownloadService extends HdfsService {
     }
   }
 
-  private void zipFile(ZipOutputStream zip, String path) {
-    try {
-      FSDataInputStream in = getApi().open(path);
-      zip.putNextEntry(new ZipEntry(path.substring(1)));
-      byte[] chunk = new byte[1024];
-
-      int readLen = 0;
-      while(readLen != -1) {
-        zip.write(chunk, 0, readLen);
-        readLen = in.read(chunk);
-      }
-    } catch (IOException ex) {
-      LOG.error("Error zipping file {}  (file ignored): ", path, ex);
-    } catch (InterruptedException ex) {
-      LOG.error("Error zipping file {} (file ignored): ", path, ex);
-    } finally {
-      try {
-        zip.closeEntry();
-      } catch (IOException ex) {
-        LOG.error("Error closing entry {} (file ignored): ", path, ex);
-      }
-    }
-  }
-
-  private void zipDirectory(ZipOutputStream zip, String path) {
-    try {
-      zip.putNextEntry(new ZipEntry(path.substring(1) + "/"));
-    } catch (IOException ex) {
-      LOG.error("Error zipping directory {} (directory ignored).", path, ex);
-    } finally {
-      try {
-        zip.closeEntry();
-      } catch (IOException ex) {
-        LOG.error("Error zipping directory {} (directory ignored).", path, ex);
-      }
-    }
-  }
-
   /**
    * Download ZIP of passed file list
    * @param request download request
@@ -182,100 +170,92 @@ public class DownloadService extends HdfsService {
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
   public Response downloadGZip(final DownloadRequest request) {
     LOG.debug("downloadGZip requested for : {} ", request.entries );
+    final DownloadPrefetcher prefetcher = createPrefetcher();
     try {
       String name = "hdfs.zip";
       if(request.entries.length == 1 ){
         name = new File(request.entries[0]).getName() + ".zip";
       }
 
+      // walk the entries before responding so that downloads over the limits fail early
+      final List<DownloadPrefetcher.Entry> entries = prefetcher.walk(request.entries);
       StreamingOutput result = new StreamingOutput() {
         public void write(OutputStream output) throws IOException,
             ServiceFormattedException {
-          ZipOutputStream zip = new ZipOutputStream(output);
           try {
-            HdfsApi api = getApi();
-            Queue<String> files = new LinkedList<String>();
-            for (String file : request.entries) {
-              files.add(file);
-            }
-            while (!files.isEmpty()) {
-              String path = files.poll();
-              FileStatus status = api.getFileStatus(path);
-              if (status.isDirectory()) {
-                FileStatus[] subdir;
-                try {
-                  subdir = api.listdir(path);
-                } catch (AccessControlException ex) {
-                  LOG.error("Error zipping directory {}/ (directory ignored) : ", path.substring(1), ex);
-                  continue;
-                }
-                for (FileStatus file : subdir) {
-                  files.add(org.apache.hadoop.fs.Path
-                      .getPathWithoutSchemeAndAuthority(file.getPath())
-                      .toString());
-                }
-                zipDirectory(zip, path);
-              } else {
-                zipFile(zip, path);
-              }
-            }
+            prefetcher.writeZip(entries, output);
           } catch (Exception ex) {
             LOG.error("Error occurred: " ,ex);
             throw new ServiceFormattedException(ex.getMessage(), ex);
           } finally {
-            zip.close();
+            prefetcher.close();
           }
         }
       };
       return Response.ok(result)
           .header("Content-Disposition", "inline; filename=\"" + name +"\"").build();
     } catch (WebApplicationException ex) {
+      prefetcher.close();
       LOG.error("Error occurred : ",ex);
       throw ex;
     } catch (Exception ex) {
+      prefetcher.close();
       LOG.error("Error occurred : ", ex);
-      throw new ServiceFormattedException(ex.getMessage(), ex);
+      throw toFormattedException(ex);
     }
   }
 
   /**
    * Concatenate files
    * @param request download request
-   * @return response with all files concatenated
+   * @param range value of the Range header, to resume an interrupted download
+   * @return response with all files concatenated, or the requested range of them
    */
   @POST
   @Path("/concat")
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
-  public Response concat(final DownloadRequest request) {
+  public Response concat(final DownloadRequest request, @HeaderParam("Range") String range) {
     LOG.info("Starting concat files.");
+    final DownloadPrefetcher prefetcher = createPrefetcher();
     try {
+      final List<DownloadPrefetcher.Entry> files = prefetcher.getFiles(request.entries);
+      long length = 0;
+      for (DownloadPrefetcher.Entry file : files) {
+        length += file.getLength();
+      }
+
+      long[] bounds = parseRange(range, length);
+      if (bounds == null) {
+        prefetcher.close();
+        return Response.status(RANGE_NOT_SATISFIABLE)
+            .header("Content-Range", "bytes */" + length).build();
+      }
+
+      final long offset = bounds[0];
+      final long count = bounds[1] - bounds[0] + 1;
       StreamingOutput result = new StreamingOutput() {
         public void write(OutputStream output) throws IOException,
             ServiceFormattedException {
-          FSDataInputStream in = null;
-          for (String path : request.entries) {
-            try {
-              try {
-                in = getApi().open(path);
-              } catch (AccessControlException ex) {
-                LOG.error("Error in opening file {}. Ignoring concat of this files.", path.substring(1), ex);
-                continue;
-              }
-
-              long bytesCopied = IOUtils.copyLarge(in, output);
-              LOG.info("concated file : {}, total bytes added = {}", path, bytesCopied);
-            } catch (Exception ex) {
-              LOG.error("Error occurred : ", ex);
-              throw new ServiceFormattedException(ex.getMessage(), ex);
-            } finally {
-              if (in != null)
-                in.close();
-            }
+          try {
+            prefetcher.writeConcat(files, offset, count, output);
+          } catch (Exception ex) {
+            LOG.error("Error occurred : ", ex);
+            throw new ServiceFormattedException(ex.getMessage(), ex);
+          } finally {
+            prefetcher.close();
           }
         }
       };
-      ResponseBuilder response = Response.ok(result);
+
+      ResponseBuilder response;
+      if (bounds[0] > 0 || bounds[1] < length - 1) {
+        response = Response.status(PARTIAL_CONTENT).entity(result)
+            .header("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + length);
+      } else {
+        response = Response.ok(result);
+      }
+      response.header("Accept-Ranges", "bytes").header("Content-Length", count);
       if (request.download) {
         response.header("Content-Disposition", "attachment; filename=\"concatResult.txt\"").type(MediaType.APPLICATION_OCTET_STREAM);
       } else {
@@ -283,14 +263,103 @@ public class DownloadService extends HdfsService {
       }
       return response.build();
     } catch (WebApplicationException ex) {
+      prefetcher.close();
       LOG.error("Error occurred ", ex);
       throw ex;
     } catch (Exception ex) {
+      prefetcher.close();
       LOG.error("Error occurred ", ex);
-      throw new ServiceFormattedException(ex.getMessage(), ex);
+      throw toFormattedException(ex);
     }
   }
 
+  /**
+   * Parses the value of a Range header against the length of a download.
+   * Only single byte ranges are supported; other ranges are ignored.
+   * @param range value of the Range header, may be null
+   * @param length length of the download
+   * @return first and last byte of the range, the whole download if the
+   *         header is missing or not supported, or null if the range can not
+   *         be satisfied
+   */
+  static long[] parseRange(String range, long length) {
+    long[] whole = new long[] { 0, length - 1 };
+    if (range == null || !range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+      return whole;
+    }
+
+    String spec = range.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return whole;
+    }
+
+    long first;
+    long last;
+    try {
+      if (dash == 0) {
+        long suffix = Long.parseLong(spec.substring(1));
+        first = Math.max(0, length - suffix);
+        last = length - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dash));
+        last = dash == spec.length() - 1 ? length - 1 : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+      }
+    } catch (NumberFormatException ex) {
+      return whole;
+    }
+
+    if (first > last || first >= length) {
+      return null;
+    }
+    return new long[] { first, last };
+  }
+
+  private DownloadPrefetcher createPrefetcher() {
+    return new DownloadPrefetcher(getApi(), getPrefetchPool(),
+        getIntProperty(DOWNLOAD_MAX_ENTRIES, DownloadPrefetcher.DEFAULT_MAX_ENTRIES),
+        getIntProperty(DOWNLOAD_MAX_SIZE_MB, (int) (DownloadPrefetcher.DEFAULT_MAX_BYTES / MEGABYTE)) * MEGABYTE);
+  }
+
+  private DownloadPrefetcher.Pool getPrefetchPool() {
+    DownloadPrefetcher.Pool pool = prefetchPools.get(context.getInstanceName());
+    if (pool == null) {
+      DownloadPrefetcher.Pool newPool = new DownloadPrefetcher.Pool(
+          getIntProperty(DOWNLOAD_PREFETCH_THREADS, DownloadPrefetcher.DEFAULT_THREADS),
+          getIntProperty(DOWNLOAD_PREFETCH_BUFFER_MB, (int) (DownloadPrefetcher.DEFAULT_BUFFER_BYTES / MEGABYTE)) * MEGABYTE);
+      pool = prefetchPools.putIfAbsent(context.getInstanceName(), newPool);
+      if (pool == null) {
+        pool = newPool;
+      } else {
+        newPool.shutdown();
+      }
+    }
+    return pool;
+  }
+
+  private int getIntProperty(String name, int defaultValue) {
+    String value = context.getProperties().get(name);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException ex) {
+      LOG.warn("Invalid value {} of {}, using {}", value, name, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private static WebApplicationException toFormattedException(Exception ex) {
+    if (ex instanceof DownloadPrefetcher.LimitExceededException) {
+      return new ServiceFormattedException(ex.getMessage(), ex, REQUEST_ENTITY_TOO_LARGE);
+    }
+    if (ex instanceof FileNotFoundException) {
+      return new NotFoundFormattedException(ex.getMessage(), ex);
+    }
+    return new ServiceFormattedException(ex.getMessage(), ex);
+  }
+
   // ===============================
   // Download files by unique link
 
@@ -333,19 +402,26 @@ public class DownloadService extends HdfsService {
   }
 
   /**
-   * Concatenate files by unique link
+   * Concatenate files by unique link. The link stays valid for an hour after
+   * it was last used, so that interrupted downloads can be resumed.
    * @param requestId id of request
+   * @param range value of the Range header, to resume an interrupted download
    * @return response with concatenated files
    */
   @GET
   @Path("/concat")
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
-  public Response concatByRequestId(@QueryParam("requestId") String requestId) {
+  public Response concatByRequestId(@QueryParam("requestId") String requestId, @HeaderParam("Range") String range) {
     LOG.info("Starting concat for requestId : {}", requestId);
     try {
-      DownloadRequest request = getDownloadRequest(requestId);
-      return concat(request);
+      String key = context.getInstanceName() + "/" + requestId;
+      DownloadRequest request = concatRequests.getIfPresent(key);
+      if (request == null) {
+        request = getDownloadRequest(requestId);
+        concatRequests.put(key, request);
+      }
+      return concat(request, range);
     } catch (WebApplicationException ex) {
       LOG.error("Error occurred : ", ex);
       throw ex;
@@ -359,7 +435,7 @@ public class DownloadService extends HdfsService {
    * Generate link for concat
    * @param request download request
    * @return response wth request id
-   * @see #concatByRequestId(String)
+   * @see #concatByRequestId(String, String)
    */
   @POST
   @Path("/concat/generate-link")
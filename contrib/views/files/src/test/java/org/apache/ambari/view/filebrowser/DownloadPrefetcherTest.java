@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import org.apache.ambari.view.ViewContext;
+import org.apache.ambari.view.utils.hdfs.ConfigurationBuilder;
+import org.apache.ambari.view.utils.hdfs.HdfsApi;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Tests {@link DownloadPrefetcher} against the local file system.
+ */
+public class DownloadPrefetcherTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Map<String, Integer> opens = new HashMap<String, Integer>();
+  private HdfsApi api;
+  private DownloadPrefetcher.Pool pool;
+  private String root;
+
+  @Before
+  public void setUp() throws Exception {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("webhdfs.url", "file:///");
+    ViewContext context = createNiceMock(ViewContext.class);
+    expect(context.getProperties()).andReturn(properties).anyTimes();
+    replay(context);
+
+    api = new HdfsApi(new ConfigurationBuilder(context), System.getProperty("user.name")) {
+      @Override
+      public FSDataInputStream open(String path) throws IOException, InterruptedException {
+        synchronized (opens) {
+          Integer count = opens.get(path);
+          opens.put(path, count == null ? 1 : count + 1);
+        }
+        return super.open(path);
+      }
+    };
+    pool = new DownloadPrefetcher.Pool(3, 1000);
+    root = temporaryFolder.getRoot().getCanonicalPath();
+
+    createFile("dir/a.txt", "first file");
+    createFile("dir/sub/b.txt", "second");
+    createFile("dir/sub/deeper/c.txt", "");
+    createFile("dir/z.txt", "last file of the directory");
+    createFile("single.txt", "single");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that the entries are zipped breadth first, with every file opened
+   * once and read in several chunks ahead of the writer.
+   */
+  @Test
+  public void testZip() throws Exception {
+    DownloadPrefetcher prefetcher = new DownloadPrefetcher(api, pool, 100, 1000, 4, 2);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      List<DownloadPrefetcher.Entry> entries = prefetcher.walk(new String[] { root + "/dir", root + "/single.txt" });
+      prefetcher.writeZip(entries, output);
+    } finally {
+      prefetcher.close();
+    }
+
+    List<String> names = new ArrayList<String>();
+    Map<String, String> contents = unzip(output.toByteArray(), names);
+
+    Assert.assertEquals(8, names.size());
+    Assert.assertEquals("dir/", names.get(0));
+    Assert.assertEquals("single.txt", names.get(1));
+    Assert.assertEquals("dir/sub/deeper/", names.get(6));
+    Assert.assertEquals("dir/sub/deeper/c.txt", names.get(7));
+    Assert.assertTrue(names.indexOf("dir/sub/") < names.indexOf("dir/sub/b.txt"));
+    Assert.assertEquals("last file of the directory", contents.get("dir/z.txt"));
+    Assert.assertEquals("second", contents.get("dir/sub/b.txt"));
+    Assert.assertEquals("", contents.get("dir/sub/deeper/c.txt"));
+    Assert.assertEquals("single", contents.get("single.txt"));
+    Assert.assertEquals(5, opens.size());
+    for (Integer count : opens.values()) {
+      Assert.assertEquals(1, count.intValue());
+    }
+    Assert.assertEquals(0, pool.getBufferedBytes());
+  }
+
+  /**
+   * Tests that concurrent downloads complete on a single shared thread with
+   * a buffer of a single chunk, and that an aborted download releases the
+   * chunks it read ahead.
+   */
+  @Test(timeout = 30000)
+  public void testSharedPool() throws Exception {
+    pool.shutdown();
+    pool = new DownloadPrefetcher.Pool(1, 4);
+    final String[] paths = new String[] { root + "/dir", root + "/single.txt" };
+
+    ExecutorService writers = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<byte[]>> zips = new ArrayList<Future<byte[]>>();
+      for (int i = 0; i < 3; i++) {
+        zips.add(writers.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            DownloadPrefetcher prefetcher = new DownloadPrefetcher(api, pool, 100, 1000, 4, 16);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try {
+              prefetcher.writeZip(prefetcher.walk(paths), output);
+            } finally {
+              prefetcher.close();
+            }
+            return output.toByteArray();
+          }
+        }));
+      }
+      for (Future<byte[]> zip : zips) {
+        Map<String, String> contents = unzip(zip.get(), new ArrayList<String>());
+        Assert.assertEquals("last file of the directory", contents.get("dir/z.txt"));
+        Assert.assertEquals("single", contents.get("single.txt"));
+      }
+    } finally {
+      writers.shutdownNow();
+    }
+    Assert.assertEquals(0, pool.getBufferedBytes());
+
+    pool.shutdown();
+    pool = new DownloadPrefetcher.Pool(3, 1000);
+    DownloadPrefetcher prefetcher = new DownloadPrefetcher(api, pool, 100, 1000, 4, 16);
+    try {
+      prefetcher.writeZip(prefetcher.walk(paths), new OutputStream() {
+        private int written;
+
+        @Override
+        public void write(int b) throws IOException {
+          if (++written > 100) {
+            throw new IOException("Connection reset");
+          }
+        }
+      });
+      Assert.fail("Expected the download to fail");
+    } catch (IOException ex) {
+      // expected
+    } finally {
+      prefetcher.close();
+    }
+    // the readers of the aborted download may still be finishing their chunks
+    for (int i = 0; i < 100 && pool.getBufferedBytes() > 0; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, pool.getBufferedBytes());
+  }
+
+  /**
+   * Tests that downloads over the limits fail before anything is read.
+   */
+  @Test
+  public void testLimits() throws Exception {
+    String[] paths = new String[] { root + "/dir" };
+
+    DownloadPrefetcher prefetcher = new DownloadPrefetcher(api, pool, 5, 1000);
+    try {
+      prefetcher.walk(paths);
+      Assert.fail("Expected the entries to be over the limit");
+    } catch (DownloadPrefetcher.LimitExceededException ex) {
+      // expected
+    } finally {
+      prefetcher.close();
+    }
+
+    prefetcher = new DownloadPrefetcher(api, pool, 100, 20);
+    try {
+      prefetcher.walk(paths);
+      Assert.fail("Expected the size to be over the limit");
+    } catch (DownloadPrefetcher.LimitExceededException ex) {
+      // expected
+    } finally {
+      prefetcher.close();
+    }
+
+    prefetcher = new DownloadPrefetcher(api, pool, 100, 1000);
+    try {
+      Assert.assertEquals(7, prefetcher.walk(paths).size());
+    } finally {
+      prefetcher.close();
+    }
+  }
+
+  /**
+   * Tests that any range of a concatenation can be written, so that
+   * interrupted downloads can be resumed.
+   */
+  @Test
+  public void testConcatRange() throws Exception {
+    String[] paths = new String[] { root + "/dir/a.txt", root + "/dir/sub/deeper/c.txt", root + "/dir/z.txt" };
+    String concatenated = "first file" + "last file of the directory";
+
+    DownloadPrefetcher prefetcher = new DownloadPrefetcher(api, pool, 100, 1000, 3, 2);
+    try {
+      List<DownloadPrefetcher.Entry> files = prefetcher.getFiles(paths);
+      Assert.assertEquals(3, files.size());
+
+      for (int offset = 0; offset < concatenated.length(); offset += 7) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int length = Math.min(9, concatenated.length() - offset);
+        prefetcher.writeConcat(files, offset, length, output);
+        Assert.assertEquals(concatenated.substring(offset, offset + length), output.toString("UTF-8"));
+      }
+    } finally {
+      prefetcher.close();
+    }
+  }
+
+  private Map<String, String> unzip(byte[] data, List<String> names) throws IOException {
+    ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data));
+    Map<String, String> contents = new HashMap<String, String>();
+    ZipEntry entry;
+    String prefix = root.substring(1) + "/";
+    while ((entry = zip.getNextEntry()) != null) {
+      String name = entry.getName().substring(prefix.length());
+      names.add(name);
+      contents.put(name, IOUtils.toString(zip, "UTF-8"));
+    }
+    return contents;
+  }
+
+  private void createFile(String path, String content) throws Exception {
+    FileUtils.writeStringToFile(new File(temporaryFolder.getRoot(), path), content, "UTF-8");
+  }
+}
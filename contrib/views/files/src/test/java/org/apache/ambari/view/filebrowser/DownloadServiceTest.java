@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.filebrowser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DownloadServiceTest {
+
+  @Test
+  public void testParseRange() throws Exception {
+    Assert.assertArrayEquals(new long[] { 0, 99 }, DownloadService.parseRange(null, 100));
+    Assert.assertArrayEquals(new long[] { 10, 99 }, DownloadService.parseRange("bytes=10-", 100));
+    Assert.assertArrayEquals(new long[] { 10, 19 }, DownloadService.parseRange("bytes=10-19", 100));
+    Assert.assertArrayEquals(new long[] { 10, 99 }, DownloadService.parseRange("bytes=10-500", 100));
+    Assert.assertArrayEquals(new long[] { 80, 99 }, DownloadService.parseRange("bytes=-20", 100));
+
+    // unsupported ranges are ignored
+    Assert.assertArrayEquals(new long[] { 0, 99 }, DownloadService.parseRange("bytes=0-9,20-29", 100));
+    Assert.assertArrayEquals(new long[] { 0, 99 }, DownloadService.parseRange("items=1-2", 100));
+
+    // unsatisfiable ranges
+    Assert.assertNull(DownloadService.parseRange("bytes=100-", 100));
+    Assert.assertNull(DownloadService.parseRange("bytes=20-10", 100));
+  }
+}
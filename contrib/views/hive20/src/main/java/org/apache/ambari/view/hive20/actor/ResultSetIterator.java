@@ -84,6 +84,10 @@ public class ResultSetIterator extends HiveActor {
     if (message instanceof KeepAlive) {
       sendKeepAlive();
     }
+
+    if (message instanceof CleanUp) {
+      cleanUpResources();
+    }
   }
 
   private void resetResultSet() {
@@ -23,6 +23,7 @@ import akka.actor.ActorSystem;
 import akka.actor.Inbox;
 import com.google.common.collect.Lists;
 import org.apache.ambari.view.ViewContext;
+import org.apache.ambari.view.hive20.actor.message.lifecycle.CleanUp;
 import org.apache.ambari.view.hive20.actor.message.lifecycle.KeepAlive;
 import org.apache.ambari.view.hive20.utils.HiveActorConfiguration;
 import org.apache.ambari.view.hive20.utils.ServiceFormattedException;
@@ -34,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.concurrent.duration.Duration;
 
+import java.io.Closeable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
@@ -43,7 +45,7 @@ import java.util.concurrent.TimeUnit;
  * Wrapper over iterator actor and blocks to fetch Rows and ColumnDescription whenever there is no more Rows to be
  * returned.
  */
-public class NonPersistentCursor implements Cursor<Row, ColumnDescription> {
+public class NonPersistentCursor implements Cursor<Row, ColumnDescription>, Closeable {
   private final Logger LOG = LoggerFactory.getLogger(getClass());
   private static long DEFAULT_WAIT_TIMEOUT = 60 * 1000L;
 
@@ -92,6 +94,15 @@ public class NonPersistentCursor implements Cursor<Row, ColumnDescription> {
     inbox.send(actorRef, new KeepAlive());
   }
 
+  /**
+   * Releases the result set held by the iterator actor, the cursor can not be read afterwards
+   */
+  @Override
+  public void close() {
+    Inbox inbox = Inbox.create(system);
+    inbox.send(actorRef, new CleanUp());
+  }
+
   @Override
   public Iterator<Row> iterator() {
     return this;
@@ -348,13 +348,14 @@ public class JobService extends BaseService {
   @Produces(MediaType.APPLICATION_JSON)
   public Response getResults(@PathParam("jobId") final String jobId,
                              @QueryParam("first") final String fromBeginning,
+                             @QueryParam("offset") Integer offset,
                              @QueryParam("count") Integer count,
                              @QueryParam("searchId") String searchId,
                              @QueryParam("format") String format,
                              @QueryParam("columns") final String requestedColumns) {
     try {
 
-      return ResultsPaginationController.getResultAsResponse(jobId, fromBeginning, count, searchId, format, requestedColumns, context);
+      return ResultsPaginationController.getResultAsResponse(jobId, fromBeginning, offset, count, searchId, format, requestedColumns, context);
 
     } catch (WebApplicationException ex) {
       throw ex;
@@ -0,0 +1,318 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive20.resources.jobs;
+
+import org.apache.ambari.view.hive20.client.Row;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append only spool of result rows on local disk.
+ * Rows are written in a compact binary format, one type tag and value per column.
+ * The file offset of every {@link #INDEX_INTERVAL}th row is kept in memory, so that
+ * a page can be read from any offset without reading the rows before it.
+ */
+public class ResultSpool {
+  static final int INDEX_INTERVAL = 64;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_STRING = 1;
+  private static final byte TYPE_INT = 2;
+  private static final byte TYPE_LONG = 3;
+  private static final byte TYPE_DOUBLE = 4;
+  private static final byte TYPE_FLOAT = 5;
+  private static final byte TYPE_BOOLEAN = 6;
+  private static final byte TYPE_SHORT = 7;
+  private static final byte TYPE_BYTE = 8;
+  private static final byte TYPE_DECIMAL = 9;
+  private static final byte TYPE_TIMESTAMP = 10;
+  private static final byte TYPE_DATE = 11;
+  private static final byte TYPE_BINARY = 12;
+
+  private final File file;
+  private final int columnCount;
+  private DataOutputStream output;
+  private long size;
+  private int rowCount;
+  private long[] index = new long[16];
+  private boolean complete;
+  private boolean deleted;
+
+  public ResultSpool(File file, int columnCount) throws IOException {
+    this.file = file;
+    this.columnCount = columnCount;
+    this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+  }
+
+  /**
+   * Appends a row to the spool
+   * @param row row with a value for each column
+   * @return number of bytes the row takes in the spool
+   * @throws IOException
+   */
+  public synchronized long append(Row row) throws IOException {
+    if (deleted) {
+      throw new IOException("Result spool " + file + " was deleted");
+    }
+    if (complete) {
+      throw new IllegalStateException("Result spool " + file + " is complete");
+    }
+    if (rowCount % INDEX_INTERVAL == 0) {
+      int slot = rowCount / INDEX_INTERVAL;
+      if (slot == index.length) {
+        index = Arrays.copyOf(index, index.length * 2);
+      }
+      index[slot] = size;
+    }
+
+    long written = 0;
+    Object[] values = row.getRow();
+    for (int i = 0; i < columnCount; i++) {
+      written += writeValue(i < values.length ? values[i] : null);
+    }
+    size += written;
+    rowCount++;
+    return written;
+  }
+
+  /**
+   * Marks the spool as holding the whole result, no rows can be appended afterwards
+   * @throws IOException
+   */
+  public synchronized void complete() throws IOException {
+    if (deleted) {
+      throw new IOException("Result spool " + file + " was deleted");
+    }
+    if (!complete) {
+      output.close();
+      complete = true;
+    }
+  }
+
+  /**
+   * Reads rows from the spool
+   * @param offset offset of the first row
+   * @param count maximal number of rows to read
+   * @return rows, fewer than count if the spool ends before
+   * @throws IOException
+   */
+  public synchronized List<Row> read(int offset, int count) throws IOException {
+    if (deleted) {
+      throw new IOException("Result spool " + file + " was deleted");
+    }
+    int last = Math.min(rowCount, offset + count);
+    List<Row> rows = new ArrayList<>(Math.max(0, last - offset));
+    if (offset >= last) {
+      return rows;
+    }
+    if (!complete) {
+      output.flush();
+    }
+
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      randomAccessFile.seek(index[offset / INDEX_INTERVAL]);
+      DataInputStream input = new DataInputStream(new BufferedInputStream(
+        Channels.newInputStream(randomAccessFile.getChannel()), BUFFER_SIZE));
+      for (int current = offset - offset % INDEX_INTERVAL; current < last; current++) {
+        Object[] values = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+          values[i] = readValue(input);
+        }
+        if (current >= offset) {
+          rows.add(new Row(values));
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Closes and deletes the spool file
+   */
+  public synchronized void delete() {
+    if (deleted) {
+      return;
+    }
+    deleted = true;
+    try {
+      if (!complete) {
+        output.close();
+      }
+    } catch (IOException e) {
+      // the file is deleted anyway
+    }
+    file.delete();
+  }
+
+  public synchronized int getRowCount() {
+    return rowCount;
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized boolean isComplete() {
+    return complete;
+  }
+
+  public synchronized boolean isDeleted() {
+    return deleted;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes a type tag and the value
+   * @param value
+   * @return number of bytes written
+   * @throws IOException
+   */
+  private int writeValue(Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(TYPE_NULL);
+      return 1;
+    } else if (value instanceof Integer) {
+      output.writeByte(TYPE_INT);
+      output.writeInt((Integer) value);
+      return 5;
+    } else if (value instanceof Long) {
+      output.writeByte(TYPE_LONG);
+      output.writeLong((Long) value);
+      return 9;
+    } else if (value instanceof Double) {
+      output.writeByte(TYPE_DOUBLE);
+      output.writeDouble((Double) value);
+      return 9;
+    } else if (value instanceof Float) {
+      output.writeByte(TYPE_FLOAT);
+      output.writeFloat((Float) value);
+      return 5;
+    } else if (value instanceof Boolean) {
+      output.writeByte(TYPE_BOOLEAN);
+      output.writeBoolean((Boolean) value);
+      return 2;
+    } else if (value instanceof Short) {
+      output.writeByte(TYPE_SHORT);
+      output.writeShort((Short) value);
+      return 3;
+    } else if (value instanceof Byte) {
+      output.writeByte(TYPE_BYTE);
+      output.writeByte((Byte) value);
+      return 2;
+    } else if (value instanceof BigDecimal) {
+      output.writeByte(TYPE_DECIMAL);
+      return 1 + writeString(value.toString());
+    } else if (value instanceof Timestamp) {
+      // the milliseconds and the nanoseconds, which the milliseconds do not hold all of
+      Timestamp timestamp = (Timestamp) value;
+      output.writeByte(TYPE_TIMESTAMP);
+      output.writeLong(timestamp.getTime());
+      output.writeInt(timestamp.getNanos());
+      return 13;
+    } else if (value instanceof Date) {
+      output.writeByte(TYPE_DATE);
+      output.writeLong(((Date) value).getTime());
+      return 9;
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      output.writeByte(TYPE_BINARY);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+      return 5 + bytes.length;
+    } else {
+      // strings, and everything else the results are rendered from as a string
+      output.writeByte(TYPE_STRING);
+      return 1 + writeString(String.valueOf(value));
+    }
+  }
+
+  private int writeString(String value) throws IOException {
+    // writeUTF is limited to 64k, long strings are common in results
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+    return 4 + bytes.length;
+  }
+
+  private static Object readValue(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_STRING:
+        return readString(input);
+      case TYPE_INT:
+        return input.readInt();
+      case TYPE_LONG:
+        return input.readLong();
+      case TYPE_DOUBLE:
+        return input.readDouble();
+      case TYPE_FLOAT:
+        return input.readFloat();
+      case TYPE_BOOLEAN:
+        return input.readBoolean();
+      case TYPE_SHORT:
+        return input.readShort();
+      case TYPE_BYTE:
+        return input.readByte();
+      case TYPE_DECIMAL:
+        return new BigDecimal(readString(input));
+      case TYPE_TIMESTAMP:
+        Timestamp timestamp = new Timestamp(input.readLong());
+        timestamp.setNanos(input.readInt());
+        return timestamp;
+      case TYPE_DATE:
+        return new Date(input.readLong());
+      case TYPE_BINARY:
+        return readBytes(input);
+      default:
+        throw new IOException("Unknown value type " + type + " in result spool");
+    }
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    return new String(readBytes(input), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive20.resources.jobs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the result spools of a view instance in a local directory.
+ * The directory and the spools are only accessible by the server user.
+ * The spools of a user take at most the given quota of disk space. When a spool
+ * grows over the quota, the least recently used spools of the same user are evicted.
+ */
+public class ResultSpoolStore {
+  private static final Logger LOG = LoggerFactory.getLogger(ResultSpoolStore.class);
+  private static final String SPOOL_FILE_PREFIX = "results-";
+  private static final String SPOOL_FILE_SUFFIX = ".spool";
+  private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+  private static final Set<PosixFilePermission> SPOOL_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+  /**
+   * Notified when a spool is evicted to make room for another one
+   */
+  public interface EvictionListener {
+    void onEvicted(String key);
+  }
+
+  private final File directory;
+  private final long userQuota;
+  private final EvictionListener evictionListener;
+
+  /**
+   * Spools in the order they were last used
+   */
+  private final LinkedHashMap<String, Entry> spools = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> userUsage = new HashMap<>();
+
+  private static class Entry {
+    private final String username;
+    private final ResultSpool spool;
+    private long reserved;
+
+    private Entry(String username, ResultSpool spool) {
+      this.username = username;
+      this.spool = spool;
+    }
+  }
+
+  /**
+   * Creates the store, the spools left in the directory by a previous run are deleted
+   * @param directory directory for the spool files, created if missing
+   * @param userQuota bytes the spools of a single user may take
+   * @param evictionListener
+   */
+  public ResultSpoolStore(File directory, long userQuota, EvictionListener evictionListener) {
+    this.directory = directory;
+    this.userQuota = userQuota;
+    this.evictionListener = evictionListener;
+
+    try {
+      prepareDirectory();
+    } catch (IOException e) {
+      LOG.warn("Results can only be read in order until the result spool directory can be used", e);
+      return;
+    }
+    File[] staleSpools = directory.listFiles();
+    if (staleSpools != null) {
+      for (File staleSpool : staleSpools) {
+        if (staleSpool.getName().startsWith(SPOOL_FILE_PREFIX) && staleSpool.getName().endsWith(SPOOL_FILE_SUFFIX)) {
+          staleSpool.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a new spool, replacing the spool with the same key
+   * @param key key of the result
+   * @param username owner of the result
+   * @param columnCount number of columns of the result
+   * @return the spool
+   * @throws IOException if the spool file can not be created
+   */
+  public synchronized ResultSpool create(String key, String username, int columnCount) throws IOException {
+    remove(key);
+    Path path = prepareDirectory();
+    Path file = isPosix(path)
+      ? Files.createTempFile(path, SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX, PosixFilePermissions.asFileAttribute(SPOOL_FILE_PERMISSIONS))
+      : Files.createTempFile(path, SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX);
+    ResultSpool spool = new ResultSpool(file.toFile(), columnCount);
+    spools.put(key, new Entry(username, spool));
+    return spool;
+  }
+
+  /**
+   * Accounts bytes appended to a spool against the quota of its user, evicting the
+   * least recently used spools of the user when needed
+   * @param key key of the result
+   * @param bytes number of bytes appended
+   * @return false if the spool does not fit into the quota, it should be removed then
+   */
+  public boolean reserve(String key, long bytes) {
+    List<String> evicted = new ArrayList<>();
+    boolean reserved;
+    synchronized (this) {
+      Entry entry = spools.get(key);
+      if (entry == null) {
+        return false;
+      }
+      long usage = getUsage(entry.username);
+      Iterator<Map.Entry<String, Entry>> iterator = spools.entrySet().iterator();
+      while (usage + bytes > userQuota && iterator.hasNext()) {
+        Map.Entry<String, Entry> candidate = iterator.next();
+        if (candidate.getValue() != entry && candidate.getValue().username.equals(entry.username)) {
+          iterator.remove();
+          usage = release(candidate.getValue());
+          evicted.add(candidate.getKey());
+        }
+      }
+
+      reserved = usage + bytes <= userQuota;
+      if (reserved) {
+        entry.reserved += bytes;
+        userUsage.put(entry.username, usage + bytes);
+      }
+    }
+
+    // notified without holding the lock, the listener may touch other locks
+    for (String evictedKey : evicted) {
+      LOG.info("Evicted result spool {} to keep the spooled results within the user quota", evictedKey);
+      evictionListener.onEvicted(evictedKey);
+    }
+    return reserved;
+  }
+
+  /**
+   * Marks the spool as recently used
+   * @param key key of the result
+   */
+  public synchronized void touch(String key) {
+    spools.get(key);
+  }
+
+  /**
+   * Deletes the spool of the result if there is one
+   * @param key key of the result
+   */
+  public synchronized void remove(String key) {
+    Entry entry = spools.remove(key);
+    if (entry != null) {
+      release(entry);
+    }
+  }
+
+  /**
+   * @param username
+   * @return number of bytes the spools of the user take
+   */
+  public synchronized long getUsage(String username) {
+    Long usage = userUsage.get(username);
+    return usage == null ? 0 : usage;
+  }
+
+  public synchronized int size() {
+    return spools.size();
+  }
+
+  /**
+   * Creates the spool directory accessible by the server user only. A directory which is
+   * a link or which is owned by another user is refused, others could read the results there.
+   * @return path of the directory
+   * @throws IOException if the directory can not be created or is refused
+   */
+  private Path prepareDirectory() throws IOException {
+    Path path = directory.toPath();
+    boolean posix = isPosix(path);
+    if (posix) {
+      Files.createDirectories(path, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+    } else {
+      Files.createDirectories(path);
+    }
+    if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("The result spool directory " + directory + " is not a directory");
+    }
+    if (posix) {
+      String owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).getName();
+      if (!owner.equals(System.getProperty("user.name"))) {
+        throw new IOException("The result spool directory " + directory + " is owned by " + owner +
+          " instead of the server user");
+      }
+      Files.setPosixFilePermissions(path, DIRECTORY_PERMISSIONS);
+    }
+    return path;
+  }
+
+  private static boolean isPosix(Path path) {
+    return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+  }
+
+  private long release(Entry entry) {
+    entry.spool.delete();
+    long usage = getUsage(entry.username) - entry.reserved;
+    if (usage > 0) {
+      userUsage.put(entry.username, usage);
+    } else {
+      userUsage.remove(entry.username);
+    }
+    return Math.max(0, usage);
+  }
+}
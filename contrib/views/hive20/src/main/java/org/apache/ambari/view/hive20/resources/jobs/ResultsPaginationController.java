@@ -25,6 +25,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.ambari.view.ViewContext;
 import org.apache.ambari.view.hive20.ConnectionSystem;
 import org.apache.ambari.view.hive20.client.AsyncJobRunner;
@@ -42,6 +43,7 @@ import org.apache.ambari.view.hive20.utils.ServiceFormattedException;
 import org.apache.commons.collections4.map.PassiveExpiringMap;
 
 import javax.ws.rs.core.Response;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,35 +52,88 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Results Pagination Controller
- * Persists cursors for result sets
+ * Persists cursors for result sets.
+ * The rows read from a cursor are spooled to local disk, so that pages read before can be
+ * read again from the spool and the result set is released once it was read to the end.
  */
 public class ResultsPaginationController {
   public static final String DEFAULT_SEARCH_ID = "default";
+  public static final String RESULTS_SPOOL_DIR_PROPERTY = "results.spool.dir";
+  public static final String RESULTS_SPOOL_USER_QUOTA_PROPERTY = "results.spool.user.quota.mb";
+  private static final long DEFAULT_RESULTS_SPOOL_USER_QUOTA = 256;
+  private static final String VIEWS_DIR_PROPERTY = "views.dir";
+  private static final String DEFAULT_VIEWS_DIR = "/var/lib/ambari-server/resources/views";
   private static Map<String, ResultsPaginationController> viewSingletonObjects = new HashMap<String, ResultsPaginationController>();
   public static ResultsPaginationController getInstance(ViewContext context) {
     if (!viewSingletonObjects.containsKey(context.getInstanceName()))
-      viewSingletonObjects.put(context.getInstanceName(), new ResultsPaginationController());
+      viewSingletonObjects.put(context.getInstanceName(), new ResultsPaginationController(getSpoolDirectory(context),
+        getSpoolUserQuota(context)));
     return viewSingletonObjects.get(context.getInstanceName());
   }
 
-  public ResultsPaginationController() {
+  /**
+   * @param spoolDirectory directory the results are spooled to
+   * @param spoolUserQuota bytes the spooled results of a single user may take
+   */
+  public ResultsPaginationController(File spoolDirectory, long spoolUserQuota) {
+    spoolStore = new ResultSpoolStore(spoolDirectory, spoolUserQuota, new ResultSpoolStore.EvictionListener() {
+      @Override
+      public void onEvicted(String key) {
+        getResultsCache().remove(key);
+      }
+    });
+  }
+
+  /**
+   * The results are spooled to the configured directory, by default to the work directory
+   * the view archive was extracted to.
+   */
+  private static File getSpoolDirectory(ViewContext context) {
+    String directory = context.getProperties().get(RESULTS_SPOOL_DIR_PROPERTY);
+    if (Strings.isNullOrEmpty(directory)) {
+      String viewsDirectory = context.getAmbariProperty(VIEWS_DIR_PROPERTY);
+      if (Strings.isNullOrEmpty(viewsDirectory)) {
+        viewsDirectory = DEFAULT_VIEWS_DIR;
+      }
+      String viewName = context.getViewDefinition().getViewName() + "{" + context.getViewDefinition().getVersion() + "}";
+      directory = new File(new File(new File(viewsDirectory, "work"), viewName), "results").getPath();
+    }
+    return new File(directory, context.getInstanceName());
+  }
+
+  private static long getSpoolUserQuota(ViewContext context) {
+    String quota = context.getProperties().get(RESULTS_SPOOL_USER_QUOTA_PROPERTY);
+    long quotaMb = Strings.isNullOrEmpty(quota) ? DEFAULT_RESULTS_SPOOL_USER_QUOTA : Long.parseLong(quota.trim());
+    return quotaMb * 1024 * 1024;
   }
 
   private static final long EXPIRING_TIME = 10*60*1000;  // 10 minutes
   private static final int DEFAULT_FETCH_COUNT = 50;
+  private static final int PREFETCH_THREADS = 4;
+  private static final int PREFETCH_QUEUE_SIZE = 100;
+  /**
+   * Looks for the rows following a page while the page is sent, skipping the lookups which do
+   * not fit into the queue since the next request looks for the rows itself.
+   */
+  private static final ExecutorService prefetchExecutor = createPrefetchExecutor();
   private Map<String, Cursor<Row, ColumnDescription>> resultsCache;
+  private final ResultSpoolStore spoolStore;
 
-  public static Response getResultAsResponse(final String jobId, final String fromBeginning, Integer count, String searchId, String format, String requestedColumns, ViewContext context) throws HiveClientException {
+  public static Response getResultAsResponse(final String jobId, final String fromBeginning, Integer offset, Integer count, String searchId, String format, String requestedColumns, ViewContext context) throws HiveClientException {
     final String username = context.getUsername();
 
     ConnectionSystem system = ConnectionSystem.getInstance();
     final AsyncJobRunner asyncJobRunner = new AsyncJobRunnerImpl(context, system.getOperationController(context), system.getActorSystem());
 
     return getInstance(context)
-            .request(jobId, searchId, true, fromBeginning, count, format,requestedColumns,
+            .request(jobId, username, searchId, true, fromBeginning, offset, count, format,requestedColumns,
               createCallableMakeResultSets(jobId, fromBeginning, username, asyncJobRunner)).build();
   }
 
@@ -90,7 +145,7 @@ public class ResultsPaginationController {
     final AsyncJobRunner asyncJobRunner = new AsyncJobRunnerImpl(context, system.getOperationController(context), system.getActorSystem());
 
     return getInstance(context)
-            .fetchResult(jobId, searchId, true, fromBeginning, count, requestedColumns,
+            .fetchResult(jobId, username, searchId, true, fromBeginning, null, count, requestedColumns,
               createCallableMakeResultSets(jobId, fromBeginning, username, asyncJobRunner));
   }
 
@@ -124,19 +179,75 @@ public class ResultsPaginationController {
       if (key.startsWith("$")) {
         return -1;  //never expire
       }
+      if (value instanceof SpooledCursor && ((SpooledCursor) value).isComplete()) {
+        return -1;  //kept until evicted from the spool
+      }
       return super.expirationTime(key, value);
     }
   }
 
+  private static ExecutorService createPrefetchExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(PREFETCH_QUEUE_SIZE),
+      new ThreadFactoryBuilder().setNameFormat("hive20-results-prefetch-%d").setDaemon(true).build(),
+      new ThreadPoolExecutor.DiscardPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Looks for the rows following the page read from the cursor off the request thread, which
+   * completes the spool once the result was read to the end.
+   * A completely spooled result is put again, so that it no longer expires.
+   * @param key name/id of results request
+   * @param cursor cursor the page was read from
+   */
+  private void prefetch(final String key, final SpooledCursor cursor) {
+    prefetchExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        boolean complete = cursor.isComplete();
+        cursor.prefetch();
+        if (!complete && cursor.isComplete()) {
+          Map<String, Cursor<Row, ColumnDescription>> cache = getResultsCache();
+          synchronized (cache) {
+            if (cache.get(key) == cursor) {
+              cache.put(key, cursor);
+            }
+          }
+        }
+      }
+    });
+  }
+
   private Map<String, Cursor<Row, ColumnDescription>> getResultsCache() {
     if (resultsCache == null) {
-      PassiveExpiringMap<String, Cursor<Row, ColumnDescription>> resultsCacheExpiringMap =
-          new PassiveExpiringMap<>(new CustomTimeToLiveExpirationPolicy(EXPIRING_TIME));
-      resultsCache = Collections.synchronizedMap(resultsCacheExpiringMap);
+      resultsCache = createResultsCache(EXPIRING_TIME, spoolStore);
     }
     return resultsCache;
   }
 
+  /**
+   * Creates the cache of the cursors being read. The spool of a cursor is deleted when the
+   * cursor is removed from the cache, also when it expires.
+   * @param timeToLiveMillis time an incomplete result is kept without being read
+   * @param spoolStore store of the spools of the cursors
+   * @return the cache
+   */
+  static Map<String, Cursor<Row, ColumnDescription>> createResultsCache(long timeToLiveMillis,
+                                                                         final ResultSpoolStore spoolStore) {
+    Map<String, Cursor<Row, ColumnDescription>> cursors = new HashMap<String, Cursor<Row, ColumnDescription>>() {
+      @Override
+      public Cursor<Row, ColumnDescription> remove(Object key) {
+        spoolStore.remove((String) key);
+        return super.remove(key);
+      }
+    };
+    PassiveExpiringMap<String, Cursor<Row, ColumnDescription>> resultsCacheExpiringMap =
+        new PassiveExpiringMap<>(new CustomTimeToLiveExpirationPolicy(timeToLiveMillis), cursors);
+    return Collections.synchronizedMap(resultsCacheExpiringMap);
+  }
+
   /**
    * Renew timer of cache entry.
    * @param key name/id of results request
@@ -155,11 +266,14 @@ public class ResultsPaginationController {
     return true;
   }
 
-  private Cursor<Row, ColumnDescription> getResultsSet(String key, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) {
+  private Cursor<Row, ColumnDescription> getResultsSet(String key, String username, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) {
     if (!getResultsCache().containsKey(key)) {
       Cursor resultSet;
       try {
         resultSet = makeResultsSet.call();
+        if (resultSet instanceof NonPersistentCursor) {
+          resultSet = new SpooledCursor(resultSet, spoolStore, key, username);
+        }
         if (resultSet.isResettable()) {
           resultSet.reset();
         }
@@ -177,19 +291,21 @@ public class ResultsPaginationController {
   /**
    * returns the results in standard format
    * @param key
+   * @param username
    * @param searchId
    * @param canExpire
    * @param fromBeginning
+   * @param offset : offset of the first row to fetch, or null to continue after the last fetched row
    * @param count
    * @param requestedColumns
    * @param makeResultsSet
    * @return
    * @throws HiveClientException
    */
-  public ResultsResponse fetchResult(String key, String searchId, boolean canExpire, String fromBeginning, Integer
-    count, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) throws HiveClientException {
+  public ResultsResponse fetchResult(String key, String username, String searchId, boolean canExpire, String fromBeginning,
+    Integer offset, Integer count, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) throws HiveClientException {
 
-    ResultProcessor resultProcessor = new ResultProcessor(key, searchId, canExpire, fromBeginning, count, requestedColumns, makeResultsSet).invoke();
+    ResultProcessor resultProcessor = new ResultProcessor(key, username, searchId, canExpire, fromBeginning, offset, count, requestedColumns, makeResultsSet).invoke();
     List<Object[]> rows = resultProcessor.getRows();
     List<ColumnDescription> schema = resultProcessor.getSchema();
     Cursor<Row, ColumnDescription> resultSet = resultProcessor.getResultSet();
@@ -201,9 +317,11 @@ public class ResultsPaginationController {
   /**
    * returns the results in either D3 format or starndard format wrapped inside ResponseBuilder object.
    * @param key
+   * @param username
    * @param searchId
    * @param canExpire
    * @param fromBeginning
+   * @param offset : offset of the first row to fetch, or null to continue after the last fetched row
    * @param count : number of rows to fetch
    * @param format : 'd3' or empty
    * @param requestedColumns
@@ -211,8 +329,8 @@ public class ResultsPaginationController {
    * @return
    * @throws HiveClientException
    */
-  public Response.ResponseBuilder request(String key, String searchId, boolean canExpire, String fromBeginning, Integer count, String format, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) throws HiveClientException {
-    ResultProcessor resultProcessor = new ResultProcessor(key, searchId, canExpire, fromBeginning, count, requestedColumns, makeResultsSet).invoke();
+  public Response.ResponseBuilder request(String key, String username, String searchId, boolean canExpire, String fromBeginning, Integer offset, Integer count, String format, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) throws HiveClientException {
+    ResultProcessor resultProcessor = new ResultProcessor(key, username, searchId, canExpire, fromBeginning, offset, count, requestedColumns, makeResultsSet).invoke();
     List<Object[]> rows = resultProcessor.getRows();
     List<ColumnDescription> schema = resultProcessor.getSchema();
     Cursor<Row, ColumnDescription> resultSet = resultProcessor.getResultSet();
@@ -348,9 +466,11 @@ public class ResultsPaginationController {
 
   private class ResultProcessor {
     private String key;
+    private String username;
     private String searchId;
     private boolean canExpire;
     private String fromBeginning;
+    private Integer offset;
     private Integer count;
     private String requestedColumns;
     private Callable<Cursor<Row, ColumnDescription>> makeResultsSet;
@@ -358,11 +478,13 @@ public class ResultsPaginationController {
     private List<ColumnDescription> schema;
     private List<Object[]> rows;
 
-    public ResultProcessor(String key, String searchId, boolean canExpire, String fromBeginning, Integer count, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) {
+    public ResultProcessor(String key, String username, String searchId, boolean canExpire, String fromBeginning, Integer offset, Integer count, String requestedColumns, Callable<Cursor<Row, ColumnDescription>> makeResultsSet) {
       this.key = key;
+      this.username = username;
       this.searchId = searchId;
       this.canExpire = canExpire;
       this.fromBeginning = fromBeginning;
+      this.offset = offset;
       this.count = count;
       this.requestedColumns = requestedColumns;
       this.makeResultsSet = makeResultsSet;
@@ -387,10 +509,23 @@ public class ResultsPaginationController {
       if (!canExpire)
         key = "$" + key;
       if (fromBeginning != null && fromBeginning.equals("true") && getResultsCache().containsKey(key)) {
-        getResultsCache().remove(key);
+        Cursor<Row, ColumnDescription> cachedResultSet = getResultsCache().get(key);
+        if (cachedResultSet != null && cachedResultSet.isResettable()) {
+          cachedResultSet.reset();
+        } else {
+          getResultsCache().remove(key);
+        }
       }
 
-      resultSet = getResultsSet(key, makeResultsSet);
+      resultSet = getResultsSet(key, username, makeResultsSet);
+      if (offset != null) {
+        if (resultSet instanceof SpooledCursor) {
+          ((SpooledCursor) resultSet).seek(offset);
+        } else if (offset != resultSet.getOffset()) {
+          throw new BadRequestFormattedException("Results can only be read in order, the next offset is " +
+            resultSet.getOffset(), null);
+        }
+      }
 
       if (count == null)
         count = DEFAULT_FETCH_COUNT;
@@ -417,6 +552,13 @@ public class ResultsPaginationController {
             }
           }
         }).toList();
+
+      // putting it again renews the expiration, the rows following the page are looked for
+      // in the background
+      getResultsCache().put(key, resultSet);
+      if (resultSet instanceof SpooledCursor) {
+        prefetch(key, (SpooledCursor) resultSet);
+      }
       return this;
     }
   }
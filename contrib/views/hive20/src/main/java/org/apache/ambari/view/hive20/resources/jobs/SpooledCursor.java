@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive20.resources.jobs;
+
+import com.google.common.collect.Lists;
+import org.apache.ambari.view.hive20.client.ColumnDescription;
+import org.apache.ambari.view.hive20.client.Cursor;
+import org.apache.ambari.view.hive20.client.Row;
+import org.apache.ambari.view.hive20.utils.BadRequestFormattedException;
+import org.apache.ambari.view.hive20.utils.ServiceFormattedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor which spools the rows read from another cursor to local disk.
+ * Rows which were read already are served from the spool, so the cursor can be reset
+ * and moved to any offset read before. Once the source cursor is exhausted it is closed,
+ * which releases the result set held by it.
+ * When the spool does not fit into the quota of the user, the spool is dropped and the
+ * cursor only reads the source cursor in order.
+ * The cursor is thread safe, so that it can look for more rows off the request thread.
+ */
+public class SpooledCursor implements Cursor<Row, ColumnDescription> {
+  private static final Logger LOG = LoggerFactory.getLogger(SpooledCursor.class);
+  private static final int PAGE_SIZE = 100;
+
+  private final Cursor<Row, ColumnDescription> source;
+  private final ResultSpoolStore spoolStore;
+  private final String key;
+  private final List<ColumnDescription> descriptions;
+  private ResultSpool spool;
+  private boolean sourceClosed;
+  private int offset;
+  private List<Row> page = Collections.emptyList();
+  private int pageOffset;
+
+  public SpooledCursor(Cursor<Row, ColumnDescription> source, ResultSpoolStore spoolStore, String key, String username) {
+    this.source = source;
+    this.spoolStore = spoolStore;
+    this.key = key;
+    this.descriptions = Lists.newArrayList(source.getDescriptions());
+    try {
+      this.spool = spoolStore.create(key, username, descriptions.size());
+    } catch (IOException e) {
+      LOG.warn("Failed to create a result spool for {}, results can only be read in order", key, e);
+    }
+  }
+
+  @Override
+  public synchronized boolean isResettable() {
+    return spool != null;
+  }
+
+  @Override
+  public synchronized void reset() {
+    if (spool != null) {
+      offset = 0;
+    }
+  }
+
+  /**
+   * Moves the cursor to the given offset
+   * @param target offset of the next row to read
+   */
+  public synchronized void seek(int target) {
+    if (target < 0) {
+      throw new BadRequestFormattedException("Offset should not be negative", null);
+    }
+    if (spool == null) {
+      if (target != offset) {
+        throw new BadRequestFormattedException("Results are too large to be kept and can only be read in order, " +
+          "the next offset is " + offset, null);
+      }
+      return;
+    }
+    if (target <= spool.getRowCount()) {
+      offset = target;
+      return;
+    }
+    offset = spool.getRowCount();
+    while (offset < target && hasNext()) {
+      next();
+    }
+  }
+
+  /**
+   * @return true if the whole result is spooled
+   */
+  public synchronized boolean isComplete() {
+    return spool != null && spool.isComplete();
+  }
+
+  @Override
+  public synchronized int getOffset() {
+    return offset;
+  }
+
+  @Override
+  public List<ColumnDescription> getDescriptions() {
+    return descriptions;
+  }
+
+  @Override
+  public synchronized void keepAlive() {
+    if (spool != null) {
+      spoolStore.touch(key);
+    }
+    if (!sourceClosed) {
+      source.keepAlive();
+    }
+  }
+
+  @Override
+  public Iterator<Row> iterator() {
+    return this;
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    if (spool != null && offset < spool.getRowCount()) {
+      return true;
+    }
+    if (sourceClosed) {
+      return false;
+    }
+    if (source.hasNext()) {
+      return true;
+    }
+    if (spool != null) {
+      completeSpool();
+    }
+    return false;
+  }
+
+  /**
+   * Looks for more rows, which fetches the next rows from the source cursor once the spooled
+   * rows are read, and completes the spool once the source cursor is exhausted.
+   * Failures are left for the next read to report.
+   */
+  public synchronized void prefetch() {
+    try {
+      hasNext();
+    } catch (RuntimeException e) {
+      LOG.debug("Failed to prefetch the results of {}", key, e);
+    }
+  }
+
+  @Override
+  public synchronized Row next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (spool != null && offset < spool.getRowCount()) {
+      return readFromSpool();
+    }
+
+    Row row = source.next();
+    if (spool != null) {
+      appendToSpool(row);
+    }
+    offset++;
+    return row;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Read only cursor. Method not supported");
+  }
+
+  private Row readFromSpool() {
+    if (offset < pageOffset || offset >= pageOffset + page.size()) {
+      try {
+        page = spool.read(offset, PAGE_SIZE);
+        pageOffset = offset;
+      } catch (IOException e) {
+        throw new ServiceFormattedException("Failed to read the results from the spool", e);
+      }
+    }
+    return page.get(offset++ - pageOffset);
+  }
+
+  private void appendToSpool(Row row) {
+    try {
+      if (spoolStore.reserve(key, spool.append(row))) {
+        return;
+      }
+      LOG.info("Results of {} do not fit into the spool quota, they can only be read in order", key);
+    } catch (IOException e) {
+      LOG.warn("Failed to spool the results of {}, they can only be read in order", key, e);
+    }
+    spoolStore.remove(key);
+    spool = null;
+    page = Collections.emptyList();
+  }
+
+  /**
+   * Marks the spool complete and closes the source cursor, the rows are served from the spool from now on
+   */
+  private void completeSpool() {
+    try {
+      spool.complete();
+    } catch (IOException e) {
+      LOG.warn("Failed to complete the result spool of {}", key, e);
+      spoolStore.remove(key);
+      spool = null;
+      return;
+    }
+    if (source instanceof Closeable) {
+      try {
+        ((Closeable) source).close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close the results of {}", key, e);
+      }
+    }
+    sourceClosed = true;
+  }
+}
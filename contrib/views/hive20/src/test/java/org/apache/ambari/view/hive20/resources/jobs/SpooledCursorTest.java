@@ -0,0 +1,418 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.view.hive20.resources.jobs;
+
+import org.apache.ambari.view.hive20.client.ColumnDescription;
+import org.apache.ambari.view.hive20.client.ColumnDescriptionShort;
+import org.apache.ambari.view.hive20.client.Cursor;
+import org.apache.ambari.view.hive20.client.Row;
+import org.apache.ambari.view.hive20.utils.BadRequestFormattedException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link SpooledCursor} over results of an embedded database.
+ */
+public class SpooledCursorTest {
+  private static final int ROW_COUNT = 250;
+  private static final String QUERY = "SELECT id, name, amount, flag FROM results ORDER BY id";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Connection connection;
+  private File spoolDirectory;
+  private final List<String> evicted = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection("jdbc:h2:mem:" + getClass().getSimpleName());
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE results (id INT, name VARCHAR(100), amount DECIMAL(10, 2), flag BOOLEAN)");
+    }
+    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO results VALUES (?, ?, ?, ?)")) {
+      for (int i = 0; i < ROW_COUNT; i++) {
+        statement.setInt(1, i);
+        statement.setString(2, i % 10 == 0 ? null : "name " + i);
+        statement.setBigDecimal(3, new BigDecimal(i).movePointLeft(2));
+        statement.setBoolean(4, i % 2 == 0);
+        statement.execute();
+      }
+    }
+    spoolDirectory = temporaryFolder.newFolder("spool");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  /**
+   * Tests that rows read before are read again from the spool, and that the result
+   * set is closed once it was read to the end.
+   */
+  @Test
+  public void testReadFromSpool() throws Exception {
+    ResultSpoolStore store = createStore(1024 * 1024);
+    JdbcCursor source = new JdbcCursor(connection, QUERY);
+    SpooledCursor cursor = new SpooledCursor(source, store, "job1", "user");
+
+    Assert.assertEquals(4, cursor.getDescriptions().size());
+    List<Row> firstPage = read(cursor, 100);
+    Assert.assertEquals(100, cursor.getOffset());
+    assertRows(firstPage, 0);
+
+    Assert.assertTrue(cursor.isResettable());
+    cursor.seek(0);
+    Assert.assertEquals(firstPage, read(cursor, 100));
+
+    List<Row> rest = read(cursor, ROW_COUNT);
+    Assert.assertEquals(ROW_COUNT - 100, rest.size());
+    assertRows(rest, 100);
+    Assert.assertFalse(cursor.hasNext());
+    Assert.assertTrue(cursor.isComplete());
+    Assert.assertTrue(source.isClosed());
+
+    cursor.seek(150);
+    assertRows(read(cursor, 30), 150);
+    cursor.reset();
+    Assert.assertEquals(firstPage, read(cursor, 100));
+    Assert.assertTrue(store.getUsage("user") > 0);
+  }
+
+  /**
+   * Tests that the rows following a page are looked for by a prefetch, which completes the spool.
+   */
+  @Test
+  public void testPrefetch() throws Exception {
+    JdbcCursor source = new JdbcCursor(connection, QUERY);
+    SpooledCursor cursor = new SpooledCursor(source, createStore(1024 * 1024), "job1", "user");
+
+    read(cursor, 100);
+    cursor.prefetch();
+    Assert.assertFalse(cursor.isComplete());
+
+    Assert.assertEquals(ROW_COUNT - 100, read(cursor, ROW_COUNT - 100).size());
+    Assert.assertFalse(cursor.isComplete());
+    cursor.prefetch();
+    Assert.assertTrue(cursor.isComplete());
+    Assert.assertTrue(source.isClosed());
+  }
+
+  /**
+   * Tests that timestamps, dates and binary values are read from the spool with their types.
+   */
+  @Test
+  public void testTypedValues() throws Exception {
+    Timestamp timestamp = Timestamp.valueOf("2017-03-04 05:06:07.123456789");
+    Date date = Date.valueOf("2017-03-04");
+    byte[] bytes = { 0, 1, -1, 127 };
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE typed (ts TIMESTAMP(9), day DATE, data VARBINARY(10))");
+    }
+    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO typed VALUES (?, ?, ?)")) {
+      statement.setTimestamp(1, timestamp);
+      statement.setDate(2, date);
+      statement.setBytes(3, bytes);
+      statement.execute();
+      statement.setNull(1, Types.TIMESTAMP);
+      statement.setNull(2, Types.DATE);
+      statement.setNull(3, Types.VARBINARY);
+      statement.execute();
+    }
+
+    SpooledCursor cursor = new SpooledCursor(new JdbcCursor(connection, "SELECT ts, day, data FROM typed"),
+      createStore(1024 * 1024), "job1", "user");
+    Assert.assertEquals(2, read(cursor, 2).size());
+    cursor.seek(0);
+    List<Row> rows = read(cursor, 2);
+
+    Object[] values = rows.get(0).getRow();
+    Assert.assertEquals(Timestamp.class, values[0].getClass());
+    Assert.assertEquals(timestamp, values[0]);
+    Assert.assertEquals(Date.class, values[1].getClass());
+    Assert.assertEquals(date, values[1]);
+    Assert.assertArrayEquals(bytes, (byte[]) values[2]);
+    Assert.assertArrayEquals(new Object[] { null, null, null }, rows.get(1).getRow());
+  }
+
+  /**
+   * Tests that results which do not fit into the quota are read in order from the result set.
+   */
+  @Test
+  public void testQuotaExceeded() throws Exception {
+    ResultSpoolStore store = createStore(1024);
+    JdbcCursor source = new JdbcCursor(connection, QUERY);
+    SpooledCursor cursor = new SpooledCursor(source, store, "job1", "user");
+
+    List<Row> rows = read(cursor, ROW_COUNT);
+    assertRows(rows, 0);
+    Assert.assertFalse(cursor.hasNext());
+    Assert.assertFalse(cursor.isResettable());
+    Assert.assertFalse(cursor.isComplete());
+    Assert.assertFalse(source.isClosed());
+    Assert.assertEquals(0, store.getUsage("user"));
+    Assert.assertEquals(0, store.size());
+    Assert.assertEquals(0, spoolDirectory.list().length);
+
+    try {
+      cursor.seek(0);
+      Assert.fail("Expected the cursor not to move back");
+    } catch (BadRequestFormattedException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Tests that the least recently used results of a user are evicted to make room for new ones.
+   */
+  @Test
+  public void testEviction() throws Exception {
+    ResultSpoolStore measuringStore = createStore(Long.MAX_VALUE);
+    read(new SpooledCursor(new JdbcCursor(connection, QUERY), measuringStore, "job", "user"), ROW_COUNT);
+    long resultSize = measuringStore.getUsage("user");
+
+    ResultSpoolStore store = createStore(resultSize * 3 / 2);
+    read(new SpooledCursor(new JdbcCursor(connection, QUERY), store, "job1", "user"), ROW_COUNT);
+    read(new SpooledCursor(new JdbcCursor(connection, QUERY), store, "other", "otherUser"), ROW_COUNT);
+    Assert.assertTrue(evicted.isEmpty());
+
+    SpooledCursor cursor = new SpooledCursor(new JdbcCursor(connection, QUERY), store, "job2", "user");
+    read(cursor, ROW_COUNT);
+    Assert.assertFalse(cursor.hasNext());
+    Assert.assertTrue(cursor.isComplete());
+    Assert.assertEquals(1, evicted.size());
+    Assert.assertEquals("job1", evicted.get(0));
+    Assert.assertEquals(resultSize, store.getUsage("user"));
+    Assert.assertEquals(resultSize, store.getUsage("otherUser"));
+    Assert.assertEquals(2, store.size());
+  }
+
+  /**
+   * Tests that the spool directory and the spools are only accessible by the server user.
+   */
+  @Test
+  public void testSpoolsOwnerOnly() throws Exception {
+    Path directory = spoolDirectory.toPath();
+    Assume.assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+    read(new SpooledCursor(new JdbcCursor(connection, QUERY), createStore(1024 * 1024), "job1", "user"), 10);
+
+    Assert.assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+    File[] spools = spoolDirectory.listFiles();
+    Assert.assertEquals(1, spools.length);
+    Assert.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(spools[0].toPath())));
+  }
+
+  /**
+   * Tests that results are not spooled to a directory reached through a link.
+   */
+  @Test
+  public void testLinkedDirectoryRefused() throws Exception {
+    Path link = temporaryFolder.getRoot().toPath().resolve("link");
+    try {
+      Files.createSymbolicLink(link, spoolDirectory.toPath());
+    } catch (UnsupportedOperationException e) {
+      Assume.assumeNoException(e);
+    }
+    ResultSpoolStore store = new ResultSpoolStore(link.toFile(), 1024 * 1024, new ResultSpoolStore.EvictionListener() {
+      @Override
+      public void onEvicted(String key) {
+        evicted.add(key);
+      }
+    });
+    SpooledCursor cursor = new SpooledCursor(new JdbcCursor(connection, QUERY), store, "job1", "user");
+
+    assertRows(read(cursor, ROW_COUNT), 0);
+    Assert.assertFalse(cursor.isResettable());
+    Assert.assertEquals(0, store.size());
+    Assert.assertEquals(0, spoolDirectory.list().length);
+  }
+
+  /**
+   * Tests that the spool of a result which expires from the results cache before it was read
+   * to the end is deleted, while a completely spooled result is kept.
+   */
+  @Test
+  public void testExpiredResultReleasesSpool() throws Exception {
+    ResultSpoolStore store = createStore(1024 * 1024);
+    Map<String, Cursor<Row, ColumnDescription>> cache = ResultsPaginationController.createResultsCache(50, store);
+    SpooledCursor complete = new SpooledCursor(new JdbcCursor(connection, QUERY), store, "job2", "user");
+    read(complete, ROW_COUNT);
+    Assert.assertFalse(complete.hasNext());
+    Assert.assertTrue(complete.isComplete());
+    long completeSize = store.getUsage("user");
+    SpooledCursor incomplete = new SpooledCursor(new JdbcCursor(connection, QUERY), store, "job1", "user");
+    read(incomplete, 100);
+    Assert.assertTrue(store.getUsage("user") > completeSize);
+    cache.put("job1", incomplete);
+    cache.put("job2", complete);
+
+    Thread.sleep(100);
+    Assert.assertFalse(cache.containsKey("job1"));
+    Assert.assertTrue(cache.containsKey("job2"));
+    Assert.assertEquals(1, store.size());
+    Assert.assertEquals(completeSize, store.getUsage("user"));
+    Assert.assertEquals(1, spoolDirectory.list().length);
+  }
+
+  private ResultSpoolStore createStore(long quota) {
+    return new ResultSpoolStore(spoolDirectory, quota, new ResultSpoolStore.EvictionListener() {
+      @Override
+      public void onEvicted(String key) {
+        evicted.add(key);
+      }
+    });
+  }
+
+  private static List<Row> read(Cursor<Row, ColumnDescription> cursor, int count) {
+    List<Row> rows = new ArrayList<>();
+    while (rows.size() < count && cursor.hasNext()) {
+      rows.add(cursor.next());
+    }
+    return rows;
+  }
+
+  private static void assertRows(List<Row> rows, int firstId) {
+    for (int i = 0; i < rows.size(); i++) {
+      int id = firstId + i;
+      Object[] values = rows.get(i).getRow();
+      Assert.assertEquals(id, values[0]);
+      Assert.assertEquals(id % 10 == 0 ? null : "name " + id, values[1]);
+      Assert.assertEquals(new BigDecimal(id).movePointLeft(2), values[2]);
+      Assert.assertEquals(id % 2 == 0, values[3]);
+    }
+  }
+
+  /**
+   * Cursor over a JDBC result set, in place of the cursor over the Hive result set iterator actor.
+   */
+  private static class JdbcCursor implements Cursor<Row, ColumnDescription>, Closeable {
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final List<ColumnDescription> descriptions = new ArrayList<>();
+    private Row nextRow;
+    private int offset;
+
+    private JdbcCursor(Connection connection, String query) throws SQLException {
+      statement = connection.createStatement();
+      resultSet = statement.executeQuery(query);
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      for (int i = 1; i <= metaData.getColumnCount(); i++) {
+        descriptions.add(new ColumnDescriptionShort(metaData.getColumnName(i), metaData.getColumnTypeName(i), i));
+      }
+    }
+
+    @Override
+    public boolean isResettable() {
+      return false;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public int getOffset() {
+      return offset;
+    }
+
+    @Override
+    public List<ColumnDescription> getDescriptions() {
+      return descriptions;
+    }
+
+    @Override
+    public void keepAlive() {
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        if (nextRow == null && resultSet.next()) {
+          Object[] values = new Object[descriptions.size()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = resultSet.getObject(i + 1);
+          }
+          nextRow = new Row(values);
+        }
+        return nextRow != null;
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public Row next() {
+      hasNext();
+      Row row = nextRow;
+      nextRow = null;
+      offset++;
+      return row;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private boolean isClosed() throws SQLException {
+      return resultSet.isClosed();
+    }
+  }
+}